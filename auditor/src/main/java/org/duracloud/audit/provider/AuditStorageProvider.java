@@ -8,7 +8,9 @@
 package org.duracloud.audit.provider;
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -22,6 +24,8 @@ import org.duracloud.common.queue.task.Task;
 import org.duracloud.common.util.UserUtil;
 import org.duracloud.storage.domain.RetrievedContent;
 import org.duracloud.storage.domain.StorageProviderType;
+import org.duracloud.storage.error.NotFoundException;
+import org.duracloud.storage.error.StorageException;
 import org.duracloud.storage.provider.StorageProvider;
 
 /**
@@ -40,6 +44,7 @@ public class AuditStorageProvider implements StorageProvider {
     private String storeType;
     private UserUtil userUtil;
     private TaskQueue taskQueue;
+    private AuditTaskBuffer taskBuffer;
     private ReadLogger readLogger;
     private WriteLogger writeLogger;
 
@@ -60,6 +65,20 @@ public class AuditStorageProvider implements StorageProvider {
         this.writeLogger = new WriteLogger();
     }
 
+    /**
+     * Creates an AuditStorageProvider which passes write tasks to the task
+     * queue through the given buffer, rather than waiting on the queue.
+     */
+    public AuditStorageProvider(StorageProvider target,
+                                String account,
+                                String storeId,
+                                String storeType,
+                                UserUtil userUtil,
+                                AuditTaskBuffer taskBuffer) {
+        this(target, account, storeId, storeType, userUtil, (TaskQueue) null);
+        this.taskBuffer = taskBuffer;
+    }
+
     /*
      * Intended to be used for testing
      */
@@ -99,7 +118,11 @@ public class AuditStorageProvider implements StorageProvider {
         task.setSourceContentId(sourceContentId);
 
         Task writeTask = task.writeTask();
-        taskQueue.put(writeTask);
+        if (null != taskBuffer) {
+            taskBuffer.submit(writeTask);
+        } else {
+            taskQueue.put(writeTask);
+        }
         writeLogger.log(writeTask);
     }
 
@@ -299,10 +322,61 @@ public class AuditStorageProvider implements StorageProvider {
     public void deleteContent(String spaceId, String contentId) {
 
         Map<String, String> props = target.getContentProperties(spaceId, contentId);
+        target.deleteContent(spaceId, contentId);
+        submitDeleteTask(spaceId, contentId, props);
+    }
+
+    /**
+     * Removes the content items with a single call to the target provider,
+     * so that it is able to remove them in bulk, and records a delete for
+     * each item which was removed. Should the bulk delete fail, the items
+     * are deleted one at a time to find out which of them were removed.
+     */
+    @Override
+    public void deleteContents(String spaceId, List<String> contentIds) {
+        Map<String, Map<String, String>> contentProps = new LinkedHashMap<>();
+        for (String contentId : contentIds) {
+            try {
+                contentProps.put(contentId,
+                                 target.getContentProperties(spaceId, contentId));
+            } catch (NotFoundException e) {
+                // Already deleted, so there is nothing to record
+            }
+        }
+
+        StorageException error = null;
+        try {
+            target.deleteContents(spaceId, new ArrayList<>(contentProps.keySet()));
+        } catch (StorageException e) {
+            error = e;
+            Iterator<String> remaining = contentProps.keySet().iterator();
+            while (remaining.hasNext()) {
+                String contentId = remaining.next();
+                try {
+                    target.deleteContent(spaceId, contentId);
+                } catch (NotFoundException nfe) {
+                    // Removed by the bulk delete
+                } catch (StorageException se) {
+                    remaining.remove();
+                }
+            }
+        }
+
+        for (Map.Entry<String, Map<String, String>> entry : contentProps.entrySet()) {
+            submitDeleteTask(spaceId, entry.getKey(), entry.getValue());
+        }
+
+        if (null != error) {
+            throw error;
+        }
+    }
+
+    private void submitDeleteTask(String spaceId,
+                                  String contentId,
+                                  Map<String, String> props) {
         String contentMimetype = props.get(StorageProvider.PROPERTIES_CONTENT_MIMETYPE);
         String contentSize = props.get(StorageProvider.PROPERTIES_CONTENT_SIZE);
         String contentChecksum = props.get(StorageProvider.PROPERTIES_CONTENT_CHECKSUM);
-        target.deleteContent(spaceId, contentId);
         String action = AuditTask.ActionType.DELETE_CONTENT.name();
         submitWriteTask(action, spaceId, contentId, contentChecksum, contentMimetype,
                         contentSize, null, null, AuditTask.NA, AuditTask.NA);
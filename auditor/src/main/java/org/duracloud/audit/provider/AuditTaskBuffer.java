@@ -0,0 +1,577 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.audit.provider;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.input.CountingInputStream;
+import org.duracloud.common.queue.TaskQueue;
+import org.duracloud.common.queue.task.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds audit tasks in a bounded in-memory buffer from which they are placed
+ * on the audit task queue by a background thread, so that storage operations
+ * do not wait on the audit queue.
+ *
+ * Tasks which accumulate while the queue is being written to are sent
+ * together in batch puts. When the queue cannot be reached, tasks are
+ * appended to a local spill file, and the contents of the spill file are
+ * placed on the queue once it can be reached again (including after a
+ * restart). The spill file is read and sent a batch at a time, and the
+ * position of the tasks sent so far is recorded, so that only the tasks
+ * which remain are spilled again if sending stops part way. Delivery is at
+ * least once: a task may be placed on the queue twice if a failure occurs
+ * part way through sending a batch.
+ */
+public class AuditTaskBuffer implements Closeable {
+
+    private static final Logger log =
+        LoggerFactory.getLogger(AuditTaskBuffer.class);
+
+    /**
+     * Determines what is done with a task when the buffer is full
+     */
+    public enum OverflowPolicy {
+        /**
+         * The caller waits until there is space in the buffer
+         */
+        BLOCK,
+        /**
+         * The task is appended to the spill file by the caller, or placed on
+         * the queue by the caller if there is no spill file
+         */
+        SPILL,
+        /**
+         * The task is placed on the queue by the caller
+         */
+        CALLER_PUTS
+    }
+
+    public static final int DEFAULT_CAPACITY = 10000;
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final long DEFAULT_RETRY_INTERVAL = 60000;
+
+    private static final long POLL_INTERVAL = 1000;
+    private static final long CLOSE_TIMEOUT = 30000;
+    private static final int MAX_STRING_LENGTH = 16 * 1024 * 1024;
+
+    // Buffers for the same spill file may exist together while one replaces
+    // another, so access to each spill file is shared between them
+    private static final Map<File, Object> spillLocks = new ConcurrentHashMap<>();
+
+    private TaskQueue taskQueue;
+    private BlockingQueue<Task> buffer;
+    private int batchSize;
+    private long retryInterval;
+    private OverflowPolicy overflowPolicy;
+    private File spillFile;
+    private File replayFile;
+    private File replayOffsetFile;
+    private Object spillLock;
+
+    private Thread flusher;
+    private volatile boolean running = true;
+    private volatile long queueRetryTime = 0;
+
+    public AuditTaskBuffer(TaskQueue taskQueue, File spillFile) {
+        this(taskQueue,
+             DEFAULT_CAPACITY,
+             DEFAULT_BATCH_SIZE,
+             DEFAULT_RETRY_INTERVAL,
+             OverflowPolicy.SPILL,
+             spillFile);
+    }
+
+    /**
+     * @param taskQueue      the queue on which tasks are placed
+     * @param capacity       the maximum number of tasks held in memory
+     * @param batchSize      the maximum number of tasks in a single put
+     * @param retryInterval  time (in ms) after a failed put before the queue
+     *                       is used again, tasks are spilled in the meantime
+     * @param overflowPolicy what is done with tasks when the buffer is full
+     * @param spillFile      file holding tasks which could not be placed on
+     *                       the queue, may be null in which case such tasks
+     *                       are lost
+     */
+    public AuditTaskBuffer(TaskQueue taskQueue,
+                           int capacity,
+                           int batchSize,
+                           long retryInterval,
+                           OverflowPolicy overflowPolicy,
+                           File spillFile) {
+        this.taskQueue = taskQueue;
+        this.buffer = new LinkedBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.retryInterval = retryInterval;
+        this.overflowPolicy = overflowPolicy;
+
+        if (null != spillFile) {
+            this.spillFile = spillFile.getAbsoluteFile();
+            this.spillFile.getParentFile().mkdirs();
+            this.replayFile = new File(this.spillFile.getPath() + ".replay");
+            this.replayOffsetFile = new File(this.spillFile.getPath() + ".replay.offset");
+            this.spillLock =
+                spillLocks.computeIfAbsent(this.spillFile, file -> new Object());
+            recoverReplay();
+        }
+
+        this.flusher = new Thread(this::flush, "audit-task-buffer");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Adds a task to be placed on the queue. Once the buffer has been closed,
+     * tasks are placed on the queue directly.
+     *
+     * @param task audit task
+     */
+    public void submit(Task task) {
+        if (!running) {
+            taskQueue.put(task);
+        } else if (buffer.offer(task)) {
+            if (!running) {
+                // Closed while the task was being added
+                flushRemaining();
+            }
+        } else {
+            if (overflowPolicy == OverflowPolicy.BLOCK) {
+                try {
+                    buffer.put(task);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    taskQueue.put(task);
+                }
+            } else if (overflowPolicy == OverflowPolicy.SPILL && null != spillFile) {
+                spill(Collections.singletonList(task));
+            } else {
+                taskQueue.put(task);
+            }
+        }
+    }
+
+    /**
+     * @return the number of tasks waiting in memory to be placed on the queue
+     */
+    public int size() {
+        return buffer.size();
+    }
+
+    /**
+     * Places all buffered tasks on the queue (or in the spill file), after
+     * which further tasks are placed on the queue directly.
+     */
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        try {
+            flusher.join(CLOSE_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        flushRemaining();
+    }
+
+    /*
+     * Handles tasks which the flusher did not get to before it stopped
+     */
+    private void flushRemaining() {
+        List<Task> remaining = new ArrayList<>();
+        buffer.drainTo(remaining);
+        if (null != spillFile) {
+            spill(remaining);
+        } else if (!remaining.isEmpty()) {
+            deliver(remaining);
+        }
+    }
+
+    private void flush() {
+        replaySpill();
+        while (running || !buffer.isEmpty()) {
+            List<Task> batch = new ArrayList<>(batchSize);
+            try {
+                Task task = buffer.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (null != task) {
+                    batch.add(task);
+                    buffer.drainTo(batch, batchSize - 1);
+                }
+            } catch (InterruptedException e) {
+                log.warn("Audit task buffer interrupted");
+                running = false;
+            }
+
+            if (!batch.isEmpty()) {
+                if (isQueueAvailable()) {
+                    deliver(batch);
+                } else {
+                    spill(batch);
+                }
+            }
+
+            if (running && isQueueAvailable()) {
+                replaySpill();
+            }
+        }
+    }
+
+    private boolean isQueueAvailable() {
+        return System.currentTimeMillis() >= queueRetryTime;
+    }
+
+    /*
+     * Places the tasks on the queue, any tasks which cannot be placed on the
+     * queue are spilled.
+     */
+    private void deliver(List<Task> tasks) {
+        int delivered = 0;
+        try {
+            for (Set<Task> batch : toBatches(tasks)) {
+                taskQueue.put(batch);
+                delivered += batch.size();
+            }
+        } catch (Exception e) {
+            log.error("Unable to place " + (tasks.size() - delivered) +
+                      " audit tasks on queue " + taskQueue.getName() +
+                      ", will retry in " + retryInterval + "ms: " +
+                      e.getMessage(), e);
+            queueRetryTime = System.currentTimeMillis() + retryInterval;
+            spill(tasks.subList(delivered, tasks.size()));
+        }
+    }
+
+    /*
+     * Splits the tasks into sets of up to the batch size. Tasks are equal
+     * when all of their properties are equal, so a task which is equal to
+     * one already in a set starts the next set rather than being dropped.
+     */
+    private List<Set<Task>> toBatches(List<Task> tasks) {
+        List<Set<Task>> batches = new ArrayList<>();
+        Set<Task> batch = new LinkedHashSet<>();
+        for (Task task : tasks) {
+            if (batch.size() >= batchSize || batch.contains(task)) {
+                batches.add(batch);
+                batch = new LinkedHashSet<>();
+            }
+            batch.add(task);
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    private void spill(List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        } else if (null == spillFile) {
+            for (Task task : tasks) {
+                log.error("Audit task lost, no spill file is configured: {}", task);
+            }
+            return;
+        }
+
+        synchronized (spillLock) {
+            try (FileOutputStream fileStream = new FileOutputStream(spillFile, true);
+                 DataOutputStream out =
+                     new DataOutputStream(new BufferedOutputStream(fileStream))) {
+                for (Task task : tasks) {
+                    writeTask(out, task);
+                }
+                out.flush();
+                fileStream.getFD().sync();
+                log.info("Spilled {} audit tasks to {}", tasks.size(), spillFile);
+            } catch (IOException e) {
+                log.error("Unable to spill audit tasks to " + spillFile + ": " +
+                          e.getMessage(), e);
+                for (Task task : tasks) {
+                    log.error("Audit task lost: {}", task);
+                }
+            }
+        }
+    }
+
+    /*
+     * Places the tasks held in the spill file on the queue. The spill file
+     * is moved aside while its tasks are sent, so that tasks can continue to
+     * be spilled in the meantime. Tasks are read and sent a batch at a time,
+     * and those which cannot be placed on the queue are spilled again.
+     */
+    private void replaySpill() {
+        if (null == spillFile) {
+            return;
+        }
+
+        synchronized (spillLock) {
+            if (replayFile.exists() || !spillFile.exists() ||
+                spillFile.length() == 0) {
+                return;
+            }
+            try {
+                Files.move(spillFile.toPath(), replayFile.toPath(),
+                           StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                log.error("Unable to move spill file " + spillFile + ": " +
+                          e.getMessage(), e);
+                return;
+            }
+        }
+
+        log.info("Placing spilled audit tasks on queue {}", taskQueue.getName());
+        long delivered = 0;
+        long count = 0;
+        try (TaskReader reader = new TaskReader(replayFile, 0)) {
+            List<Task> tasks;
+            while (!(tasks = reader.read(batchSize)).isEmpty()) {
+                try {
+                    for (Set<Task> batch : toBatches(tasks)) {
+                        taskQueue.put(batch);
+                    }
+                } catch (Exception e) {
+                    log.error("Unable to place spilled audit tasks on queue " +
+                              taskQueue.getName() + " after " + count +
+                              " were placed, will retry in " + retryInterval +
+                              "ms: " + e.getMessage(), e);
+                    queueRetryTime = System.currentTimeMillis() + retryInterval;
+                    break;
+                }
+                count += tasks.size();
+                delivered = reader.getOffset();
+                writeReplayOffset(delivered);
+            }
+        } catch (IOException e) {
+            log.error("Unable to read audit tasks from " + replayFile + ": " +
+                      e.getMessage(), e);
+        }
+        log.info("Placed {} spilled audit tasks on queue {}", count, taskQueue.getName());
+
+        synchronized (spillLock) {
+            respill(delivered);
+        }
+    }
+
+    /*
+     * Moves the tasks of a replay which did not complete, because of a
+     * restart, back into the spill file
+     */
+    private void recoverReplay() {
+        synchronized (spillLock) {
+            if (replayFile.exists()) {
+                respill(readReplayOffset());
+            }
+        }
+    }
+
+    /*
+     * Appends the tasks in the replay file which follow the given offset to
+     * the spill file, then removes the replay file. The caller must hold the
+     * spill lock.
+     */
+    private void respill(long offset) {
+        try (TaskReader reader = new TaskReader(replayFile, offset)) {
+            List<Task> tasks = reader.read(batchSize);
+            if (!tasks.isEmpty()) {
+                long count = 0;
+                try (FileOutputStream fileStream = new FileOutputStream(spillFile, true);
+                     DataOutputStream out =
+                         new DataOutputStream(new BufferedOutputStream(fileStream))) {
+                    do {
+                        for (Task task : tasks) {
+                            writeTask(out, task);
+                        }
+                        count += tasks.size();
+                    } while (!(tasks = reader.read(batchSize)).isEmpty());
+                    out.flush();
+                    fileStream.getFD().sync();
+                }
+                log.info("Spilled {} audit tasks to {}", count, spillFile);
+            }
+        } catch (IOException e) {
+            // The replay file is kept, so that its tasks are recovered later
+            log.error("Unable to spill audit tasks from " + replayFile + " to " +
+                      spillFile + ": " + e.getMessage(), e);
+            return;
+        }
+        deleteFile(replayFile);
+        deleteFile(replayOffsetFile);
+    }
+
+    /*
+     * Records the position in the replay file up to which tasks have been
+     * placed on the queue. This is not synced, as a lost update only means
+     * that some tasks are placed on the queue again.
+     */
+    private void writeReplayOffset(long offset) {
+        try {
+            Files.write(replayOffsetFile.toPath(),
+                        ByteBuffer.allocate(8).putLong(offset).array());
+        } catch (IOException e) {
+            log.warn("Unable to record audit task replay position in {}: {}",
+                     replayOffsetFile, e.getMessage());
+        }
+    }
+
+    private long readReplayOffset() {
+        try {
+            if (replayOffsetFile.exists()) {
+                byte[] bytes = Files.readAllBytes(replayOffsetFile.toPath());
+                if (bytes.length == 8) {
+                    long offset = ByteBuffer.wrap(bytes).getLong();
+                    if (offset >= 0 && offset <= replayFile.length()) {
+                        return offset;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Unable to read audit task replay position from {}: {}",
+                     replayOffsetFile, e.getMessage());
+        }
+        return 0;
+    }
+
+    private void deleteFile(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            log.error("Unable to delete " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the tasks in a spill file a batch at a time, keeping track of the
+     * position following the last task read.
+     */
+    private class TaskReader implements Closeable {
+        private final File file;
+        private final long startOffset;
+        private final CountingInputStream counter;
+        private final DataInputStream in;
+        private long offset;
+        private boolean done = false;
+
+        TaskReader(File file, long offset) throws IOException {
+            this.file = file;
+            this.startOffset = offset;
+            this.offset = offset;
+            FileInputStream fileStream = new FileInputStream(file);
+            try {
+                fileStream.getChannel().position(offset);
+            } catch (IOException e) {
+                fileStream.close();
+                throw e;
+            }
+            this.counter = new CountingInputStream(new BufferedInputStream(fileStream));
+            this.in = new DataInputStream(counter);
+        }
+
+        /*
+         * @return up to the given number of tasks, none once the end of the
+         * file has been reached
+         */
+        List<Task> read(int maxTasks) {
+            List<Task> tasks = new ArrayList<>();
+            while (!done && tasks.size() < maxTasks) {
+                try {
+                    tasks.add(readTask(in));
+                    offset = startOffset + counter.getByteCount();
+                } catch (EOFException e) {
+                    // End of file, or an incomplete final task which is dropped
+                    done = true;
+                } catch (IOException | IllegalArgumentException e) {
+                    log.error("Unable to read all audit tasks from " + file +
+                              ", tasks after position " + offset + " are lost: " +
+                              e.getMessage(), e);
+                    done = true;
+                }
+            }
+            return tasks;
+        }
+
+        long getOffset() {
+            return offset;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private void writeTask(DataOutputStream out, Task task) throws IOException {
+        writeString(out, task.getType().name());
+        Map<String, String> props = task.getProperties();
+        out.writeInt(props.size());
+        for (Map.Entry<String, String> prop : props.entrySet()) {
+            writeString(out, prop.getKey());
+            writeString(out, prop.getValue());
+        }
+    }
+
+    private Task readTask(DataInputStream in) throws IOException {
+        Task task = new Task();
+        task.setType(Task.Type.valueOf(readString(in)));
+        int propCount = in.readInt();
+        for (int i = 0; i < propCount; i++) {
+            task.addProperty(readString(in), readString(in));
+        }
+        return task;
+    }
+
+    private void writeString(DataOutputStream out, String value)
+        throws IOException {
+        if (null == value) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        } else if (length > MAX_STRING_LENGTH) {
+            throw new IOException("Invalid value length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -8,6 +8,7 @@
 package org.duracloud.audit.reader;
 
 import java.io.InputStream;
+import java.util.Date;
 
 import org.duracloud.storage.domain.AuditConfig;
 
@@ -27,6 +28,28 @@ public interface AuditLogReader {
     InputStream getAuditLog(String account, String storeId, String spaceId)
         throws AuditLogReaderException;
 
+    /**
+     * Returns the audit log as a tsv stream of audit events from first to
+     * last, limited to the audit log files which were written within a time
+     * range. Log files are selected by the date on which they were last
+     * modified, so the first and last files may include events from outside
+     * of the range.
+     *
+     * @param account   The account identifier - ie usually the subdomain of the original request.
+     * @param storeId
+     * @param spaceId
+     * @param startDate start of the time range, or null if there is no start
+     * @param endDate   end of the time range, or null if there is no end
+     * @return
+     * @throws AuditLogReaderException
+     */
+    InputStream getAuditLog(String account,
+                            String storeId,
+                            String spaceId,
+                            Date startDate,
+                            Date endDate)
+        throws AuditLogReaderException;
+
     void initialize(AuditConfig auditConfig);
 
 }
@@ -0,0 +1,245 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.audit.reader.impl;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.duracloud.audit.AuditLogUtil;
+import org.duracloud.common.util.DateUtil;
+import org.duracloud.storage.provider.StorageProvider;
+
+/**
+ * Reads the audit log objects of a space, in the order they are listed, as
+ * a single audit log.
+ *
+ * The log objects are fetched ahead of the reader, several at a time, and
+ * each is held in memory until it has been read, so the number of objects
+ * fetched ahead bounds the memory used. Only the first log object read
+ * contributes its header line.
+ *
+ * When a time range is given, log objects are selected by the date on which
+ * they were last modified, which is checked before they are downloaded. Log
+ * objects last modified before the start of the range are skipped, and
+ * reading ends with the first log object last modified after the end of the
+ * range, as any later objects were written after it. A log object last
+ * modified after the end of the range is not downloaded ahead of the reader,
+ * and no further log objects are fetched once one has been found.
+ */
+class AuditLogInputStream extends InputStream {
+
+    private final StorageProvider storageProvider;
+    private final String auditSpaceId;
+    private final Iterator<String> logIds;
+    private final ExecutorService executor;
+    private final int prefetch;
+    private final Date startDate;
+    private final Date endDate;
+
+    private final Deque<Future<LogObject>> pending = new ArrayDeque<>();
+    private byte[] current;
+    private int position;
+    private boolean headerWritten = false;
+    private boolean ended = false;
+    private volatile boolean pastEnd = false;
+
+    /**
+     * @param storageProvider provides the log objects
+     * @param auditSpaceId    space holding the log objects
+     * @param logIds          IDs of the log objects, in order
+     * @param executor        fetches the log objects
+     * @param prefetch        number of log objects fetched ahead of the reader
+     * @param startDate       start of the time range, may be null
+     * @param endDate         end of the time range, may be null
+     */
+    AuditLogInputStream(StorageProvider storageProvider,
+                        String auditSpaceId,
+                        Iterator<String> logIds,
+                        ExecutorService executor,
+                        int prefetch,
+                        Date startDate,
+                        Date endDate) {
+        this.storageProvider = storageProvider;
+        this.auditSpaceId = auditSpaceId;
+        this.logIds = logIds;
+        this.executor = executor;
+        this.prefetch = prefetch;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        fetchAhead();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return read == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (null == current || position >= current.length) {
+            if (!nextLogObject()) {
+                return -1;
+            }
+        }
+        int read = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, read);
+        position += read;
+        return read;
+    }
+
+    @Override
+    public void close() {
+        ended = true;
+        current = null;
+        while (!pending.isEmpty()) {
+            pending.poll().cancel(true);
+        }
+    }
+
+    /*
+     * Moves on to the next log object to be read, returning false once there
+     * are none left. Once all log objects have been read, the header is
+     * provided on its own if no log object was read.
+     */
+    private boolean nextLogObject() throws IOException {
+        Future<LogObject> next = ended ? null : pending.poll();
+        if (null == next) {
+            close();
+            if (!headerWritten) {
+                headerWritten = true;
+                setCurrent((AuditLogUtil.getHeader() + "\n").getBytes(StandardCharsets.UTF_8), 0);
+                return true;
+            }
+            return false;
+        }
+
+        LogObject logObject;
+        try {
+            logObject = next.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading audit log");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw (cause instanceof IOException) ? (IOException) cause : new IOException(cause);
+        }
+
+        if (logObject.last) {
+            ended = true;
+            if (null == logObject.content) {
+                logObject = download(logObject.logId, true);
+            }
+        }
+        if (null == logObject.content) {
+            setCurrent(null, 0);
+        } else if (headerWritten) {
+            setCurrent(logObject.content, logObject.bodyStart);
+        } else {
+            headerWritten = true;
+            setCurrent(logObject.content, 0);
+        }
+        fetchAhead();
+        return true;
+    }
+
+    private void setCurrent(byte[] content, int position) {
+        this.current = content;
+        this.position = position;
+    }
+
+    private void fetchAhead() {
+        while (!ended && !pastEnd && pending.size() < prefetch && logIds.hasNext()) {
+            String logId = logIds.next();
+            pending.add(executor.submit(() -> fetch(logId)));
+        }
+    }
+
+    /*
+     * Downloads a log object, unless it is outside of the time range. The
+     * first log object after the end of the range is downloaded by the
+     * reader, if it is reached.
+     */
+    private LogObject fetch(String logId) throws IOException {
+        if (null != startDate || null != endDate) {
+            Date modified = getModified(logId);
+            if (null != modified) {
+                if (null != startDate && modified.before(startDate)) {
+                    return new LogObject(logId, null, 0, false);
+                }
+                if (null != endDate && modified.after(endDate)) {
+                    pastEnd = true;
+                    return new LogObject(logId, null, 0, true);
+                }
+            }
+        }
+        return download(logId, false);
+    }
+
+    private LogObject download(String logId, boolean last) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        int bodyStart = -1;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+            storageProvider.getContent(auditSpaceId, logId).getContentStream(),
+            StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                content.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+                if (bodyStart < 0) {
+                    bodyStart = content.size();
+                }
+            }
+        }
+        return new LogObject(logId, content.toByteArray(), Math.max(bodyStart, 0), last);
+    }
+
+    private Date getModified(String logId) {
+        String modified = storageProvider.getContentProperties(auditSpaceId, logId)
+                                         .get(StorageProvider.PROPERTIES_CONTENT_MODIFIED);
+        if (null == modified) {
+            return null;
+        }
+        try {
+            return DateUtil.convertToDate(modified);
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    private static class LogObject {
+        private final String logId;
+        private final byte[] content;
+        private final int bodyStart;
+        private final boolean last;
+
+        LogObject(String logId, byte[] content, int bodyStart, boolean last) {
+            this.logId = logId;
+            this.content = content;
+            this.bodyStart = bodyStart;
+            this.last = last;
+        }
+    }
+
+}
@@ -7,28 +7,24 @@
  */
 package org.duracloud.audit.reader.impl;
 
-import java.io.BufferedReader;
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.text.MessageFormat;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
-import org.apache.commons.io.IOUtils;
-import org.duracloud.audit.AuditLogUtil;
 import org.duracloud.audit.reader.AuditLogReader;
 import org.duracloud.audit.reader.AuditLogReaderException;
 import org.duracloud.audit.reader.AuditLogReaderNotEnabledException;
 import org.duracloud.common.util.DuracloudConfigBean;
-import org.duracloud.error.ContentStoreException;
 import org.duracloud.s3storage.S3StorageProvider;
 import org.duracloud.storage.domain.AuditConfig;
 import org.duracloud.storage.domain.StorageAccount.OPTS;
@@ -47,6 +43,20 @@ public class AuditLogReaderImpl implements AuditLogReader {
     private static Logger log =
         LoggerFactory.getLogger(AuditLogReaderImpl.class);
 
+    /*
+     * Number of audit log files fetched ahead of the reader of each log
+     */
+    protected static final int LOG_PREFETCH = 4;
+
+    private static final AtomicInteger fetchThreadCount = new AtomicInteger();
+    private static final ExecutorService logFetchExecutor =
+        Executors.newFixedThreadPool(8, runnable -> {
+            Thread thread = new Thread(runnable, "audit-log-fetch-" +
+                                                 fetchThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
     private AuditConfig auditConfig;
 
     private StorageProvider storageProvider;
@@ -65,6 +75,22 @@ public class AuditLogReaderImpl implements AuditLogReader {
     @Override
     public InputStream getAuditLog(final String account, final String storeId, final String spaceId)
         throws AuditLogReaderException {
+        return getAuditLog(account, storeId, spaceId, null, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The audit log files are fetched as the stream is read, several at a
+     * time, on a pool of threads shared by all audit log requests.
+     */
+    @Override
+    public InputStream getAuditLog(final String account,
+                                   final String storeId,
+                                   final String spaceId,
+                                   final Date startDate,
+                                   final Date endDate)
+        throws AuditLogReaderException {
 
         checkEnabled();
 
@@ -72,55 +98,16 @@ public class AuditLogReaderImpl implements AuditLogReader {
         final String auditBucket = auditConfig.getAuditLogSpaceId();
 
         String prefix = MessageFormat.format("{0}/{1}/{2}/", account, storeId, spaceId);
-        final PipedInputStream is = new PipedInputStream(10 * 1024);
-        final PipedOutputStream os;
-        try {
-            os = new PipedOutputStream(is);
-        } catch (IOException e) {
-            throw new AuditLogReaderException(e);
-        }
-
+        log.debug("Reading audit log {} from {} to {}", prefix, startDate, endDate);
         try {
-            final Iterator<String> it =
+            Iterator<String> it =
                 this.storageProvider.getSpaceContents(auditBucket, prefix);
-            if (!it.hasNext()) {
-                os.write((AuditLogUtil.getHeader() + "\n").getBytes());
-                os.close();
-            }
-
-            new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        int count = 0;
-
-                        while (it.hasNext()) {
-                            String contentId = it.next();
-                            writeToOutputStream(auditBucket,
-                                                storageProvider,
-                                                os,
-                                                count,
-                                                contentId);
-
-                            count++;
-                        }
-
-                        os.close();
-
-                    } catch (ContentStoreException | IOException ex) {
-                        log.error(MessageFormat.format("failed to complete audit log read routine " +
-                                                       "for space: storeId={0}, spaceId={1}",
-                                                       storeId,
-                                                       spaceId),
-                                  ex);
-                    }
-                }
-            }).start();
-        } catch (StorageException | IOException e) {
+            return new AuditLogInputStream(storageProvider, auditBucket, it,
+                                           logFetchExecutor, LOG_PREFETCH,
+                                           startDate, endDate);
+        } catch (StorageException e) {
             throw new AuditLogReaderException(e);
         }
-
-        return is;
     }
 
     private void checkEnabled() throws AuditLogReaderNotEnabledException {
@@ -145,31 +132,4 @@ public class AuditLogReaderImpl implements AuditLogReader {
         }
     }
 
-    protected void writeToOutputStream(String auditSpaceId,
-                                       StorageProvider storageProvider,
-                                       final PipedOutputStream os,
-                                       int count,
-                                       String contentId)
-        throws ContentStoreException,
-        IOException {
-
-        try (BufferedReader reader =
-                 new BufferedReader(new InputStreamReader(
-                     storageProvider.getContent(auditSpaceId, contentId).getContentStream()))) {
-            if (count > 0) {
-                // skip header if not hte first file
-                reader.readLine();
-            }
-
-            while (true) {
-                String line = reader.readLine();
-                if (line != null) {
-                    IOUtils.write(line + "\n", os);
-                } else {
-                    break;
-                }
-            }
-        }
-    }
-
 }
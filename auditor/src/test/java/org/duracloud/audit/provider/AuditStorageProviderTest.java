@@ -12,6 +12,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -23,6 +24,7 @@ import org.duracloud.common.queue.TaskQueue;
 import org.duracloud.common.queue.task.Task;
 import org.duracloud.common.util.UserUtil;
 import org.duracloud.storage.domain.StorageProviderType;
+import org.duracloud.storage.error.NotFoundException;
 import org.duracloud.storage.provider.StorageProvider;
 import org.easymock.Capture;
 import org.easymock.CaptureType;
@@ -404,6 +406,35 @@ public class AuditStorageProviderTest extends EasyMockSupport {
 
     }
 
+    @Test
+    public void testDeleteContents() throws Exception {
+        Capture<Task> auditTaskCapture = mockAuditCall();
+        Capture<Task> logCapture = mockWriteLogCall();
+        Map<String, String> props = new HashMap<>();
+        props.put(StorageProvider.PROPERTIES_CONTENT_MIMETYPE, contentMimeType);
+        props.put(StorageProvider.PROPERTIES_CONTENT_SIZE, contentSize + "");
+        props.put(StorageProvider.PROPERTIES_CONTENT_CHECKSUM, contentChecksum);
+
+        String missingId = "missing-id";
+        EasyMock.expect(targetProvider.getContentProperties(spaceId, contentId))
+                .andReturn(props);
+        EasyMock.expect(targetProvider.getContentProperties(spaceId, missingId))
+                .andThrow(new NotFoundException(missingId));
+
+        // Only items which exist are deleted and recorded
+        targetProvider.deleteContents(spaceId, Arrays.asList(contentId));
+        EasyMock.expectLastCall().once();
+        replayAll();
+        provider.deleteContents(spaceId, Arrays.asList(contentId, missingId));
+
+        Task auditTask = auditTaskCapture.getValue();
+        assertEquals(auditTask, logCapture.getValue());
+        Map<String, String> taskProps =
+            verifyTask(auditTask, AuditTask.ActionType.DELETE_CONTENT.name());
+        assertEquals(contentId, taskProps.get(AuditTask.CONTENT_ID_PROP));
+        assertEquals(contentChecksum, taskProps.get(AuditTask.CONTENT_CHECKSUM_PROP));
+    }
+
     @Test
     public void testSetContentProperties() throws Exception {
         Capture<Task> auditTaskCapture = mockAuditCall();
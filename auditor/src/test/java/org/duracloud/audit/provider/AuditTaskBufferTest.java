@@ -0,0 +1,257 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.audit.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.duracloud.common.error.DuraCloudRuntimeException;
+import org.duracloud.common.queue.local.LocalTaskQueue;
+import org.duracloud.common.queue.task.Task;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AuditTaskBufferTest {
+
+    private File tempDir;
+    private File spillFile;
+
+    @Before
+    public void setup() throws Exception {
+        tempDir = new File("target", "audit-task-buffer");
+        FileUtils.deleteDirectory(tempDir);
+        spillFile = new File(tempDir, "audit.spill");
+    }
+
+    @After
+    public void teardown() throws Exception {
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void testBatchedPuts() throws Exception {
+        SlowTaskQueue queue = new SlowTaskQueue();
+        AuditTaskBuffer buffer = new AuditTaskBuffer(queue, spillFile);
+        for (int i = 0; i < 200; i++) {
+            buffer.submit(createTask(i));
+        }
+        // Equal tasks are both delivered
+        buffer.submit(createTask(0));
+        buffer.close();
+
+        assertEquals(201, queue.size().intValue());
+        assertTrue(queue.getBatchSizes().size() < 201);
+        assertEquals(201, sum(queue.getBatchSizes()));
+        assertFalse(spillFile.exists());
+
+        // Once closed, tasks are placed on the queue directly
+        buffer.submit(createTask(201));
+        assertEquals(202, queue.size().intValue());
+    }
+
+    @Test
+    public void testSpillAndReplay() throws Exception {
+        FailingTaskQueue failingQueue = new FailingTaskQueue();
+        AuditTaskBuffer buffer =
+            new AuditTaskBuffer(failingQueue, 100, 10, 60000,
+                                AuditTaskBuffer.OverflowPolicy.SPILL, spillFile);
+        for (int i = 0; i < 25; i++) {
+            buffer.submit(createTask(i));
+        }
+        buffer.close();
+        assertTrue(spillFile.length() > 0);
+
+        // Spilled tasks are placed on the queue when it is next available
+        LocalTaskQueue queue = new LocalTaskQueue();
+        buffer = new AuditTaskBuffer(queue, spillFile);
+        buffer.close();
+        assertEquals(25, queue.size().intValue());
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            values.add(queue.take().getProperty("value"));
+        }
+        Collections.sort(values);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            expected.add(String.valueOf(i));
+        }
+        Collections.sort(expected);
+        assertEquals(expected, values);
+        assertFalse(spillFile.exists());
+    }
+
+    @Test
+    public void testReplayFailsPartWay() throws Exception {
+        spillTasks(25);
+
+        // The first batch is placed on the queue, only the rest are spilled again
+        PartlyFailingTaskQueue partlyFailingQueue = new PartlyFailingTaskQueue(1);
+        AuditTaskBuffer buffer =
+            new AuditTaskBuffer(partlyFailingQueue, 100, 10, 60000,
+                                AuditTaskBuffer.OverflowPolicy.SPILL, spillFile);
+        buffer.close();
+        assertEquals(10, partlyFailingQueue.size().intValue());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(String.valueOf(i),
+                         partlyFailingQueue.take().getProperty("value"));
+        }
+
+        LocalTaskQueue queue = new LocalTaskQueue();
+        buffer = new AuditTaskBuffer(queue, spillFile);
+        buffer.close();
+        assertEquals(15, queue.size().intValue());
+        for (int i = 10; i < 25; i++) {
+            assertEquals(String.valueOf(i), queue.take().getProperty("value"));
+        }
+        assertFalse(spillFile.exists());
+    }
+
+    @Test
+    public void testRecoverReplayFromOffset() throws Exception {
+        spillTasks(25);
+
+        // A replay which was interrupted after all of its tasks were sent
+        File replayFile = new File(spillFile.getPath() + ".replay");
+        Files.move(spillFile.toPath(), replayFile.toPath());
+        Files.write(new File(spillFile.getPath() + ".replay.offset").toPath(),
+                    ByteBuffer.allocate(8).putLong(replayFile.length()).array());
+
+        LocalTaskQueue queue = new LocalTaskQueue();
+        AuditTaskBuffer buffer = new AuditTaskBuffer(queue, spillFile);
+        buffer.close();
+        assertEquals(0, queue.size().intValue());
+        assertFalse(replayFile.exists());
+        assertFalse(spillFile.exists());
+    }
+
+    @Test
+    public void testOverflowCallerPuts() throws Exception {
+        BlockedTaskQueue queue = new BlockedTaskQueue();
+        AuditTaskBuffer buffer =
+            new AuditTaskBuffer(queue, 2, 10, 60000,
+                                AuditTaskBuffer.OverflowPolicy.CALLER_PUTS, null);
+        for (int i = 0; i < 10; i++) {
+            buffer.submit(createTask(i));
+        }
+        // Tasks beyond those in the buffer and being delivered were put directly
+        assertTrue(queue.size() >= 7);
+
+        queue.release();
+        buffer.close();
+        assertEquals(10, queue.size().intValue());
+    }
+
+    private void spillTasks(int count) {
+        AuditTaskBuffer buffer =
+            new AuditTaskBuffer(new FailingTaskQueue(), 100, 10, 60000,
+                                AuditTaskBuffer.OverflowPolicy.SPILL, spillFile);
+        for (int i = 0; i < count; i++) {
+            buffer.submit(createTask(i));
+        }
+        buffer.close();
+        assertTrue(spillFile.length() > 0);
+    }
+
+    private Task createTask(int value) {
+        Task task = new Task();
+        task.setType(Task.Type.AUDIT);
+        task.addProperty("value", String.valueOf(value));
+        return task;
+    }
+
+    private int sum(List<Integer> values) {
+        int sum = 0;
+        for (int value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    /*
+     * Takes some time to complete each put, as a remote queue would
+     */
+    private class SlowTaskQueue extends LocalTaskQueue {
+        private List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void put(Set<Task> tasks) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            batchSizes.add(tasks.size());
+            super.put(tasks);
+        }
+
+        public List<Integer> getBatchSizes() {
+            return batchSizes;
+        }
+    }
+
+    private class FailingTaskQueue extends LocalTaskQueue {
+        @Override
+        public void put(Set<Task> tasks) {
+            throw new DuraCloudRuntimeException("Queue unavailable");
+        }
+    }
+
+    /*
+     * Fails once the given number of batch puts have completed
+     */
+    private class PartlyFailingTaskQueue extends LocalTaskQueue {
+        private int remainingPuts;
+
+        PartlyFailingTaskQueue(int puts) {
+            this.remainingPuts = puts;
+        }
+
+        @Override
+        public synchronized void put(Set<Task> tasks) {
+            if (remainingPuts-- <= 0) {
+                throw new DuraCloudRuntimeException("Queue unavailable");
+            }
+            super.put(tasks);
+        }
+    }
+
+    /*
+     * Batch puts wait until released, single puts complete immediately
+     */
+    private class BlockedTaskQueue extends LocalTaskQueue {
+        private CountDownLatch latch = new CountDownLatch(1);
+
+        @Override
+        public void put(Set<Task> tasks) {
+            try {
+                latch.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            super.put(tasks);
+        }
+
+        public void release() {
+            latch.countDown();
+        }
+    }
+
+}
@@ -18,6 +18,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -25,11 +26,19 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import org.duracloud.audit.AuditLogUtil;
 import org.duracloud.audit.reader.AuditLogReaderException;
+import org.duracloud.common.util.DateUtil;
 import org.duracloud.error.ContentStoreException;
 import org.duracloud.mill.test.AbstractTestBase;
 import org.duracloud.storage.domain.AuditConfig;
@@ -119,6 +128,93 @@ public class AuditLogReaderImplTest extends AbstractTestBase {
         assertEquals(file1Lines.length + file2Lines.length - 1, totalCount);
     }
 
+    @Test
+    public void testGetAuditLogManyLogs() throws Exception {
+        String prefix = getPrefix();
+        int logCount = 40;
+        List<String> logIds = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < logCount; i++) {
+            String logId = prefix + "log" + i;
+            logIds.add(logId);
+            // Logs take varying times to fetch, so arrive out of order
+            int delay = random.nextInt(20);
+            String[] lines = {"header", "event-" + i + "-a", "event-" + i + "-b"};
+            expect(storageProvider.getContent(eq(globalAuditSpaceId), eq(logId)))
+                .andAnswer(() -> {
+                    Thread.sleep(delay);
+                    return createRetrievedContent(lines);
+                });
+        }
+        expect(storageProvider.getSpaceContents(eq(globalAuditSpaceId), eq(prefix)))
+            .andReturn(logIds.iterator());
+        expect(config.getAuditLogSpaceId()).andReturn(globalAuditSpaceId);
+        mockCheckEnabled(config);
+        replayAll();
+
+        AuditLogReaderImpl auditReader = createAuditLogReader(storageProvider, config);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+            auditReader.getAuditLog(account, storeId, spaceId)));
+
+        assertEquals("header", reader.readLine());
+        for (int i = 0; i < logCount; i++) {
+            assertEquals("event-" + i + "-a", reader.readLine());
+            assertEquals("event-" + i + "-b", reader.readLine());
+        }
+        assertNull(reader.readLine());
+    }
+
+    @Test
+    public void testGetAuditLogTimeRange() throws Exception {
+        String prefix = getPrefix();
+        List<String> logIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            String logId = prefix + "log" + i;
+            logIds.add(logId);
+            Map<String, String> props = new HashMap<>();
+            props.put(StorageProvider.PROPERTIES_CONTENT_MODIFIED,
+                      DateUtil.convertToString(i * 1000L));
+            expect(storageProvider.getContentProperties(globalAuditSpaceId, logId))
+                .andReturn(props).times(0, 1);
+        }
+        expect(storageProvider.getSpaceContents(eq(globalAuditSpaceId), eq(prefix)))
+            .andReturn(logIds.iterator());
+
+        // Only logs modified from the start of the range are downloaded, up
+        // to and including the first modified after the end of the range.
+        // Later logs may be checked, but are never downloaded.
+        for (int i = 1; i < 4; i++) {
+            String[] lines = {"header", "event-" + i};
+            expect(storageProvider.getContent(globalAuditSpaceId, prefix + "log" + i))
+                .andReturn(createRetrievedContent(lines));
+        }
+        expect(config.getAuditLogSpaceId()).andReturn(globalAuditSpaceId);
+        mockCheckEnabled(config);
+        replayAll();
+
+        AuditLogReaderImpl auditReader = createAuditLogReader(storageProvider, config);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+            auditReader.getAuditLog(account, storeId, spaceId,
+                                    new Date(1000), new Date(2500))));
+
+        assertEquals("header", reader.readLine());
+        assertEquals("event-1", reader.readLine());
+        assertEquals("event-2", reader.readLine());
+        assertEquals("event-3", reader.readLine());
+        assertNull(reader.readLine());
+    }
+
+    private RetrievedContent createRetrievedContent(String[] lines) {
+        StringBuilder content = new StringBuilder();
+        for (String line : lines) {
+            content.append(line).append("\n");
+        }
+        RetrievedContent retrievedContent = new RetrievedContent();
+        retrievedContent.setContentStream(
+            new ByteArrayInputStream(content.toString().getBytes(StandardCharsets.UTF_8)));
+        return retrievedContent;
+    }
+
     @Test
     public void testGetLogNotFound() throws IOException, StorageException {
 
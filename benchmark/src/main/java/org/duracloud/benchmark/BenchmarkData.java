@@ -0,0 +1,67 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Generates the synthetic data used by the benchmarks. Data is generated from
+ * a fixed seed so that each run works over the same bytes.
+ */
+final class BenchmarkData {
+
+    private static final long SEED = 20200723L;
+
+    private BenchmarkData() {
+        // Ensures no instances are made of this class, as there are only static members.
+    }
+
+    /**
+     * @param size number of bytes
+     * @return random (but repeatable) bytes
+     */
+    static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(SEED).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * @param prefix of the directory name
+     * @return a new, empty directory under java.io.tmpdir
+     */
+    static File createTempDir(String prefix) {
+        try {
+            return Files.createTempDirectory(prefix).toFile();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create temp directory: " +
+                                       e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Removes a directory created by createTempDir along with its contents.
+     */
+    static void deleteTempDir(File dir) {
+        FileUtils.deleteQuietly(dir);
+    }
+
+    /**
+     * @param index of the checksum
+     * @return a unique hex string with the length of an MD5 checksum
+     */
+    static String fakeMd5(int index) {
+        return String.format("%032x", index * 2654435761L);
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.duracloud.sync.mgmt.ChangedFile;
+import org.duracloud.sync.mgmt.ChangedList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the sync tool's ChangedList as files are added to the list,
+ * reserved and removed by the sync workers, and as the list is persisted to
+ * the backup file. The files need not exist, as the list only tracks them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChangedListBenchmark {
+
+    @Param({"1000", "100000"})
+    public int fileCount;
+
+    private ChangedList changedList;
+    private File[] files;
+    private File tempDir;
+    private File persistFile;
+
+    @Setup
+    public void setup() {
+        changedList = ChangedList.getInstance();
+        tempDir = BenchmarkData.createTempDir("changed-list-benchmark");
+        persistFile = new File(tempDir, "changed-list.ser");
+
+        files = new File[fileCount];
+        for (int i = 0; i < fileCount; i++) {
+            files[i] = new File(tempDir, "dir-" + (i % 100) + "/file-" + i + ".dat");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        changedList.clear();
+        changedList.shutdown();
+        BenchmarkData.deleteTempDir(tempDir);
+    }
+
+    @Benchmark
+    public void addReserveRemove() {
+        for (File file : files) {
+            changedList.addChangedFile(file);
+        }
+
+        ChangedFile changedFile = changedList.reserve();
+        while (null != changedFile) {
+            changedFile.remove();
+            changedFile = changedList.reserve();
+        }
+    }
+
+    @Benchmark
+    public long persist(FilledList filledList) {
+        return changedList.persist(persistFile);
+    }
+
+    /**
+     * Fills the changed list before each iteration of the persist benchmark
+     */
+    @State(Scope.Benchmark)
+    public static class FilledList {
+        @Setup(Level.Iteration)
+        public void fill(ChangedListBenchmark benchmark) {
+            benchmark.changedList.clear();
+            for (File file : benchmark.files) {
+                benchmark.changedList.addChangedFile(file);
+            }
+        }
+    }
+
+}
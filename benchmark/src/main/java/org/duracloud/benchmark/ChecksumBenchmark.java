@@ -0,0 +1,107 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.duracloud.common.util.ChecksumUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to compute the checksum of 16 MB of content with
+ * ChecksumUtil, both from a file (as the sync tool does before an upload) and
+ * by wrapping a stream which is being transferred (as the retrieval tool
+ * does), across a range of read buffer sizes. Reading a file as a stream is
+ * compared with reading it through the file channel, and with computing
+ * MD5 and SHA-256 checksums in a single pass.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChecksumBenchmark {
+
+    private static final int DATA_SIZE = 16 * 1024 * 1024;
+
+    @Param({"MD5", "SHA_256"})
+    public ChecksumUtil.Algorithm algorithm;
+
+    @Param({"4096", "65536", "1048576"})
+    public int bufferSize;
+
+    private byte[] data;
+    private File tempDir;
+    private File dataFile;
+
+    @Setup
+    public void setup() throws IOException {
+        data = BenchmarkData.randomBytes(DATA_SIZE);
+        tempDir = BenchmarkData.createTempDir("checksum-benchmark");
+        dataFile = new File(tempDir, "data.bin");
+        FileUtils.writeByteArrayToFile(dataFile, data);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkData.deleteTempDir(tempDir);
+    }
+
+    @Benchmark
+    public String generateChecksumFromFile() throws IOException {
+        try (InputStream stream =
+                 new BufferedInputStream(new FileInputStream(dataFile), bufferSize)) {
+            return new ChecksumUtil(algorithm).generateChecksum(stream);
+        }
+    }
+
+    @Benchmark
+    public String generateChecksumFromFileChannel() throws IOException {
+        return new ChecksumUtil(algorithm, bufferSize).generateChecksum(dataFile);
+    }
+
+    @Benchmark
+    public Map<ChecksumUtil.Algorithm, String> generateChecksumsFromFile() throws IOException {
+        return ChecksumUtil.generateChecksums(dataFile,
+                                              ChecksumUtil.Algorithm.MD5,
+                                              ChecksumUtil.Algorithm.SHA_256);
+    }
+
+    @Benchmark
+    public String wrapStream() throws IOException {
+        DigestInputStream stream =
+            ChecksumUtil.wrapStream(new ByteArrayInputStream(data), algorithm);
+        byte[] buffer = new byte[bufferSize];
+        while (stream.read(buffer) != -1) {
+            // Digest is computed as the stream is read
+        }
+        return ChecksumUtil.getChecksum(stream);
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.duracloud.chunk.stream.ChunkInputStream;
+import org.duracloud.chunk.stream.CountingDigestInputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the time to read 32 MB of content through the streams used by the
+ * chunker, both when splitting the content into chunks and when reading it
+ * as a single item.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkStreamBenchmark {
+
+    private static final int DATA_SIZE = 32 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Param({"true", "false"})
+    public boolean preserveMD5;
+
+    private byte[] data;
+    private byte[] buffer;
+
+    @Setup
+    public void setup() {
+        data = BenchmarkData.randomBytes(DATA_SIZE);
+        buffer = new byte[BUFFER_SIZE];
+    }
+
+    @Benchmark
+    public void chunkInputStream(ChunkSize chunkSize, Blackhole blackhole)
+        throws IOException {
+        InputStream source = new ByteArrayInputStream(data);
+        long totalRead = 0;
+        int chunkNum = 0;
+        while (totalRead < data.length) {
+            ChunkInputStream chunk =
+                new ChunkInputStream("content.chunk-" + chunkNum++,
+                                     source,
+                                     chunkSize.size,
+                                     preserveMD5);
+            while (chunk.read(buffer) != -1) {
+                // Count and digest are computed as the chunk is read
+            }
+            totalRead += chunk.numBytesRead();
+            blackhole.consume(chunk.getMD5());
+        }
+    }
+
+    @Benchmark
+    public String countingDigestInputStream() throws IOException {
+        CountingDigestInputStream stream =
+            new CountingDigestInputStream(new ByteArrayInputStream(data),
+                                          preserveMD5);
+        while (stream.read(buffer) != -1) {
+            // Count and digest are computed as the stream is read
+        }
+        return stream.getMD5();
+    }
+
+    /**
+     * Chunk sizes apply only to the chunking benchmark
+     */
+    @State(Scope.Thread)
+    public static class ChunkSize {
+        @Param({"1048576", "8388608"})
+        public long size;
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.duracloud.common.constant.ManifestFormat;
+import org.duracloud.manifest.ManifestFormatter;
+import org.duracloud.manifest.impl.ManifestFormatterFactory;
+import org.duracloud.mill.db.model.ManifestItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures writing and parsing 10,000 manifest lines with each of the
+ * manifest formatters, as is done when a space manifest is generated and when
+ * a manifest is read back by the stitcher.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ManifestFormatterBenchmark {
+
+    private static final int ITEM_COUNT = 10000;
+
+    @Param({"TSV", "BAGIT"})
+    public ManifestFormat format;
+
+    private List<ManifestItem> items;
+    private List<String> lines;
+
+    @Setup
+    public void setup() {
+        ManifestFormatter formatter = createFormatter();
+        items = new ArrayList<>();
+        lines = new ArrayList<>();
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            ManifestItem item = new ManifestItem();
+            item.setSpaceId("space-id");
+            item.setContentId("dir-" + (i % 100) + "/file-" + i + ".dat");
+            item.setContentChecksum(BenchmarkData.fakeMd5(i));
+            items.add(item);
+            lines.add(formatter.formatLine(item));
+        }
+    }
+
+    private ManifestFormatter createFormatter() {
+        return new ManifestFormatterFactory().create(format);
+    }
+
+    @Benchmark
+    public int writeManifest() {
+        ManifestFormatter formatter = createFormatter();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (ManifestItem item : items) {
+            formatter.writeManifestItemToOutput(item, output);
+        }
+        return output.size();
+    }
+
+    @Benchmark
+    public int writeManifestItems() {
+        ManifestFormatter formatter = createFormatter();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        formatter.writeManifestItemsToOutput(items.iterator(), output);
+        return output.size();
+    }
+
+    @Benchmark
+    public void parseManifest(Blackhole blackhole) throws ParseException {
+        ManifestFormatter formatter = createFormatter();
+        for (String line : lines) {
+            blackhole.consume(formatter.parseLine(line));
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.duracloud.common.error.ManifestVerifyException;
+import org.duracloud.common.util.bulk.ManifestVerifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to compare two matching manifest files with
+ * ManifestVerifier, with manifests which are sorted in memory and with
+ * manifests which are sorted in runs on disk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ManifestVerifierBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int entryCount;
+
+    @Param({"200000", "50000"})
+    public int maxEntriesInMemory;
+
+    private File tempDir;
+    private File manifest0;
+    private File manifest1;
+
+    @Setup
+    public void setup() throws IOException {
+        tempDir = BenchmarkData.createTempDir("manifest-verifier-benchmark");
+        manifest0 = new File(tempDir, "manifest-0.txt");
+        manifest1 = new File(tempDir, "manifest-1.txt");
+        writeManifest(manifest0);
+        writeManifest(manifest1);
+    }
+
+    private void writeManifest(File manifest) throws IOException {
+        try (BufferedWriter writer =
+                 Files.newBufferedWriter(manifest.toPath(), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < entryCount; i++) {
+                writer.write(BenchmarkData.fakeMd5(i));
+                writer.write(ManifestVerifier.DELIM);
+                writer.write("dir-" + (i % 100) + "/file-" + i + ".dat");
+                writer.newLine();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkData.deleteTempDir(tempDir);
+    }
+
+    @Benchmark
+    public ManifestVerifier verify() throws ManifestVerifyException {
+        try (ManifestVerifier verifier =
+                 new ManifestVerifier(manifest0, manifest1, tempDir, maxEntriesInMemory)) {
+            verifier.verify();
+            return verifier;
+        }
+    }
+
+}
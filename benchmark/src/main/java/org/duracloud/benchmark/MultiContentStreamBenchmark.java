@@ -0,0 +1,111 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.duracloud.common.model.ContentItem;
+import org.duracloud.common.util.ChecksumUtil;
+import org.duracloud.domain.Content;
+import org.duracloud.stitch.datasource.DataSource;
+import org.duracloud.stitch.stream.MultiContentInputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to read a 32 MB file which has been stored as 32 chunks
+ * through the MultiContentInputStream used by the stitcher. Chunks are served
+ * from memory, so this measures the overhead of the stream itself rather than
+ * of the transfer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultiContentStreamBenchmark {
+
+    private static final String SPACE_ID = "space-id";
+    private static final int CHUNK_COUNT = 32;
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Param({"0", "2"})
+    public int prefetchCount;
+
+    @Param({"true", "false"})
+    public boolean verify;
+
+    private DataSource dataSource;
+    private List<ContentItem> contentItems;
+    private Map<String, String> checksums;
+    private byte[] buffer;
+
+    @Setup
+    public void setup() {
+        Map<String, byte[]> chunks = new HashMap<>();
+        contentItems = new ArrayList<>();
+        checksums = new HashMap<>();
+        ChecksumUtil checksumUtil = new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
+
+        byte[] data = BenchmarkData.randomBytes(CHUNK_COUNT * CHUNK_SIZE);
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            String contentId = String.format("content.dura-chunk-%04d", i);
+            byte[] chunk = new byte[CHUNK_SIZE];
+            System.arraycopy(data, i * CHUNK_SIZE, chunk, 0, CHUNK_SIZE);
+
+            chunks.put(contentId, chunk);
+            contentItems.add(new ContentItem(SPACE_ID, contentId));
+            checksums.put(contentId, checksumUtil.generateChecksum(
+                new ByteArrayInputStream(chunk)));
+        }
+
+        dataSource = (spaceId, contentId) -> {
+            Content content = new Content();
+            content.setId(contentId);
+            content.setStream(new ByteArrayInputStream(chunks.get(contentId)));
+            return content;
+        };
+        buffer = new byte[BUFFER_SIZE];
+    }
+
+    @Benchmark
+    public long read() throws IOException {
+        long total = 0;
+        try (MultiContentInputStream stream =
+                 new MultiContentInputStream(dataSource,
+                                             contentItems,
+                                             verify ? checksums : null,
+                                             null,
+                                             prefetchCount,
+                                             MultiContentInputStream.DEFAULT_MAX_BUFFERED_BYTES)) {
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                total += read;
+            }
+        }
+        return total;
+    }
+
+}
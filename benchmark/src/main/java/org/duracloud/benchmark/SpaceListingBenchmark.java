@@ -0,0 +1,109 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.duracloud.client.ContentStoreImpl;
+import org.duracloud.common.web.RestHttpHelper;
+import org.duracloud.domain.Space;
+import org.duracloud.error.ContentStoreException;
+import org.duracloud.storage.domain.StorageProviderType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the handling of space and space listing responses by
+ * ContentStoreImpl. Responses are served from memory rather than by
+ * DuraStore, so this measures the parsing of the listing XML.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpaceListingBenchmark {
+
+    private static final String SPACE_ID = "space-id";
+
+    @Param({"1000", "10000"})
+    public int itemCount;
+
+    private ContentStoreImpl contentStore;
+
+    @Setup
+    public void setup() {
+        StringBuilder spacesXml = new StringBuilder("<spaces>");
+        for (int i = 0; i < itemCount; i++) {
+            spacesXml.append("<space id=\"space-" + i + "\" />");
+        }
+        spacesXml.append("</spaces>");
+
+        StringBuilder spaceXml =
+            new StringBuilder("<space id=\"" + SPACE_ID + "\">");
+        for (int i = 0; i < itemCount; i++) {
+            spaceXml.append("<item>dir-" + (i % 100) + "/file-" + i + ".dat</item>");
+        }
+        spaceXml.append("</space>");
+
+        RestHttpHelper restHelper =
+            new ListingRestHttpHelper(spacesXml.toString(), spaceXml.toString());
+        contentStore = new ContentStoreImpl("http://localhost:8080/durastore",
+                                            StorageProviderType.AMAZON_S3,
+                                            "0",
+                                            true,
+                                            restHelper);
+    }
+
+    @Benchmark
+    public List<String> getSpaces() throws ContentStoreException {
+        return contentStore.getSpaces();
+    }
+
+    @Benchmark
+    public Space getSpace() throws ContentStoreException {
+        return contentStore.getSpace(SPACE_ID, null, itemCount, null);
+    }
+
+    /**
+     * Responds to all requests for the list of spaces or the contents of a
+     * space with the same listing.
+     */
+    private static class ListingRestHttpHelper extends RestHttpHelper {
+        private byte[] spacesXml;
+        private byte[] spaceXml;
+
+        public ListingRestHttpHelper(String spacesXml, String spaceXml) {
+            this.spacesXml = spacesXml.getBytes(StandardCharsets.UTF_8);
+            this.spaceXml = spaceXml.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public HttpResponse get(String url) {
+            byte[] body = url.contains("/spaces") ? spacesXml : spaceXml;
+            return HttpResponse.buildMock(200,
+                                          new Header[0],
+                                          new ByteArrayInputStream(body));
+        }
+    }
+
+}
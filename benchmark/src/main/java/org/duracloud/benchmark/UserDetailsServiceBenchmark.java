@@ -0,0 +1,86 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.duracloud.security.domain.SecurityUserBean;
+import org.duracloud.security.impl.UserDetailsServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Measures the user lookups made while authenticating each request against
+ * an account with many users.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserDetailsServiceBenchmark {
+
+    @Param({"100", "10000"})
+    public int userCount;
+
+    private UserDetailsServiceImpl userDetailsService;
+    private List<SecurityUserBean> users;
+    private String username;
+
+    @Setup
+    public void setup() {
+        users = new ArrayList<>();
+        for (int i = 0; i < userCount; i++) {
+            users.add(new SecurityUserBean("user-" + i,
+                                           "password-" + i,
+                                           "user-" + i + "@example.com",
+                                           "",
+                                           true,
+                                           true,
+                                           true,
+                                           true,
+                                           Arrays.asList("ROLE_USER"),
+                                           Arrays.asList("group-" + (i % 10))));
+        }
+        userDetailsService = new UserDetailsServiceImpl();
+        userDetailsService.setUsers(users);
+        username = "user-" + (userCount - 1);
+    }
+
+    @Benchmark
+    public UserDetails loadUserByUsername() {
+        return userDetailsService.loadUserByUsername(username);
+    }
+
+    @Benchmark
+    public SecurityUserBean getUserByUsername() {
+        return userDetailsService.getUserByUsername(username);
+    }
+
+    @Benchmark
+    public UserDetailsServiceImpl setUsers() {
+        UserDetailsServiceImpl service = new UserDetailsServiceImpl();
+        service.setUsers(users);
+        return service;
+    }
+
+}
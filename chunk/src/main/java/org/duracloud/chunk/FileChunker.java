@@ -32,6 +32,7 @@ import org.duracloud.chunk.stream.ChunkInputStream;
 import org.duracloud.chunk.writer.AddContentResult;
 import org.duracloud.chunk.writer.ContentWriter;
 import org.duracloud.common.error.DuraCloudRuntimeException;
+import org.duracloud.common.util.ChecksumCache;
 import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.common.util.ExceptionUtil;
 import org.duracloud.storage.util.StorageProviderUtil;
@@ -55,6 +56,7 @@ public class FileChunker {
 
     private ContentWriter contentWriter;
     private FileChunkerOptions options;
+    private ChecksumCache checksumCache;
 
     public FileChunker(ContentWriter contentWriter) {
         this(contentWriter, new FileChunkerOptions());
@@ -66,6 +68,17 @@ public class FileChunker {
         this.options = options;
     }
 
+    /**
+     * Sets the cache of local file checksums. Files added from a directory
+     * whose checksums are cached are verified against the cached checksum
+     * once written, and the checksums of written files are cached.
+     *
+     * @param checksumCache cache of local file checksums
+     */
+    public void setChecksumCache(ChecksumCache checksumCache) {
+        this.checksumCache = checksumCache;
+    }
+
     protected void writeReport(File outputFile) {
         StringBuilder sb = new StringBuilder();
         if (!outputFile.exists()) {
@@ -194,11 +207,23 @@ public class FileChunker {
             StorageProviderUtil.createContentProperties(file.getAbsolutePath(),
                                                         null);
         String destContentId = getContentId(baseDir, file);
+        String fileChecksum = null;
+        if (null != checksumCache) {
+            fileChecksum = checksumCache.getCachedChecksum(file);
+        }
         InputStream stream = getInputStream(file);
-        doAddContent(destSpaceId, destContentId, null, file.length(), stream, properties);
+        String checksum = doAddContent(destSpaceId, destContentId, fileChecksum,
+                                       file.length(), stream, properties);
+        if (null != checksumCache && null != checksum && null == fileChecksum) {
+            checksumCache.put(file, checksum);
+        }
     }
 
-    private void doAddContent(String destSpaceId,
+    /*
+     * @return the MD5 checksum of the content written, or null if the
+     * content was ignored
+     */
+    private String doAddContent(String destSpaceId,
                               String destContentId,
                               String fileChecksum,
                               long fileSize,
@@ -210,6 +235,7 @@ public class FileChunker {
         boolean preserveChunkMD5s = options.isPreserveChunkMD5s();
 
         log.debug("loading file: " + destContentId + "[" + fileSize + "]");
+        String checksum = null;
         if (fileSize <= maxChunkSize) {
             BufferedInputStream buffStream = new BufferedInputStream(stream);
             ChunkInputStream chunk = new ChunkInputStream(destContentId,
@@ -217,7 +243,8 @@ public class FileChunker {
                                                           fileSize,
                                                           false);
 
-            contentWriter.writeSingle(destSpaceId, fileChecksum, chunk, properties);
+            checksum = contentWriter.writeSingle(destSpaceId, fileChecksum,
+                                                 chunk, properties);
 
         } else if (!ignoreLargeFiles) {
             ChunkableContent chunkable = new ChunkableContent(destContentId,
@@ -229,9 +256,10 @@ public class FileChunker {
             contentWriter.write(destSpaceId, chunkable, properties);
 
             // Verify final checksum
+            String finalChecksum =
+                chunkable.getManifest().getHeader().getSourceMD5();
+            checksum = finalChecksum;
             if (fileChecksum != null) {
-                String finalChecksum =
-                    chunkable.getManifest().getHeader().getSourceMD5();
                 if (!fileChecksum.equals(finalChecksum)) {
                     String err = "Final checksum of chunked content " +
                                  finalChecksum +
@@ -247,6 +275,7 @@ public class FileChunker {
         }
 
         IOUtils.closeQuietly(stream);
+        return checksum;
     }
 
     private Collection<File> listFiles(File baseDir,
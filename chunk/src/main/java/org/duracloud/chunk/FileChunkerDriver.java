@@ -40,6 +40,7 @@ import org.duracloud.client.ContentStoreManager;
 import org.duracloud.client.ContentStoreManagerImpl;
 import org.duracloud.common.error.DuraCloudRuntimeException;
 import org.duracloud.common.model.Credential;
+import org.duracloud.common.util.ChecksumCache;
 
 /**
  * This class is a commandline interface for initiating the read of local
@@ -57,13 +58,16 @@ public class FileChunkerDriver {
     private static void chunk(File fromDir,
                               File toSpace,
                               FileChunkerOptions options,
-                              ContentWriter writer) throws NotFoundException {
+                              ContentWriter writer,
+                              ChecksumCache checksumCache)
+        throws NotFoundException {
 
         if (!fromDir.isDirectory()) {
             throw new DuraCloudRuntimeException("Invalid dir: " + fromDir);
         }
 
         FileChunker chunker = new FileChunker(writer, options);
+        chunker.setChecksumCache(checksumCache);
         chunker.addContentFrom(fromDir, toSpace.getPath());
 
         File report = new File("chunker-report.csv");
@@ -175,6 +179,19 @@ public class FileChunkerDriver {
                                              "specified in the 'add' " +
                                              "option will be ignored.");
 
+        Option checksumCache = new Option("k",
+                                          "checksum-cache",
+                                          true,
+                                          "file holding the cached " +
+                                          "checksums of local files, " +
+                                          "created if it does not exist. " +
+                                          "Files whose checksums are " +
+                                          "cached are verified against " +
+                                          "the cached checksum once " +
+                                          "written.");
+        checksumCache.setArgs(1);
+        checksumCache.setArgName("file");
+
         Options options = new Options();
         options.addOption(username);
         options.addOption(password);
@@ -185,6 +202,7 @@ public class FileChunkerDriver {
         options.addOption(cloud);
         options.addOption(excludeChunkMD5s);
         options.addOption(ignoreLargeFiles);
+        options.addOption(checksumCache);
 
         return options;
     }
@@ -290,7 +308,18 @@ public class FileChunkerDriver {
                                              chunkSize,
                                              chunkMD5,
                                              ignoreLarge);
-            chunk(fromDir, toDir, options, writer);
+            ChecksumCache checksumCache = null;
+            if (cmd.hasOption("checksum-cache")) {
+                File cacheFile = new File(cmd.getOptionValue("checksum-cache"));
+                checksumCache = new ChecksumCache(cacheFile);
+            }
+            try {
+                chunk(fromDir, toDir, options, writer, checksumCache);
+            } finally {
+                if (null != checksumCache) {
+                    checksumCache.close();
+                }
+            }
 
             // ...or generate test data
         } else if (cmd.hasOption("generate")) {
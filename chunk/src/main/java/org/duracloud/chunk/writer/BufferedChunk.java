@@ -0,0 +1,140 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.chunk.writer;
+
+import static org.duracloud.common.util.ChecksumUtil.Algorithm.MD5;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.duracloud.chunk.stream.ChunkInputStream;
+import org.duracloud.common.util.ChecksumUtil;
+
+/**
+ * A chunk which has been read in full from its source stream so that it can
+ * be written (and re-written on retry) independently of the source. Chunks
+ * which fit in a buffer of the pool are held in memory, larger chunks are
+ * spilled to a temporary file. The MD5 of the chunk is computed as it is read.
+ */
+class BufferedChunk implements Closeable {
+
+    private final String chunkId;
+    private final boolean preserveMD5;
+    private final ChunkBufferPool pool;
+
+    private byte[] buffer;
+    private File file;
+    private long size;
+    private String md5;
+
+    private BufferedChunk(ChunkInputStream chunk, ChunkBufferPool pool) {
+        this.chunkId = chunk.getChunkId();
+        this.preserveMD5 = chunk.md5Preserved();
+        this.pool = pool;
+    }
+
+    /**
+     * Reads the chunk fully, leaving the chunk stream ready for the next
+     * chunk to be retrieved from its ChunkableContent.
+     *
+     * @param chunk the chunk to read
+     * @param pool  the pool from which memory buffers are borrowed
+     * @return the buffered chunk, which must be closed when no longer needed
+     * @throws IOException on error reading the chunk
+     */
+    static BufferedChunk read(ChunkInputStream chunk, ChunkBufferPool pool)
+        throws IOException {
+        BufferedChunk bufferedChunk = new BufferedChunk(chunk, pool);
+        try {
+            bufferedChunk.fill(chunk);
+        } catch (IOException | RuntimeException e) {
+            bufferedChunk.close();
+            throw e;
+        }
+        return bufferedChunk;
+    }
+
+    private void fill(ChunkInputStream chunk) throws IOException {
+        // When the chunk stream is preserving its own MD5 there is no need to
+        // compute it a second time
+        InputStream source = chunk;
+        DigestInputStream digestStream = null;
+        if (!preserveMD5) {
+            digestStream = ChecksumUtil.wrapStream(chunk, MD5);
+            source = digestStream;
+        }
+
+        if (chunk.getChunkSize() <= pool.getBufferSize()) {
+            buffer = pool.borrow();
+            size = IOUtils.read(source, buffer, 0, buffer.length);
+        } else {
+            file = File.createTempFile("chunk", ".tmp");
+            try (OutputStream outStream = FileUtils.openOutputStream(file)) {
+                size = IOUtils.copyLarge(source, outStream);
+            }
+        }
+
+        if (preserveMD5) {
+            md5 = chunk.getMD5();
+        } else {
+            md5 = ChecksumUtil.getChecksum(digestStream);
+        }
+    }
+
+    /**
+     * @return a new stream over the chunk content, positioned at its start,
+     *         which must be closed by the caller
+     */
+    InputStream openStream() throws IOException {
+        if (null != buffer) {
+            return new ByteArrayInputStream(buffer, 0, (int) size);
+        } else {
+            return new FileInputStream(file);
+        }
+    }
+
+    boolean md5Preserved() {
+        return preserveMD5;
+    }
+
+    String getChunkId() {
+        return chunkId;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    String getMD5() {
+        return md5;
+    }
+
+    /**
+     * Returns the memory buffer to the pool or removes the temporary file
+     */
+    @Override
+    public void close() {
+        if (null != buffer) {
+            pool.release(buffer);
+            buffer = null;
+        }
+        if (null != file) {
+            FileUtils.deleteQuietly(file);
+            file = null;
+        }
+    }
+
+}
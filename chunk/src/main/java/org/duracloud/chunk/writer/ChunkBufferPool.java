@@ -0,0 +1,47 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.chunk.writer;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A pool of equally sized, reusable memory buffers used to hold chunks while
+ * they are being written. Buffers are allocated lazily, so the number of
+ * buffers in the pool never exceeds the number of chunks held at one time.
+ */
+class ChunkBufferPool {
+
+    private final int bufferSize;
+    private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param bufferSize size of each buffer, chunks larger than this are not
+     *                   held in memory
+     */
+    ChunkBufferPool(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    int getBufferSize() {
+        return bufferSize;
+    }
+
+    byte[] borrow() {
+        byte[] buffer = buffers.poll();
+        if (null == buffer) {
+            buffer = new byte[bufferSize];
+        }
+        return buffer;
+    }
+
+    void release(byte[] buffer) {
+        buffers.offer(buffer);
+    }
+
+}
@@ -7,19 +7,22 @@
  */
 package org.duracloud.chunk.writer;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
-import org.apache.commons.io.FileUtils;
 import org.duracloud.chunk.ChunkableContent;
 import org.duracloud.chunk.error.ContentNotAddedException;
 import org.duracloud.chunk.error.NotFoundException;
@@ -32,7 +35,6 @@ import org.duracloud.common.error.DuraCloudRuntimeException;
 import org.duracloud.common.retry.Retriable;
 import org.duracloud.common.retry.Retrier;
 import org.duracloud.common.util.ChecksumUtil;
-import org.duracloud.common.util.IOUtil;
 import org.duracloud.error.ContentStoreException;
 import org.duracloud.storage.provider.StorageProvider;
 import org.slf4j.Logger;
@@ -52,8 +54,9 @@ public class DuracloudContentWriter implements ContentWriter {
 
     private ContentStore contentStore;
     private String username;
-    private Set<String> existingSpaces = new HashSet<String>();
-    private List<AddContentResult> results = new ArrayList<AddContentResult>();
+    private Set<String> existingSpaces = ConcurrentHashMap.newKeySet();
+    private List<AddContentResult> results =
+        Collections.synchronizedList(new ArrayList<AddContentResult>());
     private ChecksumUtil checksumUtil = new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
 
     // if true, skip writing results and throw exception when errors occur
@@ -65,9 +68,18 @@ public class DuracloudContentWriter implements ContentWriter {
     private static int DEFAULT_MAX_RETRIES = 4;  //actual attempts will always equal MAX_RETRIES+1
     private static int DEFAULT_WAIT_IN_MS_BETWEEN_RETRIES = 1000;
 
+    private static int DEFAULT_CHUNK_UPLOAD_THREADS = 1;
+    private static long DEFAULT_MAX_BUFFERED_CHUNK_SIZE = 10 * 1000 * 1000;
+
     private int maxRetries = DEFAULT_MAX_RETRIES;
     private int waitInMsBetweenRetries = DEFAULT_MAX_RETRIES;
 
+    // number of chunks of a single content item which are written concurrently
+    private int chunkUploadThreads = DEFAULT_CHUNK_UPLOAD_THREADS;
+
+    // chunks larger than this are held in temp files rather than in memory
+    private long maxBufferedChunkSize = DEFAULT_MAX_BUFFERED_CHUNK_SIZE;
+
     public DuracloudContentWriter(ContentStore contentStore, String username) {
         this(contentStore,
              username,
@@ -116,6 +128,32 @@ public class DuracloudContentWriter implements ContentWriter {
         return results;
     }
 
+    /**
+     * Sets the number of chunks of a content item which are written to
+     * DuraCloud in parallel. At most this many chunks are held (in memory or
+     * in temp files) at any one time. A value of 1 (the default) writes each
+     * chunk before the next one is read.
+     *
+     * @param chunkUploadThreads number of concurrent chunk writes
+     */
+    public void setChunkUploadThreads(int chunkUploadThreads) {
+        if (chunkUploadThreads < 1) {
+            throw new IllegalArgumentException(
+                "Chunk upload threads must be at least 1: " + chunkUploadThreads);
+        }
+        this.chunkUploadThreads = chunkUploadThreads;
+    }
+
+    /**
+     * Sets the largest chunk size which is held in memory while the chunk is
+     * being written. Larger chunks are written to a temp file.
+     *
+     * @param maxBufferedChunkSize in bytes
+     */
+    public void setMaxBufferedChunkSize(long maxBufferedChunkSize) {
+        this.maxBufferedChunkSize = maxBufferedChunkSize;
+    }
+
     public void ignore(String spaceId, String contentId, long contentSize) {
         AddContentResult result = new AddContentResult(spaceId,
                                                        contentId,
@@ -149,10 +187,17 @@ public class DuracloudContentWriter implements ContentWriter {
         createSpaceIfNotExist(spaceId);
         boolean errorsExist = false;
         results.clear();
-        for (ChunkInputStream chunk : chunkable) {
-            writeChunk(spaceId, chunk);
-            if (errorsExist = errorsExist()) {
-                break;
+        ChunkBufferPool bufferPool = createBufferPool(chunkable);
+        if (chunkUploadThreads > 1) {
+            errorsExist = writeChunksConcurrently(spaceId, chunkable, bufferPool);
+        } else {
+            for (ChunkInputStream chunk : chunkable) {
+                try (BufferedChunk bufferedChunk = bufferChunk(chunk, bufferPool)) {
+                    writeChunk(spaceId, bufferedChunk);
+                }
+                if (errorsExist = errorsExist()) {
+                    break;
+                }
             }
         }
 
@@ -182,72 +227,139 @@ public class DuracloudContentWriter implements ContentWriter {
 
     protected boolean errorsExist() {
         boolean containsErrors = false;
-        for (AddContentResult result : this.results) {
-            if (result.getState().equals(AddContentResult.State.ERROR)) {
-                containsErrors = true;
-                break;
+        synchronized (this.results) {
+            for (AddContentResult result : this.results) {
+                if (result.getState().equals(AddContentResult.State.ERROR)) {
+                    containsErrors = true;
+                    break;
+                }
             }
         }
         return containsErrors;
     }
 
     /*
-     * Writes chunk to DuraCloud if it does not already exist in DuraCloud with a
-     * matching checksum. Retry failed transfers.
+     * Reads chunks from the source content one at a time (as the source is a
+     * single stream) and hands each off to be written by a pool of threads.
+     * The number of chunks held at once is bounded by the number of threads.
+     * Chunk manifest entries are captured as each chunk is read, so they
+     * remain in order regardless of the order in which writes complete.
+     *
+     * @return true if errors were reported in the results
      */
-    private void writeChunk(String spaceId, ChunkInputStream chunk)
-        throws NotFoundException {
-        // Write chunk as a temp file
-        String chunkId = chunk.getChunkId();
-        File chunkFile = IOUtil.writeStreamToFile(chunk);
+    private boolean writeChunksConcurrently(String spaceId,
+                                            ChunkableContent chunkable,
+                                            ChunkBufferPool bufferPool) {
+        ExecutorService executor = Executors.newFixedThreadPool(chunkUploadThreads);
+        Semaphore chunkPermits = new Semaphore(chunkUploadThreads);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
 
         try {
-            String chunkChecksum = getChunkChecksum(chunkFile);
+            for (ChunkInputStream chunk : chunkable) {
+                chunkPermits.acquire();
+                if (null != failure.get() || errorsExist()) {
+                    break;
+                }
 
-            // Write chunk if it is not already in storage (or jumpstart is enabled)
-            if (jumpStart || !chunkInStorage(spaceId, chunkId, chunkChecksum)) {
+                BufferedChunk bufferedChunk;
                 try {
-                    createRetrier().execute(new Retriable() {
-                        private int attempt = 0;
-
-                        @Override
-                        public Object retry() throws Exception {
-                            attempt++;
-                            try (InputStream chunkStream = new FileInputStream(chunkFile)) {
-                                ChunkInputStream chunkFileStream =
-                                    new ChunkInputStream(chunkId,
-                                                         chunkStream,
-                                                         chunkFile.length(),
-                                                         chunk.md5Preserved());
-                                writeSingle(spaceId, chunkChecksum, chunkFileStream, attempt == getMaxRetries() + 1);
-                            }
-                            return "";
-                        }
-                    });
-
-                } catch (Exception e) {
-                    String err = "Failed to store chunk with ID " + chunkId +
-                                 " in space " + spaceId + " after " + getMaxRetries() +
-                                 " attempts. Last error: " + e.getMessage();
-                    throw new DuraCloudRuntimeException(err, e);
+                    bufferedChunk = bufferChunk(chunk, bufferPool);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                    break;
                 }
+
+                executor.execute(() -> {
+                    try (BufferedChunk toWrite = bufferedChunk) {
+                        if (null == failure.get()) {
+                            writeChunk(spaceId, toWrite);
+                        }
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        chunkPermits.release();
+                    }
+                });
             }
-        } finally {
-            if (null != chunkFile && chunkFile.exists()) {
-                FileUtils.deleteQuietly(chunkFile);
+
+            // Wait for in-flight writes so temp files are cleaned up and
+            // results are complete before returning
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.debug("Waiting for chunk writes of {} to complete",
+                          chunkable.getManifest().getManifestId());
             }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new DuraCloudRuntimeException(
+                "Interrupted while writing chunks to space " + spaceId, e);
         }
+
+        if (null != failure.get()) {
+            throw failure.get();
+        }
+        return errorsExist();
+    }
+
+    private ChunkBufferPool createBufferPool(ChunkableContent chunkable) {
+        long maxChunkSize = chunkable.getMaxChunkSize();
+        int bufferSize = 0;
+        if (maxChunkSize <= maxBufferedChunkSize && maxChunkSize <= Integer.MAX_VALUE) {
+            bufferSize = (int) maxChunkSize;
+        }
+        return new ChunkBufferPool(bufferSize);
     }
 
     /*
-     * Determine the checksum of the chunk file
+     * Reads the chunk in full, computing its checksum along the way
      */
-    private String getChunkChecksum(File chunkFile) {
+    private BufferedChunk bufferChunk(ChunkInputStream chunk,
+                                      ChunkBufferPool bufferPool) {
         try {
-            return checksumUtil.generateChecksum(chunkFile);
+            return BufferedChunk.read(chunk, bufferPool);
         } catch (IOException e) {
-            throw new DuraCloudRuntimeException("Unable to generate checksum for file " +
-                                                chunkFile + " due to: " + e.getMessage());
+            throw new DuraCloudRuntimeException("Unable to read chunk " +
+                                                chunk.getChunkId() + " due to: " +
+                                                e.getMessage(), e);
+        }
+    }
+
+    /*
+     * Writes chunk to DuraCloud if it does not already exist in DuraCloud with a
+     * matching checksum. Retry failed transfers.
+     */
+    private void writeChunk(String spaceId, BufferedChunk chunk) {
+        String chunkId = chunk.getChunkId();
+        String chunkChecksum = chunk.getMD5();
+
+        // Write chunk if it is not already in storage (or jumpstart is enabled)
+        if (jumpStart || !chunkInStorage(spaceId, chunkId, chunkChecksum)) {
+            try {
+                createRetrier().execute(new Retriable() {
+                    private int attempt = 0;
+
+                    @Override
+                    public Object retry() throws Exception {
+                        attempt++;
+                        try (InputStream chunkStream = chunk.openStream()) {
+                            ChunkInputStream chunkBufferStream =
+                                new ChunkInputStream(chunkId,
+                                                     chunkStream,
+                                                     chunk.getSize(),
+                                                     chunk.md5Preserved());
+                            writeSingle(spaceId, chunkChecksum, chunkBufferStream, attempt == getMaxRetries() + 1);
+                        }
+                        return "";
+                    }
+                });
+
+            } catch (Exception e) {
+                String err = "Failed to store chunk with ID " + chunkId +
+                             " in space " + spaceId + " after " + getMaxRetries() +
+                             " attempts. Last error: " + e.getMessage();
+                throw new DuraCloudRuntimeException(err, e);
+            }
         }
     }
 
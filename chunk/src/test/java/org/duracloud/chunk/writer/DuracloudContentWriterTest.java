@@ -9,15 +9,20 @@ package org.duracloud.chunk.writer;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.duracloud.chunk.ChunkableContent;
 import org.duracloud.chunk.error.NotFoundException;
+import org.duracloud.chunk.manifest.ChunksManifest;
+import org.duracloud.chunk.manifest.ChunksManifestBean.ManifestEntry;
 import org.duracloud.chunk.stream.ChunkInputStream;
 import org.duracloud.client.ContentStore;
 import org.duracloud.common.error.DuraCloudRuntimeException;
@@ -116,8 +121,11 @@ public class DuracloudContentWriterTest {
                     .andReturn(true)
                     .anyTimes();
 
+            // Checksum of each chunk of the uniform content stream
+            String chunkChecksum = new ChecksumUtil(ChecksumUtil.Algorithm.MD5)
+                .generateChecksum(createUniformContentStream(1000));
             Map<String, String> props = new HashMap<>();
-            props.put(ContentStore.CONTENT_CHECKSUM, checksum);
+            props.put(ContentStore.CONTENT_CHECKSUM, chunkChecksum);
             EasyMock.expect(contentStore.getContentProperties(EasyMock.isA(String.class),
                                                               EasyMock.isA(String.class)))
                     .andReturn(props)
@@ -276,18 +284,13 @@ public class DuracloudContentWriterTest {
     private void doTestWrite(boolean validChecksum, boolean jumpStart) throws Exception {
         DuracloudContentWriter writer =
             new DuracloudContentWriter(contentStore, username, false, jumpStart);
-        if (validChecksum) {
-            writer.setChecksumUtil(new ChecksumUtil(ChecksumUtil.Algorithm.MD5) {
-                @Override
-                public String generateChecksum(File file) throws IOException {
-                    return checksum;
-                }
-            });
-        }
 
         replayMocks();
         long contentSize = 4000;
-        InputStream contentStream = createContentStream(contentSize);
+        // Chunks of uniform content match the checksum of chunks in storage
+        InputStream contentStream = validChecksum ?
+                                    createUniformContentStream(contentSize) :
+                                    createContentStream(contentSize);
 
         long maxChunkSize = 1000;
         ChunkableContent chunkable = new ChunkableContent(contentId,
@@ -437,6 +440,119 @@ public class DuracloudContentWriterTest {
         return new ByteArrayInputStream(out.toByteArray());
     }
 
+    private InputStream createUniformContentStream(long size) {
+        byte[] content = new byte[(int) size];
+        Arrays.fill(content, (byte) 'a');
+        return new ByteArrayInputStream(content);
+    }
+
+    @Test
+    public void testWriteConcurrent() throws Exception {
+        doTestWriteConcurrent(1000);
+    }
+
+    @Test
+    public void testWriteConcurrentFromTempFiles() throws Exception {
+        doTestWriteConcurrent(0);
+    }
+
+    private void doTestWriteConcurrent(long maxBufferedChunkSize) throws Exception {
+        int threads = 3;
+        long contentSize = 9000;
+        long maxChunkSize = 1000;
+
+        AtomicInteger activeWrites = new AtomicInteger(0);
+        AtomicInteger maxActiveWrites = new AtomicInteger(0);
+        Map<String, String> writtenChecksums = new ConcurrentHashMap<>();
+
+        EasyMock.expect(contentStore.contentExists(EasyMock.eq(spaceId),
+                                                   EasyMock.isA(String.class)))
+                .andReturn(false)
+                .anyTimes();
+        EasyMock.expect(contentStore.getSpaceACLs(spaceId))
+                .andReturn(new HashMap<>())
+                .times(2);
+        replayMocks();
+
+        // EasyMock serializes calls to a mock, so chunk writes are handled
+        // by a proxy in order to observe their concurrency
+        ContentStore writingStore = (ContentStore) Proxy.newProxyInstance(
+            ContentStore.class.getClassLoader(),
+            new Class[] {ContentStore.class},
+            (proxy, method, args) -> {
+                if (!method.getName().equals("addContent")) {
+                    return method.invoke(contentStore, args);
+                }
+                int active = activeWrites.incrementAndGet();
+                maxActiveWrites.accumulateAndGet(active, Math::max);
+                Thread.sleep(100);
+                String md5 = new ChecksumUtil(ChecksumUtil.Algorithm.MD5)
+                    .generateChecksum((InputStream) args[2]);
+                Assert.assertEquals(args[5], md5);
+                writtenChecksums.put((String) args[1], md5);
+                activeWrites.decrementAndGet();
+                return md5;
+            });
+
+        DuracloudContentWriter writer =
+            new DuracloudContentWriter(writingStore, username, true, false);
+        writer.setChunkUploadThreads(threads);
+        writer.setMaxBufferedChunkSize(maxBufferedChunkSize);
+
+        ChunkableContent chunkable =
+            new ChunkableContent(contentId,
+                                 createContentStream(contentSize),
+                                 contentSize,
+                                 maxChunkSize);
+        chunkable.setPreserveChunkMD5s(true);
+        ChunksManifest manifest = writer.write(spaceId, chunkable);
+
+        Assert.assertTrue(maxActiveWrites.get() > 1);
+        Assert.assertTrue(maxActiveWrites.get() <= threads);
+        Assert.assertEquals(10, writtenChecksums.size()); // 9 chunks and the manifest
+
+        List<ManifestEntry> entries = manifest.getEntries();
+        Assert.assertEquals(9, entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            ManifestEntry entry = entries.get(i);
+            Assert.assertEquals(i, entry.getIndex());
+            Assert.assertEquals(maxChunkSize, entry.getByteSize());
+            Assert.assertEquals(writtenChecksums.get(entry.getChunkId()),
+                                entry.getChunkMD5());
+        }
+
+        EasyMock.verify(contentStore);
+    }
+
+    @Test
+    public void testWriteConcurrentError() throws Exception {
+        setupThrowingMockContentStore(0, 2, 0, 0);
+        EasyMock.expect(contentStoreThrow.addContent(EasyMock.isA(String.class),
+                                                     EasyMock.isA(String.class),
+                                                     isChunkInputStream(),
+                                                     EasyMock.anyLong(),
+                                                     EasyMock.isA(String.class),
+                                                     EasyMock.isA(String.class),
+                                                     (Map) EasyMock.anyObject()))
+                .andThrow(new ContentStoreException("Expected addContent Error "))
+                .anyTimes();
+        replayMocks();
+
+        writerErrorThrow.setChunkUploadThreads(2);
+        long contentSize = 6000;
+        ChunkableContent chunkable =
+            new ChunkableContent(contentId,
+                                 createContentStream(contentSize),
+                                 contentSize,
+                                 1000);
+        try {
+            writerErrorThrow.write(spaceId, chunkable);
+            Assert.fail("Exception expected");
+        } catch (DuraCloudRuntimeException expected) {
+            Assert.assertNotNull(expected);
+        }
+    }
+
     @Test
     public void testWriteSingle() throws Exception {
         createMockContentStore(true, true);
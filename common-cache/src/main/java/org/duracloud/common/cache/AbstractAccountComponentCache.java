@@ -7,39 +7,252 @@
  */
 package org.duracloud.common.cache;
 
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
+ * A thread-safe cache of components associated with an account.
+ *
+ * A component is created on the first request for its account. Concurrent
+ * requests for an account which is not yet cached wait for a single
+ * component to be created rather than each creating one. Components which
+ * have not been requested for longer than the maximum idle time are removed,
+ * as are the least recently used components once the cache holds more than
+ * its maximum size. Subclasses remove components as accounts change, in
+ * response to account change events.
+ *
  * @param <T>
  * @author Daniel Bernstein
  */
 public abstract class AbstractAccountComponentCache<T> implements AccountComponentCache<T> {
-    private Map<String, T> cache;
+
+    protected static final int DEFAULT_MAX_SIZE = 500;
+    protected static final long DEFAULT_MAX_IDLE_TIME = TimeUnit.HOURS.toMillis(12);
+
+    private final Logger log = LoggerFactory.getLogger(AbstractAccountComponentCache.class);
+
+    private final int maxSize;
+    private final long maxIdleTime;
+    private final ConcurrentMap<String, Entry<T>> cache = new ConcurrentHashMap<>();
+    // Orders accesses, which may share a timestamp, for eviction
+    private final AtomicLong accessSequence = new AtomicLong();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
 
     public AbstractAccountComponentCache() {
-        this.cache = new HashMap<>();
+        this(DEFAULT_MAX_SIZE, DEFAULT_MAX_IDLE_TIME);
+    }
+
+    /**
+     * @param maxSize     maximum number of components held
+     * @param maxIdleTime time (in ms) after which a component which has not
+     *                    been requested is removed
+     */
+    public AbstractAccountComponentCache(int maxSize, long maxIdleTime) {
+        this.maxSize = maxSize;
+        this.maxIdleTime = maxIdleTime;
     }
 
     protected void remove(String key) {
-        this.cache.remove(key);
+        Entry<T> entry = this.cache.remove(key);
+        if (entry != null) {
+            release(entry);
+        }
     }
 
     protected void removeAll() {
-        this.cache.clear();
+        for (String key : this.cache.keySet()) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Called when an instance is removed from the cache, allowing any
+     * resources it holds to be released.
+     *
+     * @param instance removed from the cache
+     */
+    protected void onRemove(T instance) {
     }
 
     @Override
     public T get(String accountId) {
-        T instance = this.cache.get(accountId);
-        if (instance == null) {
-            instance = createInstance(accountId);
-            this.cache.put(accountId, instance);
+        long now = System.currentTimeMillis();
+        Entry<T> entry = this.cache.get(accountId);
+        if (entry != null && entry.isIdle(now, maxIdleTime)) {
+            evict(accountId, entry);
+            entry = null;
         }
 
-        return instance;
+        if (entry == null) {
+            Entry<T> newEntry = new Entry<>(now, accessSequence.incrementAndGet());
+            entry = this.cache.putIfAbsent(accountId, newEntry);
+            if (entry == null) {
+                missCount.increment();
+                load(accountId, newEntry);
+                evictIdleAndExcess();
+                return newEntry.await();
+            }
+        }
+
+        hitCount.increment();
+        entry.lastAccess = now;
+        entry.lastAccessSequence = accessSequence.incrementAndGet();
+        return entry.await();
     }
 
     protected abstract T createInstance(String accountId);
 
+    /**
+     * @return the number of requests answered by a cached component, or by
+     * waiting for a component being created for another request
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return the number of requests which created a component
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailureCount.sum();
+    }
+
+    /**
+     * @return the number of components removed due to the size and idle
+     * time bounds
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * @return the average time (in ms) taken to create a component
+     */
+    public double getAverageLoadTime() {
+        long loads = missCount.sum();
+        return loads == 0 ? 0 : totalLoadTime.sum() / (double) loads / 1000000;
+    }
+
+    public int size() {
+        return this.cache.size();
+    }
+
+    private void load(String accountId, Entry<T> entry) {
+        long start = System.nanoTime();
+        T instance;
+        try {
+            instance = createInstance(accountId);
+        } catch (RuntimeException | Error e) {
+            loadFailureCount.increment();
+            this.cache.remove(accountId, entry);
+            entry.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            totalLoadTime.add(System.nanoTime() - start);
+        }
+
+        entry.future.complete(instance);
+        log.debug("Created component for account {} in {}ms", accountId,
+                  TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        // A component removed while it was being created is not kept
+        if (this.cache.get(accountId) != entry) {
+            release(entry);
+        }
+    }
+
+    private void evictIdleAndExcess() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Entry<T>> cached : this.cache.entrySet()) {
+            if (cached.getValue().isIdle(now, maxIdleTime)) {
+                evict(cached.getKey(), cached.getValue());
+            }
+        }
+
+        int excess = this.cache.size() - maxSize;
+        if (excess > 0) {
+            List<Map.Entry<String, Entry<T>>> leastRecentlyUsed =
+                this.cache.entrySet()
+                          .stream()
+                          .filter(cached -> cached.getValue().future.isDone())
+                          .sorted(Comparator.comparingLong(cached -> cached.getValue().lastAccessSequence))
+                          .limit(excess)
+                          .collect(Collectors.toList());
+            for (Map.Entry<String, Entry<T>> cached : leastRecentlyUsed) {
+                evict(cached.getKey(), cached.getValue());
+            }
+        }
+    }
+
+    private void evict(String accountId, Entry<T> entry) {
+        if (this.cache.remove(accountId, entry)) {
+            evictionCount.increment();
+            log.debug("Evicted component for account {}", accountId);
+            release(entry);
+        }
+    }
+
+    /*
+     * Calls onRemove once for a component which has been removed. A component
+     * which is still being created is released once it has been created.
+     */
+    private void release(Entry<T> entry) {
+        if (entry.future.isDone() && !entry.future.isCompletedExceptionally() &&
+            entry.released.compareAndSet(false, true)) {
+            onRemove(entry.future.join());
+        }
+    }
+
+    private static class Entry<T> {
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final AtomicBoolean released = new AtomicBoolean(false);
+        private volatile long lastAccess;
+        private volatile long lastAccessSequence;
+
+        Entry(long lastAccess, long lastAccessSequence) {
+            this.lastAccess = lastAccess;
+            this.lastAccessSequence = lastAccessSequence;
+        }
+
+        boolean isIdle(long now, long maxIdleTime) {
+            return future.isDone() && now - lastAccess >= maxIdleTime;
+        }
+
+        T await() {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        }
+    }
+
 }
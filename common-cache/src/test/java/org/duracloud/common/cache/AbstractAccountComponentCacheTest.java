@@ -0,0 +1,151 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.common.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.duracloud.common.event.AccountChangeEvent;
+import org.junit.Test;
+
+public class AbstractAccountComponentCacheTest {
+
+    private AtomicInteger created = new AtomicInteger(0);
+    private List<String> removed = Collections.synchronizedList(new ArrayList<>());
+
+    private class TestCache extends AbstractAccountComponentCache<String> {
+        private CountDownLatch loading;
+
+        TestCache(int maxSize, long maxIdleTime) {
+            super(maxSize, maxIdleTime);
+        }
+
+        @Override
+        protected String createInstance(String accountId) {
+            if (null != loading) {
+                try {
+                    loading.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            if (accountId.equals("fail")) {
+                throw new IllegalStateException("no account");
+            }
+            return accountId + "-" + created.incrementAndGet();
+        }
+
+        @Override
+        protected void onRemove(String instance) {
+            removed.add(instance);
+        }
+
+        @Override
+        public void onEvent(AccountChangeEvent event) {
+            remove(event.getAccountId());
+        }
+    }
+
+    @Test
+    public void testGet() {
+        TestCache cache = new TestCache(10, 60000);
+        String instance = cache.get("account");
+        assertSame(instance, cache.get("account"));
+        assertEquals(1, created.get());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+
+        cache.remove("account");
+        assertEquals(Collections.singletonList(instance), removed);
+        assertNotSame(instance, cache.get("account"));
+
+        cache.get("other");
+        cache.removeAll();
+        assertEquals(3, removed.size());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testConcurrentGet() throws Exception {
+        TestCache cache = new TestCache(10, 60000);
+        cache.loading = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> cache.get("account")));
+            }
+            Thread.sleep(100);
+            cache.loading.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("account-1", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, created.get());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(7, cache.getHitCount());
+    }
+
+    @Test
+    public void testFailedGet() {
+        TestCache cache = new TestCache(10, 60000);
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.get("fail");
+                fail("Exception expected");
+            } catch (IllegalStateException e) {
+                // Expected
+            }
+        }
+        // Failures are not cached
+        assertEquals(2, cache.getLoadFailureCount());
+        assertEquals(0, cache.size());
+        assertTrue(removed.isEmpty());
+    }
+
+    @Test
+    public void testMaxSize() {
+        TestCache cache = new TestCache(2, 60000);
+        String first = cache.get("first");
+        cache.get("second");
+        cache.get("third");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(Collections.singletonList(first), removed);
+    }
+
+    @Test
+    public void testMaxIdleTime() throws Exception {
+        TestCache cache = new TestCache(10, 50);
+        String instance = cache.get("account");
+        Thread.sleep(100);
+
+        assertNotSame(instance, cache.get("account"));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(Collections.singletonList(instance), removed);
+    }
+
+}
@@ -13,6 +13,7 @@ import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -38,6 +39,7 @@ import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
 import com.amazonaws.services.sqs.model.ReceiveMessageResult;
 import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
 import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
 import com.amazonaws.services.sqs.model.SendMessageRequest;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.duracloud.common.error.DuraCloudRuntimeException;
@@ -216,15 +218,35 @@ public class SQSTaskQueue implements TaskQueue {
     }
 
     private void sendBatchMessages(Set<SendMessageBatchRequestEntry> msgEntries) {
-        try {
-            final SendMessageBatchRequest sendMessageBatchRequest = new SendMessageBatchRequest()
-                .withQueueUrl(queueUrl)
-                .withEntries(msgEntries);
+        // SQS may accept some of the messages in a batch and not others, so
+        // only those which were not accepted are sent again on a retry
+        final Map<String, SendMessageBatchRequestEntry> pending = new LinkedHashMap<>();
+        for (SendMessageBatchRequestEntry msgEntry : msgEntries) {
+            pending.put(msgEntry.getId(), msgEntry);
+        }
 
+        try {
             new Retrier(4, 5000, 2).execute(new Retriable() {
                 @Override
                 public Object retry() throws Exception {
-                    sqsClient.sendMessageBatch(sendMessageBatchRequest);
+                    SendMessageBatchRequest sendMessageBatchRequest = new SendMessageBatchRequest()
+                        .withQueueUrl(queueUrl)
+                        .withEntries(pending.values());
+                    SendMessageBatchResult result =
+                        sqsClient.sendMessageBatch(sendMessageBatchRequest);
+
+                    List<BatchResultErrorEntry> failed = result.getFailed();
+                    if (null != failed && !failed.isEmpty()) {
+                        Set<String> failedIds = new HashSet<>();
+                        for (BatchResultErrorEntry error : failed) {
+                            failedIds.add(error.getId());
+                        }
+                        pending.keySet().retainAll(failedIds);
+                        throw new DuraCloudRuntimeException(
+                            failed.size() + " messages were not accepted, first error: " +
+                            failed.get(0).getMessage());
+                    }
+                    pending.clear();
                     return null;
                 }
             });
@@ -10,16 +10,26 @@ package org.duracloud.common.queue.rabbitmq;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
+import com.rabbitmq.client.Delivery;
 import com.rabbitmq.client.Envelope;
-import com.rabbitmq.client.GetResponse;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.duracloud.common.error.DuraCloudRuntimeException;
 import org.duracloud.common.queue.TaskException;
@@ -36,18 +46,37 @@ import org.slf4j.LoggerFactory;
  * RabbitMQ implementation of the TaskQueue
  * emulates the functionality of a queue.
  *
+ * Tasks are taken from messages which the broker pushes to a consumer, up to
+ * the prefetch count at a time, rather than fetched one request at a time.
+ * The consumer is started by the first take, so a queue which is only put to
+ * does not hold any messages. Tasks are published on a pool of channels in
+ * confirm mode, with a single wait for the confirms of each batch.
+ *
  * @author Shibo Liu
  * Date: 07/03/19
  */
 public class RabbitmqTaskQueue implements TaskQueue {
     private static Logger log = LoggerFactory.getLogger(RabbitmqTaskQueue.class);
 
+    public static final int DEFAULT_PREFETCH_COUNT = 100;
+
+    private static final int PUBLISH_CHANNEL_POOL_SIZE = 4;
+    private static final int CONFIRM_BATCH_SIZE = 100;
+    private static final long CONFIRM_TIMEOUT_MILLIS = 30000;
+    private static final long TAKE_WAIT_MILLIS = 1000;
+
+    private Connection connection;
     private Channel mqChannel;
     private String queueName;
     private Integer visibilityTimeout = -1;  // No such thing in RabbitmQ
-    private Integer unAcknowlededMesageCount = 0;
+    private AtomicInteger unAcknowlededMesageCount = new AtomicInteger(0);
     private String queueUrl;
     private String exchangeName;
+    private int prefetchCount;
+    private volatile String consumerTag;
+    private BlockingQueue<Delivery> deliveries = new LinkedBlockingQueue<>();
+    private BlockingQueue<Channel> publishChannels =
+        new ArrayBlockingQueue<>(PUBLISH_CHANNEL_POOL_SIZE);
 
     public enum MsgProp {
         DELIVERY_TAG, ROUTING_KEY, EXCHANGE
@@ -60,18 +89,13 @@ public class RabbitmqTaskQueue implements TaskQueue {
     public RabbitmqTaskQueue(String host, Integer port, String vhost, String exchange, String username, String password,
                              String queueName) {
         try {
-            this.exchangeName = exchange;
             ConnectionFactory factory = new ConnectionFactory();
             factory.setUsername(username);
             factory.setPassword(password);
             factory.setVirtualHost(vhost);
             factory.setHost(host);
             factory.setPort(port);
-            Connection conn = factory.newConnection();
-            mqChannel = conn.createChannel();
-            mqChannel.queueBind(queueName, exchangeName, queueName);
-            queueUrl = "(RabbitMQ) " + conn.getAddress();
-            this.queueName = queueName;
+            init(factory.newConnection(), exchange, queueName, DEFAULT_PREFETCH_COUNT);
         } catch (Exception ex) {
             log.error("Failed to estabilish connection to RabbitMQ with queue name {} and URL {} because {}",
                       queueName, queueUrl, ex.getMessage());
@@ -80,12 +104,16 @@ public class RabbitmqTaskQueue implements TaskQueue {
     }
 
     public RabbitmqTaskQueue(Connection conn, String exchange, String queueName) {
+        this(conn, exchange, queueName, DEFAULT_PREFETCH_COUNT);
+    }
+
+    /**
+     * @param prefetchCount the most messages the broker delivers to this
+     *                      queue before they are deleted or requeued
+     */
+    public RabbitmqTaskQueue(Connection conn, String exchange, String queueName, int prefetchCount) {
         try {
-            this.exchangeName = exchange;
-            mqChannel = conn.createChannel();
-            mqChannel.queueBind(queueName, exchange, queueName);
-            queueUrl = "(RabbitMQ) " + conn.getAddress();
-            this.queueName = queueName;
+            init(conn, exchange, queueName, prefetchCount);
         } catch (Exception ex) {
             log.error("Failed to estabilish connection to RabbitMQ with queue name {} and URL {} because {}",
                       queueName, queueUrl, ex.getMessage());
@@ -93,6 +121,20 @@ public class RabbitmqTaskQueue implements TaskQueue {
         }
     }
 
+    private void init(Connection conn, String exchange, String queueName, int prefetchCount)
+        throws IOException {
+        if (prefetchCount < 1) {
+            throw new IllegalArgumentException("prefetchCount must be at least 1");
+        }
+        this.connection = conn;
+        this.exchangeName = exchange;
+        this.prefetchCount = prefetchCount;
+        mqChannel = conn.createChannel();
+        mqChannel.queueBind(queueName, exchange, queueName);
+        queueUrl = "(RabbitMQ) " + conn.getAddress();
+        this.queueName = queueName;
+    }
+
     @Override
     public String getName() {
         return this.queueName;
@@ -150,110 +192,198 @@ public class RabbitmqTaskQueue implements TaskQueue {
 
     @Override
     public void put(final Task task) {
+        publish(Arrays.asList(task));
+    }
+
+    /**
+     * Publishes the tasks as a single batch
+     *
+     * @param tasks
+     */
+    @Override
+    public void put(Task... tasks) {
+        publish(Arrays.asList(tasks));
+    }
+
+    @Override
+    public void put(Set<Task> tasks) {
+        publish(tasks);
+    }
+
+    /*
+     * Publishes the tasks on a pooled channel, waiting for the broker to
+     * confirm each batch rather than each task. A retry, made on another
+     * channel, resumes with the first batch which was not confirmed, so a task
+     * is published more than once only if its batch may have been lost.
+     */
+    private void publish(Collection<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        final List<byte[]> msgBodies = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            msgBodies.add(unmarshallTask(task).getBytes());
+        }
+
+        final int[] confirmed = {0};
         try {
-            String queueName = this.queueName;
-            final String msgBody = unmarshallTask(task);
-            byte[] messageBodyBytes = msgBody.getBytes();
             new Retrier(4, 10000, 2).execute(new Retriable() {
                 @Override
                 public Object retry() throws Exception {
-                    mqChannel.basicPublish(exchangeName, queueName, null, messageBodyBytes);
+                    Channel channel = borrowPublishChannel();
+                    try {
+                        AMQP.BasicProperties props = new AMQP.BasicProperties.Builder()
+                            .timestamp(new Date()).build();
+                        while (confirmed[0] < msgBodies.size()) {
+                            int batchEnd = Math.min(confirmed[0] + CONFIRM_BATCH_SIZE,
+                                                    msgBodies.size());
+                            for (int i = confirmed[0]; i < batchEnd; i++) {
+                                channel.basicPublish(exchangeName, queueName, props,
+                                                     msgBodies.get(i));
+                            }
+                            channel.waitForConfirmsOrDie(CONFIRM_TIMEOUT_MILLIS);
+                            confirmed[0] = batchEnd;
+                        }
+                    } catch (Exception e) {
+                        discardPublishChannel(channel);
+                        throw e;
+                    }
+                    releasePublishChannel(channel);
                     return null;
                 }
             });
-            unAcknowlededMesageCount++;
-            log.info("RabbitMQ message successfully placed {} on queue - queue: {}",
-                     task, queueName);
-
+            log.info("{} RabbitMQ messages successfully placed on queue: {}",
+                     msgBodies.size(), queueName);
         } catch (Exception ex) {
-            log.error("failed to place {} on {} at {} due to {}", task, queueName, queueUrl, ex.getMessage());
+            log.error("failed to place {} of {} tasks on {} at {} due to {}",
+                      msgBodies.size() - confirmed[0], msgBodies.size(),
+                      queueName, queueUrl, ex.getMessage());
             throw new DuraCloudRuntimeException(ex);
+        } finally {
+            unAcknowlededMesageCount.addAndGet(confirmed[0]);
         }
     }
 
-    /**
-     * Convenience method that calls put(Set<Task>)
-     *
-     * @param tasks
-     */
-    @Override
-    public void put(Task... tasks) {
-        for (Task task : tasks) {
-            this.put(task);
+    private Channel borrowPublishChannel() throws IOException {
+        Channel channel = publishChannels.poll();
+        if (null == channel || !channel.isOpen()) {
+            channel = connection.createChannel();
+            channel.confirmSelect();
         }
+        return channel;
     }
 
-    @Override
-    public void put(Set<Task> tasks) {
-        for (Task task : tasks) {
-            this.put(task);
+    private void releasePublishChannel(Channel channel) {
+        if (!publishChannels.offer(channel)) {
+            discardPublishChannel(channel);
+        }
+    }
+
+    private void discardPublishChannel(Channel channel) {
+        try {
+            channel.abort();
+        } catch (Exception e) {
+            log.debug("failed to close publishing channel: {}", e.getMessage());
         }
     }
 
+    /**
+     * Returns the tasks which have already been delivered to this queue, up
+     * to maxTasks, waiting briefly for a delivery if there are none.
+     */
     @Override
     public Set<Task> take(int maxTasks) throws TimeoutException {
-        Integer size = size();
-        if (size > 0) {
-            if (size < maxTasks) {
-                size = maxTasks;
+        startConsumer();
+
+        List<Delivery> taken = new ArrayList<>(maxTasks);
+        try {
+            Delivery first = deliveries.poll(TAKE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            if (null != first) {
+                taken.add(first);
+                deliveries.drainTo(taken, maxTasks - 1);
             }
-            Set<Task> tasks = new HashSet<>();
-            try {
-                for (int i = 0; i < size; i++) {
-                    Task task = take();
-                    tasks.add(task);
-                }
-                return tasks;
-            } catch (Exception e) {
-                for (Task task : tasks) {
-                    requeue(task);
-                }
-                throw new TimeoutException("Failed to get at least one message from queue: " +
-                                           queueName + ", queueUrl: " + queueUrl);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Set<Task> tasks = new HashSet<>();
+        for (Delivery delivery : taken) {
+            Task task = toTask(delivery);
+            if (null != task) {
+                tasks.add(task);
             }
-        } else {
+        }
+        if (tasks.isEmpty()) {
             throw new TimeoutException("No tasks available from queue: " +
                                        queueName + ", queueUrl: " + queueUrl);
         }
+        return tasks;
     }
 
     @Override
     public Task take() throws TimeoutException {
-        Integer size = size();
-        if (size > 0) {
-            try {
-                GetResponse response = mqChannel.basicGet(queueName, false);
-                if (response == null) {
-                    throw new TimeoutException("No tasks available from queue: " +
-                                               queueName + ", queueUrl: " + queueUrl);
-                } else {
-                    AMQP.BasicProperties properties = response.getProps();
-                    Envelope envelope = response.getEnvelope();
-                    byte[] body = response.getBody();
-                    String routingKey = envelope.getRoutingKey();
-                    String exchange = envelope.getExchange();
-                    long deliveryTag = envelope.getDeliveryTag();
-                    Long sentTime = properties.getTimestamp().getTime();
-                    Long preworkQueueTime = System.currentTimeMillis() - sentTime;
-                    log.info(
-                        "RabbitMQ message received - queue: {}, queueUrl: {}, deliveryTag: {}, preworkQueueTime: {}"
-                        , queueName, queueUrl, deliveryTag
-                        , DurationFormatUtils.formatDuration(preworkQueueTime, "HH:mm:ss,SSS"));
-                    Task task = marshallTask(body, deliveryTag, routingKey, exchange);
-                    task.setVisibilityTimeout(visibilityTimeout);
-                    return task;
-                }
-            } catch (Exception ex) {
-                log.error("failed to take task from " + queueName + " due to " + ex.getMessage(), ex);
-                throw new TimeoutException("No tasks available from queue: " +
-                                           queueName + ", queueUrl: " + queueUrl);
+        return take(1).iterator().next();
+    }
+
+    /*
+     * Subscribes to the queue, unless already subscribed. Deliveries are held
+     * until taken, and the broker stops delivering once prefetchCount of them
+     * are neither deleted nor requeued.
+     */
+    private synchronized void startConsumer() throws TimeoutException {
+        if (null != consumerTag) {
+            return;
+        }
+        try {
+            synchronized (mqChannel) {
+                mqChannel.basicQos(prefetchCount);
+                consumerTag = mqChannel.basicConsume(
+                    queueName, false,
+                    (tag, delivery) -> deliveries.add(delivery),
+                    tag -> {
+                        log.warn("RabbitMQ consumer of queue {} at {} was cancelled",
+                                 queueName, queueUrl);
+                        consumerTag = null;
+                    });
             }
-        } else {
+        } catch (Exception ex) {
+            log.error("failed to consume from " + queueName + " due to " + ex.getMessage(), ex);
             throw new TimeoutException("No tasks available from queue: " +
                                        queueName + ", queueUrl: " + queueUrl);
         }
     }
 
+    /*
+     * Converts a delivery to a task, rejecting the message if it does not
+     * hold a task, as it would otherwise never be deleted
+     */
+    private Task toTask(Delivery delivery) {
+        Envelope envelope = delivery.getEnvelope();
+        long deliveryTag = envelope.getDeliveryTag();
+        Date sentTime = delivery.getProperties().getTimestamp();
+        if (null != sentTime) {
+            long preworkQueueTime = System.currentTimeMillis() - sentTime.getTime();
+            log.info("RabbitMQ message received - queue: {}, queueUrl: {}, deliveryTag: {}, preworkQueueTime: {}"
+                , queueName, queueUrl, deliveryTag
+                , DurationFormatUtils.formatDuration(preworkQueueTime, "HH:mm:ss,SSS"));
+        }
+
+        Task task = marshallTask(delivery.getBody(), deliveryTag,
+                                 envelope.getRoutingKey(), envelope.getExchange());
+        if (null == task) {
+            try {
+                synchronized (mqChannel) {
+                    mqChannel.basicReject(deliveryTag, false);
+                }
+            } catch (Exception e) {
+                log.error("unable to reject invalid message {} from {}", deliveryTag, queueName);
+            }
+            return null;
+        }
+        task.setVisibilityTimeout(visibilityTimeout);
+        return task;
+    }
 
     /**
      * RabbitMQ does not have this feature, messages would not be visible until rejected and requeued
@@ -265,9 +395,12 @@ public class RabbitmqTaskQueue implements TaskQueue {
     @Override
     public void deleteTask(Task task) throws TaskNotFoundException {
         try {
-            mqChannel.basicAck(Long.parseLong(task.getProperty(MsgProp.DELIVERY_TAG.name())), false);
+            long deliveryTag = Long.parseLong(task.getProperty(MsgProp.DELIVERY_TAG.name()));
+            synchronized (mqChannel) {
+                mqChannel.basicAck(deliveryTag, false);
+            }
             log.info("successfully deleted {}", task);
-            unAcknowlededMesageCount--;
+            unAcknowlededMesageCount.decrementAndGet();
 
         } catch (Exception e) {
             log.error("failed to delete task " + task + ": " + e.getMessage(), e);
@@ -302,8 +435,11 @@ public class RabbitmqTaskQueue implements TaskQueue {
         int attempts = task.getAttempts();
         task.incrementAttempts();
         try {
-            mqChannel.basicReject(Long.parseLong(task.getProperty(MsgProp.DELIVERY_TAG.name())), true);
-            unAcknowlededMesageCount--;
+            long deliveryTag = Long.parseLong(task.getProperty(MsgProp.DELIVERY_TAG.name()));
+            synchronized (mqChannel) {
+                mqChannel.basicReject(deliveryTag, true);
+            }
+            unAcknowlededMesageCount.decrementAndGet();
         } catch (Exception e) {
             log.error("unable to reject message {}, re-put message instead ", task);
             put(task);
@@ -326,7 +462,7 @@ public class RabbitmqTaskQueue implements TaskQueue {
     @Override
     public Integer sizeIncludingInvisibleAndDelayed() {
 
-        return size() + unAcknowlededMesageCount;
+        return size() + unAcknowlededMesageCount.get();
     }
 
     private Integer getVisibilityTimeout() {
@@ -7,17 +7,20 @@
  */
 package org.duracloud.common.queue.aws;
 
+import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.isA;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertThat;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
 
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.sqs.AmazonSQSClient;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
 import com.amazonaws.services.sqs.model.GetQueueAttributesRequest;
 import com.amazonaws.services.sqs.model.GetQueueAttributesResult;
 import com.amazonaws.services.sqs.model.GetQueueUrlRequest;
@@ -30,6 +33,8 @@ import com.amazonaws.services.sqs.model.SendMessageRequest;
 import com.amazonaws.services.sqs.model.SendMessageResult;
 import org.duracloud.common.queue.task.Task;
 import org.duracloud.common.queue.task.Task.Type;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
 import org.easymock.EasyMockRunner;
 import org.easymock.EasyMockSupport;
 import org.easymock.Mock;
@@ -149,6 +154,7 @@ public class SQSTaskQueueTest extends EasyMockSupport {
         expect(this.sqsClient.sendMessageBatch(isA(SendMessageBatchRequest.class)))
             .andThrow(new AmazonServiceException("failure"));
         expect(this.sqsClient.sendMessageBatch(isA(SendMessageBatchRequest.class))).andReturn(result).times(2);
+        expect(result.getFailed()).andReturn(new ArrayList<>()).times(2);
         replayAll();
         createSubject();
         Set<Task> tasks = new HashSet<>();
@@ -159,4 +165,28 @@ public class SQSTaskQueueTest extends EasyMockSupport {
         this.queue.put(tasks);
     }
 
+    @Test
+    public void testPutMultiplePartialFailure() {
+        setupSQSClient();
+        // The first message of the batch is not accepted, so it alone is resent
+        Capture<SendMessageBatchRequest> requestCapture = Capture.newInstance(CaptureType.ALL);
+        SendMessageBatchResult partialResult = new SendMessageBatchResult().withFailed(
+            new BatchResultErrorEntry().withId("0").withMessage("failure"));
+        expect(this.sqsClient.sendMessageBatch(capture(requestCapture))).andReturn(partialResult);
+        expect(this.sqsClient.sendMessageBatch(capture(requestCapture)))
+            .andReturn(new SendMessageBatchResult());
+        replayAll();
+        createSubject();
+        Set<Task> tasks = new HashSet<>();
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            tasks.add(createSampleAuditTask(time + i));
+        }
+        this.queue.put(tasks);
+
+        assertThat(requestCapture.getValues().get(0).getEntries().size(), is(equalTo(3)));
+        assertThat(requestCapture.getValues().get(1).getEntries().size(), is(equalTo(1)));
+        assertThat(requestCapture.getValues().get(1).getEntries().get(0).getId(), is(equalTo("0")));
+    }
+
 }
@@ -7,7 +7,10 @@
  */
 package org.duracloud.common.queue.rabbitmq;
 
+import static org.easymock.EasyMock.anyLong;
 import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.hamcrest.core.Is.is;
@@ -16,14 +19,22 @@ import static org.junit.Assert.assertThat;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
 
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.CancelCallback;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DeliverCallback;
+import com.rabbitmq.client.Delivery;
+import com.rabbitmq.client.Envelope;
 import com.rabbitmq.client.impl.AMQImpl;
+import org.duracloud.common.queue.TimeoutException;
 import org.duracloud.common.queue.task.Task;
 import org.duracloud.common.queue.task.Task.Type;
+import org.easymock.Capture;
 import org.easymock.EasyMockRunner;
 import org.easymock.EasyMockSupport;
 import org.junit.After;
@@ -42,6 +53,7 @@ public class RabbitmqTaskQueueTest extends EasyMockSupport {
     private Connection connection;
     private RabbitmqTaskQueue queue;
     private Channel channel;
+    private Channel publishChannel;
     private String queueName = "test-queue";
     private String exchange = "test-exchange";
 
@@ -49,16 +61,21 @@ public class RabbitmqTaskQueueTest extends EasyMockSupport {
     public void setup() {
     }
 
-    private void setupRabbitmqClient() throws IOException {
+    private void setupRabbitmqClient() throws Exception {
         connection = createMock("Connection", Connection.class);
         channel = createMock("Channel", Channel.class);
+        publishChannel = createMock("PublishChannel", Channel.class);
         InetAddress address = InetAddress.getByName("127.0.0.1");
 
-        expect(connection.createChannel()).andReturn(channel);
+        expect(connection.createChannel()).andReturn(channel).andReturn(publishChannel).anyTimes();
         expect(channel.queueBind(queueName, exchange, queueName)).andReturn(new AMQImpl.Queue.BindOk());
         expect(connection.getAddress()).andReturn(address);
-        channel.basicPublish(anyObject(String.class), anyObject(String.class),
-                             anyObject(null), anyObject(byte[].class));
+        expect(publishChannel.confirmSelect()).andReturn(new AMQImpl.Confirm.SelectOk()).anyTimes();
+        expect(publishChannel.isOpen()).andReturn(true).anyTimes();
+        publishChannel.basicPublish(anyObject(String.class), anyObject(String.class),
+                                    anyObject(AMQP.BasicProperties.class), anyObject(byte[].class));
+        expectLastCall().anyTimes();
+        publishChannel.waitForConfirmsOrDie(anyLong());
         expectLastCall().anyTimes();
     }
 
@@ -72,7 +89,7 @@ public class RabbitmqTaskQueueTest extends EasyMockSupport {
     }
 
     @Test
-    public void testMarshallTask() throws IOException {
+    public void testMarshallTask() throws Exception {
         setupRabbitmqClient();
         replayAll();
         createSubject();
@@ -96,7 +113,7 @@ public class RabbitmqTaskQueueTest extends EasyMockSupport {
     }
 
     @Test
-    public void testUnmarshallTask() throws IOException {
+    public void testUnmarshallTask() throws Exception {
         setupRabbitmqClient();
         replayAll();
         createSubject();
@@ -114,7 +131,7 @@ public class RabbitmqTaskQueueTest extends EasyMockSupport {
     }
 
     @Test
-    public void testPut() throws IOException {
+    public void testPut() throws Exception {
         setupRabbitmqClient();
         replayAll();
         createSubject();
@@ -131,7 +148,7 @@ public class RabbitmqTaskQueueTest extends EasyMockSupport {
     }
 
     @Test
-    public void testPutMuliple() throws IOException {
+    public void testPutMuliple() throws Exception {
         setupRabbitmqClient();
         replayAll();
         createSubject();
@@ -142,4 +159,121 @@ public class RabbitmqTaskQueueTest extends EasyMockSupport {
         }
         this.queue.put(tasks);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPutMultipleResumesAfterFailure() throws Exception {
+        connection = createMock("Connection", Connection.class);
+        channel = createMock("Channel", Channel.class);
+        publishChannel = createMock("PublishChannel", Channel.class);
+        expect(connection.createChannel()).andReturn(channel).andReturn(publishChannel).times(2);
+        expect(channel.queueBind(queueName, exchange, queueName)).andReturn(new AMQImpl.Queue.BindOk());
+        expect(connection.getAddress()).andReturn(InetAddress.getByName("127.0.0.1"));
+        expect(publishChannel.confirmSelect()).andReturn(new AMQImpl.Confirm.SelectOk()).times(2);
+
+        // The third publish fails, after which the unconfirmed batch is published
+        // again on a new channel
+        int[] publishCount = {0};
+        publishChannel.basicPublish(anyObject(String.class), anyObject(String.class),
+                                    anyObject(AMQP.BasicProperties.class), anyObject(byte[].class));
+        expectLastCall().andAnswer(() -> {
+            if (++publishCount[0] == 3) {
+                throw new IOException("publish failure");
+            }
+            return null;
+        }).times(8);
+        publishChannel.abort();
+        expectLastCall();
+        publishChannel.waitForConfirmsOrDie(anyLong());
+        expectLastCall();
+        expect(channel.messageCount(queueName)).andReturn(0L);
+        replayAll();
+        createSubject();
+
+        Set<Task> tasks = new HashSet<>();
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            tasks.add(createSampleAuditTask(time + i));
+        }
+        this.queue.put(tasks);
+        assertThat(queue.sizeIncludingInvisibleAndDelayed(), is(equalTo(5)));
+    }
+
+    @Test
+    public void testTake() throws Exception {
+        setupRabbitmqClient();
+        Capture<DeliverCallback> deliverCallback = Capture.newInstance();
+        channel.basicQos(10);
+        expectLastCall();
+        expect(channel.basicConsume(eq(queueName), eq(false), capture(deliverCallback),
+                                    anyObject(CancelCallback.class))).andReturn("consumer");
+        channel.basicAck(1L, false);
+        expectLastCall();
+        channel.basicAck(2L, false);
+        expectLastCall();
+        channel.basicReject(3L, true);
+        expectLastCall();
+        replayAll();
+        queue = new RabbitmqTaskQueue(connection, exchange, queueName, 10);
+
+        // Nothing has been delivered yet
+        try {
+            queue.take(5);
+            Assert.fail("Exception expected");
+        } catch (TimeoutException e) {
+            // Expected
+        }
+
+        long time = System.currentTimeMillis();
+        for (int i = 1; i <= 3; i++) {
+            deliverCallback.getValue().handle("consumer", createDelivery(i, createSampleAuditTask(time + i)));
+        }
+
+        Set<Task> tasks = queue.take(2);
+        assertThat(tasks.size(), is(equalTo(2)));
+        for (Task task : tasks) {
+            queue.deleteTask(task);
+        }
+
+        Task task = queue.take();
+        assertThat(task.getProperty(RabbitmqTaskQueue.MsgProp.DELIVERY_TAG.name()), is(equalTo("3")));
+        assertThat(task.getProperty("timestamp"), is(equalTo(String.valueOf(time + 3))));
+        queue.requeue(task);
+    }
+
+    @Test
+    public void testTakeRejectsInvalidMessage() throws Exception {
+        setupRabbitmqClient();
+        Capture<DeliverCallback> deliverCallback = Capture.newInstance();
+        channel.basicQos(RabbitmqTaskQueue.DEFAULT_PREFETCH_COUNT);
+        expectLastCall();
+        expect(channel.basicConsume(eq(queueName), eq(false), capture(deliverCallback),
+                                    anyObject(CancelCallback.class))).andReturn("consumer");
+        channel.basicReject(1L, false);
+        expectLastCall();
+        replayAll();
+        createSubject();
+
+        try {
+            queue.take();
+            Assert.fail("Exception expected");
+        } catch (TimeoutException e) {
+            // Expected
+        }
+
+        Envelope envelope = new Envelope(1L, false, exchange, queueName);
+        deliverCallback.getValue().handle(
+            "consumer", new Delivery(envelope, new AMQP.BasicProperties(), "not-a-task".getBytes()));
+        try {
+            queue.take();
+            Assert.fail("Exception expected");
+        } catch (TimeoutException e) {
+            // Expected
+        }
+    }
+
+    private Delivery createDelivery(long deliveryTag, Task task) {
+        Envelope envelope = new Envelope(deliveryTag, false, exchange, queueName);
+        AMQP.BasicProperties props = new AMQP.BasicProperties.Builder().timestamp(new Date()).build();
+        return new Delivery(envelope, props, queue.unmarshallTask(task).getBytes());
+    }
+}
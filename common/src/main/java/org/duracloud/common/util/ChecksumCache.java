@@ -0,0 +1,490 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.common.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An on-disk cache of the MD5 checksums of local files, so that a file which
+ * has not changed since its checksum was last computed need not be read again.
+ *
+ * A cached checksum is used only while the file has the same path, size,
+ * modification time and (where the file system provides one) file key, such
+ * as the inode, as it had when the checksum was computed. Files modified
+ * within a few seconds before their attributes were read are not cached, as
+ * a further change within the resolution of the modification time could not
+ * be seen.
+ * A sample of cache hits may be verified by computing the checksum anyway,
+ * any mismatch replacing the cached value.
+ *
+ * The cache is held in memory, bounded to a maximum number of files (the
+ * least recently used are dropped), and backed by an append-only file. Every
+ * record carries a checksum, so an incomplete record left at the end of the
+ * file by a crash is discarded when the cache is loaded; at worst the files
+ * of lost records are checksummed again. Once the file is largely made up of
+ * records which are no longer needed it is compacted by writing the cached
+ * entries to a new file which then replaces it.
+ *
+ * This class is thread safe.
+ */
+public class ChecksumCache implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ChecksumCache.class);
+
+    public static final int DEFAULT_MAX_ENTRIES = 250000;
+
+    // Files modified this recently before their attributes were read are not cached
+    private static final long RACY_WINDOW = TimeUnit.SECONDS.toNanos(2);
+
+    // Record length and checksum
+    private static final int RECORD_OVERHEAD = 8;
+    private static final int MAX_RECORD_LENGTH = 128 * 1024;
+    private static final int MIN_COMPACT_RECORDS = 10000;
+
+    private final File cacheFile;
+    private final int maxEntries;
+    private final double verifySampleRate;
+    private final ChecksumUtil checksumUtil =
+        new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
+
+    private final Map<String, CachedChecksum> entries;
+
+    private FileOutputStream fileStream;
+    private DataOutputStream out;
+    private long recordCount = 0;
+
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long verifiedCount = 0;
+    private long mismatchCount = 0;
+
+    /**
+     * @param cacheFile file holding the cache, loaded if it exists
+     */
+    public ChecksumCache(File cacheFile) throws IOException {
+        this(cacheFile, DEFAULT_MAX_ENTRIES, 0);
+    }
+
+    /**
+     * @param cacheFile        file holding the cache, loaded if it exists
+     * @param maxEntries       maximum number of files held in the cache
+     * @param verifySampleRate fraction (0 to 1) of cache hits for which the
+     *                         checksum is computed to verify the cached value
+     */
+    public ChecksumCache(File cacheFile, int maxEntries, double verifySampleRate)
+        throws IOException {
+        this.cacheFile = cacheFile;
+        this.maxEntries = maxEntries;
+        this.verifySampleRate = verifySampleRate;
+        this.entries = new LinkedHashMap<String, CachedChecksum>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedChecksum> eldest) {
+                return size() > ChecksumCache.this.maxEntries;
+            }
+        };
+
+        if (!cacheFile.exists() || !load() || needsCompaction()) {
+            compact();
+        } else {
+            openForAppend();
+        }
+    }
+
+    /**
+     * Provides the MD5 checksum of a file, from the cache if the file has not
+     * changed since its checksum was cached, otherwise by computing it.
+     *
+     * @param file the file to checksum
+     * @return hex-encoded MD5 checksum
+     */
+    public String getChecksum(File file) throws IOException {
+        Identity identity = Identity.of(file);
+        CachedChecksum entry = getEntry(identity);
+        if (null != entry) {
+            if (!sampleForVerification()) {
+                return entry.getChecksum();
+            }
+            String checksum = checksumUtil.generateChecksum(file);
+            verified(file, identity, entry, checksum);
+            return checksum;
+        }
+
+        String checksum = checksumUtil.generateChecksum(file);
+        put(identity, checksum);
+        return checksum;
+    }
+
+    /**
+     * Provides the cached MD5 checksum of a file, without computing it.
+     *
+     * @param file the file
+     * @return hex-encoded MD5 checksum, or null if no checksum is cached for
+     * the file as it is now
+     */
+    public String getCachedChecksum(File file) {
+        try {
+            CachedChecksum entry = getEntry(Identity.of(file));
+            return null == entry ? null : entry.getChecksum();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Caches the MD5 checksum of a file which was computed elsewhere, such as
+     * while the file was being written. The file is expected not to have
+     * changed since the checksum was computed.
+     *
+     * @param file     the file
+     * @param checksum hex-encoded MD5 checksum of the file
+     */
+    public void put(File file, String checksum) {
+        try {
+            put(Identity.of(file), checksum);
+        } catch (IOException e) {
+            log.debug("Unable to cache checksum of {}: {}",
+                      file.getAbsolutePath(), e.getMessage());
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the number of cache hits which were verified by computing the
+     * checksum of the file
+     */
+    public synchronized long getVerifiedCount() {
+        return verifiedCount;
+    }
+
+    /**
+     * @return the number of verified cache hits for which the computed
+     * checksum did not match the cached checksum
+     */
+    public synchronized long getMismatchCount() {
+        return mismatchCount;
+    }
+
+    /**
+     * Forces the cache to disk, compacting it first if the majority of its
+     * records are no longer needed.
+     */
+    public synchronized void sync() throws IOException {
+        if (null == out) {
+            return;
+        }
+        if (recordCount > MIN_COMPACT_RECORDS && recordCount > 2 * entries.size()) {
+            compact();
+        } else {
+            out.flush();
+            fileStream.getChannel().force(false);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (null == out) {
+            return;
+        }
+
+        try {
+            sync();
+        } catch (IOException e) {
+            log.warn("Unable to sync checksum cache {} on close: {}",
+                     cacheFile.getAbsolutePath(), e.getMessage());
+        } finally {
+            IOUtils.closeQuietly(out);
+            out = null;
+        }
+        log.info("Closed checksum cache {} holding {} files, with {} hits " +
+                 "and {} misses", cacheFile.getAbsolutePath(), entries.size(),
+                 hitCount, missCount);
+    }
+
+    private synchronized CachedChecksum getEntry(Identity identity) {
+        CachedChecksum entry = entries.get(identity.path);
+        if (null != entry && entry.matches(identity)) {
+            hitCount++;
+            return entry;
+        }
+        missCount++;
+        return null;
+    }
+
+    private synchronized void verified(File file,
+                                       Identity identity,
+                                       CachedChecksum entry,
+                                       String checksum) {
+        verifiedCount++;
+        if (!entry.getChecksum().equals(checksum)) {
+            mismatchCount++;
+            log.warn("Cached checksum {} of {} does not match its computed " +
+                     "checksum {}, the file may have been changed without " +
+                     "its size or modification time changing",
+                     entry.getChecksum(), file.getAbsolutePath(), checksum);
+            put(identity, checksum);
+        }
+    }
+
+    private synchronized void put(Identity identity, String checksum) {
+        if (identity.captureTime - identity.modified < RACY_WINDOW) {
+            return;
+        }
+
+        CachedChecksum entry = new CachedChecksum(identity, ChecksumUtil.hexStringToByteArray(checksum));
+        entries.put(identity.path, entry);
+        if (null != out) {
+            try {
+                writeRecord(out, entry);
+                out.flush();
+                recordCount++;
+                if (needsCompaction()) {
+                    compact();
+                }
+            } catch (IOException e) {
+                log.warn("Unable to write to checksum cache {}, no further " +
+                         "checksums will be saved: {}",
+                         cacheFile.getAbsolutePath(), e.getMessage());
+                IOUtils.closeQuietly(out);
+                out = null;
+            }
+        }
+    }
+
+    private boolean sampleForVerification() {
+        return verifySampleRate > 0 &&
+               ThreadLocalRandom.current().nextDouble() < verifySampleRate;
+    }
+
+    /*
+     * Once most of the records in the cache file have been replaced by later
+     * records, or dropped from the cache, the file is worth compacting
+     */
+    private boolean needsCompaction() {
+        return recordCount > MIN_COMPACT_RECORDS &&
+               recordCount > 2 * entries.size();
+    }
+
+    /*
+     * Reads the cache file, later records replacing earlier records of the
+     * same path. Returns false if the file ends with an incomplete record,
+     * which must be removed before further records are appended.
+     */
+    private boolean load() throws IOException {
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            CachedChecksum entry;
+            while (null != (entry = readRecord(in))) {
+                validLength += entry.recordSize;
+                entries.put(entry.path, entry);
+                recordCount++;
+            }
+        }
+
+        log.info("Loaded checksums of {} files from checksum cache {}",
+                 entries.size(), cacheFile.getAbsolutePath());
+        if (validLength < cacheFile.length()) {
+            log.warn("Discarding incomplete records at the end of checksum " +
+                     "cache {}", cacheFile.getAbsolutePath());
+            return false;
+        }
+        return true;
+    }
+
+    /*
+     * Replaces the cache file with one holding only the cached entries
+     */
+    private void compact() throws IOException {
+        File compactFile = new File(cacheFile.getPath() + ".compact");
+        try (FileOutputStream compactStream = new FileOutputStream(compactFile)) {
+            DataOutputStream compactOut =
+                new DataOutputStream(new BufferedOutputStream(compactStream));
+            for (CachedChecksum entry : entries.values()) {
+                writeRecord(compactOut, entry);
+            }
+            compactOut.flush();
+            compactStream.getChannel().force(false);
+        }
+
+        if (null != out) {
+            IOUtils.closeQuietly(out);
+            out = null;
+        }
+        Files.move(compactFile.toPath(),
+                   cacheFile.toPath(),
+                   StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+
+        recordCount = entries.size();
+        openForAppend();
+        log.debug("Compacted checksum cache {} to {} records",
+                  cacheFile.getAbsolutePath(), recordCount);
+    }
+
+    private void openForAppend() throws IOException {
+        fileStream = new FileOutputStream(cacheFile, true);
+        out = new DataOutputStream(new BufferedOutputStream(fileStream));
+    }
+
+    private static void writeRecord(DataOutputStream out, CachedChecksum entry)
+        throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeUTF(entry.path);
+        payload.writeLong(entry.size);
+        payload.writeLong(entry.modified);
+        payload.writeInt(entry.fileKeyHash);
+        payload.writeByte(entry.checksum.length);
+        payload.write(entry.checksum);
+        payload.flush();
+
+        byte[] data = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        out.writeInt(data.length);
+        out.write(data);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /*
+     * @return the next entry, or null if the end of the file has been
+     * reached or the next record is incomplete or corrupt
+     */
+    private static CachedChecksum readRecord(DataInputStream in) throws IOException {
+        byte[] data;
+        int checksum;
+        try {
+            int length = in.readInt();
+            if (length <= 0 || length > MAX_RECORD_LENGTH) {
+                return null;
+            }
+            data = new byte[length];
+            in.readFully(data);
+            checksum = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+
+        DataInputStream payload =
+            new DataInputStream(new ByteArrayInputStream(data));
+        Identity identity = new Identity(payload.readUTF(),
+                                         payload.readLong(),
+                                         payload.readLong(),
+                                         payload.readInt(),
+                                         0);
+        byte[] fileChecksum = new byte[payload.readUnsignedByte()];
+        payload.readFully(fileChecksum);
+
+        CachedChecksum entry = new CachedChecksum(identity, fileChecksum);
+        entry.recordSize = data.length + RECORD_OVERHEAD;
+        return entry;
+    }
+
+    /*
+     * The attributes of a file which, when unchanged, indicate that the
+     * content of the file is unchanged, along with the time (in ns) at which
+     * they were read. As the checksum is computed after the attributes are
+     * read, the time of the read rather than the time the checksum is cached
+     * is compared with the modification time, in the manner of the racy
+     * entries of a git index. The capture time of loaded records is unknown
+     * and not needed.
+     */
+    private static class Identity {
+        protected final String path;
+        protected final long size;
+        protected final long modified;
+        protected final int fileKeyHash;
+        protected final long captureTime;
+
+        Identity(String path, long size, long modified, int fileKeyHash,
+                 long captureTime) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.fileKeyHash = fileKeyHash;
+            this.captureTime = captureTime;
+        }
+
+        static Identity of(File file) throws IOException {
+            long captureTime =
+                TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+            BasicFileAttributes attributes =
+                Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            Object fileKey = attributes.fileKey();
+            return new Identity(file.getAbsolutePath(),
+                                attributes.size(),
+                                attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                                null == fileKey ? 0 : fileKey.hashCode(),
+                                captureTime);
+        }
+    }
+
+    private static class CachedChecksum extends Identity {
+        // Checksums are held as bytes to keep the cache compact
+        private final byte[] checksum;
+        private int recordSize;
+
+        CachedChecksum(Identity identity, byte[] checksum) {
+            super(identity.path, identity.size, identity.modified,
+                  identity.fileKeyHash, identity.captureTime);
+            this.checksum = checksum;
+        }
+
+        boolean matches(Identity identity) {
+            return size == identity.size &&
+                   modified == identity.modified &&
+                   fileKeyHash == identity.fileKeyHash;
+        }
+
+        String getChecksum() {
+            return ChecksumUtil.checksumBytesToString(checksum);
+        }
+    }
+
+}
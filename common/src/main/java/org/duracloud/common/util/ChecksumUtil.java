@@ -12,65 +12,219 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.Map;
 
 import org.apache.commons.codec.binary.Base64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * A utility class for generating checksums.  Beware this class it not threadsafe.
+ * A utility class for generating checksums. Instances may be shared between
+ * threads.
+ *
+ * Message digests, and the direct buffers used to read files, are kept by
+ * each thread for reuse, so creating an instance is cheap and concurrent
+ * checksums do not share state. Files are read through a FileChannel into a
+ * direct buffer, which is handed to the digest without copying.
  *
  * @author Daniel Bernstein
  */
 public class ChecksumUtil {
 
+    /**
+     * Size of the buffer used to read content, unless another is given
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<Map<Algorithm, MessageDigest>> DIGESTS =
+        ThreadLocal.withInitial(() -> new EnumMap<>(Algorithm.class));
+    private static final ThreadLocal<ByteBuffer> FILE_BUFFERS = new ThreadLocal<>();
+
     private final Logger log = LoggerFactory.getLogger(ChecksumUtil.class);
 
-    private final MessageDigest digest;
+    private final Algorithm algorithm;
+    private final int bufferSize;
 
     public ChecksumUtil(Algorithm alg) {
+        this(alg, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param alg        algorithm of the checksums generated
+     * @param bufferSize size (in bytes) of the buffer used to read content
+     */
+    public ChecksumUtil(Algorithm alg, int bufferSize) {
+        this.algorithm = alg;
+        this.bufferSize = bufferSize;
         try {
-            digest = MessageDigest.getInstance(alg.toString());
-        } catch (NoSuchAlgorithmException e) {
+            // Fails here if the algorithm is not supported
+            releaseDigest(alg, borrowDigest(alg));
+        } catch (RuntimeException e) {
             log.error("Error getting msg digest instance", e);
-            throw new RuntimeException(e);
+            throw e;
         }
     }
 
     public String generateChecksum(File file) throws IOException {
-        try (FileInputStream stream = new FileInputStream(file)) {
-            return generateChecksum(stream);
+        MessageDigest digest = borrowDigest(algorithm);
+        try {
+            readFile(file, bufferSize, digest);
+            return checksumBytesToString(digest.digest());
+        } finally {
+            releaseDigest(algorithm, digest);
         }
     }
 
     /**
      * This method generates checksum of content in arg stream.
-     * Warning: this method is NOT threadsafe.
      *
      * @param inStream Content used as target of checksum.
      * @return string representation of the generated checksum.
      */
     public String generateChecksum(InputStream inStream) {
+        MessageDigest digest = borrowDigest(algorithm);
         try {
-            byte[] buf = new byte[4096];
+            byte[] buf = new byte[bufferSize];
             int numRead = 0;
             long totalBytesRead = 0;
+            long nextLoggedBytes = 1000 * 1000 * 1000;
             while ((numRead = readFromStream(inStream, buf)) != -1) {
                 digest.update(buf, 0, numRead);
                 totalBytesRead += numRead;
 
-                if (log.isDebugEnabled()) {
-                    if (totalBytesRead % (1000 * 1000 * 1000) == 0) {
-                        log.debug("Total bytes read: {}", totalBytesRead);
-                    }
+                if (totalBytesRead >= nextLoggedBytes) {
+                    log.debug("Total bytes read: {}", totalBytesRead);
+                    nextLoggedBytes += 1000 * 1000 * 1000;
                 }
             }
             return checksumBytesToString(digest.digest());
         } finally {
-            digest.reset();
+            releaseDigest(algorithm, digest);
+        }
+    }
+
+    /**
+     * Generates checksums of the content of a file using several algorithms,
+     * reading the file once.
+     *
+     * @param file       content used as target of the checksums
+     * @param algorithms algorithms of the checksums to generate
+     * @return hex-encoded checksums, by algorithm
+     */
+    public static Map<Algorithm, String> generateChecksums(File file,
+                                                           Algorithm... algorithms)
+        throws IOException {
+        MessageDigest[] digests = borrowDigests(algorithms);
+        try {
+            readFile(file, DEFAULT_BUFFER_SIZE, digests);
+            return toChecksums(algorithms, digests);
+        } finally {
+            releaseDigests(algorithms, digests);
+        }
+    }
+
+    /**
+     * Generates checksums of the content of a stream using several
+     * algorithms, reading the stream once.
+     *
+     * @param inStream   content used as target of the checksums
+     * @param algorithms algorithms of the checksums to generate
+     * @return hex-encoded checksums, by algorithm
+     */
+    public static Map<Algorithm, String> generateChecksums(InputStream inStream,
+                                                           Algorithm... algorithms)
+        throws IOException {
+        MessageDigest[] digests = borrowDigests(algorithms);
+        try {
+            byte[] buf = new byte[DEFAULT_BUFFER_SIZE];
+            int numRead;
+            while ((numRead = inStream.read(buf)) != -1) {
+                for (MessageDigest digest : digests) {
+                    digest.update(buf, 0, numRead);
+                }
+            }
+            return toChecksums(algorithms, digests);
+        } finally {
+            releaseDigests(algorithms, digests);
+        }
+    }
+
+    private static void readFile(File file, int bufferSize, MessageDigest... digests)
+        throws IOException {
+        ByteBuffer buffer = FILE_BUFFERS.get();
+        FILE_BUFFERS.remove();
+        if (null == buffer || buffer.capacity() != bufferSize) {
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        try (FileInputStream stream = new FileInputStream(file);
+             FileChannel channel = stream.getChannel()) {
+            buffer.clear();
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                for (MessageDigest digest : digests) {
+                    buffer.rewind();
+                    digest.update(buffer);
+                }
+                buffer.clear();
+            }
+        } finally {
+            FILE_BUFFERS.set(buffer);
+        }
+    }
+
+    private static Map<Algorithm, String> toChecksums(Algorithm[] algorithms,
+                                                      MessageDigest[] digests) {
+        Map<Algorithm, String> checksums = new EnumMap<>(Algorithm.class);
+        for (int i = 0; i < algorithms.length; i++) {
+            checksums.put(algorithms[i], checksumBytesToString(digests[i].digest()));
+        }
+        return checksums;
+    }
+
+    /*
+     * Takes a digest from those kept by the current thread, so that a digest
+     * is never in use twice, even if checksums are nested on one thread
+     */
+    private static MessageDigest borrowDigest(Algorithm algorithm) {
+        MessageDigest digest = DIGESTS.get().remove(algorithm);
+        if (null != digest) {
+            return digest;
+        }
+        try {
+            return MessageDigest.getInstance(algorithm.toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void releaseDigest(Algorithm algorithm, MessageDigest digest) {
+        digest.reset();
+        DIGESTS.get().put(algorithm, digest);
+    }
+
+    private static MessageDigest[] borrowDigests(Algorithm[] algorithms) {
+        MessageDigest[] digests = new MessageDigest[algorithms.length];
+        for (int i = 0; i < algorithms.length; i++) {
+            // A repeated algorithm is given its own digest
+            digests[i] = borrowDigest(algorithms[i]);
+        }
+        return digests;
+    }
+
+    private static void releaseDigests(Algorithm[] algorithms, MessageDigest[] digests) {
+        for (int i = 0; i < algorithms.length; i++) {
+            if (null != digests[i]) {
+                releaseDigest(algorithms[i], digests[i]);
+            }
         }
     }
 
@@ -86,13 +240,14 @@ public class ChecksumUtil {
     }
 
     private byte[] generateChecksumBytes(String string) {
+        MessageDigest digest = borrowDigest(algorithm);
         try {
             digest.update(string.getBytes("UTF-8"));
             return digest.digest();
         } catch (UnsupportedEncodingException e) {
             throw new RuntimeException(e);
         } finally {
-            digest.reset();
+            releaseDigest(algorithm, digest);
         }
     }
 
@@ -172,23 +327,23 @@ public class ChecksumUtil {
      * on the hex values appearing in the array.
      */
     public static String checksumBytesToString(byte[] digestBytes) {
-        StringBuffer hexString = new StringBuffer();
+        char[] hex = new char[digestBytes.length * 2];
         for (int i = 0; i < digestBytes.length; i++) {
-            String hex = Integer.toHexString(0xff & digestBytes[i]);
-            if (hex.length() == 1) {
-                hexString.append('0');
-            }
-            hexString.append(hex);
+            hex[i * 2] = HEX_DIGITS[(digestBytes[i] >> 4) & 0x0f];
+            hex[i * 2 + 1] = HEX_DIGITS[digestBytes[i] & 0x0f];
         }
-        return hexString.toString();
+        return new String(hex);
     }
 
     public static byte[] hexStringToByteArray(String s) {
         byte[] b = new byte[s.length() / 2];
         for (int i = 0; i < b.length; i++) {
-            int index = i * 2;
-            int v = Integer.parseInt(s.substring(index, index + 2), 16);
-            b[i] = (byte) v;
+            int high = Character.digit(s.charAt(i * 2), 16);
+            int low = Character.digit(s.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new NumberFormatException("Not a hex-encoded value: " + s);
+            }
+            b[i] = (byte) ((high << 4) | low);
         }
         return b;
     }
@@ -8,22 +8,27 @@
 package org.duracloud.common.util.bulk;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.input.AutoCloseInputStream;
+import org.apache.commons.io.IOUtils;
 import org.duracloud.common.error.ManifestVerifyException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,32 +40,62 @@ import org.slf4j.LoggerFactory;
  * The expected format of the input files is
  * <checksum><whitespace><entryname>
  *
+ * Manifests are compared in bounded memory, so that manifests of any size
+ * can be verified. The entries of each manifest are sorted by name, in runs
+ * which are written to temporary files when a manifest holds more entries
+ * than are kept in memory, and the sorted manifests are then read side by
+ * side, each entry being compared as it is read. The results are written to
+ * a temporary file, from which they are reported; close the verifier to
+ * remove it.
+ *
  * @author Andrew Woods
  * Date: Oct 24, 2009
  */
-public class ManifestVerifier {
+public class ManifestVerifier implements Closeable {
 
     private final Logger log = LoggerFactory.getLogger(ManifestVerifier.class);
 
     public final static char DELIM = '\t';
 
+    public static final int DEFAULT_MAX_ENTRIES_IN_MEMORY = 200000;
+
+    // Maximum number of sorted runs read at once
+    private static final int MAX_MERGE_RUNS = 100;
+
+    private static final Comparator<Entry> BY_NAME =
+        Comparator.comparing(entry -> entry.name);
+
     private File file0;
     private File file1;
-
-    private Map<String, String> entries0; // filename -> checksum
-    private Map<String, String> entries1;
+    private File workDir;
+    private int maxEntriesInMemory;
 
     private List<String> filters;
 
-    private Map<String, ResultEntry> results; // filename -> resultEntry
+    private File resultsFile;
 
     public ManifestVerifier(File file0, File file1) {
+        this(file0, file1, new File(System.getProperty("java.io.tmpdir")),
+             DEFAULT_MAX_ENTRIES_IN_MEMORY);
+    }
+
+    /**
+     * @param file0              first manifest
+     * @param file1              second manifest
+     * @param workDir            directory in which temporary files are
+     *                           written
+     * @param maxEntriesInMemory maximum number of manifest entries held in
+     *                           memory while sorting each manifest
+     */
+    public ManifestVerifier(File file0,
+                            File file1,
+                            File workDir,
+                            int maxEntriesInMemory) {
         this.file0 = file0;
         this.file1 = file1;
-        entries0 = new HashMap<String, String>();
-        entries1 = new HashMap<String, String>();
+        this.workDir = workDir;
+        this.maxEntriesInMemory = maxEntriesInMemory;
         filters = new ArrayList<String>();
-        results = new HashMap<String, ResultEntry>();
     }
 
     public void report(OutputStream out) {
@@ -74,9 +109,18 @@ public class ManifestVerifier {
 
         write(out, sb.toString());
 
-        Iterator<ResultEntry> entries = resultEntries();
-        while (entries.hasNext()) {
-            write(out, entries.next().toString());
+        if (null == resultsFile) {
+            return;
+        }
+
+        // Results are held in the form in which they are reported
+        try (BufferedReader results = newReader(resultsFile)) {
+            String line;
+            while (null != (line = results.readLine())) {
+                write(out, line + newline);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
     }
 
@@ -88,8 +132,42 @@ public class ManifestVerifier {
         }
     }
 
+    /**
+     * @return the result of the comparison of each entry, in order of entry
+     * name, read from the results as the iterator is advanced
+     */
     public Iterator<ResultEntry> resultEntries() {
-        return results.values().iterator();
+        if (null == resultsFile) {
+            return Collections.emptyIterator();
+        }
+
+        BufferedReader results;
+        try {
+            results = newReader(resultsFile);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return new Iterator<ResultEntry>() {
+            private String line = readLine(results);
+
+            @Override
+            public boolean hasNext() {
+                return null != line;
+            }
+
+            @Override
+            public ResultEntry next() {
+                if (null == line) {
+                    throw new NoSuchElementException();
+                }
+                ResultEntry entry = parseResult(line);
+                line = readLine(results);
+                if (null == line) {
+                    IOUtils.closeQuietly(results);
+                }
+                return entry;
+            }
+        };
     }
 
     /**
@@ -116,106 +194,269 @@ public class ManifestVerifier {
      * @throws ManifestVerifyException if files differ in size or checksums
      */
     public void verify() throws ManifestVerifyException {
-        loadEntries();
-        verifyFiles();
+        close();
+
+        boolean hasErrors;
+        try (SortedEntries entries0 = sort(file0);
+             SortedEntries entries1 = sort(file1)) {
+            resultsFile = createTempFile("manifest-results");
+            try (BufferedWriter results = newWriter(resultsFile)) {
+                hasErrors = verifyEntries(entries0, entries1, results);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        if (hasErrors) {
+            throw new ManifestVerifyException("Manifests do not match.");
+        }
     }
 
-    private void loadEntries() {
-        loadEntries(file0, entries0);
-        loadEntries(file1, entries1);
+    /**
+     * Removes the results of the last verification.
+     */
+    @Override
+    public void close() {
+        if (null != resultsFile) {
+            resultsFile.delete();
+            resultsFile = null;
+        }
     }
 
-    private void loadEntries(File file, Map<String, String> entries) {
-        InputStream input = getInputStream(file);
-        BufferedReader br = new BufferedReader(new InputStreamReader(input));
+    /*
+     * Compares the entries of the two manifests, both in order of name,
+     * writing the result of each comparison
+     *
+     * @return true if any entry is not valid
+     */
+    private boolean verifyEntries(SortedEntries entries0,
+                                  SortedEntries entries1,
+                                  Writer results) throws IOException {
+        boolean hasErrors = false;
+        Entry entry0 = entries0.next();
+        Entry entry1 = entries1.next();
+        while (null != entry0 || null != entry1) {
+            int order;
+            if (null == entry0) {
+                order = 1;
+            } else if (null == entry1) {
+                order = -1;
+            } else {
+                order = entry0.name.compareTo(entry1.name);
+            }
+
+            ResultEntry result = new ResultEntry();
+            if (order < 0) {
+                // Entry only in the first set
+                setName(result, entry0.name);
+                result.setChecksum0(entry0.checksum);
+                result.setState(State.MISSING_FROM_1);
+                entry0 = entries0.next();
+
+            } else if (order > 0) {
+                // Entry only in the second set
+                setName(result, entry1.name);
+                result.setChecksum1(entry1.checksum);
+                result.setState(State.MISSING_FROM_0);
+                entry1 = entries1.next();
 
-        String line = readLine(br);
-        while (line != null) {
-            if (!isFiltered(line)) {
-                addEntry(line, entries);
+            } else {
+                // Entry found in both sets
+                setName(result, entry0.name);
+                result.setChecksum0(entry0.checksum);
+                result.setChecksum1(entry1.checksum);
+                if (entry0.checksum.equals(entry1.checksum)) {
+                    result.setState(State.VALID);
+                } else {
+                    result.setState(State.MISMATCH);
+                }
+                entry0 = entries0.next();
+                entry1 = entries1.next();
             }
-            line = readLine(br);
+
+            hasErrors |= result.isError();
+            results.write(result.toString());
+            results.write('\n');
         }
+        return hasErrors;
     }
 
-    private boolean isFiltered(String line) {
-        for (String filter : filters) {
-            if (line.indexOf(filter) != -1) {
-                return true;
+    private void setName(ResultEntry result, String name) {
+        result.setTitle(titleOf(name));
+        result.setFile(fileOf(name));
+    }
+
+    /*
+     * Provides the entries of a manifest in order of name. Entries are sorted
+     * in memory, in runs of at most the maximum number of entries held in
+     * memory, each run being written to a temporary file. The runs are then
+     * merged as they are read, having first been merged into fewer runs if
+     * there are too many to read at once.
+     */
+    private SortedEntries sort(File file) throws IOException {
+        List<File> runs = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(new FileInputStream(file)))) {
+            List<Entry> entries = new ArrayList<>();
+            String line;
+            while (null != (line = reader.readLine())) {
+                if (!isFiltered(line)) {
+                    entries.add(parseEntry(line));
+                    if (entries.size() >= maxEntriesInMemory) {
+                        runs.add(writeRun(entries));
+                        entries.clear();
+                    }
+                }
+            }
+
+            if (runs.isEmpty()) {
+                entries.sort(BY_NAME);
+                return new SortedEntries(entries.iterator(), runs);
             }
+            if (!entries.isEmpty()) {
+                runs.add(writeRun(entries));
+            }
+
+            while (runs.size() > MAX_MERGE_RUNS) {
+                List<File> merged = runs.subList(0, MAX_MERGE_RUNS);
+                File run = createTempFile("manifest-run");
+                try (MergedRuns mergedRuns = new MergedRuns(merged);
+                     BufferedWriter writer = newWriter(run)) {
+                    while (mergedRuns.hasNext()) {
+                        writeEntry(writer, mergedRuns.next());
+                    }
+                }
+                merged.forEach(File::delete);
+                // The merged run holds the earliest entries, so it comes first
+                merged.clear();
+                runs.add(0, run);
+            }
+            log.debug("Sorted manifest {} in {} runs", file, runs.size());
+            return new SortedEntries(new MergedRuns(runs), runs);
+
+        } catch (IOException | RuntimeException e) {
+            runs.forEach(File::delete);
+            throw e;
         }
-        return false;
     }
 
-    protected void addEntry(String line, Map<String, String> entries) {
-        String[] cksumFilenamePair = line.split("\\s");
-        if (cksumFilenamePair == null || cksumFilenamePair.length != 2) {
-            throw new RuntimeException("Invalid manifest file.");
+    /*
+     * Sorts the entries and writes them to a new run file. The sort is
+     * stable, so entries with the same name keep their manifest order.
+     */
+    private File writeRun(List<Entry> entries) throws IOException {
+        entries.sort(BY_NAME);
+        File run = createTempFile("manifest-run");
+        try (BufferedWriter writer = newWriter(run)) {
+            for (Entry entry : entries) {
+                writeEntry(writer, entry);
+            }
+        } catch (IOException e) {
+            run.delete();
+            throw e;
         }
+        return run;
+    }
 
-        entries.put(cksumFilenamePair[1], cksumFilenamePair[0]);
+    private static void writeEntry(Writer writer, Entry entry) throws IOException {
+        writer.write(entry.name);
+        writer.write(DELIM);
+        writer.write(entry.checksum);
+        writer.write('\n');
     }
 
-    private InputStream getInputStream(File file) {
-        try {
-            return new AutoCloseInputStream(new FileInputStream(file));
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException(e);
+    private static Entry readEntry(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (null == line) {
+            return null;
         }
+        int delim = line.indexOf(DELIM);
+        return new Entry(line.substring(0, delim), line.substring(delim + 1));
     }
 
-    private String readLine(BufferedReader br) {
-        try {
-            return br.readLine();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    private boolean isFiltered(String line) {
+        for (String filter : filters) {
+            if (line.indexOf(filter) != -1) {
+                return true;
+            }
         }
+        return false;
     }
 
-    private void verifyFiles() throws ManifestVerifyException {
-        boolean hasErrors = entries0.size() != entries1.size();
+    /*
+     * Splits a line into its checksum and entry name, which are separated by
+     * a single whitespace character
+     */
+    private Entry parseEntry(String line) {
+        int delim = 0;
+        while (delim < line.length() && !isWhitespace(line.charAt(delim))) {
+            delim++;
+        }
 
-        // Load the first set
-        for (String name : entries0.keySet()) {
-            ResultEntry entry = new ResultEntry();
-            entry.setTitle(titleOf(name));
-            entry.setFile(fileOf(name));
-            entry.setChecksum0(entries0.get(name));
-            entry.setState(State.MISSING_FROM_1);
-            results.put(name, entry);
+        // Trailing whitespace is ignored
+        int end = line.length();
+        while (end > delim && isWhitespace(line.charAt(end - 1))) {
+            end--;
         }
 
-        // Fill in from the second set
-        for (String name : entries1.keySet()) {
-            ResultEntry entry = results.get(name);
+        int nameStart = delim + 1;
+        boolean valid = delim > 0 && nameStart < end;
+        for (int i = nameStart; valid && i < end; i++) {
+            valid = !isWhitespace(line.charAt(i));
+        }
+        if (!valid) {
+            throw new RuntimeException("Invalid manifest file.");
+        }
 
-            // Entry not loaded from first set
-            if (null == entry) {
-                hasErrors = true;
+        return new Entry(line.substring(nameStart, end), line.substring(0, delim));
+    }
 
-                entry = new ResultEntry();
-                entry.setTitle(titleOf(name));
-                entry.setFile(fileOf(name));
-                entry.setChecksum1(entries1.get(name));
-                entry.setState(State.MISSING_FROM_0);
-                results.put(name, entry);
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' ||
+               c == '\f' || c == '\r';
+    }
 
-                // Entry found in both sets
-            } else {
-                entry.setChecksum1(entries1.get(name));
-                if (entry.getChecksum0().equals(entry.getChecksum1())) {
-                    entry.setState(State.VALID);
-                } else {
-                    hasErrors = true;
-                    entry.setState(State.MISMATCH);
-                }
-            }
+    private ResultEntry parseResult(String line) {
+        String[] fields = new String[5];
+        int start = 0;
+        for (int i = 0; i < fields.length - 1; i++) {
+            int delim = line.indexOf(DELIM, start);
+            fields[i] = line.substring(start, delim);
+            start = delim + 1;
         }
+        fields[fields.length - 1] = line.substring(start);
+
+        ResultEntry entry = new ResultEntry();
+        entry.setTitle(fields[0]);
+        entry.setFile(fields[1]);
+        entry.setChecksum0(fields[2]);
+        entry.setChecksum1(fields[3]);
+        entry.setState(State.valueOf(fields[4]));
+        return entry;
+    }
 
-        if (hasErrors) {
-            throw new ManifestVerifyException("Manifests do not match.");
-        }
+    private File createTempFile(String prefix) throws IOException {
+        workDir.mkdirs();
+        File file = File.createTempFile(prefix, ".tsv", workDir);
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static BufferedReader newReader(File file) throws IOException {
+        return Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    private static BufferedWriter newWriter(File file) throws IOException {
+        return Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+    }
 
+    private static String readLine(BufferedReader reader) {
+        try {
+            return reader.readLine();
+        } catch (IOException e) {
+            IOUtils.closeQuietly(reader);
+            throw new RuntimeException(e);
+        }
     }
 
     protected String titleOf(String name) {
@@ -311,6 +552,133 @@ public class ManifestVerifier {
         }
     }
 
+    private static class Entry {
+        private final String name;
+        private final String checksum;
+
+        Entry(String name, String checksum) {
+            this.name = name;
+            this.checksum = checksum;
+        }
+    }
+
+    /*
+     * The entries of a manifest in order of name. Where a manifest holds
+     * more than one entry with the same name, the last is used.
+     */
+    private static class SortedEntries implements Closeable {
+        private final Iterator<Entry> entries;
+        private final List<File> runs;
+        private Entry nextEntry;
+
+        SortedEntries(Iterator<Entry> entries, List<File> runs) {
+            this.entries = entries;
+            this.runs = runs;
+        }
+
+        /*
+         * @return the next entry, or null once all entries have been read
+         */
+        Entry next() {
+            Entry entry = nextEntry;
+            nextEntry = null;
+            if (null == entry) {
+                if (!entries.hasNext()) {
+                    return null;
+                }
+                entry = entries.next();
+            }
+
+            while (entries.hasNext()) {
+                Entry following = entries.next();
+                if (!following.name.equals(entry.name)) {
+                    nextEntry = following;
+                    break;
+                }
+                entry = following;
+            }
+            return entry;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (entries instanceof Closeable) {
+                ((Closeable) entries).close();
+            }
+            runs.forEach(File::delete);
+        }
+    }
+
+    /*
+     * Merges sorted runs into a single sequence in order of name. Entries
+     * with the same name are provided in the order of their runs.
+     */
+    private static class MergedRuns implements Iterator<Entry>, Closeable {
+        private final PriorityQueue<Run> queue;
+        private final List<Run> runs = new ArrayList<>();
+
+        MergedRuns(List<File> runFiles) throws IOException {
+            queue = new PriorityQueue<>(
+                Comparator.comparing((Run run) -> run.entry.name)
+                          .thenComparingInt(run -> run.index));
+            try {
+                for (File runFile : runFiles) {
+                    Run run = new Run(runs.size(), newReader(runFile));
+                    runs.add(run);
+                    if (run.advance()) {
+                        queue.add(run);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public Entry next() {
+            Run run = queue.poll();
+            if (null == run) {
+                throw new NoSuchElementException();
+            }
+            Entry entry = run.entry;
+            try {
+                if (run.advance()) {
+                    queue.add(run);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return entry;
+        }
+
+        @Override
+        public void close() {
+            runs.forEach(run -> IOUtils.closeQuietly(run.reader));
+        }
+
+        private static class Run {
+            private final int index;
+            private final BufferedReader reader;
+            private Entry entry;
+
+            Run(int index, BufferedReader reader) {
+                this.index = index;
+                this.reader = reader;
+            }
+
+            boolean advance() throws IOException {
+                entry = readEntry(reader);
+                return null != entry;
+            }
+        }
+    }
+
     public enum State {
         VALID, MISMATCH, MISSING_FROM_0, MISSING_FROM_1
     }
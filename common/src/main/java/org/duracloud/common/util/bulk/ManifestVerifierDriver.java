@@ -30,6 +30,7 @@ public class ManifestVerifierDriver {
             reportError(e);
         }
         verifier.report(System.out);
+        verifier.close();
     }
 
     private static void reportError(ManifestVerifyException e) {
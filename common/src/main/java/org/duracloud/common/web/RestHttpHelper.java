@@ -7,6 +7,7 @@
  */
 package org.duracloud.common.web;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -14,6 +15,8 @@ import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.io.Charsets;
 import org.apache.http.Header;
@@ -25,6 +28,7 @@ import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.AuthCache;
 import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
@@ -34,6 +38,7 @@ import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.config.SocketConfig;
 import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
@@ -44,7 +49,7 @@ import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
-import org.apache.http.impl.conn.BasicHttpClientConnectionManager;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicStatusLine;
 import org.apache.http.util.EntityUtils;
 import org.duracloud.common.model.Credential;
@@ -55,9 +60,15 @@ import org.slf4j.LoggerFactory;
 /**
  * Provides helper methods for REST tests
  *
+ * All requests made through a single helper share a pool of keep-alive
+ * connections, so an instance is safe (and intended) to be used concurrently
+ * by many threads. Response streams retrieved from GET requests must be
+ * fully read or closed in order for the underlying connection to be returned
+ * to the pool.
+ *
  * @author Bill Branan
  */
-public class RestHttpHelper {
+public class RestHttpHelper implements Closeable {
 
     protected final Logger log = LoggerFactory.getLogger(RestHttpHelper.class);
 
@@ -65,6 +76,19 @@ public class RestHttpHelper {
 
     private int socketTimeoutMs = -1;
 
+    private ConnectionPoolConfig poolConfig;
+
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    private CloseableHttpClient httpClient;
+
+    private CloseableHttpClient headHttpClient;
+
+    // Shared across requests so that preemptive basic auth is set up once per host
+    private AuthCache authCache;
+
+    private AtomicLong lastEviction = new AtomicLong(System.currentTimeMillis());
+
     public RestHttpHelper() {
         this(null);
     }
@@ -82,15 +106,131 @@ public class RestHttpHelper {
     }
 
     public RestHttpHelper(Credential credential, int socketTimeoutMs) {
+        this(credential, socketTimeoutMs, new ConnectionPoolConfig());
+    }
+
+    /**
+     * Constructor
+     * @param credential user credentials, null for anonymous access
+     * @param socketTimeoutMs A socket timeout of less than zero indicates "no timeout".
+     * @param poolConfig settings for the shared connection pool
+     */
+    public RestHttpHelper(Credential credential,
+                          int socketTimeoutMs,
+                          ConnectionPoolConfig poolConfig) {
         if (credential != null) {
             credsProvider = new BasicCredentialsProvider();
             credsProvider.setCredentials(
                 new AuthScope(AuthScope.ANY_HOST, AuthScope.ANY_PORT),
                 new UsernamePasswordCredentials(credential.getUsername(),
                                                 credential.getPassword()));
+            authCache = new BasicAuthCache();
         }
 
         this.socketTimeoutMs = socketTimeoutMs;
+        this.poolConfig = poolConfig;
+
+        connectionManager = new PoolingHttpClientConnectionManager(
+            poolConfig.getTimeToLiveMs(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(poolConfig.getMaxTotalConnections());
+        connectionManager.setDefaultMaxPerRoute(
+            poolConfig.getMaxConnectionsPerRoute());
+        connectionManager.setValidateAfterInactivity(
+            poolConfig.getValidateAfterInactivityMs());
+        if (socketTimeoutMs > -1) {
+            connectionManager.setDefaultSocketConfig(
+                SocketConfig.custom().setSoTimeout(socketTimeoutMs).build());
+        }
+
+        httpClient = buildClient(Method.GET);
+        headHttpClient = buildClient(Method.HEAD);
+    }
+
+    /**
+     * Settings for the pool of connections shared by all requests made
+     * through a RestHttpHelper.
+     */
+    public static class ConnectionPoolConfig {
+
+        public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 200;
+        public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 50;
+        public static final long DEFAULT_IDLE_TIMEOUT_MS = 60000;
+        public static final long DEFAULT_TIME_TO_LIVE_MS = -1;
+        public static final int DEFAULT_VALIDATE_AFTER_INACTIVITY_MS = 2000;
+        public static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT_MS = 60000;
+
+        private int maxTotalConnections = DEFAULT_MAX_TOTAL_CONNECTIONS;
+        private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+        private long idleTimeoutMs = DEFAULT_IDLE_TIMEOUT_MS;
+        private long timeToLiveMs = DEFAULT_TIME_TO_LIVE_MS;
+        private int validateAfterInactivityMs =
+            DEFAULT_VALIDATE_AFTER_INACTIVITY_MS;
+        private int connectionRequestTimeoutMs =
+            DEFAULT_CONNECTION_REQUEST_TIMEOUT_MS;
+
+        public int getMaxTotalConnections() {
+            return maxTotalConnections;
+        }
+
+        public void setMaxTotalConnections(int maxTotalConnections) {
+            this.maxTotalConnections = maxTotalConnections;
+        }
+
+        public int getMaxConnectionsPerRoute() {
+            return maxConnectionsPerRoute;
+        }
+
+        public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        }
+
+        /**
+         * @return time after which unused pooled connections are closed
+         */
+        public long getIdleTimeoutMs() {
+            return idleTimeoutMs;
+        }
+
+        public void setIdleTimeoutMs(long idleTimeoutMs) {
+            this.idleTimeoutMs = idleTimeoutMs;
+        }
+
+        /**
+         * @return maximum lifetime of a pooled connection, a value of less
+         *         than or equal to zero indicates no limit
+         */
+        public long getTimeToLiveMs() {
+            return timeToLiveMs;
+        }
+
+        public void setTimeToLiveMs(long timeToLiveMs) {
+            this.timeToLiveMs = timeToLiveMs;
+        }
+
+        /**
+         * @return period of inactivity after which a pooled connection is
+         *         checked for staleness before being reused
+         */
+        public int getValidateAfterInactivityMs() {
+            return validateAfterInactivityMs;
+        }
+
+        public void setValidateAfterInactivityMs(int validateAfterInactivityMs) {
+            this.validateAfterInactivityMs = validateAfterInactivityMs;
+        }
+
+        /**
+         * @return time to wait for a connection from the pool before the
+         *         request fails, so that a pool exhausted by responses which
+         *         were never closed does not block callers indefinitely
+         */
+        public int getConnectionRequestTimeoutMs() {
+            return connectionRequestTimeoutMs;
+        }
+
+        public void setConnectionRequestTimeoutMs(int connectionRequestTimeoutMs) {
+            this.connectionRequestTimeoutMs = connectionRequestTimeoutMs;
+        }
     }
 
     private enum Method {
@@ -294,34 +434,40 @@ public class RestHttpHelper {
             log.debug(loggingRequestText(url, method, requestEntity, headers));
         }
 
-        org.apache.http.HttpResponse response;
-        if (null != credsProvider) {
-
-            HttpClientBuilder builder = HttpClients.custom()
-                       .setDefaultCredentialsProvider(credsProvider);
-
-            if (socketTimeoutMs > -1) {
-                BasicHttpClientConnectionManager cm = new BasicHttpClientConnectionManager();
-                cm.setSocketConfig(SocketConfig.custom().setSoTimeout(socketTimeoutMs).build());
-                builder.setConnectionManager(cm);
-            }
+        evictIdleConnections();
 
-            CloseableHttpClient httpClient = buildClient(builder, method);
+        CloseableHttpClient client =
+            method.equals(Method.HEAD) ? headHttpClient : httpClient;
 
+        // A context is not thread safe, so one is created per request
+        HttpClientContext localContext = HttpClientContext.create();
+        if (null != credsProvider) {
             // Use preemptive basic auth
             URI requestUri = httpRequest.getURI();
             HttpHost target = new HttpHost(requestUri.getHost(),
                                            requestUri.getPort(),
                                            requestUri.getScheme());
-            AuthCache authCache = new BasicAuthCache();
-            BasicScheme basicAuth = new BasicScheme();
-            authCache.put(target, basicAuth);
-            HttpClientContext localContext = HttpClientContext.create();
+            if (null == authCache.get(target)) {
+                authCache.put(target, new BasicScheme());
+            }
             localContext.setAuthCache(authCache);
-            response = httpClient.execute(httpRequest, localContext);
-        } else {
-            CloseableHttpClient httpClient = buildClient(HttpClients.custom(), method);
-            response = httpClient.execute(httpRequest);
+        }
+        org.apache.http.HttpResponse response =
+            client.execute(httpRequest, localContext);
+
+        // Only successful GET responses may carry content which is too large
+        // to hold in memory. All other response bodies are read immediately
+        // so that the connection is returned to the pool even when the
+        // caller never reads the body.
+        HttpEntity responseEntity = response.getEntity();
+        int statusCode = response.getStatusLine().getStatusCode();
+        if (null != responseEntity &&
+            (!method.equals(Method.GET) || statusCode >= 300)) {
+            try {
+                response.setEntity(new BufferedHttpEntity(responseEntity));
+            } finally {
+                EntityUtils.consumeQuietly(responseEntity);
+            }
         }
 
         HttpResponse httpResponse = new HttpResponse(response);
@@ -333,8 +479,19 @@ public class RestHttpHelper {
         return httpResponse;
     }
 
-    private CloseableHttpClient buildClient(HttpClientBuilder builder,
-                                            Method method) {
+    private CloseableHttpClient buildClient(Method method) {
+        HttpClientBuilder builder = HttpClients.custom()
+                                               .setConnectionManager(connectionManager)
+                                               .setConnectionManagerShared(true);
+        if (null != credsProvider) {
+            builder.setDefaultCredentialsProvider(credsProvider);
+        }
+        RequestConfig.Builder requestConfig = RequestConfig.custom()
+            .setConnectionRequestTimeout(poolConfig.getConnectionRequestTimeoutMs());
+        if (socketTimeoutMs > -1) {
+            requestConfig.setSocketTimeout(socketTimeoutMs);
+        }
+        builder.setDefaultRequestConfig(requestConfig.build());
         if (method.equals(Method.HEAD)) {
             builder.disableContentCompression();
         }
@@ -342,6 +499,32 @@ public class RestHttpHelper {
         return builder.build();
     }
 
+    /**
+     * Closes pooled connections which have been idle longer than the
+     * configured idle timeout. This is done inline, at most once per idle
+     * timeout period, rather than on a dedicated thread so that helpers which
+     * are discarded without being closed do not leave threads behind.
+     */
+    private void evictIdleConnections() {
+        long idleTimeoutMs = poolConfig.getIdleTimeoutMs();
+        long now = System.currentTimeMillis();
+        long last = lastEviction.get();
+        if (now - last >= idleTimeoutMs && lastEviction.compareAndSet(last, now)) {
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(idleTimeoutMs,
+                                                   TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Shuts down the connection pool. The helper may not be used after
+     * it has been closed.
+     */
+    @Override
+    public void close() {
+        connectionManager.shutdown();
+    }
+
     private void addHeaders(HttpRequestBase httpRequest, Map<String, String> headers) {
         Iterator<String> headerIt = headers.keySet().iterator();
         while (headerIt.hasNext()) {
@@ -366,7 +549,13 @@ public class RestHttpHelper {
         }
 
         public InputStream getResponseStream() throws IOException {
-            return response.getEntity().getContent();
+            HttpEntity entity = response.getEntity();
+            if (entity != null) {
+                return entity.getContent();
+            } else {
+                // No response body will be available for HEAD requests
+                return null;
+            }
         }
 
         public String getResponseBody() throws IOException {
@@ -0,0 +1,165 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChecksumCacheTest {
+
+    private File tempDir;
+    private File cacheFile;
+    private ChecksumUtil checksumUtil = new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
+
+    @Before
+    public void setUp() throws Exception {
+        tempDir = new File(System.getProperty("java.io.tmpdir"),
+                           "checksum-cache-test-" + System.nanoTime());
+        tempDir.mkdirs();
+        cacheFile = new File(tempDir, "checksum-cache");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void testGetChecksum() throws Exception {
+        File file = createFile("file", "content");
+        String checksum = checksumUtil.generateChecksum(file);
+
+        ChecksumCache cache = new ChecksumCache(cacheFile);
+        assertNull(cache.getCachedChecksum(file));
+        assertEquals(checksum, cache.getChecksum(file));
+        assertEquals(checksum, cache.getChecksum(file));
+        assertEquals(1, cache.getHitCount());
+        cache.close();
+
+        // Checksums are kept across restarts
+        cache = new ChecksumCache(cacheFile);
+        assertEquals(1, cache.size());
+        assertEquals(checksum, cache.getCachedChecksum(file));
+
+        // A changed file is checksummed again
+        FileUtils.writeStringToFile(file, "new content", StandardCharsets.UTF_8);
+        file.setLastModified(System.currentTimeMillis() - 60000);
+        assertNull(cache.getCachedChecksum(file));
+        assertEquals(checksumUtil.generateChecksum(file), cache.getChecksum(file));
+        cache.close();
+    }
+
+    @Test
+    public void testRecentlyModified() throws Exception {
+        File file = new File(tempDir, "recent");
+        FileUtils.writeStringToFile(file, "content", StandardCharsets.UTF_8);
+
+        ChecksumCache cache = new ChecksumCache(cacheFile);
+        assertEquals(checksumUtil.generateChecksum(file), cache.getChecksum(file));
+        assertEquals(0, cache.size());
+
+        // The window is measured back from when the file attributes are read
+        file.setLastModified(System.currentTimeMillis() - 1000);
+        assertEquals(checksumUtil.generateChecksum(file), cache.getChecksum(file));
+        assertEquals(0, cache.size());
+
+        file.setLastModified(System.currentTimeMillis() - 3000);
+        assertEquals(checksumUtil.generateChecksum(file), cache.getChecksum(file));
+        assertEquals(1, cache.size());
+        cache.close();
+    }
+
+    @Test
+    public void testIncompleteRecord() throws Exception {
+        File file = createFile("file", "content");
+        ChecksumCache cache = new ChecksumCache(cacheFile);
+        String checksum = cache.getChecksum(file);
+        cache.close();
+
+        // Partial record, as left by a crash
+        try (FileOutputStream out = new FileOutputStream(cacheFile, true)) {
+            out.write(new byte[] {0, 0, 0, 40, 1, 2, 3});
+        }
+
+        cache = new ChecksumCache(cacheFile);
+        assertEquals(checksum, cache.getCachedChecksum(file));
+        cache.put(createFile("other", "other content"),
+                  checksumUtil.generateChecksum("other content"));
+        cache.close();
+
+        cache = new ChecksumCache(cacheFile);
+        assertEquals(2, cache.size());
+        cache.close();
+    }
+
+    @Test
+    public void testOpenWithoutCompaction() throws Exception {
+        File file = createFile("file", "content");
+        ChecksumCache cache = new ChecksumCache(cacheFile);
+        cache.put(file, checksumUtil.generateChecksum("other content"));
+        cache.put(file, checksumUtil.generateChecksum(file));
+        cache.close();
+        long length = cacheFile.length();
+
+        // The superseded record is too small a part of the cache to compact
+        cache = new ChecksumCache(cacheFile);
+        assertEquals(1, cache.size());
+        assertEquals(checksumUtil.generateChecksum(file), cache.getCachedChecksum(file));
+        cache.close();
+        assertEquals(length, cacheFile.length());
+    }
+
+    @Test
+    public void testMaxEntries() throws Exception {
+        ChecksumCache cache = new ChecksumCache(cacheFile, 2, 0);
+        File first = createFile("first", "first");
+        cache.getChecksum(first);
+        cache.getChecksum(createFile("second", "second"));
+        cache.getChecksum(createFile("third", "third"));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.getCachedChecksum(first));
+        cache.close();
+
+        cache = new ChecksumCache(cacheFile, 2, 0);
+        assertEquals(2, cache.size());
+        cache.close();
+    }
+
+    @Test
+    public void testVerifySample() throws Exception {
+        File file = createFile("file", "content");
+        ChecksumCache cache = new ChecksumCache(cacheFile, 10, 1);
+        cache.put(file, checksumUtil.generateChecksum("other content"));
+
+        String checksum = checksumUtil.generateChecksum(file);
+        assertEquals(checksum, cache.getChecksum(file));
+        assertEquals(1, cache.getVerifiedCount());
+        assertEquals(1, cache.getMismatchCount());
+        assertEquals(checksum, cache.getCachedChecksum(file));
+        cache.close();
+    }
+
+    private File createFile(String name, String content) throws IOException {
+        File file = new File(tempDir, name);
+        FileUtils.writeStringToFile(file, content, StandardCharsets.UTF_8);
+        file.setLastModified(System.currentTimeMillis() - 60000);
+        return file;
+    }
+
+}
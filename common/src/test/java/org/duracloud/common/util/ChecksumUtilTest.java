@@ -13,6 +13,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -20,6 +21,7 @@ import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.security.DigestInputStream;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -249,7 +251,7 @@ public class ChecksumUtilTest {
     }
 
     @Test
-    public void testNotThreadSafe() throws Exception {
+    public void testThreadSafe() throws Exception {
         byte[] data = new byte[1024 * 1024];
         ChecksumUtil util = new ChecksumUtil(Algorithm.MD5);
         String checksum = util.generateChecksum(new ByteArrayInputStream(data));
@@ -273,7 +275,56 @@ public class ChecksumUtilTest {
         }
 
         assertTrue(latch.await(10, TimeUnit.SECONDS));
-        assertTrue(count != successes.get());
+        assertEquals(count, successes.get());
+    }
+
+    @Test
+    public void testBufferSize() throws Exception {
+        File tempFile = File.createTempFile("checksum-util-test", "file");
+        Writer writer = new FileWriter(tempFile);
+        writer.write(content);
+        writer.close();
+
+        String md5 = new ChecksumUtil(Algorithm.MD5).generateChecksum(getStream(content));
+        ChecksumUtil util = new ChecksumUtil(Algorithm.MD5, 100);
+        try {
+            assertEquals(md5, util.generateChecksum(getStream(content)));
+            assertEquals(md5, util.generateChecksum(tempFile));
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    @Test
+    public void testGenerateChecksums() throws Exception {
+        File tempFile = File.createTempFile("checksum-util-test", "file");
+        Writer writer = new FileWriter(tempFile);
+        writer.write(content);
+        writer.close();
+
+        try {
+            Map<Algorithm, String> fileChecksums =
+                ChecksumUtil.generateChecksums(tempFile, Algorithm.values());
+            Map<Algorithm, String> streamChecksums =
+                ChecksumUtil.generateChecksums(getStream(content), Algorithm.values());
+
+            assertEquals(Algorithm.values().length, fileChecksums.size());
+            for (Algorithm algorithm : Algorithm.values()) {
+                String checksum =
+                    new ChecksumUtil(algorithm).generateChecksum(getStream(content));
+                assertEquals(checksum, fileChecksums.get(algorithm));
+                assertEquals(checksum, streamChecksums.get(algorithm));
+            }
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void testGetFileChecksumNotFound() throws Exception {
+        File tempFile = File.createTempFile("checksum-util-test", "file");
+        tempFile.delete();
+        new ChecksumUtil(Algorithm.MD5).generateChecksum(tempFile);
     }
 
 }
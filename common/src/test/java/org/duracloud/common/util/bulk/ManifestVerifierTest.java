@@ -11,8 +11,15 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 
+import org.apache.commons.io.FileUtils;
 import org.duracloud.common.error.ManifestVerifyException;
 import org.duracloud.common.util.ExceptionUtil;
 import org.junit.Test;
@@ -124,4 +131,66 @@ public class ManifestVerifierTest {
         assertTrue(runtimeThrown);
 
     }
+
+    @Test
+    public void testVerifyLargeManifests() throws Exception {
+        File tempDir = new File(System.getProperty("java.io.tmpdir"),
+                                "manifest-verifier-test-" + System.nanoTime());
+        File manifest0 = new File(tempDir, "manifest-0.txt");
+        File manifest1 = new File(tempDir, "manifest-1.txt");
+        tempDir.mkdirs();
+        try {
+            // Written in reverse order, so that the entries must be sorted
+            try (Writer writer0 = new FileWriter(manifest0);
+                 Writer writer1 = new FileWriter(manifest1)) {
+                for (int i = 499; i >= 0; i--) {
+                    String name = "data/dir/file-" + i;
+                    if (i != 10) {
+                        writer0.write("checksum-" + i + "\t" + name + "\n");
+                    }
+                    if (i != 20) {
+                        String checksum = i == 30 ? "changed" : "checksum-" + i;
+                        writer1.write(checksum + " " + name + "\n");
+                    }
+                }
+            }
+
+            // Sorted in many runs on disk
+            verifier = new ManifestVerifier(manifest0, manifest1, tempDir, 2);
+            try {
+                verifier.verify();
+                fail("Exception expected.");
+            } catch (ManifestVerifyException e) {
+                assertEquals(ManifestVerifyException.ErrorType.INVALID,
+                             e.getErrorType());
+            }
+
+            Map<String, ManifestVerifier.State> states = new HashMap<>();
+            String previous = "";
+            Iterator<ManifestVerifier.ResultEntry> results = verifier.resultEntries();
+            while (results.hasNext()) {
+                ManifestVerifier.ResultEntry result = results.next();
+                assertEquals("dir", result.getTitle());
+                assertTrue(result.getFile().compareTo(previous) > 0);
+                previous = result.getFile();
+                states.put(result.getFile(), result.getState());
+            }
+            assertEquals(500, states.size());
+            assertEquals(ManifestVerifier.State.MISSING_FROM_0, states.get("file-10"));
+            assertEquals(ManifestVerifier.State.MISSING_FROM_1, states.get("file-20"));
+            assertEquals(ManifestVerifier.State.MISMATCH, states.get("file-30"));
+            assertEquals(ManifestVerifier.State.VALID, states.get("file-40"));
+
+            ByteArrayOutputStream report = new ByteArrayOutputStream();
+            verifier.report(report);
+            assertEquals(501, report.toString().split(System.lineSeparator()).length);
+
+            verifier.close();
+            // Only the manifests remain
+            assertEquals(2, tempDir.list().length);
+        } finally {
+            FileUtils.deleteDirectory(tempDir);
+        }
+    }
+
 }
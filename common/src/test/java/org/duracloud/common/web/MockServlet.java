@@ -8,6 +8,8 @@
 package org.duracloud.common.web;
 
 import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -18,6 +20,16 @@ public class MockServlet
 
     private static final long serialVersionUID = 4931183133771322376L;
 
+    /**
+     * Client ports of all requests received, one per accepted connection
+     */
+    public static final Set<Integer> CLIENT_PORTS = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Authorization header values of all requests received
+     */
+    public static final Set<String> AUTH_HEADERS = ConcurrentHashMap.newKeySet();
+
     public MockServlet() {
     }
 
@@ -26,6 +38,9 @@ public class MockServlet
                          HttpServletResponse response) throws ServletException,
         IOException {
         processRequest(request, response);
+        if (null != request.getParameter("body")) {
+            response.getWriter().write("content");
+        }
     }
 
     @Override
@@ -41,6 +56,12 @@ public class MockServlet
         processRequest(request, response);
     }
 
+    @Override
+    protected void doHead(HttpServletRequest request,
+                          HttpServletResponse response) {
+        processRequest(request, response);
+    }
+
     @Override
     protected void doDelete(HttpServletRequest request,
                             HttpServletResponse response) {
@@ -49,6 +70,11 @@ public class MockServlet
 
     private void processRequest(HttpServletRequest request,
                                 HttpServletResponse response) {
+        CLIENT_PORTS.add(request.getRemotePort());
+        String auth = request.getHeader("Authorization");
+        if (null != auth) {
+            AUTH_HEADERS.add(auth);
+        }
         response.setStatus(HttpServletResponse.SC_OK);
     }
 
@@ -9,18 +9,27 @@ package org.duracloud.common.web;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.InetAddress;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.http.HttpEntity;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.duracloud.common.model.Credential;
+import org.duracloud.common.web.RestHttpHelper.ConnectionPoolConfig;
 import org.duracloud.common.web.RestHttpHelper.HttpResponse;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.servlet.ServletContextHandler;
@@ -71,10 +80,13 @@ public class RestHttpHelperTest {
         helper = new RestHttpHelper();
         headers = new HashMap<>();
         headers.put("header-key0", "header-value0");
+        MockServlet.CLIENT_PORTS.clear();
+        MockServlet.AUTH_HEADERS.clear();
     }
 
     @After
     public void tearDown() throws Exception {
+        helper.close();
         helper = null;
         headers = null;
     }
@@ -94,6 +106,7 @@ public class RestHttpHelperTest {
     @Test
     public void testGetBasicAuth() throws Exception {
         Credential credential = new Credential("joeUser", "joesPassword");
+        helper.close();
         helper = new RestHttpHelper(credential);
 
         HttpResponse response = helper.get(getUrl());
@@ -152,6 +165,77 @@ public class RestHttpHelperTest {
         file.delete();
     }
 
+    @Test
+    public void testConnectionReuse() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            verifyResponse(helper.get(getUrl()));
+            verifyResponse(helper.head(getUrl()));
+            verifyResponse(helper.put(getUrl(), "<x>junk</x>", headers));
+            verifyResponse(helper.delete(getUrl()));
+        }
+        assertEquals(1, MockServlet.CLIENT_PORTS.size());
+    }
+
+    @Test
+    public void testConnectionReuseConcurrent() throws Exception {
+        int maxConnections = 4;
+        ConnectionPoolConfig poolConfig = new ConnectionPoolConfig();
+        poolConfig.setMaxConnectionsPerRoute(maxConnections);
+        helper.close();
+        helper = new RestHttpHelper(null, -1, poolConfig);
+
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        try {
+            List<Future<Integer>> results = executor.invokeAll(
+                Collections.nCopies(100, (Callable<Integer>) () -> {
+                    return helper.get(getUrl()).getStatusCode();
+                }));
+            for (Future<Integer> result : results) {
+                assertEquals(HttpURLConnection.HTTP_OK, result.get().intValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        int connections = MockServlet.CLIENT_PORTS.size();
+        assertTrue("Expected at most " + maxConnections + " connections, " +
+                   "but found " + connections, connections <= maxConnections);
+    }
+
+    @Test
+    public void testConnectionRequestTimeout() throws Exception {
+        ConnectionPoolConfig poolConfig = new ConnectionPoolConfig();
+        poolConfig.setMaxConnectionsPerRoute(1);
+        poolConfig.setConnectionRequestTimeoutMs(100);
+        helper.close();
+        helper = new RestHttpHelper(null, -1, poolConfig);
+
+        // The response is not read, so its connection is not returned to the pool
+        HttpResponse leaked = helper.get(getUrl() + "?body=true");
+        try {
+            helper.get(getUrl());
+            fail("Exception expected");
+        } catch (Exception e) {
+            // Expected
+        } finally {
+            leaked.getResponseBody();
+        }
+    }
+
+    @Test
+    public void testPreemptiveAuthReuse() throws Exception {
+        Credential credential = new Credential("joeUser", "joesPassword");
+        helper.close();
+        helper = new RestHttpHelper(credential);
+
+        for (int i = 0; i < 5; i++) {
+            verifyResponse(helper.get(getUrl()));
+            verifyResponse(helper.delete(getUrl()));
+        }
+        assertEquals(1, MockServlet.AUTH_HEADERS.size());
+        assertEquals(1, MockServlet.CLIENT_PORTS.size());
+    }
+
     private String getUrl() {
         return "http://" + host + ":" + port + context;
     }
@@ -159,7 +159,7 @@ public class SpaceController {
             final ContentStore contentStore = contentStoreManager.getContentStore(space.getStoreId());
             final StoreCaller<Iterator<String>> caller = new StoreCaller<Iterator<String>>() {
                 protected Iterator<String> doCall() throws ContentStoreException {
-                    return contentStore.getSpaceContents(space.getSpaceId());
+                    return contentStore.getSpaceContents(space.getSpaceId(), null, true);
                 }
 
                 public String getLogMessage() {
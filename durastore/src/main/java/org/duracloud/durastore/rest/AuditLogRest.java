@@ -9,6 +9,7 @@ package org.duracloud.durastore.rest;
 
 import java.io.InputStream;
 import java.text.MessageFormat;
+import java.util.Date;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -52,14 +53,18 @@ public class AuditLogRest extends BaseRest {
     @Path("/{spaceId}")
     @GET
     public Response getAuditLog(@PathParam("spaceId") String spaceId,
-                                @QueryParam("storeID") String storeId) {
+                                @QueryParam("storeID") String storeId,
+                                @QueryParam("start") String startMs,
+                                @QueryParam("end") String endMs) {
 
         String account = getSubdomain();
 
-        log.info("getting audit log for account:{}, storeId:{}, spaceId:{}",
+        log.info("getting audit log for account:{}, storeId:{}, spaceId:{} [{}:{}]",
                  account,
                  storeId,
-                 spaceId);
+                 spaceId,
+                 startMs,
+                 endMs);
 
         if (StringUtils.isBlank(storeId)) {
             for (StorageAccount storageAccount : this.storageProviderFactory.getStorageAccounts()) {
@@ -75,12 +80,21 @@ public class AuditLogRest extends BaseRest {
 
         }
 
+        Date startDate;
+        Date endDate;
+        try {
+            startDate = toDateFromMs(startMs);
+            endDate = toDateFromMs(endMs);
+        } catch (NumberFormatException e) {
+            return responseBadRequest(e);
+        }
+
         try {
             //check that spaces exists
             StorageProvider store = storageProviderFactory.getStorageProvider(storeId);
             store.getSpaceProperties(spaceId);
 
-            InputStream auditLog = auditLogReader.getAuditLog(account, storeId, spaceId);
+            InputStream auditLog = auditLogReader.getAuditLog(account, storeId, spaceId, startDate, endDate);
             return responseOkStream(auditLog);
         } catch (NotFoundException e) {
 
@@ -103,4 +117,16 @@ public class AuditLogRest extends BaseRest {
         }
     }
 
+    private Date toDateFromMs(String ms) throws NumberFormatException {
+        if (null == ms) {
+            return null;
+        }
+        try {
+            return new Date(Long.parseLong(ms));
+        } catch (NumberFormatException ex) {
+            throw new NumberFormatException("Unable to parse date: " + ms
+                                            + ". Input value must be in epoch milliseconds.");
+        }
+    }
+
 }
@@ -37,6 +37,7 @@ import org.duracloud.common.util.DateUtil;
 import org.duracloud.common.util.DateUtil.DateFormat;
 import org.duracloud.common.util.IOUtil;
 import org.duracloud.manifest.error.ManifestArgumentException;
+import org.duracloud.manifest.error.ManifestGeneratorBusyException;
 import org.duracloud.manifest.error.ManifestNotFoundException;
 import org.duracloud.storage.domain.StorageAccount;
 import org.duracloud.storage.domain.StorageProviderType;
@@ -117,6 +118,12 @@ public class ManifestRest extends BaseRest {
                       new Object[] {storeId, spaceId, format, e});
             return responseNotFound(e.getMessage());
 
+        } catch (ManifestGeneratorBusyException e) {
+            log.warn("Manifest generator busy, {}:{} [{}]", storeId, spaceId, format);
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                           .entity(e.getMessage())
+                           .build();
+
         } catch (Exception e) {
             log.error("Error for, {}:{} [{}]",
                       new Object[] {storeId, spaceId, format, e});
@@ -158,6 +165,12 @@ public class ManifestRest extends BaseRest {
                       new Object[] {storeId, spaceId, format, e});
             return responseNotFound(e.getMessage());
 
+        } catch (ManifestGeneratorBusyException e) {
+            log.warn("Manifest generator busy, {}:{} [{}]", storeId, spaceId, format);
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                           .entity(e.getMessage())
+                           .build();
+
         } catch (Exception e) {
             log.error("Error for, {}:{} [{}]",
                       new Object[] {storeId, spaceId, format, e});
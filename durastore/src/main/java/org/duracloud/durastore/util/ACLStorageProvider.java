@@ -33,7 +33,9 @@ import org.springframework.security.core.GrantedAuthority;
 /**
  * This class provides a filtering of spaces based on the username and groups
  * of the currently logged-in user. Additionally, caching of space ACLs and
- * access-type (opened/closed) is performed in this class.
+ * access-type (opened/closed) is performed in this class. The ACLs of each
+ * space are loaded as they are first needed, and are updated in the cache
+ * as they are changed through this provider.
  *
  * @author Andrew Woods
  * Date: 11/22/11
@@ -46,10 +48,17 @@ public class ACLStorageProvider implements StorageProvider {
     private final StorageProvider targetProvider;
     private SecurityContextUtil securityContextUtil;
 
-    private Map<String, Map<String, AclType>> spaceACLMap;
-    private boolean loaded;
+    /**
+     * Default time (in ms) for which space ACLs are cached
+     */
+    public static final long DEFAULT_CACHE_TTL = 15 * 60 * 1000;
 
-    private Thread cacheLoaderThread = null;
+    /**
+     * Default maximum number of spaces for which ACLs are cached
+     */
+    public static final int DEFAULT_CACHE_SIZE = 10000;
+
+    private SpaceACLCache spaceACLCache;
 
     private AccountChangeNotifier notifier;
 
@@ -68,6 +77,24 @@ public class ACLStorageProvider implements StorageProvider {
                               SecurityContextUtil securityContextUtil,
                               AccountChangeNotifier notifier,
                               DuraCloudRequestContextUtil requestContextUtil) {
+        this(targetProvider,
+             securityContextUtil,
+             notifier,
+             requestContextUtil,
+             DEFAULT_CACHE_TTL,
+             DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param cacheTTL  time (in ms) for which space ACLs are cached
+     * @param cacheSize maximum number of spaces for which ACLs are cached
+     */
+    public ACLStorageProvider(StorageProvider targetProvider,
+                              SecurityContextUtil securityContextUtil,
+                              AccountChangeNotifier notifier,
+                              DuraCloudRequestContextUtil requestContextUtil,
+                              long cacheTTL,
+                              int cacheSize) {
         assert targetProvider != null;
         assert securityContextUtil != null;
         assert notifier != null;
@@ -75,65 +102,21 @@ public class ACLStorageProvider implements StorageProvider {
 
         this.targetProvider = targetProvider;
         this.securityContextUtil = securityContextUtil;
-        this.spaceACLMap = new HashMap<String, Map<String, AclType>>();
-        this.loaded = false;
+        this.spaceACLCache = new SpaceACLCache(targetProvider, cacheTTL, cacheSize);
         this.notifier = notifier;
         this.requestContextUtil = requestContextUtil;
-        ensureCacheLoaderThreadIsRunning();
-    }
-
-    private void ensureCacheLoaderThreadIsRunning() {
-        if (this.cacheLoaderThread == null || !this.cacheLoaderThread.isAlive()) {
-            log.info("cacheLoaderThread was not running. Starting it up...");
-            this.cacheLoaderThread = new Thread(new CacheLoader());
-            this.cacheLoaderThread.start();
-            log.info("cacheLoaderThread has been started");
-        } else {
-            log.debug("cacheLoaderThread is already running.");
-        }
     }
 
-    /**
-     * This nested class loads the cache of space ACLs and AccessTypes.
+    /*
+     * Gets the ACLs of a space for filtering the list of spaces, a space
+     * for which the ACLs cannot be read is treated as having no ACLs.
      */
-    private class CacheLoader implements Runnable {
-        public void run() {
-            try {
-
-                Iterator<String> spaces = targetProvider.getSpaces();
-                while (spaces.hasNext()) {
-                    String space = spaces.next();
-                    spaceACLMap.put(space, getSpaceACLs(space));
-                }
-                loaded = true;
-            } catch (Exception ex) {
-                log.error("Failed to complete the run of the CacheLoader", ex);
-            }
-        }
-
-        private Map<String, AclType> getSpaceACLs(String space) {
-            try {
-                return targetProvider.getSpaceACLs(space);
-
-            } catch (StorageException e) {
-                log.warn("Error getting space acls: {}, err: {}", space, e);
-                return new HashMap<String, AclType>();
-            }
-        }
-    }
-
-    private void waitForCache() {
-
-        while (!loaded) {
-
-            ensureCacheLoaderThreadIsRunning();
-
-            log.debug("waiting: {}", targetProvider.getClass().getName());
-            try {
-                Thread.sleep(500);
-            } catch (InterruptedException e) {
-                // do nothing
-            }
+    private Map<String, AclType> getCachedSpaceACLs(String spaceId) {
+        try {
+            return spaceACLCache.get(spaceId);
+        } catch (StorageException e) {
+            log.warn("Error getting space acls: {}, err: {}", spaceId, e);
+            return new HashMap<String, AclType>();
         }
     }
 
@@ -156,12 +139,11 @@ public class ACLStorageProvider implements StorageProvider {
             return targetProvider.getSpaces();
         }
 
-        waitForCache();
-
         List<String> spaces = new ArrayList<String>();
-        for (String space : spaceACLMap.keySet()) {
-            Map<String, AclType> acls = spaceACLMap.get(space);
-            if (userHasAccess(user, acls) && !spaces.contains(space)) {
+        Iterator<String> allSpaces = targetProvider.getSpaces();
+        while (allSpaces.hasNext()) {
+            String space = allSpaces.next();
+            if (userHasAccess(user, getCachedSpaceACLs(space))) {
                 spaces.add(space);
             }
         }
@@ -239,8 +221,6 @@ public class ACLStorageProvider implements StorageProvider {
 
     @Override
     public void createSpace(String spaceId) {
-        waitForCache();
-
         targetProvider.createSpace(spaceId);
 
         // Update the cache to contain current user privileges for new space, if
@@ -250,31 +230,28 @@ public class ACLStorageProvider implements StorageProvider {
             Map<String, AclType> acl = new HashMap<String, AclType>();
             acl.put(PROPERTIES_SPACE_ACL + userDetails.getUsername(),
                     AclType.WRITE);
-            spaceACLMap.put(spaceId, acl);
+            spaceACLCache.put(spaceId, acl);
+        } else {
+            spaceACLCache.invalidate(spaceId);
         }
     }
 
     @Override
     public void deleteSpace(String spaceId) {
-        waitForCache();
-
         StorageException storageException = null;
         try {
             targetProvider.deleteSpace(spaceId);
-            spaceACLMap.remove(spaceId);
+            spaceACLCache.invalidate(spaceId);
 
         } catch (StorageException e) {
             storageException = e;
         }
 
-        // clear and reload cache if deleting: "aclstorageprovider-cache"
+        // clear cache if deleting: "aclstorageprovider-cache", space ACLs
+        // are reloaded as they are requested
         if ((getClass().getSimpleName() + "-cache").equalsIgnoreCase(spaceId)) {
-            log.info("cycling cache.");
-
-            this.spaceACLMap.clear();
-            this.loaded = false;
-
-            new Thread(new CacheLoader()).start();
+            log.info("clearing cache.");
+            spaceACLCache.invalidateAll();
         }
 
         if (null != storageException) {
@@ -289,32 +266,18 @@ public class ACLStorageProvider implements StorageProvider {
 
     @Override
     public Map<String, AclType> getSpaceACLs(String spaceId) {
-        DuracloudUserDetails user = getCurrentUserDetails();
-        if (isAdmin(user) && !loaded) {
-            return targetProvider.getSpaceACLs(spaceId);
-        }
-
-        waitForCache();
-
-        if (spaceACLMap.containsKey(spaceId)) {
-            return spaceACLMap.get(spaceId);
-
-        } else {
-            Map<String, AclType> acls = targetProvider.getSpaceACLs(spaceId);
-            spaceACLMap.put(spaceId, acls);
-            return acls;
-        }
+        return spaceACLCache.get(spaceId);
     }
 
     @Override
     public void setSpaceACLs(String spaceId, Map<String, AclType> spaceACLs) {
-        waitForCache();
-
         targetProvider.setSpaceACLs(spaceId, spaceACLs);
 
         if (null != spaceACLs) {
             // update cache
-            this.spaceACLMap.put(spaceId, spaceACLs);
+            spaceACLCache.put(spaceId, spaceACLs);
+        } else {
+            spaceACLCache.invalidate(spaceId);
         }
 
         sendCacheChangedNotification();
@@ -0,0 +1,201 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.durastore.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.duracloud.common.model.AclType;
+import org.duracloud.storage.error.StorageException;
+import org.duracloud.storage.provider.StorageProvider;
+
+/**
+ * A thread-safe cache of space ACLs, which loads the ACLs of each space from
+ * the target provider the first time they are requested.
+ *
+ * Concurrent requests for a space which is not yet cached result in a single
+ * call to the target provider, the result of which is shared by all of the
+ * requesting threads. Cached ACLs expire after the time-to-live, and once the
+ * cache holds more than the maximum number of spaces, the least recently
+ * loaded entries are evicted.
+ */
+class SpaceACLCache {
+
+    private final StorageProvider targetProvider;
+    private final long timeToLive;
+    private final int maxSize;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // Entries in the order they were added, which is also the order in which
+    // they expire. Entries which have since been removed from the cache are
+    // skipped as they reach the head, or purged once they build up.
+    private final Queue<Entry> addedOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger addedCount = new AtomicInteger();
+
+    /**
+     * @param targetProvider from which space ACLs are loaded
+     * @param timeToLive     time (in ms) after loading that ACLs expire
+     * @param maxSize        maximum number of spaces for which ACLs are held
+     */
+    SpaceACLCache(StorageProvider targetProvider, long timeToLive, int maxSize) {
+        this.targetProvider = targetProvider;
+        this.timeToLive = timeToLive;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets the ACLs of a space, loading them from the target provider if they
+     * are not cached.
+     *
+     * @param spaceId of the space
+     * @return a copy of the space ACLs, which the caller may modify
+     * @throws StorageException if the ACLs cannot be loaded
+     */
+    Map<String, AclType> get(String spaceId) {
+        Entry entry = entries.get(spaceId);
+        if (null != entry && entry.isExpired(System.currentTimeMillis())) {
+            entries.remove(spaceId, entry);
+            entry = null;
+        }
+
+        if (null == entry) {
+            Entry loading = new Entry(spaceId, new CompletableFuture<>());
+            entry = entries.putIfAbsent(spaceId, loading);
+            if (null == entry) {
+                entry = loading;
+                load(spaceId, loading);
+            }
+        }
+
+        try {
+            return new HashMap<>(entry.acls.get());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new StorageException("Unable to load ACLs for space " +
+                                       spaceId + ": " + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted loading ACLs for space " +
+                                       spaceId, e);
+        }
+    }
+
+    /*
+     * Loads the ACLs on the calling thread, a failed load is not cached so
+     * the next request tries again
+     */
+    private void load(String spaceId, Entry entry) {
+        try {
+            Map<String, AclType> acls = targetProvider.getSpaceACLs(spaceId);
+            entry.acls.complete(copyOf(acls));
+            added(entry);
+        } catch (RuntimeException e) {
+            entries.remove(spaceId, entry);
+            entry.acls.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Caches the ACLs of a space which are known to be current, for instance
+     * because they have just been set.
+     */
+    void put(String spaceId, Map<String, AclType> acls) {
+        Entry entry =
+            new Entry(spaceId, CompletableFuture.completedFuture(copyOf(acls)));
+        entries.put(spaceId, entry);
+        added(entry);
+    }
+
+    /**
+     * Removes the ACLs of a space, they will be loaded again when next
+     * requested.
+     */
+    void invalidate(String spaceId) {
+        entries.remove(spaceId);
+    }
+
+    /**
+     * Removes the ACLs of all spaces.
+     */
+    void invalidateAll() {
+        entries.clear();
+        addedOrder.clear();
+        addedCount.set(0);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private Map<String, AclType> copyOf(Map<String, AclType> acls) {
+        if (null == acls) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(new HashMap<>(acls));
+    }
+
+    /*
+     * Records a newly added entry, then evicts the oldest entries from the
+     * head of the queue while the cache is over its maximum size
+     */
+    private void added(Entry entry) {
+        addedOrder.add(entry);
+        addedCount.incrementAndGet();
+
+        while (entries.size() > maxSize) {
+            Entry oldest = addedOrder.poll();
+            if (null == oldest) {
+                break;
+            }
+            addedCount.decrementAndGet();
+            entries.remove(oldest.spaceId, oldest);
+        }
+
+        // Entries which were invalidated or replaced are only dropped from
+        // the queue here, which happens at most once per maxSize additions
+        if (addedCount.get() > maxSize * 2) {
+            Iterator<Entry> queued = addedOrder.iterator();
+            while (queued.hasNext()) {
+                Entry next = queued.next();
+                if (entries.get(next.spaceId) != next) {
+                    queued.remove();
+                    addedCount.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    private class Entry {
+        private final String spaceId;
+        private final CompletableFuture<Map<String, AclType>> acls;
+        private final long created;
+
+        Entry(String spaceId, CompletableFuture<Map<String, AclType>> acls) {
+            this.spaceId = spaceId;
+            this.acls = acls;
+            this.created = System.currentTimeMillis();
+        }
+
+        boolean isExpired(long now) {
+            return now - created >= timeToLive;
+        }
+    }
+
+}
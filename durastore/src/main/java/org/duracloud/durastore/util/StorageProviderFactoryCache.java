@@ -88,6 +88,18 @@ public class StorageProviderFactoryCache extends AbstractAccountComponentCache<S
         return false;
     }
 
+    @Override
+    protected void onRemove(StorageProviderFactory factory) {
+        factory.shutdown();
+    }
+
+    /**
+     * Shuts down all cached factories, called when the application stops
+     */
+    public void destroy() {
+        removeAll();
+    }
+
     @Override
     protected StorageProviderFactory createInstance(String accountId) {
 
@@ -7,13 +7,16 @@
  */
 package org.duracloud.durastore.util;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.duracloud.audit.provider.AuditStorageProvider;
+import org.duracloud.audit.provider.AuditTaskBuffer;
 import org.duracloud.common.changenotifier.AccountChangeNotifier;
 import org.duracloud.common.queue.QueueType;
 import org.duracloud.common.queue.TaskQueue;
@@ -58,8 +61,10 @@ public class StorageProviderFactoryImpl extends ProviderFactoryBase
 
     private StatelessStorageProvider statelessProvider;
     private Map<String, StorageProvider> storageProviders;
+    private Set<String> resumedSpaceDeletes = ConcurrentHashMap.newKeySet();
     private UserUtil userUtil;
     private TaskQueue auditQueue;
+    private AuditTaskBuffer auditBuffer;
     private boolean cacheStorageProvidersOnInit = false;
     private DuraCloudRequestContextUtil contextUtil;
     private AccountChangeNotifier notifier;
@@ -157,6 +162,37 @@ public class StorageProviderFactoryImpl extends ProviderFactoryBase
                 }
             }
         }
+        configureAuditBuffer();
+    }
+
+    /*
+     * Audit tasks are buffered so that storage operations need not wait on
+     * the audit queue. Tasks which cannot be placed on the queue are spilled
+     * to a file in the DuraCloud home directory.
+     */
+    private void configureAuditBuffer() {
+        if (null != this.auditBuffer) {
+            this.auditBuffer.close();
+            this.auditBuffer = null;
+        }
+
+        if (!(this.auditQueue instanceof NoopTaskQueue)) {
+            String home = System.getProperty("duracloud.home",
+                                             System.getProperty("java.io.tmpdir"));
+            String accountName = getAccountManager().getAccountName();
+            String spillName = this.auditQueue.getName() +
+                               (null == accountName ? "" : "-" + accountName) +
+                               ".spill";
+            File spillFile = new File(new File(home, "audit-spill"), spillName);
+            this.auditBuffer = new AuditTaskBuffer(this.auditQueue, spillFile);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (null != this.auditBuffer) {
+            this.auditBuffer.close();
+        }
     }
 
     @Override
@@ -254,16 +290,31 @@ public class StorageProviderFactoryImpl extends ProviderFactoryBase
                                        + storageAccountId + "): unable to create");
         }
 
-        StorageProvider auditProvider =
-            new AuditStorageProvider(storageProvider,
-                                     storageAccountManager.getAccountName(),
-                                     storageAccountId,
-                                     type.getName(),
-                                     userUtil,
-                                     auditQueue);
+        StorageProvider auditProvider;
+        if (null != auditBuffer) {
+            auditProvider = new AuditStorageProvider(storageProvider,
+                                                     storageAccountManager.getAccountName(),
+                                                     storageAccountId,
+                                                     type.getName(),
+                                                     userUtil,
+                                                     auditBuffer);
+        } else {
+            auditProvider = new AuditStorageProvider(storageProvider,
+                                                     storageAccountManager.getAccountName(),
+                                                     storageAccountId,
+                                                     type.getName(),
+                                                     userUtil,
+                                                     auditQueue);
+        }
 
         if (storageProvider instanceof StorageProviderBase) {
-            ((StorageProviderBase) storageProvider).setWrappedStorageProvider(auditProvider);
+            StorageProviderBase providerBase = (StorageProviderBase) storageProvider;
+            providerBase.setWrappedStorageProvider(auditProvider);
+
+            // Space deletes cut short by a restart are picked up again once
+            if (resumedSpaceDeletes.add(storageAccountId)) {
+                providerBase.resumeSpaceDeletes();
+            }
         }
 
         StorageProvider aclProvider = new ACLStorageProvider(auditProvider, notifier, contextUtil);
@@ -84,8 +84,11 @@ public class ACLStorageProviderErrorTest {
 
     private StorageProvider createMockStorageProvider() {
         mockProvider = createMock("StorageProvider", StorageProvider.class);
+        // spaces are listed for each check of the provider state, while
+        // space ACLs are loaded once and then cached
         expect(mockProvider.getSpaces())
-            .andReturn(allSpaces().iterator());
+            .andAnswer(() -> allSpaces().iterator())
+            .times(2);
 
         for (String space : allSpaces()) {
             expect(mockProvider.getSpaceACLs(space))
@@ -26,6 +26,7 @@ import org.duracloud.common.model.AclType;
 import org.duracloud.common.rest.DuraCloudRequestContextUtil;
 import org.duracloud.security.context.SecurityContextUtil;
 import org.duracloud.security.impl.DuracloudUserDetails;
+import org.duracloud.storage.error.NotFoundException;
 import org.duracloud.storage.provider.StorageProvider;
 import org.junit.After;
 import org.junit.Assert;
@@ -95,11 +96,17 @@ public class ACLStorageProviderTest {
     public void testCreateSpace() {
         String spaceId = spacePrefix + 16;
 
-        createMockStorageProvider(1);
+        createMockStorageProvider();
         createMockSecurityContext(3);
 
+        // ACLs of each space are loaded once, the new space is cached on create
+        expectGetSpaces(allSpaces());
+        expectGetAllSpaceACLs();
         mockProvider.createSpace(spaceId);
         expectLastCall().once();
+        List<String> spacesAfterCreate = allSpaces();
+        spacesAfterCreate.add(spaceId);
+        expectGetSpaces(spacesAfterCreate);
 
         replayMocks();
 
@@ -133,7 +140,9 @@ public class ACLStorageProviderTest {
     @Test
     public void testGetSpaces() throws Exception {
         createMockSecurityContext(1);
-        createMockStorageProvider(1);
+        createMockStorageProvider();
+        expectGetSpaces(allSpaces());
+        expectGetAllSpaceACLs();
         replayMocks();
 
         List<String> userSpacesA = new ArrayList<String>();
@@ -161,29 +170,33 @@ public class ACLStorageProviderTest {
                                       requestContextUtil);
     }
 
-    private void createMockStorageProvider(int times) {
+    private void createMockStorageProvider() {
         mockProvider = createMock("StorageProvider", StorageProvider.class);
-        for (int i = 0; i < times; ++i) {
-            expect(mockProvider.getSpaces())
-                .andReturn(allSpaces().iterator());
+    }
+
+    private void expectGetSpaces(List<String> spaces) {
+        expect(mockProvider.getSpaces()).andReturn(spaces.iterator());
+    }
+
+    private void expectGetSpaceACLs(String space) {
+        Map<String, AclType> acls = new HashMap<String, AclType>();
+        if (space.equals(spacePrefix + 1)) {
+            acls.put(StorageProvider.PROPERTIES_SPACE_ACL_PUBLIC,
+                     AclType.READ);
         }
 
+        if (space.equals(spacePrefix + 2)) {
+            acls.put(PROPERTIES_SPACE_ACL + username, AclType.READ);
+
+        } else if (space.equals(spacePrefix + 3)) {
+            acls.put(PROPERTIES_SPACE_ACL + groupA, AclType.WRITE);
+        }
+        expect(mockProvider.getSpaceACLs(space)).andReturn(acls).once();
+    }
+
+    private void expectGetAllSpaceACLs() {
         for (String space : allSpaces()) {
-            Map<String, AclType> acls = new HashMap<String, AclType>();
-            if (space.equals(spacePrefix + 1)) {
-                acls.put(StorageProvider.PROPERTIES_SPACE_ACL_PUBLIC,
-                         AclType.READ);
-            }
-
-            if (space.equals(spacePrefix + 2)) {
-                acls.put(PROPERTIES_SPACE_ACL + username, AclType.READ);
-
-            } else if (space.equals(spacePrefix + 3)) {
-                acls.put(PROPERTIES_SPACE_ACL + groupA, AclType.WRITE);
-            }
-            expect(mockProvider.getSpaceACLs(space))
-                .andReturn(acls)
-                .times(times);
+            expectGetSpaceACLs(space);
         }
     }
 
@@ -229,14 +242,15 @@ public class ACLStorageProviderTest {
     public void testGetSpaceACLs() throws Exception {
         setupNotification();
         String spaceId = spacePrefix + 4;
-        createMockStorageProvider(1);
+        createMockStorageProvider();
+        expectGetSpaceACLs(spaceId);
         Map<String, AclType> origAcls = createSpaceACLs();
 
         mockProvider.setSpaceACLs(spaceId, origAcls);
         expectLastCall().once();
         replayMocks();
 
-        // method under test
+        // method under test, only the requested space is loaded
         provider = createProvider();
         Map<String, AclType> acls = provider.getSpaceACLs(spaceId);
         Assert.assertNotNull(acls);
@@ -262,7 +276,7 @@ public class ACLStorageProviderTest {
     public void testSetSpaceACLs() throws Exception {
         setupNotification();
         String spaceId = spacePrefix + 2;
-        createMockStorageProvider(1);
+        createMockStorageProvider();
         Map<String, AclType> origAcls = createSpaceACLs();
 
         mockProvider.setSpaceACLs(spaceId, origAcls);
@@ -283,20 +297,81 @@ public class ACLStorageProviderTest {
     @Test
     public void testClearCache() throws InterruptedException {
         String spaceId = "ACLStorageProvider-cache";
-        createMockStorageProvider(3);
+        String otherSpaceId = spacePrefix + 2;
+        createMockStorageProvider();
 
+        // each space is loaded before the cache is cleared, and again after
         expect(mockProvider.getSpaceACLs(spaceId))
-            .andReturn(new HashMap<String, AclType>());
+            .andReturn(new HashMap<String, AclType>())
+            .times(2);
+        expectGetSpaceACLs(otherSpaceId);
+        expectGetSpaceACLs(otherSpaceId);
         mockProvider.deleteSpace(spaceId);
         expectLastCall().once();
 
         replayMocks();
 
+        provider = createProvider();
+        provider.getSpaceACLs(spaceId);
+        provider.getSpaceACLs(otherSpaceId);
+
         // method under test
+        provider.deleteSpace(spaceId);
+
+        provider.getSpaceACLs(spaceId);
+        provider.getSpaceACLs(otherSpaceId);
+    }
+
+    @Test
+    public void testDeleteSpace() {
+        String spaceId = spacePrefix + 2;
+        String otherSpaceId = spacePrefix + 3;
+        createMockStorageProvider();
+
+        // only the deleted space is loaded again
+        expectGetSpaceACLs(spaceId);
+        expectGetSpaceACLs(otherSpaceId);
+        mockProvider.deleteSpace(spaceId);
+        expectLastCall().once();
+        expect(mockProvider.getSpaceACLs(spaceId))
+            .andThrow(new NotFoundException("deleted"));
+
+        replayMocks();
+
         provider = createProvider();
+        provider.getSpaceACLs(spaceId);
+        provider.getSpaceACLs(otherSpaceId);
+
+        // method under test
         provider.deleteSpace(spaceId);
 
-        // wait for cache to be cleared and reloaded.
+        try {
+            provider.getSpaceACLs(spaceId);
+            Assert.fail("exception expected");
+        } catch (NotFoundException e) {
+            Assert.assertNotNull(e.getMessage());
+        }
+        Assert.assertEquals(1, provider.getSpaceACLs(otherSpaceId).size());
+    }
+
+    @Test
+    public void testCacheExpiry() {
+        String spaceId = spacePrefix + 2;
+        createMockStorageProvider();
+
+        // with no time-to-live, each request loads the space ACLs
+        expectGetSpaceACLs(spaceId);
+        expectGetSpaceACLs(spaceId);
+
+        replayMocks();
+
+        provider = new ACLStorageProvider(mockProvider,
+                                          securityContextUtil,
+                                          notifier,
+                                          requestContextUtil,
+                                          0,
+                                          ACLStorageProvider.DEFAULT_CACHE_SIZE);
+        provider.getSpaceACLs(spaceId);
         provider.getSpaceACLs(spaceId);
     }
 
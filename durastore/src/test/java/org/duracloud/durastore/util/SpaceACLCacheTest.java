@@ -0,0 +1,148 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.durastore.util;
+
+import static org.duracloud.storage.provider.StorageProvider.PROPERTIES_SPACE_ACL;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.duracloud.common.model.AclType;
+import org.duracloud.storage.error.StorageException;
+import org.duracloud.storage.provider.StorageProvider;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SpaceACLCacheTest {
+
+    private static final String spaceId = "space-id";
+
+    private StorageProvider mockProvider;
+
+    @Before
+    public void setUp() throws Exception {
+        mockProvider = createMock("StorageProvider", StorageProvider.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        verify(mockProvider);
+    }
+
+    private Map<String, AclType> createACLs(String user) {
+        Map<String, AclType> acls = new HashMap<String, AclType>();
+        acls.put(PROPERTIES_SPACE_ACL + user, AclType.READ);
+        return acls;
+    }
+
+    @Test
+    public void testConcurrentLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        expect(mockProvider.getSpaceACLs(spaceId)).andAnswer(() -> {
+            loading.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return createACLs("user");
+        }).once();
+        replay(mockProvider);
+
+        SpaceACLCache cache = new SpaceACLCache(mockProvider, 60000, 100);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Map<String, AclType>>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> cache.get(spaceId)));
+            }
+            Assert.assertTrue(loading.await(10, TimeUnit.SECONDS));
+            release.countDown();
+
+            // All requests share the result of a single load
+            for (Future<Map<String, AclType>> result : results) {
+                Assert.assertEquals(createACLs("user"), result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedLoadNotCached() {
+        expect(mockProvider.getSpaceACLs(spaceId))
+            .andThrow(new StorageException("test"));
+        expect(mockProvider.getSpaceACLs(spaceId))
+            .andReturn(createACLs("user"));
+        replay(mockProvider);
+
+        SpaceACLCache cache = new SpaceACLCache(mockProvider, 60000, 100);
+        try {
+            cache.get(spaceId);
+            Assert.fail("exception expected");
+        } catch (StorageException e) {
+            Assert.assertNotNull(e.getMessage());
+        }
+        Assert.assertEquals(createACLs("user"), cache.get(spaceId));
+    }
+
+    @Test
+    public void testMaxSize() throws Exception {
+        expect(mockProvider.getSpaceACLs("space-0"))
+            .andReturn(createACLs("user-0"));
+        replay(mockProvider);
+
+        SpaceACLCache cache = new SpaceACLCache(mockProvider, 60000, 2);
+        for (int i = 0; i < 3; i++) {
+            cache.put("space-" + i, createACLs("user-" + i));
+            Thread.sleep(5);
+        }
+        Assert.assertEquals(2, cache.size());
+
+        // The oldest entry was evicted and is loaded again
+        Assert.assertEquals(createACLs("user-2"), cache.get("space-2"));
+        Assert.assertEquals(createACLs("user-0"), cache.get("space-0"));
+    }
+
+    @Test
+    public void testMaxSizeAfterInvalidate() throws Exception {
+        expect(mockProvider.getSpaceACLs("space-a"))
+            .andReturn(createACLs("user-a"));
+        replay(mockProvider);
+
+        SpaceACLCache cache = new SpaceACLCache(mockProvider, 60000, 2);
+        cache.put("space-a", createACLs("user-a"));
+        cache.put("space-b", createACLs("user-b"));
+        cache.invalidate("space-b");
+
+        // The invalidated entry does not count towards the maximum size
+        cache.put("space-c", createACLs("user-c"));
+        Assert.assertEquals(2, cache.size());
+
+        // Replacing an entry makes it the most recently added
+        cache.put("space-c", createACLs("user-c2"));
+        cache.put("space-d", createACLs("user-d"));
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(createACLs("user-c2"), cache.get("space-c"));
+        Assert.assertEquals(createACLs("user-d"), cache.get("space-d"));
+
+        // The oldest entry was evicted and is loaded again
+        Assert.assertEquals(createACLs("user-a"), cache.get("space-a"));
+    }
+
+}
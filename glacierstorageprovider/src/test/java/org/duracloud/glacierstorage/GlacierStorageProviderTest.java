@@ -18,7 +18,6 @@ import java.util.List;
 import java.util.Map;
 
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.model.AccessControlList;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.Bucket;
 import com.amazonaws.services.s3.model.BucketLifecycleConfiguration;
@@ -167,10 +166,6 @@ public class GlacierStorageProviderTest {
                 .andReturn(objMeta)
                 .times(2);
 
-        EasyMock.expect(
-            s3Client.getObjectAcl(accessKey + "." + spaceId, contentId))
-                .andReturn(new AccessControlList());
-
         EasyMock.expect(
             s3Client.copyObject(EasyMock.isA(CopyObjectRequest.class)))
                 .andThrow(glacierEx);
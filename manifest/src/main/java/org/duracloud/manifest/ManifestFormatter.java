@@ -10,6 +10,7 @@ package org.duracloud.manifest;
 import java.io.OutputStream;
 import java.text.ParseException;
 import java.util.Collection;
+import java.util.Iterator;
 
 import org.duracloud.mill.db.model.ManifestItem;
 
@@ -36,6 +37,17 @@ public interface ManifestFormatter {
      */
     public void writeManifestItemToOutput(ManifestItem item, OutputStream outputStream);
 
+    /**
+     * Writes the header, if there is one, followed by each of the items.
+     * The output is buffered and flushed in large blocks, and it is flushed
+     * once all items are written, or when writing stops due to an error.
+     *
+     * @param items        to write
+     * @param outputStream destination of formatted items
+     */
+    public void writeManifestItemsToOutput(Iterator<ManifestItem> items,
+                                           OutputStream outputStream);
+
     /**
      * Returns the header if there is one, otherwise null.
      *
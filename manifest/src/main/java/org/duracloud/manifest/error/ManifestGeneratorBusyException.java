@@ -0,0 +1,20 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.manifest.error;
+
+/**
+ * Thrown when a manifest cannot be generated because the generator is
+ * already handling as many manifests as it allows. The request may be
+ * tried again later.
+ */
+public class ManifestGeneratorBusyException extends ManifestGeneratorException {
+
+    public ManifestGeneratorBusyException(String msg) {
+        super(msg);
+    }
+}
@@ -7,8 +7,12 @@
  */
 package org.duracloud.manifest.impl;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Iterator;
 
@@ -26,6 +30,8 @@ import org.slf4j.Logger;
  * Date: 3/29/12
  */
 public abstract class ManifestFormatterBase implements ManifestFormatter {
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
     private boolean headerWasWritten = false;
 
     @Override
@@ -55,6 +61,34 @@ public abstract class ManifestFormatterBase implements ManifestFormatter {
         }
     }
 
+    @Override
+    public void writeManifestItemsToOutput(Iterator<ManifestItem> items,
+                                           OutputStream output) {
+        Writer writer = new BufferedWriter(
+            new OutputStreamWriter(output, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        try {
+            try {
+                String header = getHeader();
+                if (null != header && !headerWasWritten) {
+                    writer.write(header);
+                    writer.write('\n');
+                    headerWasWritten = true;
+                }
+
+                while (items.hasNext()) {
+                    writer.write(formatLine(items.next()));
+                    writer.write('\n');
+                }
+            } finally {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            String err = "Error writing manifest items, error: " + e.getMessage();
+            log().error(err);
+            throw new ManifestFormatterException(err, e);
+        }
+    }
+
     protected void writeHeader(OutputStream output) {
         String header = getHeader();
         if (null != header && !headerWasWritten) {
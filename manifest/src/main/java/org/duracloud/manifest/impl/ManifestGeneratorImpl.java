@@ -9,15 +9,20 @@ package org.duracloud.manifest.impl;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.io.OutputStream;
 import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.StringUtils;
 import org.duracloud.common.constant.ManifestFormat;
 import org.duracloud.manifest.ManifestFormatter;
 import org.duracloud.manifest.ManifestGenerator;
 import org.duracloud.manifest.error.ManifestArgumentException;
+import org.duracloud.manifest.error.ManifestGeneratorBusyException;
 import org.duracloud.manifest.error.ManifestGeneratorException;
 import org.duracloud.manifest.error.ManifestNotFoundException;
 import org.duracloud.mill.db.model.ManifestItem;
@@ -33,6 +38,36 @@ import org.slf4j.LoggerFactory;
  * @author Daniel Bernstein Date: Sept. 16, 2014
  */
 public class ManifestGeneratorImpl implements ManifestGenerator {
+
+    /*
+     * Manifests are written by a bounded pool of threads, with a limit on
+     * the number of manifests waiting for a thread. Beyond that, requests
+     * are turned away rather than queued.
+     */
+    protected static final int MAX_MANIFEST_THREADS = 8;
+    protected static final int MAX_QUEUED_MANIFESTS = 32;
+    protected static final int STREAM_BUFFER_SIZE = 256 * 1024;
+    protected static final long STREAM_STALL_TIMEOUT = TimeUnit.MINUTES.toMillis(10);
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(MAX_MANIFEST_THREADS,
+                               MAX_MANIFEST_THREADS,
+                               60, TimeUnit.SECONDS,
+                               new ArrayBlockingQueue<>(MAX_QUEUED_MANIFESTS),
+                               ManifestGeneratorImpl::newWriterThread);
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    private static Thread newWriterThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "manifest-writer-" +
+                                             threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
     private ManifestStore manifestStore;
     private StorageProviderFactory storageProviderFactory;
     private static Logger log =
@@ -61,39 +96,37 @@ public class ManifestGeneratorImpl implements ManifestGenerator {
 
             storeId = validateStoreId(storeId);
             validateSpaceId(storeId, spaceId);
-            PipedInputStream is = new PipedInputStream(10 * 1024);
-            final PipedOutputStream os = new PipedOutputStream(is);
+            ManifestStreamBuffer buffer =
+                new ManifestStreamBuffer(STREAM_BUFFER_SIZE, STREAM_STALL_TIMEOUT);
+            final OutputStream os = buffer.getOutputStream();
             final Iterator<ManifestItem> it =
                 this.manifestStore.getItems(account, storeId, spaceId);
             final ManifestFormatter formatter = getFormatter(format);
             if (!it.hasNext()) {
                 formatter.writeManifestItemToOutput(null, os);
                 os.close();
-                return is;
-            } else {
-
-                new Thread(new Runnable() {
-                    @Override
-                    public void run() {
-                        try {
-                            while (it.hasNext()) {
-                                formatter.writeManifestItemToOutput(it.next(), os);
-                            }
-                            try {
-                                os.close();
-                            } catch (IOException e) {
-                                log.error("failed to close piped output stream : " + e.getMessage(), e);
-                            }
-
-                        } catch (Exception e) {
-                            log.error("error writing to piped output stream : " + e.getMessage(), e);
-                        }
-                    }
-                }).start();
+                return buffer.getInputStream();
             }
 
-            return is;
-
+            executor.execute(() -> {
+                try {
+                    formatter.writeManifestItemsToOutput(it, os);
+                    os.close();
+                } catch (Exception e) {
+                    log.error("error writing manifest for space " + spaceId +
+                              " : " + e.getMessage(), e);
+                    buffer.fail(e);
+                }
+            });
+            return buffer.getInputStream();
+
+        } catch (RejectedExecutionException ex) {
+            log.warn("unable to accept manifest request for space {}, {} " +
+                     "manifests are already in progress or waiting",
+                     spaceId, MAX_MANIFEST_THREADS + MAX_QUEUED_MANIFESTS);
+            throw new ManifestGeneratorBusyException(
+                "The manifest cannot be generated at this time, as too many " +
+                "manifests are being generated. Please try again later.");
         } catch (IOException | RuntimeException ex) {
             log.error("failed to retrieve manifest: " + ex.getMessage(), ex);
             throw new ManifestGeneratorException(ex.getMessage());
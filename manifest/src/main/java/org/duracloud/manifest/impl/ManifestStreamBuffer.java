@@ -0,0 +1,202 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.manifest.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+/**
+ * A bounded ring buffer which connects the writer of a manifest to its
+ * reader.
+ *
+ * The writer blocks while the buffer is full, so a manifest is generated no
+ * faster than it is read. Unlike a pipe, the buffer does not rely on the
+ * writing thread ending to detect a writer which has stopped: the writer
+ * closes its stream once the manifest is complete, or reports a failure,
+ * which the reader sees as an IOException. The writer is released with an
+ * IOException if the reader closes its stream, or if the reader makes no
+ * progress for longer than the stall timeout, so that an abandoned manifest
+ * does not hold a worker thread.
+ */
+class ManifestStreamBuffer {
+
+    private final byte[] buffer;
+    private final long stallTimeout;
+
+    private int readPosition = 0;
+    private int count = 0;
+    private boolean writerClosed = false;
+    private boolean readerClosed = false;
+    private Throwable writerError = null;
+
+    private final InputStream inputStream = new BufferInputStream();
+    private final OutputStream outputStream = new BufferOutputStream();
+
+    /**
+     * @param size         size of the buffer in bytes
+     * @param stallTimeout time (in ms) the writer waits for the reader to
+     *                     make room in the buffer
+     */
+    ManifestStreamBuffer(int size, long stallTimeout) {
+        this.buffer = new byte[size];
+        this.stallTimeout = stallTimeout;
+    }
+
+    InputStream getInputStream() {
+        return inputStream;
+    }
+
+    OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    /**
+     * Ends the stream with an error, which is reported to the reader once
+     * it has read the data written before the failure.
+     */
+    synchronized void fail(Throwable error) {
+        if (!writerClosed) {
+            writerError = error;
+            writerClosed = true;
+            notifyAll();
+        }
+    }
+
+    private synchronized int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (count == 0) {
+            if (readerClosed) {
+                throw new IOException("Manifest stream is closed");
+            }
+            if (writerClosed) {
+                if (null != writerError) {
+                    throw new IOException("Manifest generation failed: " +
+                                          writerError.getMessage(), writerError);
+                }
+                return -1;
+            }
+            waitForChange();
+        }
+
+        int read = 0;
+        while (read < len && count > 0) {
+            int chunk = Math.min(Math.min(len - read, count),
+                                 buffer.length - readPosition);
+            System.arraycopy(buffer, readPosition, b, off + read, chunk);
+            readPosition = (readPosition + chunk) % buffer.length;
+            count -= chunk;
+            read += chunk;
+        }
+        notifyAll();
+        return read;
+    }
+
+    private synchronized void write(byte[] b, int off, int len) throws IOException {
+        int written = 0;
+        while (written < len) {
+            long stalledSince = System.currentTimeMillis();
+            while (count == buffer.length && !readerClosed && !writerClosed) {
+                long remaining = stallTimeout - (System.currentTimeMillis() - stalledSince);
+                if (remaining <= 0) {
+                    throw new IOException("Manifest reader made no progress for " +
+                                          stallTimeout + "ms");
+                }
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted writing manifest");
+                }
+            }
+            if (readerClosed) {
+                throw new IOException("Manifest reader closed the stream");
+            }
+            if (writerClosed) {
+                throw new IOException("Manifest stream is closed");
+            }
+
+            int writePosition = (readPosition + count) % buffer.length;
+            int chunk = Math.min(Math.min(len - written, buffer.length - count),
+                                 buffer.length - writePosition);
+            System.arraycopy(b, off + written, buffer, writePosition, chunk);
+            count += chunk;
+            written += chunk;
+            notifyAll();
+        }
+    }
+
+    private synchronized int available() {
+        return count;
+    }
+
+    private synchronized void closeWriter() {
+        writerClosed = true;
+        notifyAll();
+    }
+
+    private synchronized void closeReader() {
+        readerClosed = true;
+        count = 0;
+        notifyAll();
+    }
+
+    private void waitForChange() throws InterruptedIOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted reading manifest");
+        }
+    }
+
+    private class BufferInputStream extends InputStream {
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return ManifestStreamBuffer.this.read(b, off, len);
+        }
+
+        @Override
+        public int available() {
+            return ManifestStreamBuffer.this.available();
+        }
+
+        @Override
+        public void close() {
+            closeReader();
+        }
+    }
+
+    private class BufferOutputStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ManifestStreamBuffer.this.write(b, off, len);
+        }
+
+        @Override
+        public void close() {
+            closeWriter();
+        }
+    }
+
+}
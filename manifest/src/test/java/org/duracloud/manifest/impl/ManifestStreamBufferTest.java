@@ -0,0 +1,112 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.manifest.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Test;
+
+public class ManifestStreamBufferTest {
+
+    private ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testReadWrite() throws Exception {
+        byte[] data = new byte[100000];
+        new Random(42).nextBytes(data);
+
+        // The buffer is much smaller than the data, so it wraps many times
+        ManifestStreamBuffer buffer = new ManifestStreamBuffer(1000, 10000);
+        AtomicLong maxBuffered = new AtomicLong();
+        Future<?> writer = executor.submit(() -> {
+            OutputStream os = buffer.getOutputStream();
+            for (int i = 0; i < data.length; i += 333) {
+                os.write(data, i, Math.min(333, data.length - i));
+                maxBuffered.accumulateAndGet(buffer.getInputStream().available(),
+                                             Math::max);
+            }
+            os.close();
+            return null;
+        });
+
+        byte[] read = IOUtils.toByteArray(buffer.getInputStream());
+        writer.get(5, TimeUnit.SECONDS);
+        assertArrayEquals(data, read);
+        assertTrue(maxBuffered.get() <= 1000);
+    }
+
+    @Test
+    public void testWriterFailure() throws Exception {
+        ManifestStreamBuffer buffer = new ManifestStreamBuffer(1000, 10000);
+        buffer.getOutputStream().write("line\n".getBytes());
+        buffer.fail(new IOException("failure"));
+
+        // Data written before the failure is read before the failure is seen
+        InputStream is = buffer.getInputStream();
+        byte[] read = new byte[100];
+        assertEquals(5, is.read(read, 0, read.length));
+        try {
+            is.read(read, 0, read.length);
+            fail("Exception expected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("failure"));
+        }
+    }
+
+    @Test
+    public void testReaderClosed() throws Exception {
+        ManifestStreamBuffer buffer = new ManifestStreamBuffer(10, 10000);
+        Future<?> writer = executor.submit(() -> {
+            buffer.getOutputStream().write(new byte[100]);
+            return null;
+        });
+
+        // A writer blocked on a full buffer is released when the reader closes
+        Thread.sleep(100);
+        buffer.getInputStream().close();
+        try {
+            writer.get(5, TimeUnit.SECONDS);
+            fail("Exception expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void testReaderStalled() throws Exception {
+        ManifestStreamBuffer buffer = new ManifestStreamBuffer(10, 100);
+        try {
+            buffer.getOutputStream().write(new byte[100]);
+            fail("Exception expected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("no progress"));
+        }
+    }
+
+}
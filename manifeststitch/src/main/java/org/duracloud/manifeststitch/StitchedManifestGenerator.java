@@ -8,17 +8,21 @@
 package org.duracloud.manifeststitch;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.commons.io.input.AutoCloseInputStream;
 import org.duracloud.chunk.manifest.ChunksManifest;
 import org.duracloud.chunk.manifest.ChunksManifestBean.ManifestHeader;
 import org.duracloud.chunk.manifest.xml.ManifestDocumentBinding;
@@ -39,9 +43,30 @@ import org.slf4j.LoggerFactory;
  * out all chunks, and 3) reading and parsing from any *.dura-manifest files the
  * checksum of the stitched file.
  *
+ * The stitched manifest is produced as it is read. The checksums held in
+ * *.dura-manifest files are looked up ahead of the reader, several at a
+ * time, on a pool of threads shared by all generators, while the lines of
+ * the stitched manifest are kept in their original order.
+ *
  * @author Daniel Bernstein Date: 08/28/2015
  */
 public class StitchedManifestGenerator {
+
+    /*
+     * Maximum number of manifest lines which are held while waiting for the
+     * chunk manifest lookups which precede them to complete
+     */
+    protected static final int OUTPUT_WINDOW = 1000;
+
+    private static final AtomicInteger lookupThreadCount = new AtomicInteger();
+    private static final ExecutorService lookupExecutor =
+        Executors.newFixedThreadPool(8, runnable -> {
+            Thread thread = new Thread(runnable, "chunk-manifest-lookup-" +
+                                                 lookupThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
     private Logger log =
         LoggerFactory.getLogger(StitchedManifestGenerator.class);
     private ContentStore store;
@@ -51,55 +76,37 @@ public class StitchedManifestGenerator {
     }
 
     public InputStream generate(String spaceId, ManifestFormat format) throws IOException {
-
-        final File stitchedManifestFile =
-            File.createTempFile("stitched-manifest-" + spaceId,
-                                "." + format.name().toLowerCase());
-        //download manifest and process each line.
-        try (InputStream manifest = store.getManifest(spaceId, format);
-             BufferedReader reader = new BufferedReader(new InputStreamReader(manifest));
-             BufferedWriter writer =
-                 new BufferedWriter(new OutputStreamWriter(new FileOutputStream(stitchedManifestFile)));) {
-            ManifestFormatter formatter = new ManifestFormatterFactory().create(format);
-            String header = formatter.getHeader();
-            String line = null;
-            try {
-                while ((line = reader.readLine()) != null) {
-                    //ignore any whitespace
-                    if (line.trim().length() == 0) {
-                        continue;
-                    }
-
-                    //write header if there is one.
-                    if (header != null && line.equals(header)) {
-                        writeLine(line, writer);
-                        continue;
-                    }
-
-                    //process the line
-                    processLine(line, formatter, writer);
-                }
-            } catch (IOException e) {
-                log.error("failed to complete manifest stiching.", e);
-            }
+        InputStream manifest;
+        try {
+            manifest = store.getManifest(spaceId, format);
         } catch (ContentStoreException e) {
             log.error("failed to generate stitched manifest: " + e.getMessage(), e);
             throw new IOException(e);
         }
 
-        return new AutoCloseInputStream(new FileInputStream(stitchedManifestFile) {
-            @Override
-            public void close() throws IOException {
-                super.close();
-                stitchedManifestFile.delete();
-            }
-        });
+        ManifestFormatter formatter = new ManifestFormatterFactory().create(format);
+        return new StitchedManifestStream(
+            new BufferedReader(new InputStreamReader(manifest, StandardCharsets.UTF_8)),
+            formatter);
     }
 
-    private void processLine(String line,
-                             ManifestFormatter formatter,
-                             BufferedWriter writer)
-        throws IOException, ContentStoreException {
+    /*
+     * Determines the stitched line for a line of the manifest, returning
+     * null for lines which are left out of the stitched manifest.
+     */
+    private Future<String> processLine(String line, ManifestFormatter formatter)
+        throws IOException {
+        //ignore any whitespace
+        if (line.trim().length() == 0) {
+            return null;
+        }
+
+        //write header if there is one.
+        String header = formatter.getHeader();
+        if (header != null && line.equals(header)) {
+            return CompletableFuture.completedFuture(line);
+        }
+
         // parse manifest entry
         ManifestItem item = null;
         try {
@@ -111,13 +118,14 @@ public class StitchedManifestGenerator {
         String contentId = item.getContentId();
 
         if (contentId.endsWith(ChunksManifest.manifestSuffix)) {
-            writeLine(processChunkManifest(item, formatter), writer);
+            final ManifestItem chunkManifestItem = item;
+            return lookupExecutor.submit(() -> processChunkManifest(chunkManifestItem, formatter));
         } else if (contentId.contains(ChunksManifest.chunkSuffix)) {
             // ignore chunks
-            return;
+            return null;
         } else {
             // else write it.
-            writeLine(line, writer);
+            return CompletableFuture.completedFuture(line);
         }
     }
 
@@ -147,10 +155,93 @@ public class StitchedManifestGenerator {
         }
     }
 
-    protected void writeLine(String line, BufferedWriter writer)
-        throws IOException {
-        writer.write(line);
-        writer.newLine();
+    /*
+     * Reads the manifest as the stitched manifest is read, keeping the
+     * lookups of the chunk manifests listed up to a window of lines ahead
+     * running in the background.
+     */
+    private class StitchedManifestStream extends InputStream {
+        private final BufferedReader reader;
+        private final ManifestFormatter formatter;
+        private final Deque<Future<String>> window = new ArrayDeque<>();
+        private boolean manifestEnded = false;
+
+        private byte[] current;
+        private int position;
+
+        StitchedManifestStream(BufferedReader reader, ManifestFormatter formatter) {
+            this.reader = reader;
+            this.formatter = formatter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (null == current || position >= current.length) {
+                if (!nextLine()) {
+                    return -1;
+                }
+            }
+            int read = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, read);
+            position += read;
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            manifestEnded = true;
+            current = null;
+            while (!window.isEmpty()) {
+                window.poll().cancel(true);
+            }
+            reader.close();
+        }
+
+        private boolean nextLine() throws IOException {
+            fillWindow();
+            Future<String> next = window.poll();
+            if (null == next) {
+                return false;
+            }
+
+            String line;
+            try {
+                line = next.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while stitching manifest");
+            } catch (ExecutionException e) {
+                log.error("failed to complete manifest stitching.", e.getCause());
+                throw new IOException(e.getCause());
+            }
+            current = (line + "\n").getBytes(StandardCharsets.UTF_8);
+            position = 0;
+            return true;
+        }
+
+        private void fillWindow() throws IOException {
+            while (!manifestEnded && window.size() < OUTPUT_WINDOW) {
+                String line = reader.readLine();
+                if (null == line) {
+                    manifestEnded = true;
+                } else {
+                    Future<String> stitchedLine = processLine(line, formatter);
+                    if (null != stitchedLine) {
+                        window.add(stitchedLine);
+                    }
+                }
+            }
+        }
     }
 
 }
@@ -2,6 +2,7 @@ package org.duracloud.manifeststitch;
 
 import static org.easymock.EasyMock.expect;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.BufferedReader;
@@ -14,6 +15,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.duracloud.chunk.manifest.ChunksManifest;
 import org.duracloud.chunk.manifest.xml.ManifestDocumentBinding;
@@ -85,6 +87,82 @@ public class StitchedManifestGeneratorTest extends EasyMockSupport {
         reader.close();
     }
 
+    @Test
+    public void testGenerateConcurrentLookups() throws Exception {
+        ContentStore store = createMock(ContentStore.class);
+        TsvManifestFormatter formatter = new TsvManifestFormatter();
+        StringBuilder unstitched = new StringBuilder(formatter.getHeader() + "\n");
+        AtomicInteger activeLookups = new AtomicInteger();
+        AtomicInteger maxActiveLookups = new AtomicInteger();
+
+        int fileCount = 20;
+        for (int i = 0; i < fileCount; i++) {
+            String sourceContentId = "content-" + i + ".dat";
+            String chunkManifestContentId = sourceContentId + ChunksManifest.manifestSuffix;
+            unstitched.append(formatLine(formatter, chunkManifestContentId)).append("\n");
+            unstitched.append(formatLine(formatter, sourceContentId +
+                                                    ChunksManifest.chunkSuffix + "0000"))
+                      .append("\n");
+            unstitched.append(formatLine(formatter, "unchunked-" + i + ".dat")).append("\n");
+
+            ChunksManifest manifest = new ChunksManifest(sourceContentId, "text/plain", 1000);
+            manifest.setMD5OfSourceContent("md5-" + i);
+            String xml = ManifestDocumentBinding.createDocumentFrom(manifest);
+
+            // Each lookup has latency, later lookups finish sooner. The
+            // latency is in the content stream, as calls to a mock are
+            // serialized.
+            long latency = (fileCount - i) * 5L;
+            Content content = new Content();
+            content.setStream(new ByteArrayInputStream(xml.getBytes()) {
+                private boolean started = false;
+
+                @Override
+                public synchronized int read(byte[] b, int off, int len) {
+                    if (!started) {
+                        started = true;
+                        maxActiveLookups.accumulateAndGet(activeLookups.incrementAndGet(),
+                                                          Math::max);
+                        try {
+                            Thread.sleep(latency);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        activeLookups.decrementAndGet();
+                    }
+                    return super.read(b, off, len);
+                }
+            });
+            expect(store.getContent(spaceId, chunkManifestContentId)).andReturn(content);
+        }
+        expect(store.getManifest(spaceId, ManifestFormat.TSV))
+            .andReturn(new ByteArrayInputStream(unstitched.toString().getBytes()));
+        replayAll();
+
+        StitchedManifestGenerator generator = new StitchedManifestGenerator(store);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+            generator.generate(spaceId, ManifestFormat.TSV)));
+        assertEquals(formatter.getHeader(), reader.readLine());
+        for (int i = 0; i < fileCount; i++) {
+            ManifestItem item = formatter.parseLine(reader.readLine());
+            assertEquals("content-" + i + ".dat", item.getContentId());
+            assertEquals("md5-" + i, item.getContentChecksum());
+            assertTrue(reader.readLine().contains("unchunked-" + i + ".dat"));
+        }
+        assertNull(reader.readLine());
+        reader.close();
+
+        assertTrue(maxActiveLookups.get() > 1);
+    }
+
+    private String formatLine(ManifestFormatter formatter, String contentId) {
+        ManifestItem item = new ManifestItem();
+        item.setContentChecksum("checksum-md5");
+        item.setContentId(contentId);
+        item.setSpaceId(spaceId);
+        return formatter.formatLine(item);
+    }
+
     private void write(BufferedWriter writer,
                        ManifestFormatter formatter,
                        String contentId) throws IOException {
@@ -95,7 +95,8 @@ public class RetrievalTool {
                                           retConfig.getNumThreads(),
                                           outWriter,
                                           createSpaceDir,
-                                          applyTimestamps);
+                                          applyTimestamps,
+                                          retConfig.getNumRangeThreads());
 
         executor.execute(retManager);
     }
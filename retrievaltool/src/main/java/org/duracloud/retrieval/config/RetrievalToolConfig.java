@@ -31,6 +31,7 @@ public class RetrievalToolConfig implements Serializable {
     private File workDir;
     private boolean overwrite;
     private int numThreads;
+    private int numRangeThreads;
     private String version;
     private boolean applyTimestamps;
     private boolean listOnly;
@@ -71,6 +72,8 @@ public class RetrievalToolConfig implements Serializable {
         config.append(getWorkDir().getAbsolutePath()).append("\n");
         config.append("Retrieval Tool Overwrite Local Files: ");
         config.append(isOverwrite()).append("\n");
+        config.append("Retrieval Tool Range Threads: ");
+        config.append(getNumRangeThreads()).append("\n");
         config.append("Retrieval Tool Retain File Time Stamps: ");
         config.append(isApplyTimestamps()).append("\n");
         config.append("Retrieval Tool List Content Only: ");
@@ -182,6 +185,14 @@ public class RetrievalToolConfig implements Serializable {
         this.numThreads = numThreads;
     }
 
+    public int getNumRangeThreads() {
+        return numRangeThreads;
+    }
+
+    public void setNumRangeThreads(int numRangeThreads) {
+        this.numRangeThreads = numRangeThreads;
+    }
+
     public void setVersion(String version) {
         this.version = version;
     }
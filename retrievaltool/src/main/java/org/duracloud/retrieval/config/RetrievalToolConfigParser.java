@@ -31,6 +31,7 @@ public class RetrievalToolConfigParser {
 
     protected static final int DEFAULT_PORT = 443;
     protected static final int DEFAULT_NUM_THREADS = 3;
+    protected static final int DEFAULT_NUM_RANGE_THREADS = 0;
     protected static final String DEFAULT_CONTEXT = "durastore";
 
     private Options cmdOptions;
@@ -130,6 +131,17 @@ public class RetrievalToolConfigParser {
         numThreads.setRequired(false);
         cmdOptions.addOption(numThreads);
 
+        Option numRangeThreads =
+            new Option("n", "range-threads", true,
+                       "the number of threads in the pool used to transfer " +
+                       "sections of large files concurrently. Files of 128 " +
+                       "MB or more are transferred as multiple ranges when " +
+                       "this is set (optional, default value is " +
+                       DEFAULT_NUM_RANGE_THREADS + ", which transfers each " +
+                       "file as a whole)");
+        numRangeThreads.setRequired(false);
+        cmdOptions.addOption(numRangeThreads);
+
         Option disableTimestamps =
             new Option("d", "disable-timestamps", false,
                        "indicates that timestamp information found as content " +
@@ -293,6 +305,18 @@ public class RetrievalToolConfigParser {
             config.setNumThreads(DEFAULT_NUM_THREADS);
         }
 
+        if (cmd.hasOption("n")) {
+            try {
+                config.setNumRangeThreads(
+                    Integer.valueOf(cmd.getOptionValue("n")));
+            } catch (NumberFormatException e) {
+                throw new ParseException("The value for range-threads (-n) " +
+                                         "must be a number.");
+            }
+        } else {
+            config.setNumRangeThreads(DEFAULT_NUM_RANGE_THREADS);
+        }
+
         if (cmd.hasOption("d")) {
             config.setApplyTimestamps(false);
         } else {
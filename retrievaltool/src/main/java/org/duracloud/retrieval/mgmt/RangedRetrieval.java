@@ -0,0 +1,285 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.retrieval.mgmt;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.duracloud.common.model.ContentItem;
+import org.duracloud.common.retry.Retrier;
+import org.duracloud.common.util.ChecksumUtil;
+import org.duracloud.retrieval.source.ContentStream;
+import org.duracloud.retrieval.source.RetrievalSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retrieves a single content item as a set of byte ranges which are
+ * transferred concurrently and written directly to their place in the local
+ * file.
+ *
+ * The ranges are written to a partial file next to the local file, and each
+ * completed range is recorded in a state file, so a retrieval which fails
+ * part way through can be resumed without transferring the completed ranges
+ * again. The MD5 of the file is computed as each contiguous run of ranges is
+ * completed, while those bytes are still likely to be cached by the OS.
+ */
+class RangedRetrieval {
+
+    private final Logger logger = LoggerFactory.getLogger(RangedRetrieval.class);
+
+    protected static final String PART_SUFFIX = ".part";
+    protected static final String STATE_SUFFIX = ".part-state";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ContentItem contentItem;
+    private RetrievalSource source;
+    private ExecutorService executor;
+    private long rangeSize;
+    private long size;
+    private String checksum;
+    private File partFile;
+    private File stateFile;
+
+    private boolean[] completed;
+    private int digestedRanges = 0;
+    private MessageDigest digest;
+
+    /**
+     * @param contentItem the item to retrieve
+     * @param source      the source of the item, which must support ranges
+     * @param executor    runs the range transfers
+     * @param rangeSize   the size of each range
+     * @param localFile   the file to which the item is to be retrieved
+     * @param size        the size of the item
+     * @param checksum    the MD5 of the item, used to determine whether a
+     *                    partial retrieval can be resumed
+     */
+    RangedRetrieval(ContentItem contentItem,
+                    RetrievalSource source,
+                    ExecutorService executor,
+                    long rangeSize,
+                    File localFile,
+                    long size,
+                    String checksum) {
+        this.contentItem = contentItem;
+        this.source = source;
+        this.executor = executor;
+        this.rangeSize = rangeSize;
+        this.size = size;
+        this.checksum = checksum;
+        this.partFile = new File(localFile.getPath() + PART_SUFFIX);
+        this.stateFile = new File(localFile.getPath() + STATE_SUFFIX);
+    }
+
+    /**
+     * Transfers all ranges of the content item which have not already been
+     * transferred to the partial file.
+     *
+     * @return the MD5 checksum of the partial file
+     * @throws IOException if any range cannot be transferred, in which case
+     *                     the completed ranges are retained to be resumed
+     */
+    String retrieve() throws IOException {
+        int rangeCount = (int) ((size + rangeSize - 1) / rangeSize);
+        completed = loadState(rangeCount);
+        try {
+            digest = MessageDigest.getInstance(ChecksumUtil.Algorithm.MD5.toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(partFile, "rw")) {
+            raf.setLength(size);
+            FileChannel channel = raf.getChannel();
+
+            synchronized (this) {
+                digestCompletedRanges(channel);
+            }
+
+            List<Future<?>> transfers = new ArrayList<>();
+            for (int i = 0; i < rangeCount; i++) {
+                if (!completed[i]) {
+                    final int range = i;
+                    transfers.add(executor.submit(() -> {
+                        retrieveRange(channel, range);
+                        return null;
+                    }));
+                }
+            }
+            waitForTransfers(transfers);
+
+            if (digestedRanges != rangeCount) {
+                throw new IOException("Not all ranges of " + contentItem +
+                                      " were retrieved");
+            }
+        }
+        return ChecksumUtil.checksumBytesToString(digest.digest());
+    }
+
+    /**
+     * Moves the partial file into place as the retrieved local file.
+     */
+    void complete(File localFile) throws IOException {
+        Files.move(partFile.toPath(),
+                   localFile.toPath(),
+                   StandardCopyOption.REPLACE_EXISTING);
+        FileUtils.deleteQuietly(stateFile);
+    }
+
+    /**
+     * Removes the partial file along with its state, so the next attempt
+     * starts over.
+     */
+    void discard() {
+        FileUtils.deleteQuietly(partFile);
+        FileUtils.deleteQuietly(stateFile);
+    }
+
+    private void waitForTransfers(List<Future<?>> transfers) throws IOException {
+        try {
+            for (Future<?> transfer : transfers) {
+                transfer.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted retrieving " + contentItem, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw new IOException("Unable to retrieve " + contentItem + ": " +
+                                  cause.getMessage(), cause);
+        } finally {
+            for (Future<?> transfer : transfers) {
+                transfer.cancel(true);
+            }
+        }
+    }
+
+    private void retrieveRange(FileChannel channel, int range) throws Exception {
+        long startByte = range * rangeSize;
+        long endByte = Math.min(size, startByte + rangeSize) - 1;
+
+        ContentStream content = new Retrier(5, 4000, 3).execute(() -> {
+            return source.getSourceContentRange(contentItem, startByte, endByte);
+        });
+
+        long position = startByte;
+        try (InputStream inStream = content.getStream()) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = inStream.read(buffer)) != -1) {
+                if (position + read > endByte + 1) {
+                    throw new IOException("Received more bytes than requested " +
+                                          "for range " + startByte + "-" +
+                                          endByte + " of " + contentItem);
+                }
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                while (byteBuffer.hasRemaining()) {
+                    position += channel.write(byteBuffer, position);
+                }
+            }
+        }
+
+        if (position != endByte + 1) {
+            throw new IOException("Received " + (position - startByte) +
+                                  " bytes for range " + startByte + "-" +
+                                  endByte + " of " + contentItem);
+        }
+        rangeCompleted(channel, range);
+    }
+
+    private synchronized void rangeCompleted(FileChannel channel, int range)
+        throws IOException {
+        completed[range] = true;
+        Files.write(stateFile.toPath(),
+                    (range + "\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+        digestCompletedRanges(channel);
+    }
+
+    /*
+     * Adds any completed ranges which follow those already digested
+     */
+    private void digestCompletedRanges(FileChannel channel) throws IOException {
+        ByteBuffer buffer = null;
+        while (digestedRanges < completed.length && completed[digestedRanges]) {
+            if (null == buffer) {
+                buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            }
+            long position = digestedRanges * rangeSize;
+            long end = Math.min(size, position + rangeSize);
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(BUFFER_SIZE, end - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of " + partFile);
+                }
+                buffer.flip();
+                digest.update(buffer);
+                position += read;
+            }
+            digestedRanges++;
+        }
+    }
+
+    /*
+     * Determines which ranges were completed by a previous attempt to
+     * retrieve the same content. Starts a new state file if there was no
+     * previous attempt or the content has changed since.
+     */
+    private boolean[] loadState(int rangeCount) throws IOException {
+        boolean[] completedRanges = new boolean[rangeCount];
+        String header = size + " " + rangeSize + " " + checksum;
+
+        if (partFile.exists() && stateFile.exists()) {
+            List<String> lines =
+                Files.readAllLines(stateFile.toPath(), StandardCharsets.UTF_8);
+            if (!lines.isEmpty() && header.equals(lines.get(0))) {
+                int resumed = 0;
+                for (String line : lines.subList(1, lines.size())) {
+                    try {
+                        int range = Integer.parseInt(line.trim());
+                        if (range >= 0 && range < rangeCount) {
+                            completedRanges[range] = true;
+                            resumed++;
+                        }
+                    } catch (NumberFormatException e) {
+                        // Incomplete final line, that range is retrieved again
+                    }
+                }
+                logger.info("Resuming retrieval of {} with {} of {} ranges " +
+                            "complete", contentItem, resumed, rangeCount);
+                return completedRanges;
+            }
+        }
+
+        discard();
+        Files.write(stateFile.toPath(),
+                    (header + "\n").getBytes(StandardCharsets.UTF_8));
+        return completedRanges;
+    }
+
+}
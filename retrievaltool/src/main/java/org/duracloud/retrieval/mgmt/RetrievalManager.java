@@ -8,6 +8,9 @@
 package org.duracloud.retrieval.mgmt;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -15,6 +18,7 @@ import java.util.concurrent.TimeUnit;
 
 import org.duracloud.common.model.ContentItem;
 import org.duracloud.common.retry.Retrier;
+import org.duracloud.common.util.ChecksumCache;
 import org.duracloud.retrieval.source.RetrievalSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,10 +40,12 @@ public class RetrievalManager implements Runnable {
     private File workDir;
     private boolean overwrite;
     private ThreadPoolExecutor workerPool;
+    private ExecutorService rangePool;
     private OutputWriter outWriter;
     private boolean createSpaceDir;
     private boolean applyTimestamps;
     private boolean complete;
+    private ChecksumCache checksumCache;
 
     public RetrievalManager(RetrievalSource source,
                             File contentDir,
@@ -49,6 +55,25 @@ public class RetrievalManager implements Runnable {
                             OutputWriter outWriter,
                             boolean createSpaceDir,
                             boolean applyTimestamps) {
+        this(source, contentDir, workDir, overwrite, threads, outWriter,
+             createSpaceDir, applyTimestamps, 0);
+    }
+
+    /**
+     * @param rangeThreads number of threads used to retrieve the byte ranges
+     *                     of large files concurrently, shared by all
+     *                     retrieval workers. When 0, each file is retrieved
+     *                     in a single transfer.
+     */
+    public RetrievalManager(RetrievalSource source,
+                            File contentDir,
+                            File workDir,
+                            boolean overwrite,
+                            int threads,
+                            OutputWriter outWriter,
+                            boolean createSpaceDir,
+                            boolean applyTimestamps,
+                            int rangeThreads) {
         logger.info("Starting Retrieval Manager with " + threads + " threads");
         this.source = source;
         this.contentDir = contentDir;
@@ -66,6 +91,34 @@ public class RetrievalManager implements Runnable {
                                    TimeUnit.NANOSECONDS,
                                    new SynchronousQueue(),
                                    new ThreadPoolExecutor.AbortPolicy());
+
+        if (rangeThreads > 0) {
+            logger.info("Retrieving large files using " + rangeThreads +
+                        " range threads");
+            rangePool = Executors.newFixedThreadPool(rangeThreads);
+        }
+
+        checksumCache = openChecksumCache();
+    }
+
+    /*
+     * Opens the cache of local file checksums held in the work dir, so that
+     * existing local files which have not changed since a previous run are
+     * not read again to compare them with the remote files.
+     */
+    private ChecksumCache openChecksumCache() {
+        if (null == workDir) {
+            return null;
+        }
+        File cacheFile = new File(workDir, "checksum-cache");
+        try {
+            return new ChecksumCache(cacheFile);
+        } catch (IOException e) {
+            logger.warn("Unable to open checksum cache {}, the checksums of " +
+                        "all local files will be computed: {}",
+                        cacheFile.getAbsolutePath(), e.getMessage());
+            return null;
+        }
     }
 
     /**
@@ -113,6 +166,11 @@ public class RetrievalManager implements Runnable {
                                                          outWriter,
                                                          createSpaceDir,
                                                          applyTimestamps);
+            if (null != rangePool) {
+                worker.setRangedRetrieval(rangePool,
+                                          RetrievalWorker.DEFAULT_RANGE_SIZE);
+            }
+            worker.setChecksumCache(checksumCache);
             workerPool.execute(worker);
             return true;
         } catch (RejectedExecutionException e) {
@@ -134,6 +192,12 @@ public class RetrievalManager implements Runnable {
             // Exit wait on interruption
         }
 
+        if (null != rangePool) {
+            rangePool.shutdownNow();
+        }
+        if (null != checksumCache) {
+            checksumCache.close();
+        }
         complete = true;
     }
 
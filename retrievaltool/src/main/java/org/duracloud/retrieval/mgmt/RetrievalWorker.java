@@ -10,15 +10,16 @@ package org.duracloud.retrieval.mgmt;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.attribute.BasicFileAttributeView;
 import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
 import java.text.ParseException;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -26,6 +27,7 @@ import org.duracloud.chunk.util.ChunkUtil;
 import org.duracloud.client.ContentStore;
 import org.duracloud.common.model.ContentItem;
 import org.duracloud.common.retry.Retrier;
+import org.duracloud.common.util.ChecksumCache;
 import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.common.util.DateUtil;
 import org.duracloud.retrieval.source.ContentStream;
@@ -47,6 +49,10 @@ public class RetrievalWorker implements Runnable {
     private static final int MAX_ATTEMPTS = 5;
     private static final String COPY = "-copy";
 
+    public static final long DEFAULT_RANGE_SIZE = 64 * 1024 * 1024;
+    // Files smaller than this many ranges are retrieved in a single transfer
+    private static final int MIN_RANGES = 2;
+
     private ContentItem contentItem;
     private RetrievalSource source;
     private File contentDir;
@@ -57,6 +63,9 @@ public class RetrievalWorker implements Runnable {
     private int attempts;
     private File localFile;
     private ContentStream contentStream;
+    private ExecutorService rangeExecutor;
+    private long rangeSize = DEFAULT_RANGE_SIZE;
+    private ChecksumCache checksumCache;
 
     private StatusManager statusManager;
 
@@ -81,6 +90,29 @@ public class RetrievalWorker implements Runnable {
         this.attempts = 0;
     }
 
+    /**
+     * Enables large files to be retrieved as byte ranges which are
+     * transferred concurrently.
+     *
+     * @param rangeExecutor runs the range transfers, shared between workers
+     * @param rangeSize     the size of each range
+     */
+    public void setRangedRetrieval(ExecutorService rangeExecutor,
+                                   long rangeSize) {
+        this.rangeExecutor = rangeExecutor;
+        this.rangeSize = rangeSize;
+    }
+
+    /**
+     * Sets the cache consulted before the checksum of an existing local file
+     * is computed, and which is given the checksums of retrieved files.
+     *
+     * @param checksumCache cache of local file checksums
+     */
+    public void setChecksumCache(ChecksumCache checksumCache) {
+        this.checksumCache = checksumCache;
+    }
+
     public void run() {
         try {
             statusManager.startingWork();
@@ -101,7 +133,8 @@ public class RetrievalWorker implements Runnable {
         try {
             if (localFile.exists()) { // File already exists
                 props = getContentProperties();
-                if (checksumsMatch(localFile,
+                if (sizesMatch(localFile, props) &&
+                    checksumsMatch(localFile,
                                    props.get(ContentStore.CONTENT_CHECKSUM))) {
                     noChangeNeeded(localFile.getAbsolutePath());
                 } else { // Different file in DuraStore
@@ -171,6 +204,13 @@ public class RetrievalWorker implements Runnable {
      */
     protected boolean checksumsMatch(File localFile, String remoteChecksum)
         throws IOException {
+        return checksumMatches(getChecksum(localFile), remoteChecksum);
+    }
+
+    /*
+     * Checks to see if the given checksum matches that of the remote file
+     */
+    protected boolean checksumMatches(String localChecksum, String remoteChecksum) {
         if (remoteChecksum == null || "".equals(remoteChecksum)) {
             if (contentStream != null) {
                 remoteChecksum = contentStream.getChecksum();
@@ -178,11 +218,40 @@ public class RetrievalWorker implements Runnable {
                 remoteChecksum = source.getSourceChecksum(contentItem);
             }
         }
-        String localChecksum = getChecksum(localFile);
         return localChecksum.equals(remoteChecksum);
     }
 
+    /*
+     * Checks the size of the local file against the remote file size, if
+     * known, so that files which differ in size need not be checksummed.
+     * The properties of a chunk manifest describe the manifest rather than
+     * the stitched file, so the sizes of stitched files are not compared.
+     */
+    protected boolean sizesMatch(File localFile, Map<String, String> props) {
+        long remoteSize = getSize(props);
+        if (remoteSize < 0 ||
+            new ChunkUtil().isChunkManifest(contentItem.getContentId())) {
+            return true;
+        }
+        return localFile.length() == remoteSize;
+    }
+
+    private long getSize(Map<String, String> props) {
+        String size = null == props ? null : props.get(ContentStore.CONTENT_SIZE);
+        if (null != size) {
+            try {
+                return Long.parseLong(size);
+            } catch (NumberFormatException e) {
+                logger.debug("Invalid size {} for {}", size, contentItem);
+            }
+        }
+        return -1;
+    }
+
     protected String getChecksum(File localFile) throws IOException {
+        if (null != checksumCache) {
+            return checksumCache.getChecksum(localFile);
+        }
         ChecksumUtil checksumUtil =
             new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
         String localChecksum = checksumUtil.generateChecksum(localFile);
@@ -234,6 +303,13 @@ public class RetrievalWorker implements Runnable {
      * otherwise an IOException is thrown.
      */
     protected Map<String, String> retrieveToFile(File localFile, RetrievalListener listener) throws IOException {
+        if (null != rangeExecutor && source.supportsRanges(contentItem)) {
+            Map<String, String> props = source.getSourceProperties(contentItem);
+            long size = getSize(props);
+            if (size >= MIN_RANGES * rangeSize) {
+                return retrieveRangesToFile(localFile, props, size);
+            }
+        }
 
         try {
             contentStream = new Retrier(5, 4000, 3).execute(() -> {
@@ -245,11 +321,15 @@ public class RetrievalWorker implements Runnable {
             throw new IOException(ex);
         }
 
+        String localChecksum;
         try (
-            InputStream inStream = contentStream.getStream();
+            DigestInputStream inStream =
+                ChecksumUtil.wrapStream(contentStream.getStream(),
+                                        ChecksumUtil.Algorithm.MD5);
             OutputStream outStream = new FileOutputStream(localFile);
         ) {
             IOUtils.copyLarge(inStream, outStream);
+            localChecksum = ChecksumUtil.getChecksum(inStream);
         } catch (IOException e) {
             try {
                 deleteFile(localFile);
@@ -260,7 +340,7 @@ public class RetrievalWorker implements Runnable {
             throw e;
         }
 
-        if (!checksumsMatch(localFile, contentStream.getChecksum())) {
+        if (!checksumMatches(localChecksum, contentStream.getChecksum())) {
             deleteFile(localFile);
             throw new IOException("Calculated checksum value for retrieved " +
                                   "file does not match properties checksum.");
@@ -270,9 +350,55 @@ public class RetrievalWorker implements Runnable {
         if (applyTimestamps) {
             applyTimestamps(contentStream, localFile);
         }
+        cacheChecksum(localFile, localChecksum);
         return contentStream.getProperties();
     }
 
+    /*
+     * Transfers the remote file to the local file as a set of concurrently
+     * retrieved byte ranges. A previous attempt which did not complete is
+     * resumed.
+     */
+    protected Map<String, String> retrieveRangesToFile(File localFile,
+                                                       Map<String, String> props,
+                                                       long size)
+        throws IOException {
+        String remoteChecksum = props.get(ContentStore.CONTENT_CHECKSUM);
+        RangedRetrieval retrieval = new RangedRetrieval(contentItem,
+                                                        source,
+                                                        rangeExecutor,
+                                                        rangeSize,
+                                                        localFile,
+                                                        size,
+                                                        remoteChecksum);
+        String localChecksum = retrieval.retrieve();
+        if (!checksumMatches(localChecksum, remoteChecksum)) {
+            retrieval.discard();
+            throw new IOException("Calculated checksum value for retrieved " +
+                                  "file does not match properties checksum.");
+        }
+        retrieval.complete(localFile);
+
+        ContentStream content = new ContentStream(null, props);
+        if (applyTimestamps) {
+            applyTimestamps(content, localFile);
+        }
+        cacheChecksum(localFile, localChecksum);
+        return props;
+    }
+
+    /*
+     * Records the checksum of a retrieved file, so that it need not be
+     * computed when the file is next checked. Unless timestamps are applied
+     * the file has only just been modified, which the cache would not accept,
+     * so it is not offered.
+     */
+    private void cacheChecksum(File localFile, String localChecksum) {
+        if (null != checksumCache && applyTimestamps) {
+            checksumCache.put(localFile, localChecksum);
+        }
+    }
+
     /*
      * Applies timestamps which are found in the content item's properties
      * to the retrieved file
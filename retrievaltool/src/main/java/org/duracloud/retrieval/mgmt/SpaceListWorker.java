@@ -73,7 +73,7 @@ public class SpaceListWorker implements Runnable {
 
             System.out.println("Writing space '" + spaceId + "' listing to: " +
                                outputFile.getAbsolutePath());
-            Iterator<String> contentIterator = contentStore.getSpaceContents(spaceId);
+            Iterator<String> contentIterator = contentStore.getSpaceContents(spaceId, null, true);
             try (Writer writer = new BufferedWriter(new OutputStreamWriter(
                 new FileOutputStream(outputFile), "UTF-8"))) {
                 while (contentIterator.hasNext()) {
@@ -92,7 +92,7 @@ public class DuraStoreRetrievalSource implements RetrievalSource {
             currentSpaceId = spaceIds.next();
             try {
                 currentContentList =
-                    contentStore.getSpaceContents(currentSpaceId);
+                    contentStore.getSpaceContents(currentSpaceId, null, true);
             } catch (ContentStoreException e) {
                 logger.error("Unable to get contents of space: " +
                              currentSpaceId + " due to error: " + e.getMessage());
@@ -126,6 +126,28 @@ public class DuraStoreRetrievalSource implements RetrievalSource {
         return new ContentStream(content.getStream(), content.getProperties());
     }
 
+    @Override
+    public boolean supportsRanges(ContentItem contentItem) {
+        return true;
+    }
+
+    @Override
+    public ContentStream getSourceContentRange(ContentItem contentItem,
+                                               long startByte,
+                                               long endByte) {
+        try {
+            Content content = contentStore.getContent(contentItem.getSpaceId(),
+                                                      contentItem.getContentId(),
+                                                      startByte,
+                                                      endByte);
+            return new ContentStream(content.getStream(), content.getProperties());
+        } catch (ContentStoreException e) {
+            throw new RuntimeException("Unable to get bytes " + startByte + "-" +
+                                       endByte + " of " + contentItem.toString() +
+                                       " due to: " + e.getMessage());
+        }
+    }
+
     protected Content doGetContent(ContentItem contentItem, RetrievalListener listener) {
         try {
             return contentStore.getContent(contentItem.getSpaceId(),
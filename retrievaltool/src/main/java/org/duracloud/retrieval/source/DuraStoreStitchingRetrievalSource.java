@@ -84,6 +84,12 @@ public class DuraStoreStitchingRetrievalSource extends DuraStoreRetrievalSource
         }
     }
 
+    @Override
+    public boolean supportsRanges(ContentItem contentItem) {
+        // Stitched content is assembled from its chunks as it is read
+        return !chunkUtil.isChunkManifest(contentItem.getContentId());
+    }
+
     @Override
     protected Content doGetContent(ContentItem item, RetrievalListener listener) {
         log.debug("enter doGetContent: {}", item);
@@ -64,4 +64,30 @@ public interface RetrievalSource {
      */
     public ContentStream getSourceContent(ContentItem contentItem, RetrievalListener listener);
 
+    /**
+     * Indicates whether byte ranges of the specified content item can be
+     * retrieved using getSourceContentRange().
+     *
+     * @param contentItem the file to consider
+     * @return true if byte ranges of the file can be retrieved
+     */
+    default public boolean supportsRanges(ContentItem contentItem) {
+        return false;
+    }
+
+    /**
+     * Gets a byte range of the actual content.
+     *
+     * @param contentItem the file to retrieve
+     * @param startByte   the first byte of the range
+     * @param endByte     the last byte of the range (inclusive)
+     * @return content stream of the specified range of the file
+     */
+    default public ContentStream getSourceContentRange(ContentItem contentItem,
+                                                       long startByte,
+                                                       long endByte) {
+        throw new UnsupportedOperationException(
+            "Byte ranges are not supported for " + contentItem);
+    }
+
 }
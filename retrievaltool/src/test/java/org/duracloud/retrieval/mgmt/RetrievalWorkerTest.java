@@ -19,12 +19,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.io.FileUtils;
 import org.duracloud.client.ContentStore;
 import org.duracloud.common.model.ContentItem;
+import org.duracloud.common.util.ChecksumCache;
 import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.common.util.DateUtil;
 import org.duracloud.retrieval.RetrievalTestBase;
@@ -220,6 +226,88 @@ public class RetrievalWorkerTest extends RetrievalTestBase {
         }
     }
 
+    @Test
+    public void testChecksumCache() throws Exception {
+        ChecksumCache checksumCache =
+            new ChecksumCache(new File(tempDir, "checksum-cache"));
+        RetrievalWorker worker = createRetrievalWorker(true);
+        worker.setChecksumCache(checksumCache);
+        File localFile = new File(tempDir, "checksum-cache-test");
+
+        // The checksum of the retrieved file is cached
+        worker.retrieveToFile(localFile, null);
+        assertEquals(1, checksumCache.size());
+
+        assertTrue(worker.checksumsMatch(localFile));
+        assertEquals(1, checksumCache.getHitCount());
+        checksumCache.close();
+    }
+
+    @Test
+    public void testRetrieveRangesToFile() throws Exception {
+        RangedMockRetrievalSource source = new RangedMockRetrievalSource(-1);
+        RetrievalWorker worker = createRangedRetrievalWorker(source);
+        File localFile = new File(tempDir, "retrieve-ranges-test");
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            worker.setRangedRetrieval(executor, 4);
+            worker.retrieveToFile(localFile, null);
+        } finally {
+            executor.shutdown();
+        }
+
+        checkFile(localFile, contentValue);
+        assertEquals(4, source.getRequestedRanges().size());
+        assertFalse(new File(localFile.getPath() +
+                             RangedRetrieval.PART_SUFFIX).exists());
+        assertFalse(new File(localFile.getPath() +
+                             RangedRetrieval.STATE_SUFFIX).exists());
+
+        // Files smaller than two ranges are retrieved in a single transfer
+        source = new RangedMockRetrievalSource(-1);
+        worker = createRangedRetrievalWorker(source);
+        localFile = new File(tempDir, "retrieve-small-test");
+        executor = Executors.newFixedThreadPool(3);
+        try {
+            worker.setRangedRetrieval(executor, 8);
+            worker.retrieveToFile(localFile, null);
+        } finally {
+            executor.shutdown();
+        }
+        checkFile(localFile, contentValue);
+        assertTrue(source.getRequestedRanges().isEmpty());
+    }
+
+    @Test
+    public void testResumeRetrieveRangesToFile() throws Exception {
+        // The final range is truncated on the first attempt
+        RangedMockRetrievalSource source = new RangedMockRetrievalSource(12);
+        RetrievalWorker worker = createRangedRetrievalWorker(source);
+        File localFile = new File(tempDir, "resume-ranges-test");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            worker.setRangedRetrieval(executor, 4);
+            try {
+                worker.retrieveToFile(localFile, null);
+                fail("Exception expected with truncated range");
+            } catch (IOException expected) {
+                assertNotNull(expected);
+            }
+            assertFalse(localFile.exists());
+            assertEquals(Arrays.asList(0L, 4L, 8L, 12L),
+                         source.getRequestedRanges());
+
+            // Only the failed range is retrieved again
+            source.getRequestedRanges().clear();
+            worker.retrieveToFile(localFile, null);
+        } finally {
+            executor.shutdown();
+        }
+
+        checkFile(localFile, contentValue);
+        assertEquals(Arrays.asList(12L), source.getRequestedRanges());
+    }
+
     @Test
     public void testApplyTimestamps() throws Exception {
         String time1 = DateUtil.convertToStringLong(testTime + 100000);
@@ -308,6 +396,16 @@ public class RetrievalWorkerTest extends RetrievalTestBase {
                                    true);
     }
 
+    private RetrievalWorker createRangedRetrievalWorker(RetrievalSource source) {
+        return new RetrievalWorker(new ContentItem(spaceId, contentId),
+                                   source,
+                                   tempDir,
+                                   true,
+                                   createMockOutputWriter(),
+                                   true,
+                                   false);
+    }
+
     private class MockRetrievalSource implements RetrievalSource {
         @Override
         public ContentItem getNextContentItem() {
@@ -361,6 +459,53 @@ public class RetrievalWorkerTest extends RetrievalTestBase {
         }
     }
 
+    /*
+     * Create a retrieval source that serves byte ranges, and truncates the
+     * range starting at the given byte the first time it is requested
+     */
+    private class RangedMockRetrievalSource extends MockRetrievalSource {
+        private long truncatedRange;
+        private List<Long> requestedRanges = new ArrayList<>();
+
+        RangedMockRetrievalSource(long truncatedRange) {
+            this.truncatedRange = truncatedRange;
+        }
+
+        @Override
+        public Map<String, String> getSourceProperties(ContentItem contentItem) {
+            Map<String, String> props = super.getSourceProperties(contentItem);
+            props.put(ContentStore.CONTENT_SIZE,
+                      String.valueOf(contentValue.length()));
+            return props;
+        }
+
+        @Override
+        public boolean supportsRanges(ContentItem contentItem) {
+            return true;
+        }
+
+        @Override
+        public synchronized ContentStream getSourceContentRange(ContentItem contentItem,
+                                                                long startByte,
+                                                                long endByte) {
+            requestedRanges.add(startByte);
+            if (startByte == truncatedRange) {
+                truncatedRange = -1;
+                endByte--;
+            }
+            byte[] value = contentValue.getBytes();
+            InputStream stream =
+                new ByteArrayInputStream(value,
+                                         (int) startByte,
+                                         (int) (endByte - startByte + 1));
+            return new ContentStream(stream, getSourceProperties(contentItem));
+        }
+
+        public synchronized List<Long> getRequestedRanges() {
+            return requestedRanges;
+        }
+    }
+
     /*
      * Create a retrieval source that will throw an exception on the first
      * call to getSourceContent(), then succeed in subsequent attempts.
@@ -31,9 +31,9 @@ public class SpaceListManagerTest extends RetrievalTestBase {
 
         ContentStore contentStore = EasyMock.createMock(ContentStore.class);
         EasyMock.expect(contentStore.getStorageProviderType()).andReturn("mock-provider").times(3);
-        EasyMock.expect(contentStore.getSpaceContents("space1")).andReturn(emptyList.iterator());
-        EasyMock.expect(contentStore.getSpaceContents("space2")).andReturn(emptyList.iterator());
-        EasyMock.expect(contentStore.getSpaceContents("space3")).andReturn(emptyList.iterator());
+        EasyMock.expect(contentStore.getSpaceContents("space1", null, true)).andReturn(emptyList.iterator());
+        EasyMock.expect(contentStore.getSpaceContents("space2", null, true)).andReturn(emptyList.iterator());
+        EasyMock.expect(contentStore.getSpaceContents("space3", null, true)).andReturn(emptyList.iterator());
         EasyMock.replay(contentStore);
 
         List<String> spaces = new ArrayList<String>();
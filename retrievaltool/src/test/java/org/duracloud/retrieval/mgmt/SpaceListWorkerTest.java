@@ -72,11 +72,11 @@ public class SpaceListWorkerTest extends RetrievalTestBase {
         contentStore = EasyMock.createMock(ContentStore.class);
         EasyMock.expect(contentStore.getStorageProviderType())
                 .andReturn("mock-provider").times(3);
-        EasyMock.expect(contentStore.getSpaceContents("space1"))
+        EasyMock.expect(contentStore.getSpaceContents("space1", null, true))
                 .andReturn(contents1.iterator());
-        EasyMock.expect(contentStore.getSpaceContents("space1"))
+        EasyMock.expect(contentStore.getSpaceContents("space1", null, true))
                 .andReturn(contents1.iterator());
-        EasyMock.expect(contentStore.getSpaceContents("space2"))
+        EasyMock.expect(contentStore.getSpaceContents("space2", null, true))
                 .andReturn(contents2.iterator());
         EasyMock.replay(contentStore);
     }
@@ -144,7 +144,9 @@ public class DuraStoreRetrievalSourceTest {
             .anyTimes();
 
         EasyMock
-            .expect(contentStore.getSpaceContents(EasyMock.isA(String.class)))
+            .expect(contentStore.getSpaceContents(EasyMock.isA(String.class),
+                                                   EasyMock.isNull(),
+                                                   EasyMock.eq(true)))
             .andAnswer(new GetSpaceContentsAnswer(contentItemCount))
             .anyTimes();
 
@@ -55,7 +55,7 @@ public class DuraStoreSpecifiedRetrievalSourceTest {
         // Verify ContentStore#getSpaceContents does not get called since
         // DuraStoreSpecifiedRetrievalSource overrides method getNextSpace() and only
         // uses the specified content IDs and not all the content IDs of the space.
-        EasyMock.expect(store.getSpaceContents(spaceId0))
+        EasyMock.expect(store.getSpaceContents(spaceId0, null, true))
                 .andThrow(new AssertionFailedError("method getSpaceContents should never " +
                                                    "be called for DuraStoreSpecifiedRetrievalSource.")).anyTimes();
         replayMocks();
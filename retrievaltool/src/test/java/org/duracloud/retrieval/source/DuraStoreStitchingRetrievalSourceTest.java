@@ -147,11 +147,11 @@ public class DuraStoreStitchingRetrievalSourceTest {
                                                List<ContentType> types1)
         throws ContentStoreException {
         contents0.addAll(createContents(types0));
-        EasyMock.expect(store.getSpaceContents(spaceId0))
+        EasyMock.expect(store.getSpaceContents(spaceId0, null, true))
                 .andReturn(contents0.iterator());
 
         contents1.addAll(createContents(types1));
-        EasyMock.expect(store.getSpaceContents(spaceId1))
+        EasyMock.expect(store.getSpaceContents(spaceId1, null, true))
                 .andReturn(contents1.iterator());
     }
 
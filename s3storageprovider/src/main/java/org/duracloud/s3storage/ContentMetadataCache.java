@@ -0,0 +1,114 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.s3storage;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.amazonaws.services.s3.model.ObjectMetadata;
+
+/**
+ * A short-lived cache of the metadata of recently read or written content
+ * items.
+ *
+ * The cache spares the extra request which would otherwise be needed to
+ * look up the mimetype of an item when its properties are updated without
+ * one. As the cache is held by each DuraStore instance, and so does not see
+ * changes made through other instances, it is only used to read properties.
+ * It is never used to decide whether an item exists, and it is not used to
+ * answer requests for content properties, which are always read from
+ * storage.
+ */
+class ContentMetadataCache {
+
+    private final long timeToLive;
+    private final int maxSize;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param timeToLive time (in ms) for which an entry is used
+     * @param maxSize    maximum number of entries held
+     */
+    ContentMetadataCache(long timeToLive, int maxSize) {
+        this.timeToLive = timeToLive;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Records the metadata of a content item which is known to exist.
+     */
+    void put(String bucketName, String contentId, ObjectMetadata metadata) {
+        entries.put(key(bucketName, contentId), new Entry(metadata));
+        evictIfFull();
+    }
+
+    /**
+     * @return the metadata of the item, or null if it is not known
+     */
+    ObjectMetadata get(String bucketName, String contentId) {
+        Entry entry = getEntry(bucketName, contentId);
+        return null == entry ? null : entry.metadata;
+    }
+
+    void invalidate(String bucketName, String contentId) {
+        entries.remove(key(bucketName, contentId));
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private Entry getEntry(String bucketName, String contentId) {
+        String key = key(bucketName, contentId);
+        Entry entry = entries.get(key);
+        if (null != entry && entry.isExpired(System.currentTimeMillis())) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    private String key(String bucketName, String contentId) {
+        return bucketName + "/" + contentId;
+    }
+
+    private void evictIfFull() {
+        if (entries.size() <= maxSize) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.isExpired(now));
+
+        int excess = entries.size() - maxSize;
+        if (excess > 0) {
+            entries.entrySet()
+                   .stream()
+                   .sorted(Comparator.comparingLong(e -> e.getValue().created))
+                   .limit(excess)
+                   .forEach(e -> entries.remove(e.getKey(), e.getValue()));
+        }
+    }
+
+    private class Entry {
+        private final ObjectMetadata metadata;
+        private final long created;
+
+        Entry(ObjectMetadata metadata) {
+            this.metadata = metadata;
+            this.created = System.currentTimeMillis();
+        }
+
+        boolean isExpired(long now) {
+            return now - created >= timeToLive;
+        }
+    }
+
+}
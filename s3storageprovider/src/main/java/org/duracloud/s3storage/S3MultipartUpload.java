@@ -0,0 +1,307 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.s3storage;
+
+import static org.duracloud.storage.error.StorageException.NO_RETRY;
+import static org.duracloud.storage.error.StorageException.RETRY;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CannedAccessControlList;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.StorageClass;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import org.duracloud.common.retry.Retrier;
+import org.duracloud.common.util.ChecksumUtil;
+import org.duracloud.storage.error.ChecksumMismatchException;
+import org.duracloud.storage.error.StorageException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adds a single content item to S3 as a multipart upload.
+ *
+ * The content stream is read into a bounded set of reusable part buffers,
+ * and each part is uploaded as soon as its buffer is full, so several parts
+ * are transferred concurrently while the next part is being read. A part
+ * which fails is retried on its own, without sending the rest of the content
+ * again. The MD5 of the whole item is computed as the stream is read, and
+ * the upload is aborted rather than completed if it does not match the
+ * expected checksum.
+ */
+class S3MultipartUpload {
+
+    private final Logger log = LoggerFactory.getLogger(S3MultipartUpload.class);
+
+    private final AmazonS3 s3Client;
+    private final ExecutorService executor;
+    private final int partSize;
+    private final String bucketName;
+    private final String contentId;
+
+    private final Semaphore availableBuffers;
+    private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param s3Client      client used to transfer the parts
+     * @param executor      runs the part uploads
+     * @param partSize      size of each part, other than the last
+     * @param partsInFlight maximum number of parts held in memory at once
+     * @param bucketName    bucket to which the content is added
+     * @param contentId     key of the content
+     */
+    S3MultipartUpload(AmazonS3 s3Client,
+                      ExecutorService executor,
+                      int partSize,
+                      int partsInFlight,
+                      String bucketName,
+                      String contentId) {
+        this.s3Client = s3Client;
+        this.executor = executor;
+        this.partSize = partSize;
+        this.availableBuffers = new Semaphore(partsInFlight);
+        this.bucketName = bucketName;
+        this.contentId = contentId;
+    }
+
+    /**
+     * Uploads the content.
+     *
+     * @param content      the content stream, which is read to its end
+     * @param metadata     metadata of the content item
+     * @param storageClass storage class of the content item
+     * @param contentSize  expected size of the content
+     * @param checksum     expected MD5 of the content
+     * @return the MD5 of the content
+     * @throws ChecksumMismatchException if the MD5 of the content does not
+     *                                   match the expected checksum
+     * @throws StorageException          if the content could not be added
+     */
+    String upload(InputStream content,
+                  ObjectMetadata metadata,
+                  StorageClass storageClass,
+                  long contentSize,
+                  String checksum) {
+        InitiateMultipartUploadRequest initRequest =
+            new InitiateMultipartUploadRequest(bucketName, contentId, metadata)
+                .withStorageClass(storageClass)
+                .withCannedACL(CannedAccessControlList.Private);
+        String uploadId;
+        try {
+            uploadId = new Retrier().execute(() -> {
+                return s3Client.initiateMultipartUpload(initRequest).getUploadId();
+            });
+        } catch (Exception e) {
+            throw new StorageException("Could not start multipart upload of " +
+                                       contentId + " to S3 bucket " +
+                                       bucketName + " due to error: " +
+                                       e.getMessage(), e, RETRY);
+        }
+
+        List<Future<PartETag>> parts = new ArrayList<>();
+        boolean completed = false;
+        try {
+            MessageDigest digest = getMD5Digest();
+            long totalBytes = readParts(content, uploadId, digest, parts);
+            List<PartETag> partETags = waitForParts(parts);
+
+            if (totalBytes != contentSize) {
+                throw new StorageException("The content body was incomplete for " +
+                                           contentId + " to S3 bucket " +
+                                           bucketName + ", " + totalBytes +
+                                           " of " + contentSize + " bytes were " +
+                                           "received. Content was not added.",
+                                           NO_RETRY);
+            }
+
+            String md5 = ChecksumUtil.checksumBytesToString(digest.digest());
+            if (!md5.equals(checksum)) {
+                throw new ChecksumMismatchException(
+                    "Checksum mismatch detected attempting to add content " +
+                    contentId + " to S3 bucket " + bucketName + ", the " +
+                    "checksum provided (" + checksum + ") does not match the " +
+                    "checksum computed enroute (" + md5 + "). Content was " +
+                    "not added.", NO_RETRY);
+            }
+
+            CompleteMultipartUploadRequest completeRequest =
+                new CompleteMultipartUploadRequest(bucketName, contentId,
+                                                   uploadId, partETags);
+            new Retrier().execute(() -> {
+                return s3Client.completeMultipartUpload(completeRequest);
+            });
+            completed = true;
+            return md5;
+        } catch (StorageException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new StorageException("Could not add content " + contentId +
+                                       " to S3 bucket " + bucketName +
+                                       " due to error: " + e.getMessage(),
+                                       e, NO_RETRY);
+        } finally {
+            if (!completed) {
+                for (Future<PartETag> part : parts) {
+                    part.cancel(true);
+                }
+                abort(uploadId);
+            }
+        }
+    }
+
+    /*
+     * Reads the content into part buffers, handing each full buffer off to
+     * be uploaded. Stops reading early if a part has already failed.
+     */
+    private long readParts(InputStream content,
+                           String uploadId,
+                           MessageDigest digest,
+                           List<Future<PartETag>> parts)
+        throws IOException, InterruptedException {
+        long totalBytes = 0;
+        int partNumber = 1;
+        while (true) {
+            byte[] buffer = borrow();
+            int length;
+            try {
+                length = fill(content, buffer);
+            } catch (IOException e) {
+                release(buffer);
+                throw e;
+            }
+
+            // The last part may be empty only if it is also the first
+            if (length == 0 && partNumber > 1) {
+                release(buffer);
+                return totalBytes;
+            }
+
+            digest.update(buffer, 0, length);
+            totalBytes += length;
+            parts.add(submitPart(uploadId, partNumber++, buffer, length));
+
+            if (length < buffer.length || hasFailedPart(parts)) {
+                return totalBytes;
+            }
+        }
+    }
+
+    private Future<PartETag> submitPart(String uploadId,
+                                        int partNumber,
+                                        byte[] buffer,
+                                        int length) {
+        return executor.submit(() -> {
+            try {
+                return new Retrier(3, 1000, 2).execute(() -> {
+                    UploadPartRequest request = new UploadPartRequest()
+                        .withBucketName(bucketName)
+                        .withKey(contentId)
+                        .withUploadId(uploadId)
+                        .withPartNumber(partNumber)
+                        .withPartSize(length)
+                        .withInputStream(new ByteArrayInputStream(buffer, 0, length));
+                    return s3Client.uploadPart(request).getPartETag();
+                });
+            } finally {
+                release(buffer);
+            }
+        });
+    }
+
+    private boolean hasFailedPart(List<Future<PartETag>> parts) {
+        for (Future<PartETag> part : parts) {
+            if (part.isDone()) {
+                try {
+                    part.get();
+                } catch (Exception e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private List<PartETag> waitForParts(List<Future<PartETag>> parts)
+        throws Exception {
+        List<PartETag> partETags = new ArrayList<>(parts.size());
+        for (Future<PartETag> part : parts) {
+            try {
+                partETags.add(part.get());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw (cause instanceof Exception) ? (Exception) cause : e;
+            }
+        }
+        return partETags;
+    }
+
+    private void abort(String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(
+                new AbortMultipartUploadRequest(bucketName, contentId, uploadId));
+        } catch (Exception e) {
+            log.warn("Unable to abort multipart upload {} of {} to bucket {}: {}",
+                     uploadId, contentId, bucketName, e.getMessage());
+        }
+    }
+
+    /*
+     * Reads from the stream until the buffer is full or the stream ends
+     */
+    private int fill(InputStream content, byte[] buffer) throws IOException {
+        int length = 0;
+        while (length < buffer.length) {
+            int read = content.read(buffer, length, buffer.length - length);
+            if (read == -1) {
+                break;
+            }
+            length += read;
+        }
+        return length;
+    }
+
+    private byte[] borrow() throws InterruptedException {
+        availableBuffers.acquire();
+        byte[] buffer = buffers.poll();
+        if (null == buffer) {
+            buffer = new byte[partSize];
+        }
+        return buffer;
+    }
+
+    private void release(byte[] buffer) {
+        buffers.offer(buffer);
+        availableBuffers.release();
+    }
+
+    private MessageDigest getMD5Digest() {
+        try {
+            return MessageDigest.getInstance(ChecksumUtil.Algorithm.MD5.toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new StorageException(e);
+        }
+    }
+
+}
@@ -24,11 +24,14 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.Headers;
-import com.amazonaws.services.s3.model.AccessControlList;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.Bucket;
 import com.amazonaws.services.s3.model.BucketLifecycleConfiguration;
@@ -36,8 +39,10 @@ import com.amazonaws.services.s3.model.BucketTaggingConfiguration;
 import com.amazonaws.services.s3.model.CannedAccessControlList;
 import com.amazonaws.services.s3.model.CopyObjectRequest;
 import com.amazonaws.services.s3.model.CopyObjectResult;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
@@ -55,6 +60,7 @@ import org.duracloud.common.util.DateUtil;
 import org.duracloud.storage.domain.ContentByteRange;
 import org.duracloud.storage.domain.ContentIterator;
 import org.duracloud.storage.domain.RetrievedContent;
+import org.duracloud.storage.domain.StorageAccount;
 import org.duracloud.storage.domain.StorageProviderType;
 import org.duracloud.storage.error.ChecksumMismatchException;
 import org.duracloud.storage.error.NotFoundException;
@@ -69,6 +75,15 @@ import org.slf4j.LoggerFactory;
 /**
  * Provides content storage backed by Amazon's Simple Storage Service.
  *
+ * The number of items in a space is counted once and then kept current as
+ * items are added, copied and deleted. Once a space has been counted, each
+ * add or copy into it checks whether the item already exists, which is an
+ * extra request to S3. Changes made through other DuraStore instances, or
+ * directly in S3, are not seen until the count is refreshed, which happens
+ * every 30 minutes unless the ITEM_COUNT_REFRESH_MINUTES option sets
+ * another interval. Until then, where more than one instance writes to a
+ * space, its count may be wrong.
+ *
  * @author Bill Branan
  */
 public class S3StorageProvider extends StorageProviderBase {
@@ -85,9 +100,54 @@ public class S3StorageProvider extends StorageProviderBase {
     protected static final String HEADER_VALUE_PREFIX = UTF_8 + "''";
     protected static final String HEADER_KEY_SUFFIX = "*";
 
+    protected static final long DEFAULT_MULTIPART_THRESHOLD = 64L * 1024 * 1024;
+    protected static final int DEFAULT_PART_SIZE = 16 * 1024 * 1024;
+    protected static final int DEFAULT_PARTS_IN_FLIGHT = 4;
+
+    protected static final long DEFAULT_COUNT_RECONCILE_INTERVAL =
+        TimeUnit.MINUTES.toMillis(30);
+
+    protected static final long DEFAULT_METADATA_CACHE_TTL =
+        TimeUnit.SECONDS.toMillis(10);
+    protected static final int DEFAULT_METADATA_CACHE_SIZE = 1000;
+
+    /*
+     * User metadata item holding the MD5 of content added as a multipart
+     * upload, as the ETag of such content is not its MD5
+     */
+    protected static final String MULTIPART_CHECKSUM_KEY = "multipart-content-md5";
+
+    private static final AtomicInteger partThreadCount = new AtomicInteger();
+    private static final ExecutorService partUploadExecutor =
+        Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "s3-part-upload-" +
+                                                 partThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    private static final AtomicInteger countThreadCount = new AtomicInteger();
+    private static final ExecutorService spaceCountExecutor =
+        Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "s3-space-count-" +
+                                                 countThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
     protected String accessKeyId = null;
     protected AmazonS3 s3Client = null;
 
+    private long multipartThreshold = DEFAULT_MULTIPART_THRESHOLD;
+    private int partSize = DEFAULT_PART_SIZE;
+    private int partsInFlight = DEFAULT_PARTS_IN_FLIGHT;
+
+    private final SpaceItemCounter spaceItemCounter;
+
+    private final ContentMetadataCache metadataCache =
+        new ContentMetadataCache(DEFAULT_METADATA_CACHE_TTL,
+                                 DEFAULT_METADATA_CACHE_SIZE);
+
     public S3StorageProvider(String accessKey, String secretKey) {
         this(S3ProviderUtil.getAmazonS3Client(accessKey, secretKey, null),
              accessKey,
@@ -107,6 +167,45 @@ public class S3StorageProvider extends StorageProviderBase {
                              Map<String, String> options) {
         this.accessKeyId = accessKey;
         this.s3Client = s3Client;
+        this.spaceItemCounter =
+            new SpaceItemCounter(this::countSpaceItems,
+                                 getCountReconcileInterval(options),
+                                 spaceCountExecutor);
+    }
+
+    /*
+     * The interval after which space item counts are refreshed may be set,
+     * in minutes, by the ITEM_COUNT_REFRESH_MINUTES option
+     */
+    private long getCountReconcileInterval(Map<String, String> options) {
+        String minutes = null == options ? null :
+                         options.get(StorageAccount.OPTS.ITEM_COUNT_REFRESH_MINUTES.name());
+        if (null != minutes) {
+            try {
+                return TimeUnit.MINUTES.toMillis(Long.parseLong(minutes.trim()));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring invalid {} option: {}",
+                         StorageAccount.OPTS.ITEM_COUNT_REFRESH_MINUTES.name(), minutes);
+            }
+        }
+        return DEFAULT_COUNT_RECONCILE_INTERVAL;
+    }
+
+    /**
+     * Sets how content is split into parts when it is added as a multipart
+     * upload.
+     *
+     * @param multipartThreshold content of this size or larger is added as a
+     *                           multipart upload
+     * @param partSize           size of each part, which S3 requires to be
+     *                           at least 5 MB
+     * @param partsInFlight      maximum number of parts of a single upload
+     *                           held in memory and transferred at once
+     */
+    void setMultipartUpload(long multipartThreshold, int partSize, int partsInFlight) {
+        this.multipartThreshold = multipartThreshold;
+        this.partSize = partSize;
+        this.partsInFlight = partsInFlight;
     }
 
     /**
@@ -249,6 +348,7 @@ public class S3StorageProvider extends StorageProviderBase {
             String err = "Unable to create space due to: " + e.getMessage();
             throw new StorageException(err, e, RETRY);
         }
+        spaceItemCounter.setCount(spaceId, 0);
     }
 
     protected Bucket createBucket(String spaceId) {
@@ -368,6 +468,7 @@ public class S3StorageProvider extends StorageProviderBase {
                          + " due to error: " + e.getMessage();
             throw new StorageException(err, e, RETRY);
         }
+        spaceItemCounter.remove(spaceId);
     }
 
     /**
@@ -401,12 +502,53 @@ public class S3StorageProvider extends StorageProviderBase {
         spaceProperties = replaceInMapValues(spaceProperties, "+", "@");
 
         // Add space count
-        spaceProperties.put(PROPERTIES_SPACE_COUNT,
-                            getSpaceCount(spaceId, MAX_ITEM_COUNT));
+        spaceProperties.put(PROPERTIES_SPACE_COUNT, getItemCount(spaceId));
 
         return spaceProperties;
     }
 
+    /*
+     * Provides the number of items in a space. Once a space has been counted
+     * its count is kept up to date as content is added and deleted, so it can
+     * be provided without listing the space. Until then, the count is limited
+     * to MAX_ITEM_COUNT, as described by getSpaceCount(), and larger spaces
+     * are counted in the background.
+     */
+    protected String getItemCount(String spaceId) {
+        Long itemCount = spaceItemCounter.getCount(spaceId);
+        if (null != itemCount) {
+            return String.valueOf(itemCount);
+        }
+
+        String count = getSpaceCount(spaceId, MAX_ITEM_COUNT);
+        if (count.endsWith("+")) {
+            spaceItemCounter.recount(spaceId);
+        } else {
+            spaceItemCounter.setCount(spaceId, Long.parseLong(count));
+        }
+        return count;
+    }
+
+    /*
+     * Counts all of the items in a space
+     */
+    protected long countSpaceItems(String spaceId) {
+        // Will throw if bucket does not exist
+        String bucketName = getBucketName(spaceId);
+
+        long count = 0;
+        String marker = null;
+        List<S3ObjectSummary> objects;
+        do {
+            objects = listObjects(bucketName, null, MAX_ITEM_COUNT, marker);
+            if (!objects.isEmpty()) {
+                count += objects.size();
+                marker = objects.get(objects.size() - 1).getKey();
+            }
+        } while (!objects.isEmpty());
+        return count;
+    }
+
     /*
      * Counts the number of items in a space up to the maxCount. If maxCount
      * is reached or exceeded, the returned string will indicate this with a
@@ -587,9 +729,8 @@ public class S3StorageProvider extends StorageProviderBase {
         // Will throw if bucket does not exist
         String bucketName = getBucketName(spaceId);
 
-        // Wrap the content in order to be able to retrieve a checksum
-        ChecksumInputStream wrappedContent =
-            new ChecksumInputStream(content, contentChecksum);
+        boolean newItem = isNewItem(spaceId, bucketName, contentId);
+        metadataCache.invalidate(bucketName, contentId);
 
         String contentEncoding = removeContentEncoding(userProperties);
 
@@ -601,14 +742,6 @@ public class S3StorageProvider extends StorageProviderBase {
 
         ObjectMetadata objMetadata = new ObjectMetadata();
         objMetadata.setContentType(contentMimeType);
-        if (contentSize > 0) {
-            objMetadata.setContentLength(contentSize);
-        }
-        if (null != contentChecksum && !contentChecksum.isEmpty()) {
-            String encodedChecksum =
-                ChecksumUtil.convertToBase64Encoding(contentChecksum);
-            objMetadata.setContentMD5(encodedChecksum);
-        }
 
         if (contentEncoding != null) {
             objMetadata.setContentEncoding(contentEncoding);
@@ -626,6 +759,36 @@ public class S3StorageProvider extends StorageProviderBase {
             }
         }
 
+        // Large content is sent in parts. The checksum has to be known up
+        // front, as it is stored along with the content rather than being
+        // available from S3 once the upload is complete.
+        boolean hasChecksum = null != contentChecksum && !contentChecksum.isEmpty();
+        if (hasChecksum && contentSize >= multipartThreshold) {
+            objMetadata.addUserMetadata(MULTIPART_CHECKSUM_KEY, contentChecksum);
+            S3MultipartUpload upload =
+                new S3MultipartUpload(s3Client, partUploadExecutor, partSize,
+                                      partsInFlight, bucketName, contentId);
+            String checksum = upload.upload(content, objMetadata, DEFAULT_STORAGE_CLASS,
+                                            contentSize, contentChecksum);
+            if (newItem) {
+                spaceItemCounter.itemAdded(spaceId);
+            }
+            return checksum;
+        }
+
+        if (contentSize > 0) {
+            objMetadata.setContentLength(contentSize);
+        }
+        if (hasChecksum) {
+            String encodedChecksum =
+                ChecksumUtil.convertToBase64Encoding(contentChecksum);
+            objMetadata.setContentMD5(encodedChecksum);
+        }
+
+        // Wrap the content in order to be able to retrieve a checksum
+        ChecksumInputStream wrappedContent =
+            new ChecksumInputStream(content, contentChecksum);
+
         PutObjectRequest putRequest = new PutObjectRequest(bucketName,
                                                            contentId,
                                                            wrappedContent,
@@ -693,6 +856,12 @@ public class S3StorageProvider extends StorageProviderBase {
             }
         }
 
+        if (newItem) {
+            spaceItemCounter.itemAdded(spaceId);
+        }
+        objMetadata.setHeader(Headers.ETAG, etag);
+        metadataCache.put(bucketName, contentId, objMetadata);
+
         // Compare checksum
         String providerChecksum = getETagValue(etag);
         String checksum = wrappedContent.getMD5();
@@ -703,6 +872,23 @@ public class S3StorageProvider extends StorageProviderBase {
         return providerChecksum;
     }
 
+    /*
+     * Determines whether adding a content item will add to the item count of
+     * the space. This requires a check for the item only if the space is
+     * being counted.
+     */
+    private boolean isNewItem(String spaceId, String bucketName, String contentId) {
+        if (!spaceItemCounter.isCounted(spaceId)) {
+            return false;
+        }
+        try {
+            return !s3Client.doesObjectExist(bucketName, contentId);
+        } catch (AmazonClientException e) {
+            // Left to be corrected when the count is reconciled
+            return false;
+        }
+    }
+
     private String removeContentEncoding(Map<String, String> properties) {
         if (properties != null) {
             return properties.remove(CONTENT_ENCODING);
@@ -804,7 +990,12 @@ public class S3StorageProvider extends StorageProviderBase {
         request.setStorageClass(DEFAULT_STORAGE_CLASS);
         request.setCannedAccessControlList(CannedAccessControlList.Private);
 
+        boolean newItem = isNewItem(destSpaceId, destBucketName, destContentId);
+        metadataCache.invalidate(destBucketName, destContentId);
         CopyObjectResult result = doCopyObject(request);
+        if (newItem) {
+            spaceItemCounter.itemAdded(destSpaceId);
+        }
         return StorageProviderUtil.compareChecksum(this,
                                                    sourceSpaceId,
                                                    sourceContentId,
@@ -897,6 +1088,70 @@ public class S3StorageProvider extends StorageProviderBase {
                          bucketName + " due to error: " + e.getMessage();
             throw new StorageException(err, e, RETRY);
         }
+        metadataCache.invalidate(bucketName, contentId);
+        spaceItemCounter.itemDeleted(spaceId);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Items are removed with multi-object delete requests, each of which
+     * removes up to 1000 items. Items which do not exist are passed over.
+     */
+    @Override
+    public void deleteContents(String spaceId, List<String> contentIds) {
+        log.debug("deleteContents(" + spaceId + ", " + contentIds.size() +
+                  " items)");
+
+        // Will throw if bucket does not exist
+        String bucketName = getBucketName(spaceId);
+
+        int deleted = 0;
+        int failed = 0;
+        AmazonClientException error = null;
+        for (int i = 0; i < contentIds.size(); i += MAX_ITEM_COUNT) {
+            List<String> keys =
+                contentIds.subList(i, Math.min(i + MAX_ITEM_COUNT, contentIds.size()));
+            DeleteObjectsRequest request =
+                new DeleteObjectsRequest(bucketName)
+                    .withKeys(keys.toArray(new String[keys.size()]))
+                    .withQuiet(true);
+
+            List<String> deletedKeys = keys;
+            try {
+                s3Client.deleteObjects(request);
+            } catch (MultiObjectDeleteException e) {
+                // In quiet mode only the items which failed are reported
+                deletedKeys = new ArrayList<>(keys);
+                for (MultiObjectDeleteException.DeleteError deleteError : e.getErrors()) {
+                    deletedKeys.remove(deleteError.getKey());
+                }
+                failed += e.getErrors().size();
+                error = e;
+            } catch (AmazonClientException e) {
+                deletedKeys = Collections.emptyList();
+                failed += keys.size();
+                error = e;
+            }
+
+            for (String contentId : deletedKeys) {
+                metadataCache.invalidate(bucketName, contentId);
+            }
+            deleted += deletedKeys.size();
+        }
+
+        // S3 also reports items which did not exist as deleted, so the
+        // space is counted again rather than decremented for each item
+        if (deleted > 0 && spaceItemCounter.isCounted(spaceId)) {
+            spaceItemCounter.recount(spaceId);
+        }
+
+        if (null != error) {
+            String err = "Could not delete " + failed + " of " +
+                         contentIds.size() + " content items from S3 bucket " +
+                         bucketName + " due to error: " + error.getMessage();
+            throw new StorageException(err, error, RETRY);
+        }
     }
 
     /**
@@ -914,18 +1169,41 @@ public class S3StorageProvider extends StorageProviderBase {
 
         contentProperties = removeCalculatedProperties(contentProperties);
 
-        // Determine mimetype, from properties list or existing value
         String mimeType = contentProperties.remove(PROPERTIES_CONTENT_MIMETYPE);
-        if (mimeType == null || mimeType.equals("")) {
-            Map<String, String> existingMeta =
-                getContentProperties(spaceId, contentId);
-            String existingMime =
-                existingMeta.get(StorageProvider.PROPERTIES_CONTENT_MIMETYPE);
-            if (existingMime != null) {
-                mimeType = existingMime;
-            }
+
+        // The existing metadata provides the mimetype, if none is given, and
+        // the checksum of multipart content. Metadata which was cached is
+        // used only if the item has not changed since, which the copy checks.
+        ObjectMetadata existingMetadata = metadataCache.get(bucketName, contentId);
+        String expectedETag = null == existingMetadata ? null : existingMetadata.getETag();
+        if (null == expectedETag) {
+            existingMetadata = getObjectDetails(bucketName, contentId, RETRY);
+        }
+
+        ObjectMetadata objMetadata =
+            buildContentMetadata(contentProperties, mimeType, contentEncoding,
+                                 existingMetadata);
+        metadataCache.invalidate(bucketName, contentId);
+        CopyObjectResult result =
+            updateObjectProperties(bucketName, contentId, objMetadata, expectedETag);
+        if (null == result) {
+            // The item has changed since its metadata was cached
+            existingMetadata = getObjectDetails(bucketName, contentId, RETRY);
+            metadataCache.invalidate(bucketName, contentId);
+            objMetadata = buildContentMetadata(contentProperties, mimeType,
+                                               contentEncoding, existingMetadata);
+            result = updateObjectProperties(bucketName, contentId, objMetadata, null);
         }
+        if (null != result && null != result.getETag()) {
+            objMetadata.setHeader(Headers.ETAG, result.getETag());
+            metadataCache.put(bucketName, contentId, objMetadata);
+        }
+    }
 
+    private ObjectMetadata buildContentMetadata(Map<String, String> contentProperties,
+                                                String mimeType,
+                                                String contentEncoding,
+                                                ObjectMetadata existingMetadata) {
         // Collect all object properties
         ObjectMetadata objMetadata = new ObjectMetadata();
         for (String key : contentProperties.keySet()) {
@@ -935,7 +1213,17 @@ public class S3StorageProvider extends StorageProviderBase {
             objMetadata.addUserMetadata(getSpaceFree(key), contentProperties.get(key));
         }
 
-        // Set Content-Type
+        // Keep the checksum of multipart content, as its ETag is not its MD5
+        String multipartChecksum =
+            existingMetadata.getUserMetadata().get(MULTIPART_CHECKSUM_KEY);
+        if (null != multipartChecksum) {
+            objMetadata.addUserMetadata(MULTIPART_CHECKSUM_KEY, multipartChecksum);
+        }
+
+        // Set Content-Type, from properties list or existing value
+        if (mimeType == null || mimeType.equals("")) {
+            mimeType = existingMetadata.getContentType();
+        }
         if (mimeType != null && !mimeType.equals("")) {
             objMetadata.setContentType(mimeType);
         }
@@ -944,8 +1232,7 @@ public class S3StorageProvider extends StorageProviderBase {
         if (contentEncoding != null && !contentEncoding.equals("")) {
             objMetadata.setContentEncoding(contentEncoding);
         }
-
-        updateObjectProperties(bucketName, contentId, objMetadata);
+        return objMetadata;
     }
 
     @Override
@@ -962,6 +1249,7 @@ public class S3StorageProvider extends StorageProviderBase {
             contentProperties.remove(Headers.LAST_MODIFIED.toLowerCase());
             contentProperties.remove(Headers.DATE.toLowerCase());
             contentProperties.remove(Headers.ETAG.toLowerCase());
+            contentProperties.remove(MULTIPART_CHECKSUM_KEY);
         }
 
         return contentProperties;
@@ -971,6 +1259,7 @@ public class S3StorageProvider extends StorageProviderBase {
         try {
             s3Client.getObjectMetadata(bucketName, contentId);
         } catch (AmazonClientException e) {
+            metadataCache.invalidate(bucketName, contentId);
             String err = "Could not find content item with ID " + contentId +
                          " in S3 bucket " + bucketName + ". S3 error: " + e.getMessage();
             throw new NotFoundException(err);
@@ -981,8 +1270,20 @@ public class S3StorageProvider extends StorageProviderBase {
                                             String contentId,
                                             boolean retry) {
         try {
-            return s3Client.getObjectMetadata(bucketName, contentId);
+            ObjectMetadata metadata = s3Client.getObjectMetadata(bucketName, contentId);
+            if (null != metadata) {
+                metadataCache.put(bucketName, contentId, metadata);
+            }
+            return metadata;
         } catch (AmazonClientException e) {
+            // A missing item needs no second request to confirm it
+            if (e instanceof AmazonS3Exception &&
+                ((AmazonS3Exception) e).getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                metadataCache.invalidate(bucketName, contentId);
+                throw new NotFoundException("Could not find content item with ID " +
+                                            contentId + " in S3 bucket " + bucketName +
+                                            ". S3 error: " + e.getMessage());
+            }
             throwIfContentNotExist(bucketName, contentId);
             String err = "Could not get details for content " + contentId + " in S3 bucket " +
                          bucketName + " due to error: " + e.getMessage();
@@ -993,17 +1294,32 @@ public class S3StorageProvider extends StorageProviderBase {
     protected void updateObjectProperties(String bucketName,
                                           String contentId,
                                           ObjectMetadata objMetadata) {
+        updateObjectProperties(bucketName, contentId, objMetadata, null);
+    }
+
+    /*
+     * Replaces the metadata of an item by copying it onto itself. If an ETag
+     * is expected, the copy is made only if the item still has that ETag,
+     * and null is returned if it does not.
+     */
+    private CopyObjectResult updateObjectProperties(String bucketName,
+                                                    String contentId,
+                                                    ObjectMetadata objMetadata,
+                                                    String expectedETag) {
+        // Content is always stored privately, so the ACL is set as part of
+        // the copy rather than being read and restored around it
         try {
-            AccessControlList originalACL =
-                s3Client.getObjectAcl(bucketName, contentId);
             CopyObjectRequest copyRequest = new CopyObjectRequest(bucketName,
                                                                   contentId,
                                                                   bucketName,
                                                                   contentId);
             copyRequest.setStorageClass(DEFAULT_STORAGE_CLASS);
+            copyRequest.setCannedAccessControlList(CannedAccessControlList.Private);
             copyRequest.setNewObjectMetadata(objMetadata);
-            s3Client.copyObject(copyRequest);
-            s3Client.setObjectAcl(bucketName, contentId, originalACL);
+            if (null != expectedETag) {
+                copyRequest.withMatchingETagConstraint(expectedETag);
+            }
+            return s3Client.copyObject(copyRequest);
         } catch (AmazonClientException e) {
             throwIfContentNotExist(bucketName, contentId);
             String err = "Could not update metadata for content " + contentId + " in S3 bucket " +
@@ -1046,6 +1362,9 @@ public class S3StorageProvider extends StorageProviderBase {
         // Set the user properties
         Map<String, String> userProperties = objMetadata.getUserMetadata();
         for (String metaName : userProperties.keySet()) {
+            if (MULTIPART_CHECKSUM_KEY.equals(metaName)) {
+                continue;
+            }
             String metaValue = userProperties.get(metaName);
             contentProperties.put(getWithSpace(decodeHeaderKey(metaName)), decodeHeaderValue(metaValue));
         }
@@ -1081,12 +1400,11 @@ public class S3StorageProvider extends StorageProviderBase {
         }
 
         // Set CHECKSUM
-        String checksum = objMetadata.getETag();
+        String checksum = getContentChecksum(objMetadata.getETag(), userProperties);
         if (checksum != null) {
-            String eTagValue = getETagValue(checksum);
-            contentProperties.put(PROPERTIES_CONTENT_CHECKSUM, eTagValue);
-            contentProperties.put(PROPERTIES_CONTENT_MD5, eTagValue);
-            contentProperties.put(Headers.ETAG, eTagValue);
+            contentProperties.put(PROPERTIES_CONTENT_CHECKSUM, checksum);
+            contentProperties.put(PROPERTIES_CONTENT_MD5, checksum);
+            contentProperties.put(Headers.ETAG, checksum);
         }
 
         // Set MODIFIED
@@ -1100,6 +1418,25 @@ public class S3StorageProvider extends StorageProviderBase {
         return contentProperties;
     }
 
+    /**
+     * Gets the MD5 of a content item. This is the ETag, other than for
+     * content added as a multipart upload, for which the MD5 is stored as
+     * user metadata.
+     *
+     * @param etag         ETag of the content item
+     * @param userMetadata user metadata of the content item
+     * @return MD5 checksum, or null if not available
+     */
+    protected String getContentChecksum(String etag, Map<String, String> userMetadata) {
+        String eTagValue = getETagValue(etag);
+        String multipartChecksum = userMetadata.get(MULTIPART_CHECKSUM_KEY);
+        if (null != multipartChecksum && null != eTagValue &&
+            eTagValue.contains("-")) {
+            return multipartChecksum;
+        }
+        return eTagValue;
+    }
+
     protected String getETagValue(String etag) {
         String checksum = etag;
         if (checksum != null) {
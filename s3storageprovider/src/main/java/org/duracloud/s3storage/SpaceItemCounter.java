@@ -0,0 +1,148 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.s3storage;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the number of content items in each space, so that the count can be
+ * provided without listing the space.
+ *
+ * A count is established by an exact count of the space, which is made in
+ * the background. From then on the count is adjusted as content items are
+ * added and deleted, and it is reconciled by another exact count in the
+ * background once it is older than the reconcile interval. Changes made to
+ * a space by other means, or while it is being counted, are picked up by
+ * the next reconciliation.
+ *
+ * Counts are held by each instance, so changes made through other instances
+ * are among those which are only picked up by the next reconciliation, and
+ * the count may be wrong until then. Keeping a count current costs a check
+ * for each added item, to learn whether it replaces an existing item.
+ */
+class SpaceItemCounter {
+
+    private final Logger log = LoggerFactory.getLogger(SpaceItemCounter.class);
+
+    private final ToLongFunction<String> exactCount;
+    private final long reconcileInterval;
+    private final Executor executor;
+
+    private final Map<String, SpaceCount> counts = new ConcurrentHashMap<>();
+    private final Set<String> counting = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param exactCount        counts all items in a space
+     * @param reconcileInterval time (in ms) after which a count is reconciled
+     * @param executor          runs the exact counts
+     */
+    SpaceItemCounter(ToLongFunction<String> exactCount,
+                     long reconcileInterval,
+                     Executor executor) {
+        this.exactCount = exactCount;
+        this.reconcileInterval = reconcileInterval;
+        this.executor = executor;
+    }
+
+    /**
+     * Gets the number of items in a space, starting a reconciliation if the
+     * count is due for one.
+     *
+     * @param spaceId of the space
+     * @return the item count, or null if the space has not been counted
+     */
+    Long getCount(String spaceId) {
+        SpaceCount count = counts.get(spaceId);
+        if (null == count) {
+            return null;
+        }
+        if (System.currentTimeMillis() - count.counted >= reconcileInterval) {
+            recount(spaceId);
+        }
+        return count.items.get();
+    }
+
+    /**
+     * @return true if the space has a count which should be kept up to date
+     */
+    boolean isCounted(String spaceId) {
+        return counts.containsKey(spaceId);
+    }
+
+    /**
+     * Sets the count of a space which is known to be exact.
+     */
+    void setCount(String spaceId, long items) {
+        counts.put(spaceId, new SpaceCount(items));
+    }
+
+    void itemAdded(String spaceId) {
+        SpaceCount count = counts.get(spaceId);
+        if (null != count) {
+            count.items.incrementAndGet();
+        }
+    }
+
+    void itemDeleted(String spaceId) {
+        SpaceCount count = counts.get(spaceId);
+        if (null != count) {
+            count.items.updateAndGet(items -> Math.max(0, items - 1));
+        }
+    }
+
+    /**
+     * Removes the count of a space, for instance because it has been deleted.
+     */
+    void remove(String spaceId) {
+        counts.remove(spaceId);
+    }
+
+    /**
+     * Starts an exact count of a space in the background, unless one is
+     * already running.
+     */
+    void recount(String spaceId) {
+        if (!counting.add(spaceId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    setCount(spaceId, exactCount.applyAsLong(spaceId));
+                } catch (RuntimeException e) {
+                    log.warn("Unable to count items in space {}: {}",
+                             spaceId, e.getMessage());
+                } finally {
+                    counting.remove(spaceId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            counting.remove(spaceId);
+        }
+    }
+
+    private static class SpaceCount {
+        private final AtomicLong items;
+        private final long counted;
+
+        SpaceCount(long items) {
+            this.items = new AtomicLong(items);
+            this.counted = System.currentTimeMillis();
+        }
+    }
+
+}
@@ -0,0 +1,278 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.s3storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.Bucket;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import org.apache.commons.io.IOUtils;
+import org.duracloud.common.util.ChecksumUtil;
+import org.duracloud.storage.error.ChecksumMismatchException;
+import org.duracloud.storage.error.StorageException;
+import org.duracloud.storage.provider.StorageProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+public class S3MultipartUploadTest {
+
+    private static final String accessKey = "abcdefghijklmnopqrst";
+    private static final String spaceId = "space-id";
+    private static final String contentId = "content-id";
+
+    private static final int partSize = 1024;
+    private static final int partsInFlight = 3;
+
+    private final ChecksumUtil md5 = new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
+
+    private MultipartS3Client s3Client;
+    private S3StorageProvider provider;
+    private byte[] content;
+    private String checksum;
+
+    @Before
+    public void setUp() throws Exception {
+        s3Client = new MultipartS3Client();
+        provider = new S3StorageProvider(s3Client, accessKey, null);
+        provider.setMultipartUpload(2 * partSize, partSize, partsInFlight);
+
+        content = new byte[partSize * 5 + 100];
+        new Random(42).nextBytes(content);
+        checksum = md5.generateChecksum(new ByteArrayInputStream(content));
+    }
+
+    @Test
+    public void testMultipartUpload() throws Exception {
+        // The first attempt at uploading the second part fails
+        s3Client.failingPart = 2;
+
+        String result = addContent(content.length, checksum);
+        assertEquals(checksum, result);
+
+        // Only the failed part was sent again
+        assertEquals(6, s3Client.uploadedParts.size());
+        assertEquals(7, s3Client.partAttempts.size());
+        assertEquals(2, Collections.frequency(s3Client.partAttempts, 2));
+
+        // Parts were sent concurrently, within the limit on parts in flight
+        assertTrue(s3Client.maxActiveParts.get() > 1);
+        assertTrue(s3Client.maxActiveParts.get() <= partsInFlight);
+
+        // Parts were completed in order and hold the full content
+        List<Integer> partNumbers = new ArrayList<>();
+        ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+        for (PartETag partETag : s3Client.completedParts) {
+            partNumbers.add(partETag.getPartNumber());
+            uploaded.write(s3Client.uploadedParts.get(partETag.getPartNumber()));
+        }
+        assertEquals(List.of(1, 2, 3, 4, 5, 6), partNumbers);
+        assertArrayEquals(content, uploaded.toByteArray());
+        assertFalse(s3Client.aborted);
+
+        assertEquals(checksum, s3Client.initiatedMetadata.getUserMetadata()
+                                                         .get(S3StorageProvider.MULTIPART_CHECKSUM_KEY));
+        assertNull(s3Client.initiatedMetadata.getContentMD5());
+    }
+
+    @Test
+    public void testChecksumMismatch() throws Exception {
+        try {
+            addContent(content.length, "a" + checksum.substring(1));
+            fail("Exception expected");
+        } catch (ChecksumMismatchException e) {
+            assertNotNull(e.getMessage());
+        }
+        assertNull(s3Client.completedParts);
+        assertTrue(s3Client.aborted);
+    }
+
+    @Test
+    public void testIncompleteContent() throws Exception {
+        try {
+            addContent(content.length + 1, checksum);
+            fail("Exception expected");
+        } catch (StorageException e) {
+            assertNotNull(e.getMessage());
+        }
+        assertNull(s3Client.completedParts);
+        assertTrue(s3Client.aborted);
+    }
+
+    @Test
+    public void testPartFailure() throws Exception {
+        s3Client.failingPart = 3;
+        s3Client.partFailures = 10;
+        try {
+            addContent(content.length, checksum);
+            fail("Exception expected");
+        } catch (StorageException e) {
+            assertNotNull(e.getMessage());
+        }
+        assertNull(s3Client.completedParts);
+        assertTrue(s3Client.aborted);
+    }
+
+    @Test
+    public void testSinglePut() throws Exception {
+        // Content below the threshold, or without a checksum, is not split
+        byte[] smallContent = new byte[partSize];
+        String smallChecksum =
+            md5.generateChecksum(new ByteArrayInputStream(smallContent));
+        s3Client.putETag = smallChecksum;
+        provider.addContent(spaceId, contentId, "text/plain", null,
+                            smallContent.length, smallChecksum,
+                            new ByteArrayInputStream(smallContent));
+        assertEquals(1, s3Client.putCount);
+
+        s3Client.putETag = checksum;
+        provider.addContent(spaceId, contentId, "text/plain", null,
+                            content.length, null,
+                            new ByteArrayInputStream(content));
+        assertEquals(2, s3Client.putCount);
+        assertTrue(s3Client.partAttempts.isEmpty());
+    }
+
+    @Test
+    public void testContentChecksum() {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setHeader("ETag", "\"0123456789abcdef0123456789abcdef-6\"");
+        metadata.addUserMetadata(S3StorageProvider.MULTIPART_CHECKSUM_KEY, checksum);
+
+        Map<String, String> properties = provider.prepContentProperties(metadata);
+        assertEquals(checksum,
+                     properties.get(StorageProvider.PROPERTIES_CONTENT_CHECKSUM));
+        assertFalse(properties.containsKey(S3StorageProvider.MULTIPART_CHECKSUM_KEY));
+
+        // Once the content is replaced by a single put, the ETag is the MD5
+        metadata.setHeader("ETag", "\"" + checksum.replace('0', '1') + "\"");
+        properties = provider.prepContentProperties(metadata);
+        assertEquals(checksum.replace('0', '1'),
+                     properties.get(StorageProvider.PROPERTIES_CONTENT_CHECKSUM));
+    }
+
+    private String addContent(long contentSize, String contentChecksum) {
+        return provider.addContent(spaceId, contentId, "text/plain",
+                                   new HashMap<>(), contentSize,
+                                   contentChecksum,
+                                   new ByteArrayInputStream(content));
+    }
+
+    /*
+     * Stands in for S3, recording the order and concurrency of part uploads
+     */
+    private class MultipartS3Client extends AbstractAmazonS3 {
+        private List<Integer> partAttempts = Collections.synchronizedList(new ArrayList<>());
+        private Map<Integer, byte[]> uploadedParts = new ConcurrentHashMap<>();
+        private AtomicInteger activeParts = new AtomicInteger();
+        private AtomicInteger maxActiveParts = new AtomicInteger();
+        private int failingPart = -1;
+        private int partFailures = 1;
+
+        private ObjectMetadata initiatedMetadata;
+        private List<PartETag> completedParts;
+        private boolean aborted = false;
+
+        private String putETag;
+        private int putCount = 0;
+
+        @Override
+        public List<Bucket> listBuckets() {
+            return Collections.singletonList(new Bucket(accessKey + "." + spaceId));
+        }
+
+        @Override
+        public InitiateMultipartUploadResult initiateMultipartUpload(
+            InitiateMultipartUploadRequest request) {
+            initiatedMetadata = request.getObjectMetadata();
+            InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+            result.setUploadId("upload-id");
+            return result;
+        }
+
+        @Override
+        public UploadPartResult uploadPart(UploadPartRequest request) {
+            int partNumber = request.getPartNumber();
+            partAttempts.add(partNumber);
+            int active = activeParts.incrementAndGet();
+            maxActiveParts.accumulateAndGet(active, Math::max);
+            try {
+                Thread.sleep(50);
+                if (partNumber == failingPart && partFailures > 0) {
+                    partFailures--;
+                    throw new AmazonClientException("Part upload failed");
+                }
+                uploadedParts.put(partNumber, IOUtils.toByteArray(request.getInputStream()));
+            } catch (InterruptedException | IOException e) {
+                throw new AmazonClientException(e);
+            } finally {
+                activeParts.decrementAndGet();
+            }
+
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(partNumber);
+            result.setETag("etag-" + partNumber);
+            return result;
+        }
+
+        @Override
+        public CompleteMultipartUploadResult completeMultipartUpload(
+            CompleteMultipartUploadRequest request) {
+            completedParts = request.getPartETags();
+            return new CompleteMultipartUploadResult();
+        }
+
+        @Override
+        public void abortMultipartUpload(AbortMultipartUploadRequest request) {
+            aborted = true;
+        }
+
+        @Override
+        public PutObjectResult putObject(PutObjectRequest request) {
+            putCount++;
+            try {
+                IOUtils.toByteArray(request.getInputStream());
+            } catch (IOException e) {
+                throw new AmazonClientException(e);
+            }
+            PutObjectResult result = new PutObjectResult();
+            result.setETag(putETag);
+            return result;
+        }
+    }
+
+}
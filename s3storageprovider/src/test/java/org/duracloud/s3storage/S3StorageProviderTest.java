@@ -30,6 +30,8 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.s3.AmazonS3;
@@ -41,8 +43,11 @@ import com.amazonaws.services.s3.model.BucketTaggingConfiguration;
 import com.amazonaws.services.s3.model.CannedAccessControlList;
 import com.amazonaws.services.s3.model.CopyObjectRequest;
 import com.amazonaws.services.s3.model.CopyObjectResult;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsResult;
 import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
@@ -57,6 +62,7 @@ import org.duracloud.storage.domain.RetrievedContent;
 import org.duracloud.storage.domain.StorageProviderType;
 import org.duracloud.storage.error.ChecksumMismatchException;
 import org.duracloud.storage.error.NotFoundException;
+import org.duracloud.storage.error.StorageException;
 import org.duracloud.storage.provider.StorageProvider;
 import org.easymock.Capture;
 import org.easymock.CaptureType;
@@ -604,6 +610,198 @@ public class S3StorageProviderTest {
         verify(s3Client, objectListing);
     }
 
+    @Test
+    public void testGetAllSpacePropertiesCachedCount() throws Exception {
+        setupS3Client();
+
+        addListBucketsMock();
+
+        expect(
+            s3Client.getBucketTaggingConfiguration(EasyMock.isA(String.class)))
+                .andReturn(null).times(3);
+
+        // The space is listed only for the first count
+        ObjectListing objectListing =
+            createMock("ObjectListing", ObjectListing.class);
+        setUpListObjects(objectListing, 2);
+        setUpListObjects(objectListing, 0);
+
+        // Adding an item already in the space does not change the count
+        expect(s3Client.doesObjectExist(EasyMock.isA(String.class), eq("item0")))
+                .andReturn(true);
+        expect(s3Client.doesObjectExist(EasyMock.isA(String.class), eq("item2")))
+                .andReturn(false);
+        PutObjectResult result = new PutObjectResult();
+        result.setETag(hexChecksum);
+        expect(s3Client.putObject(EasyMock.isA(PutObjectRequest.class)))
+                .andReturn(result).times(2);
+
+        expect(s3Client.getObjectMetadata(EasyMock.isA(String.class), eq("item1")))
+                .andReturn(new ObjectMetadata());
+        s3Client.deleteObject(EasyMock.isA(String.class), eq("item1"));
+        EasyMock.expectLastCall();
+
+        replay(s3Client, objectListing);
+
+        S3StorageProvider provider = getProvider();
+        Assert.assertEquals("2", provider.getAllSpaceProperties(spaceId)
+                                         .get(StorageProvider.PROPERTIES_SPACE_COUNT));
+
+        for (String id : Arrays.asList("item0", "item2")) {
+            provider.addContent(spaceId, id, "text/plain", null, content.length(),
+                                hexChecksum, createStream(content));
+        }
+        Assert.assertEquals("3", provider.getAllSpaceProperties(spaceId)
+                                         .get(StorageProvider.PROPERTIES_SPACE_COUNT));
+
+        provider.deleteContent(spaceId, "item1");
+        Assert.assertEquals("2", provider.getAllSpaceProperties(spaceId)
+                                         .get(StorageProvider.PROPERTIES_SPACE_COUNT));
+
+        verify(s3Client, objectListing);
+    }
+
+    @Test
+    public void testSetContentPropertiesRequests() throws Exception {
+        setupS3Client();
+        addListBucketsMock();
+
+        // The item is read once, to provide its properties
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType("text/plain");
+        metadata.setHeader(Headers.ETAG, "etag-0");
+        expect(s3Client.getObjectMetadata(EasyMock.isA(String.class), eq(contentId)))
+                .andReturn(metadata);
+
+        // Each update is a single copy, which needs neither the mimetype nor
+        // the ACL of the item to be read again
+        Capture<CopyObjectRequest> capturedRequest =
+            Capture.newInstance(CaptureType.ALL);
+        expect(s3Client.copyObject(capture(capturedRequest)))
+                .andReturn(createCopyResult("etag-1"))
+                .andReturn(createCopyResult("etag-2"));
+
+        replay(s3Client);
+
+        S3StorageProvider provider = getProvider();
+        Map<String, String> props = provider.getContentProperties(spaceId, contentId);
+        props.remove(StorageProvider.PROPERTIES_CONTENT_MIMETYPE);
+        props.put("name", "value-one");
+        provider.setContentProperties(spaceId, contentId, props);
+        props.put("name", "value-two");
+        provider.setContentProperties(spaceId, contentId, props);
+
+        for (CopyObjectRequest request : capturedRequest.getValues()) {
+            assertEquals("text/plain", request.getNewObjectMetadata().getContentType());
+            assertEquals(CannedAccessControlList.Private,
+                         request.getCannedAccessControlList());
+        }
+        assertEquals("value-two", capturedRequest.getValues().get(1).getNewObjectMetadata()
+                                                 .getUserMetadata().get("name"));
+
+        // Each copy is made only if the item has not changed since it was read
+        assertEquals(Arrays.asList("etag-0"),
+                     capturedRequest.getValues().get(0).getMatchingETagConstraints());
+        assertEquals(Arrays.asList("etag-1"),
+                     capturedRequest.getValues().get(1).getMatchingETagConstraints());
+    }
+
+    @Test
+    public void testSetContentPropertiesMultipartChecksum() throws Exception {
+        setupS3Client();
+        addListBucketsMock();
+
+        String checksum = "4fd8a8e16d1e4a7a2c3a3f6d0b8e6f5a";
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType("text/plain");
+        metadata.setHeader(Headers.ETAG, "etag-0-2");
+        metadata.addUserMetadata(S3StorageProvider.MULTIPART_CHECKSUM_KEY, checksum);
+        expect(s3Client.getObjectMetadata(EasyMock.isA(String.class), eq(contentId)))
+                .andReturn(metadata);
+
+        Capture<CopyObjectRequest> capturedRequest = Capture.newInstance();
+        expect(s3Client.copyObject(capture(capturedRequest)))
+                .andReturn(createCopyResult("etag-1-2"));
+
+        replay(s3Client);
+
+        Map<String, String> props = new HashMap<>();
+        props.put("name", "value");
+        getProvider().setContentProperties(spaceId, contentId, props);
+
+        // The checksum of the multipart content is kept, as its ETag is not its MD5
+        Map<String, String> userMetadata =
+            capturedRequest.getValue().getNewObjectMetadata().getUserMetadata();
+        assertEquals(checksum, userMetadata.get(S3StorageProvider.MULTIPART_CHECKSUM_KEY));
+        assertEquals("value", userMetadata.get("name"));
+        assertEquals("text/plain", capturedRequest.getValue().getNewObjectMetadata().getContentType());
+    }
+
+    @Test
+    public void testSetContentPropertiesChangedItem() throws Exception {
+        setupS3Client();
+        addListBucketsMock();
+
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setHeader(Headers.ETAG, "etag-0");
+        expect(s3Client.getObjectMetadata(EasyMock.isA(String.class), eq(contentId)))
+                .andReturn(metadata);
+
+        // The item has since been replaced, by way of another DuraStore
+        ObjectMetadata replacedMetadata = new ObjectMetadata();
+        replacedMetadata.setHeader(Headers.ETAG, "etag-1-2");
+        replacedMetadata.addUserMetadata(S3StorageProvider.MULTIPART_CHECKSUM_KEY, "checksum");
+        expect(s3Client.getObjectMetadata(EasyMock.isA(String.class), eq(contentId)))
+                .andReturn(replacedMetadata);
+
+        // The copy is not made when its ETag constraint is not met
+        Capture<CopyObjectRequest> capturedRequest =
+            Capture.newInstance(CaptureType.ALL);
+        expect(s3Client.copyObject(capture(capturedRequest)))
+                .andReturn(null)
+                .andReturn(createCopyResult("etag-2-2"));
+
+        replay(s3Client);
+
+        S3StorageProvider provider = getProvider();
+        Map<String, String> props = provider.getContentProperties(spaceId, contentId);
+        props.put("name", "value");
+        provider.setContentProperties(spaceId, contentId, props);
+
+        CopyObjectRequest request = capturedRequest.getValues().get(1);
+        assertTrue(request.getMatchingETagConstraints().isEmpty());
+        assertEquals("checksum", request.getNewObjectMetadata().getUserMetadata()
+                                        .get(S3StorageProvider.MULTIPART_CHECKSUM_KEY));
+    }
+
+    private CopyObjectResult createCopyResult(String etag) {
+        CopyObjectResult result = new CopyObjectResult();
+        result.setETag(etag);
+        return result;
+    }
+
+    @Test
+    public void testGetContentPropertiesNotFound() {
+        setupS3Client();
+        addListBucketsMock();
+
+        // A missing item is requested only once
+        AmazonS3Exception notFound = new AmazonS3Exception("Not Found");
+        notFound.setStatusCode(404);
+        expect(s3Client.getObjectMetadata(EasyMock.isA(String.class), eq(contentId)))
+                .andThrow(notFound);
+
+        replay(s3Client);
+
+        S3StorageProvider provider = getProvider();
+        try {
+            provider.getContentProperties(spaceId, contentId);
+            fail("NotFoundException expected");
+        } catch (NotFoundException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
     @Test
     public void testDoSetSpaceProperties() {
         setupS3Client();
@@ -816,4 +1014,79 @@ public class S3StorageProviderTest {
         assertEquals("s3 object inputstream was not set on retrieved content", is, retrievedContent.getContentStream());
         verify(result, bucket, result);
     }
+
+    @Test
+    public void testDeleteContents() {
+        setupS3Client();
+        addListBucketsMock();
+
+        List<String> contentIds = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            contentIds.add("content-" + i);
+        }
+
+        // Items are sent in requests of up to 1000, one item fails to delete
+        Capture<DeleteObjectsRequest> requestCapture = newCapture(CaptureType.ALL);
+        expect(s3Client.deleteObjects(capture(requestCapture)))
+            .andReturn(new DeleteObjectsResult(new ArrayList<>()));
+        MultiObjectDeleteException.DeleteError deleteError =
+            new MultiObjectDeleteException.DeleteError();
+        deleteError.setKey("content-1200");
+        expect(s3Client.deleteObjects(capture(requestCapture)))
+            .andThrow(new MultiObjectDeleteException(Arrays.asList(deleteError),
+                                                     new ArrayList<>()));
+        replay(s3Client);
+
+        S3StorageProvider provider = getProvider();
+        try {
+            provider.deleteContents(spaceId, contentIds);
+            fail("Exception expected");
+        } catch (StorageException e) {
+            assertTrue(e.getMessage().contains("1 of 1500"));
+        }
+
+        List<DeleteObjectsRequest> requests = requestCapture.getValues();
+        assertEquals(2, requests.size());
+        assertEquals(1000, requests.get(0).getKeys().size());
+        assertEquals(500, requests.get(1).getKeys().size());
+        assertEquals("content-1000", requests.get(1).getKeys().get(0).getKey());
+        assertTrue(requests.get(0).getQuiet());
+    }
+
+    @Test
+    public void testDeleteContentsRecountsSpace() throws Exception {
+        setupS3Client();
+        addListBucketsMock();
+
+        // S3 does not report which of the items did not exist
+        expect(s3Client.deleteObjects(EasyMock.isA(DeleteObjectsRequest.class)))
+            .andReturn(new DeleteObjectsResult(new ArrayList<>()));
+        replay(s3Client);
+
+        CountDownLatch counted = new CountDownLatch(1);
+        S3StorageProvider provider =
+            new S3StorageProvider(s3Client, accessKey, new HashMap<>()) {
+                @Override
+                protected String getSpaceCount(String spaceId, int maxCount) {
+                    return "5";
+                }
+
+                @Override
+                protected long countSpaceItems(String spaceId) {
+                    counted.countDown();
+                    return 3;
+                }
+            };
+        assertEquals("5", provider.getItemCount(spaceId));
+
+        provider.deleteContents(spaceId, Arrays.asList("a", "b", "c", "d"));
+        assertTrue(counted.await(5, TimeUnit.SECONDS));
+        long end = System.currentTimeMillis() + 5000;
+        while (!"3".equals(provider.getItemCount(spaceId)) &&
+               System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals("3", provider.getItemCount(spaceId));
+        verify(s3Client);
+    }
 }
@@ -0,0 +1,99 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.s3storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.duracloud.storage.error.NotFoundException;
+import org.junit.Test;
+
+public class SpaceItemCounterTest {
+
+    private static final String spaceId = "space-id";
+
+    private AtomicLong spaceItems = new AtomicLong(5000);
+    private List<String> countedSpaces = new ArrayList<>();
+    private List<Runnable> pendingCounts = new ArrayList<>();
+
+    private SpaceItemCounter createCounter(long reconcileInterval) {
+        return new SpaceItemCounter(space -> {
+            countedSpaces.add(space);
+            if (!space.equals(spaceId)) {
+                throw new NotFoundException(space);
+            }
+            return spaceItems.get();
+        }, reconcileInterval, pendingCounts::add);
+    }
+
+    private void runPendingCounts() {
+        List<Runnable> counts = new ArrayList<>(pendingCounts);
+        pendingCounts.clear();
+        counts.forEach(Runnable::run);
+    }
+
+    @Test
+    public void testCount() {
+        SpaceItemCounter counter = createCounter(60000);
+        assertNull(counter.getCount(spaceId));
+        assertFalse(counter.isCounted(spaceId));
+
+        // Only one count of a space runs at a time
+        counter.recount(spaceId);
+        counter.recount(spaceId);
+        assertEquals(1, pendingCounts.size());
+        runPendingCounts();
+        assertEquals(5000, counter.getCount(spaceId).longValue());
+        assertTrue(counter.isCounted(spaceId));
+
+        counter.itemAdded(spaceId);
+        counter.itemAdded(spaceId);
+        counter.itemDeleted(spaceId);
+        assertEquals(5001, counter.getCount(spaceId).longValue());
+        assertEquals(1, countedSpaces.size());
+
+        counter.remove(spaceId);
+        assertNull(counter.getCount(spaceId));
+
+        // Changes to spaces which are not counted are ignored
+        counter.itemAdded(spaceId);
+        assertNull(counter.getCount(spaceId));
+    }
+
+    @Test
+    public void testReconcile() {
+        SpaceItemCounter counter = createCounter(0);
+        counter.setCount(spaceId, 10);
+        counter.itemDeleted(spaceId);
+
+        // The count is provided while it is reconciled
+        assertEquals(9, counter.getCount(spaceId).longValue());
+        runPendingCounts();
+        assertEquals(5000, counter.getCount(spaceId).longValue());
+        assertEquals(1, countedSpaces.size());
+    }
+
+    @Test
+    public void testFailedCount() {
+        SpaceItemCounter counter = createCounter(60000);
+        counter.recount("other-space");
+        runPendingCounts();
+        assertNull(counter.getCount("other-space"));
+
+        // The count is attempted again when next requested
+        counter.recount("other-space");
+        assertEquals(1, pendingCounts.size());
+    }
+
+}
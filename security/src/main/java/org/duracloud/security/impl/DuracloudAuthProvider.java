@@ -16,7 +16,6 @@ import org.springframework.security.authentication.dao.DaoAuthenticationProvider
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetails;
-import org.springframework.security.web.util.matcher.IpAddressMatcher;
 
 /**
  * Authentication provider which allows default authentication behavior
@@ -45,23 +44,20 @@ public class DuracloudAuthProvider extends DaoAuthenticationProvider {
         super.additionalAuthenticationChecks(userDetails, authentication);
 
         DuracloudUserDetails dcUserDetails = (DuracloudUserDetails) userDetails;
-        String userIpLimits = dcUserDetails.getIpLimits();
+        IpLimitsMatcher userIpLimits = dcUserDetails.getIpLimitsMatcher();
 
         // if user IP limits are set, check request IP
-        if (null != userIpLimits && !userIpLimits.equals("")) {
+        if (null != userIpLimits && userIpLimits.hasLimits()) {
             WebAuthenticationDetails details =
                 (WebAuthenticationDetails) authentication.getDetails();
             String requestIp = details.getRemoteAddress();
 
-            String[] ipLimits = userIpLimits.split(";");
-            for (String ipLimit : ipLimits) {
-                if (ipInRange(requestIp, ipLimit)) {
-                    // User's IP is within this range, grant access
-                    log.debug("Allowing authentication check to continue for user " +
-                              dcUserDetails.getUsername() + " because their IP " +
-                              requestIp + " exists in a valid range " + ipLimit);
-                    return;
-                }
+            if (userIpLimits.matches(requestIp)) {
+                // User's IP is within a valid range, grant access
+                log.debug("Allowing authentication check to continue for user " +
+                          dcUserDetails.getUsername() + " because their IP " +
+                          requestIp + " exists in a valid range " + userIpLimits);
+                return;
             }
 
             // There are IP limits, and none of them match the user's IP, deny
@@ -78,16 +74,4 @@ public class DuracloudAuthProvider extends DaoAuthenticationProvider {
         }
     }
 
-    /**
-     * Determines if a given IP address is in the given IP range.
-     *
-     * @param ipAddress single IP address
-     * @param range     IP address range using CIDR notation
-     * @return true if the address is in the range, false otherwise
-     */
-    protected boolean ipInRange(String ipAddress, String range) {
-        IpAddressMatcher addressMatcher = new IpAddressMatcher(range);
-        return addressMatcher.matches(ipAddress);
-    }
-
 }
@@ -22,6 +22,8 @@ public class DuracloudUserDetails extends User implements UserDetails {
 
     private String email;
     private String ipLimits;
+    // Not serialized with the user, it is parsed again when needed
+    private transient volatile IpLimitsMatcher ipLimitsMatcher;
     private List<String> groups;
 
     public DuracloudUserDetails(String username,
@@ -44,6 +46,7 @@ public class DuracloudUserDetails extends User implements UserDetails {
               authorities);
         this.email = email;
         this.ipLimits = ipLimits;
+        this.ipLimitsMatcher = new IpLimitsMatcher(ipLimits);
         this.groups = groups;
     }
 
@@ -55,6 +58,18 @@ public class DuracloudUserDetails extends User implements UserDetails {
         return ipLimits;
     }
 
+    /**
+     * @return the IP limits of the user, parsed for matching
+     */
+    public IpLimitsMatcher getIpLimitsMatcher() {
+        IpLimitsMatcher matcher = ipLimitsMatcher;
+        if (null == matcher) {
+            matcher = new IpLimitsMatcher(ipLimits);
+            ipLimitsMatcher = matcher;
+        }
+        return matcher;
+    }
+
     @Override
     public void eraseCredentials() {
         //The credentials are getting erased despite my using the
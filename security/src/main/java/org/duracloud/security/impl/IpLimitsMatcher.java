@@ -0,0 +1,202 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.security.impl;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Matches IP addresses against the IP limits of a user: a semicolon
+ * separated list of IP address ranges in CIDR notation, or of single IP
+ * addresses.
+ *
+ * The ranges are parsed once, into a sorted set of address intervals for
+ * each of IPv4 and IPv6, so that an address is matched with a binary search
+ * rather than by parsing each range again. Ranges which cannot be parsed
+ * are ignored, so a user whose limits hold no valid range is not matched by
+ * any address.
+ */
+public class IpLimitsMatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(IpLimitsMatcher.class);
+
+    private static final Comparator<byte[]> UNSIGNED = Arrays::compareUnsigned;
+
+    private static final Pattern IPV4_LITERAL =
+        Pattern.compile("\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}");
+
+    private final String ipLimits;
+    private final boolean limited;
+    private final Intervals ipv4Intervals;
+    private final Intervals ipv6Intervals;
+
+    /**
+     * @param ipLimits semicolon separated IP address ranges, may be null or
+     *                 empty if the user has no IP limits
+     */
+    public IpLimitsMatcher(String ipLimits) {
+        this.ipLimits = ipLimits;
+        this.limited = null != ipLimits && !ipLimits.equals("");
+
+        List<byte[][]> ipv4 = new ArrayList<>();
+        List<byte[][]> ipv6 = new ArrayList<>();
+        if (limited) {
+            for (String range : ipLimits.split(";")) {
+                byte[][] interval = parseRange(range.trim());
+                if (null != interval) {
+                    (interval[0].length == 4 ? ipv4 : ipv6).add(interval);
+                }
+            }
+        }
+        this.ipv4Intervals = new Intervals(ipv4);
+        this.ipv6Intervals = new Intervals(ipv6);
+    }
+
+    /**
+     * @return true if IP limits are defined
+     */
+    public boolean hasLimits() {
+        return limited;
+    }
+
+    /**
+     * Determines if an IP address is within any of the IP limit ranges.
+     *
+     * @param ipAddress single IP address
+     * @return true if the address is in a range, false otherwise
+     */
+    public boolean matches(String ipAddress) {
+        byte[] address = parseAddress(ipAddress);
+        if (null == address) {
+            return false;
+        }
+        return (address.length == 4 ? ipv4Intervals : ipv6Intervals).contains(address);
+    }
+
+    @Override
+    public String toString() {
+        return ipLimits;
+    }
+
+    /*
+     * Converts a range into the first and last addresses it holds
+     */
+    private static byte[][] parseRange(String range) {
+        if (range.isEmpty()) {
+            return null;
+        }
+
+        String address = range;
+        int prefixLength = -1;
+        int slash = range.indexOf('/');
+        if (slash >= 0) {
+            address = range.substring(0, slash);
+            try {
+                prefixLength = Integer.parseInt(range.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring IP limit range {}, the prefix length is not valid", range);
+                return null;
+            }
+        }
+
+        byte[] first = parseAddress(address);
+        if (null == first) {
+            log.warn("Ignoring IP limit range {}, the address is not valid", range);
+            return null;
+        }
+        int bits = first.length * 8;
+        if (prefixLength < 0) {
+            prefixLength = bits;
+        }
+        if (prefixLength > bits) {
+            log.warn("Ignoring IP limit range {}, the prefix length is too long", range);
+            return null;
+        }
+
+        byte[] last = first.clone();
+        for (int i = 0; i < first.length; i++) {
+            int prefixBits = Math.max(0, Math.min(8, prefixLength - i * 8));
+            int hostMask = 0xff >> prefixBits;
+            first[i] = (byte) (first[i] & ~hostMask);
+            last[i] = (byte) (last[i] | hostMask);
+        }
+        return new byte[][] {first, last};
+    }
+
+    /*
+     * Only IP address literals are parsed, so that no name lookups are made
+     */
+    private static byte[] parseAddress(String address) {
+        if (null == address ||
+            !(address.indexOf(':') >= 0 || IPV4_LITERAL.matcher(address).matches())) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(address).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    /*
+     * A sorted set of non-overlapping address intervals
+     */
+    private static class Intervals {
+        private final byte[][] starts;
+        private final byte[][] ends;
+
+        Intervals(List<byte[][]> intervals) {
+            intervals.sort((a, b) -> UNSIGNED.compare(a[0], b[0]));
+
+            List<byte[][]> merged = new ArrayList<>();
+            for (byte[][] interval : intervals) {
+                byte[][] previous = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+                if (null != previous && UNSIGNED.compare(interval[0], previous[1]) <= 0) {
+                    if (UNSIGNED.compare(interval[1], previous[1]) > 0) {
+                        previous[1] = interval[1];
+                    }
+                } else {
+                    merged.add(interval);
+                }
+            }
+
+            starts = new byte[merged.size()][];
+            ends = new byte[merged.size()][];
+            for (int i = 0; i < merged.size(); i++) {
+                starts[i] = merged.get(i)[0];
+                ends[i] = merged.get(i)[1];
+            }
+        }
+
+        boolean contains(byte[] address) {
+            // Find the last interval starting at or before the address
+            int low = 0;
+            int high = starts.length - 1;
+            int candidate = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (UNSIGNED.compare(starts[mid], address) <= 0) {
+                    candidate = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return candidate >= 0 && UNSIGNED.compare(address, ends[candidate]) <= 0;
+        }
+    }
+
+}
@@ -8,7 +8,7 @@
 package org.duracloud.security.impl;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,8 +32,11 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 public class UserDetailsServiceImpl implements DuracloudUserDetailsService {
     private final Logger log = LoggerFactory.getLogger(UserDetailsServiceImpl.class);
 
-    private Map<String, DuracloudUserDetails> usersTable =
-        new HashMap<String, DuracloudUserDetails>();
+    /*
+     * Users indexed by username. The table is never modified once it has
+     * been published; a new table replaces it when the users are set.
+     */
+    private volatile Map<String, UserEntry> usersTable = Collections.emptyMap();
 
     public UserDetailsServiceImpl() {
     }
@@ -48,30 +51,32 @@ public class UserDetailsServiceImpl implements DuracloudUserDetailsService {
      */
     public UserDetails loadUserByUsername(String username)
         throws UsernameNotFoundException {
-        UserDetails userDetails = usersTable.get(username);
-        if (null == userDetails) {
+        UserEntry entry = usersTable.get(username);
+        if (null == entry) {
             throw new UsernameNotFoundException(username);
         }
-        return userDetails;
+        return entry.details;
     }
 
     /**
-     * This method re-initializes the existing usersTable, then adds the arg
-     * users.
+     * This method replaces the existing usersTable with one holding the arg
+     * users. The existing users are retained if any of the arg users is not
+     * valid.
      *
      * @param users to populate into the usersTable
      */
     public void setUsers(List<SecurityUserBean> users) {
+        Map<String, UserEntry> table = new HashMap<>();
         for (SecurityUserBean u : users) {
-            addUser(u);
+            table.put(u.getUsername(), createUserEntry(u));
         }
+        this.usersTable = Collections.unmodifiableMap(table);
     }
 
-    private void addUser(SecurityUserBean u) {
-        List<String> grantBeans = u.getGrantedAuthorities();
-        GrantedAuthority[] grants = new GrantedAuthority[grantBeans.size()];
-        for (int i = 0; i < grantBeans.size(); ++i) {
-            grants[i] = new SimpleGrantedAuthority(grantBeans.get(i));
+    private UserEntry createUserEntry(SecurityUserBean u) {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        for (String grant : u.getGrantedAuthorities()) {
+            authorities.add(new SimpleGrantedAuthority(grant));
         }
 
         DuracloudUserDetails user = new DuracloudUserDetails(u.getUsername(),
@@ -82,10 +87,14 @@ public class UserDetailsServiceImpl implements DuracloudUserDetailsService {
                                                              u.isAccountNonExpired(),
                                                              u.isCredentialsNonExpired(),
                                                              u.isAccountNonLocked(),
-                                                             Arrays.asList(grants),
+                                                             authorities,
                                                              u.getGroups());
 
-        usersTable.put(u.getUsername(), user);
+        List<String> grants = new ArrayList<>();
+        for (GrantedAuthority authority : user.getAuthorities()) {
+            grants.add(authority.getAuthority());
+        }
+        return new UserEntry(user, Collections.unmodifiableList(grants));
     }
 
     /**
@@ -95,26 +104,26 @@ public class UserDetailsServiceImpl implements DuracloudUserDetailsService {
      */
     public List<SecurityUserBean> getUsers() {
         List<SecurityUserBean> users = new ArrayList<SecurityUserBean>();
-        for (DuracloudUserDetails user : this.usersTable.values()) {
-            SecurityUserBean bean = createUserBean(user);
-            users.add(bean);
+        for (UserEntry entry : this.usersTable.values()) {
+            users.add(createUserBean(entry));
         }
         return users;
     }
 
     @Override
     public SecurityUserBean getUserByUsername(String username) {
-        for (DuracloudUserDetails user : this.usersTable.values()) {
-            SecurityUserBean bean = createUserBean(user);
-            if (bean.getUsername().equals(username)) {
-                return bean;
-            }
+        UserEntry entry = this.usersTable.get(username);
+        if (null == entry) {
+            return null;
         }
-        return null;
+        return createUserBean(entry);
     }
 
-    private SecurityUserBean createUserBean(DuracloudUserDetails user) {
-        List<String> grants = getGrants(user.getAuthorities().toArray(new GrantedAuthority[0]));
+    /*
+     * Beans are created for each request, as callers may modify them
+     */
+    private SecurityUserBean createUserBean(UserEntry entry) {
+        DuracloudUserDetails user = entry.details;
         return new SecurityUserBean(user.getUsername(),
                                     user.getPassword(),
                                     user.getEmail(),
@@ -123,18 +132,18 @@ public class UserDetailsServiceImpl implements DuracloudUserDetailsService {
                                     user.isAccountNonExpired(),
                                     user.isCredentialsNonExpired(),
                                     user.isAccountNonLocked(),
-                                    grants,
+                                    new ArrayList<>(entry.grants),
                                     user.getGroups());
     }
 
-    private List<String> getGrants(GrantedAuthority[] gAuths) {
-        List<String> grants = new ArrayList<String>();
-        if (gAuths != null && gAuths.length > 0) {
-            for (GrantedAuthority gAuth : gAuths) {
-                grants.add(gAuth.getAuthority());
-            }
+    private static class UserEntry {
+        private final DuracloudUserDetails details;
+        private final List<String> grants;
+
+        UserEntry(DuracloudUserDetails details, List<String> grants) {
+            this.details = details;
+            this.grants = grants;
         }
-        return grants;
     }
 
 }
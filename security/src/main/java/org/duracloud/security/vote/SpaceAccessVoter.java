@@ -64,34 +64,19 @@ public abstract class SpaceAccessVoter implements AccessDecisionVoter {
     }
 
     protected String getStoreId(HttpServletRequest httpRequest) {
-        String storeId = null;
-        String query = httpRequest.getQueryString();
-        if (null == query) {
-            return null;
-        }
-
-        query = query.toLowerCase();
-
-        String name = "storeid";
-        int storeIdIndex = query.indexOf(name);
-        if (storeIdIndex > -1) {
-            int idIndex = query.indexOf("=", storeIdIndex) + 1;
-            if (idIndex == storeIdIndex + name.length() + 1) {
-                int nextParamIndex = query.indexOf("&", idIndex);
-                int end = nextParamIndex > -1 ? nextParamIndex : query.length();
-                storeId = query.substring(idIndex, end);
-            }
+        SpaceRequest spaceRequest = getSpaceRequest(httpRequest);
+        if (!spaceRequest.isStoreIdParsed()) {
+            spaceRequest.setStoreId(parseStoreId(httpRequest.getQueryString()));
         }
-        return storeId;
+        return spaceRequest.getStoreId();
     }
 
     protected String getSpaceId(HttpServletRequest httpRequest) {
-        String spaceId = httpRequest.getPathInfo();
-        if (null == spaceId) {
-            return null;
-        }
+        return getSpaceRequest(httpRequest).getSpaceId();
+    }
 
-        return extractSpaceId(spaceId);
+    protected String getPathInfo(HttpServletRequest httpRequest) {
+        return getSpaceRequest(httpRequest).getPathInfo();
     }
 
     protected String extractSpaceId(String pathInfo) {
@@ -119,28 +104,69 @@ public abstract class SpaceAccessVoter implements AccessDecisionVoter {
     }
 
     protected String getContentId(HttpServletRequest httpRequest) {
-        String spaceId = getSpaceId(httpRequest);
-        if (null != spaceId) {
-            String path = httpRequest.getPathInfo();
-            if (!path.endsWith(spaceId)) {
-                return path.substring(path.indexOf(spaceId) + spaceId.length() + 1);
+        return getSpaceRequest(httpRequest).getContentId();
+    }
+
+    /*
+     * Parses the request on first use, the result is held as a request
+     * attribute for use by each of the voters
+     */
+    private SpaceRequest getSpaceRequest(HttpServletRequest httpRequest) {
+        Object attribute = httpRequest.getAttribute(SpaceRequest.ATTRIBUTE);
+        if (attribute instanceof SpaceRequest) {
+            return (SpaceRequest) attribute;
+        }
+
+        String pathInfo = httpRequest.getPathInfo();
+        String spaceId = null == pathInfo ? null : extractSpaceId(pathInfo);
+        String contentId = null;
+        if (null != spaceId && !pathInfo.endsWith(spaceId)) {
+            contentId = pathInfo.substring(pathInfo.indexOf(spaceId) + spaceId.length() + 1);
+        }
+
+        SpaceRequest spaceRequest = new SpaceRequest(pathInfo, spaceId, contentId);
+        httpRequest.setAttribute(SpaceRequest.ATTRIBUTE, spaceRequest);
+        return spaceRequest;
+    }
+
+    private String parseStoreId(String query) {
+        String storeId = null;
+        if (null == query) {
+            return null;
+        }
+
+        query = query.toLowerCase();
+
+        String name = "storeid";
+        int storeIdIndex = query.indexOf(name);
+        if (storeIdIndex > -1) {
+            int idIndex = query.indexOf("=", storeIdIndex) + 1;
+            if (idIndex == storeIdIndex + name.length() + 1) {
+                int nextParamIndex = query.indexOf("&", idIndex);
+                int end = nextParamIndex > -1 ? nextParamIndex : query.length();
+                storeId = query.substring(idIndex, end);
             }
         }
-        return null;
+        return storeId;
     }
 
     /**
      * This method returns the ACLs of the requested space, or an empty-map if
      * there is an error or for certain 'keyword' spaces, or null if the space
-     * does not exist.
+     * does not exist. The ACLs are retrieved once per request, and shared by
+     * the voters which decide on the request.
      *
      * @param request containing spaceId and storeId
      * @return ACLs, empty-map, or null
      */
     protected Map<String, AclType> getSpaceACLs(HttpServletRequest request) {
-        String storeId = getStoreId(request);
-        String spaceId = getSpaceId(request);
-        return getSpaceACLs(storeId, spaceId);
+        SpaceRequest spaceRequest = getSpaceRequest(request);
+        Map<String, AclType> acls = spaceRequest.getSpaceACLs();
+        if (null == acls) {
+            acls = getSpaceACLs(getStoreId(request), spaceRequest.getSpaceId());
+            spaceRequest.setSpaceACLs(acls);
+        }
+        return acls;
     }
 
     protected Map<String, AclType> getSpaceACLs(String storeId,
@@ -185,7 +185,7 @@ public class SpaceReadAccessVoter extends SpaceAccessVoter {
     }
 
     private boolean matchesPathExemptions(HttpServletRequest httpRequest) {
-        String path = httpRequest.getPathInfo();
+        String path = getPathInfo(httpRequest);
 
         if (!CollectionUtils.isEmpty(this.pathExemptions)) {
             for (String pattern : this.pathExemptions) {
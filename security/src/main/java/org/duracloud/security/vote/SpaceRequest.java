@@ -0,0 +1,75 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.security.vote;
+
+import java.util.Map;
+
+import org.duracloud.common.model.AclType;
+
+/**
+ * The store, space and content targeted by a request, parsed from the
+ * request once and held as a request attribute, so that each of the voters
+ * which decide on the request use the same values without parsing the
+ * request again. The store ID is parsed from the query string when first
+ * needed, and the ACLs of the space are held once they have been resolved,
+ * so that they are retrieved at most once per request.
+ */
+class SpaceRequest {
+
+    static final String ATTRIBUTE = SpaceRequest.class.getName();
+
+    private final String pathInfo;
+    private final String spaceId;
+    private final String contentId;
+    private boolean storeIdParsed = false;
+    private String storeId;
+    private Map<String, AclType> spaceACLs;
+
+    SpaceRequest(String pathInfo, String spaceId, String contentId) {
+        this.pathInfo = pathInfo;
+        this.spaceId = spaceId;
+        this.contentId = contentId;
+    }
+
+    String getPathInfo() {
+        return pathInfo;
+    }
+
+    boolean isStoreIdParsed() {
+        return storeIdParsed;
+    }
+
+    String getStoreId() {
+        return storeId;
+    }
+
+    void setStoreId(String storeId) {
+        this.storeId = storeId;
+        this.storeIdParsed = true;
+    }
+
+    String getSpaceId() {
+        return spaceId;
+    }
+
+    String getContentId() {
+        return contentId;
+    }
+
+    /**
+     * @return the ACLs of the space, or null if they have not been resolved
+     */
+    Map<String, AclType> getSpaceACLs() {
+        return spaceACLs;
+    }
+
+    void setSpaceACLs(Map<String, AclType> spaceACLs) {
+        this.spaceACLs = spaceACLs;
+    }
+
+}
@@ -216,7 +216,7 @@ public class SpaceWriteAccessVoter extends SpaceAccessVoter {
 
     private boolean isSpaceAclUpdate(HttpServletRequest httpRequest) {
         if (HttpVerb.POST.equals(getHttpVerb(httpRequest))) {
-            String path = httpRequest.getPathInfo();
+            String path = getPathInfo(httpRequest);
             return path.startsWith("/acl/") || path.startsWith("acl/");
         }
         return false;
@@ -225,6 +225,40 @@ public class UserDetailsServiceImplTest {
         Assert.assertTrue(foundUsers.contains(usernameC));
     }
 
+    @Test
+    public void testGetUserByUsername() {
+        Assert.assertNull(userDetailsService.getUserByUsername(usernameA));
+
+        userDetailsService.setUsers(users);
+        SecurityUserBean bean = userDetailsService.getUserByUsername(usernameB);
+        Assert.assertNotNull(bean);
+        Assert.assertEquals(emailB, bean.getEmail());
+        Assert.assertEquals(ipLimitsB, bean.getIpLimits());
+        Assert.assertEquals(grantsB.size(), bean.getGrantedAuthorities().size());
+        Assert.assertTrue(bean.getGrantedAuthorities().containsAll(grantsB));
+        Assert.assertEquals(groupsB, bean.getGroups());
+        Assert.assertNull(userDetailsService.getUserByUsername("junk"));
+
+        // Changes to a bean are not seen by later requests
+        bean.addGrantedAuthority("ROLE_ROOT");
+        bean = userDetailsService.getUserByUsername(usernameB);
+        Assert.assertEquals(grantsB.size(), bean.getGrantedAuthorities().size());
+    }
+
+    @Test
+    public void testSetUsersReplacesUsers() {
+        userDetailsService.setUsers(users);
+        userDetailsService.setUsers(users.subList(0, 1));
+
+        Assert.assertEquals(1, userDetailsService.getUsers().size());
+        Assert.assertNotNull(userDetailsService.getUserByUsername(usernameA));
+        Assert.assertNull(userDetailsService.getUserByUsername(usernameB));
+
+        // An invalid user leaves the existing users in place
+        verifyFailure(new Credential("", "pw"));
+        Assert.assertNotNull(userDetailsService.loadUserByUsername(usernameA));
+    }
+
     private void verifyFailure(Credential cred) {
         SecurityUserBean user = new SecurityUserBean(cred.getUsername(),
                                                      cred.getPassword(),
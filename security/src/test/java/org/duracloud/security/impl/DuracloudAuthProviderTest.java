@@ -57,8 +57,8 @@ public class DuracloudAuthProviderTest {
                 .times(1);
 
         // Direct calls expected
-        EasyMock.expect(userDetails.getIpLimits())
-                .andReturn(ipLimits)
+        EasyMock.expect(userDetails.getIpLimitsMatcher())
+                .andReturn(new IpLimitsMatcher(ipLimits))
                 .times(1);
         EasyMock.expect(userDetails.getUsername())
                 .andReturn(username)
@@ -85,14 +85,11 @@ public class DuracloudAuthProviderTest {
 
     @Test
     public void testIpInRange() {
-        DuracloudAuthProvider authProvider =
-            new DuracloudAuthProvider(null, new ShaPasswordEncoder(256));
-
-        assertTrue(authProvider.ipInRange("1.2.3.4", "1.1.1.1/0"));
-        assertTrue(authProvider.ipInRange("1.2.3.4", "1.2.3.4/32"));
-        assertTrue(authProvider.ipInRange("1.2.3.127", "1.2.3.4/25"));
+        assertTrue(new IpLimitsMatcher("1.1.1.1/0").matches("1.2.3.4"));
+        assertTrue(new IpLimitsMatcher("1.2.3.4/32").matches("1.2.3.4"));
+        assertTrue(new IpLimitsMatcher("1.2.3.4/25").matches("1.2.3.127"));
 
-        assertFalse(authProvider.ipInRange("1.2.2.2", "1.2.3.4/30"));
-        assertFalse(authProvider.ipInRange("1.2.3.5", "1.2.3.4/32"));
+        assertFalse(new IpLimitsMatcher("1.2.3.4/30").matches("1.2.2.2"));
+        assertFalse(new IpLimitsMatcher("1.2.3.4/32").matches("1.2.3.5"));
     }
 }
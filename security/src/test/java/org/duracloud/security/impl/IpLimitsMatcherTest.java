@@ -0,0 +1,75 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.security.impl;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class IpLimitsMatcherTest {
+
+    @Test
+    public void testNoLimits() {
+        assertFalse(new IpLimitsMatcher(null).hasLimits());
+        assertFalse(new IpLimitsMatcher("").hasLimits());
+        assertFalse(new IpLimitsMatcher("").matches("1.2.3.4"));
+    }
+
+    @Test
+    public void testIpv4() {
+        IpLimitsMatcher matcher =
+            new IpLimitsMatcher("10.0.0.0/8;1.2.3.4/32;1.2.5.6/30;10.1.0.0/16;192.168.1.1");
+        assertTrue(matcher.hasLimits());
+
+        assertTrue(matcher.matches("1.2.3.4"));
+        assertTrue(matcher.matches("1.2.5.4"));
+        assertTrue(matcher.matches("1.2.5.7"));
+        assertTrue(matcher.matches("10.0.0.0"));
+        assertTrue(matcher.matches("10.255.255.255"));
+        assertTrue(matcher.matches("192.168.1.1"));
+
+        assertFalse(matcher.matches("1.2.3.5"));
+        assertFalse(matcher.matches("1.2.5.8"));
+        assertFalse(matcher.matches("11.0.0.0"));
+        assertFalse(matcher.matches("192.168.1.2"));
+        assertFalse(matcher.matches("0.0.0.0"));
+        assertFalse(matcher.matches("255.255.255.255"));
+
+        assertTrue(new IpLimitsMatcher("1.1.1.1/0").matches("255.255.255.255"));
+        assertTrue(new IpLimitsMatcher("1.2.3.4/25").matches("1.2.3.127"));
+        assertFalse(new IpLimitsMatcher("1.2.3.4/25").matches("1.2.3.128"));
+    }
+
+    @Test
+    public void testIpv6() {
+        IpLimitsMatcher matcher = new IpLimitsMatcher("2001:db8::/32;1.2.3.4/32");
+        assertTrue(matcher.matches("2001:db8::1"));
+        assertTrue(matcher.matches("2001:db8:ffff:ffff:ffff:ffff:ffff:ffff"));
+        assertFalse(matcher.matches("2001:db9::1"));
+        assertFalse(matcher.matches("::1"));
+
+        // Addresses are only matched by ranges of the same family
+        assertTrue(matcher.matches("1.2.3.4"));
+        assertFalse(new IpLimitsMatcher("::/0").matches("1.2.3.4"));
+    }
+
+    @Test
+    public void testInvalidRanges() {
+        IpLimitsMatcher matcher = new IpLimitsMatcher("1.2.3.4/33;1.2.3.x/24;1.2.3.4/a; 5.6.7.8/32 ");
+        assertTrue(matcher.hasLimits());
+        assertTrue(matcher.matches("5.6.7.8"));
+        assertFalse(matcher.matches("1.2.3.4"));
+        assertFalse(matcher.matches("not-an-address"));
+        assertFalse(matcher.matches("1.2.3"));
+
+        // Limits with no valid range match no address
+        assertFalse(new IpLimitsMatcher("1.2.3.4/33").matches("1.2.3.4"));
+    }
+
+}
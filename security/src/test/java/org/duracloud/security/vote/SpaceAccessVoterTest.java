@@ -8,9 +8,17 @@
 package org.duracloud.security.vote;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
 
+import org.duracloud.common.model.AclType;
+import org.duracloud.storage.provider.StorageProvider;
+import org.duracloud.storage.util.StorageProviderFactory;
+import org.easymock.EasyMock;
 import org.junit.Test;
 import org.springframework.security.core.Authentication;
 
@@ -18,6 +26,60 @@ import org.springframework.security.core.Authentication;
  * @author Daniel Bernstein
  */
 public class SpaceAccessVoterTest {
+    private SpaceAccessVoter createVoter(StorageProviderFactory providerFactory) {
+        return new SpaceAccessVoter(providerFactory, null) {
+            @Override
+            public int vote(Authentication authentication,
+                            Object object,
+                            Collection attributes) {
+                return 0;
+            }
+        };
+    }
+
+    @Test
+    public void testRequestResolvedOnce() {
+        String storeId = "5";
+        String spaceId = "space-id";
+        Map<String, AclType> acls = new HashMap<>();
+        acls.put(StorageProvider.PROPERTIES_SPACE_ACL + "user", AclType.READ);
+
+        StorageProvider provider = EasyMock.createMock(StorageProvider.class);
+        StorageProviderFactory providerFactory =
+            EasyMock.createMock(StorageProviderFactory.class);
+        HttpServletRequest request = EasyMock.createMock(HttpServletRequest.class);
+
+        // The request is parsed, and the ACLs retrieved, only once
+        EasyMock.expect(request.getPathInfo()).andReturn("/" + spaceId + "/content-id");
+        EasyMock.expect(request.getQueryString()).andReturn("storeID=" + storeId);
+        EasyMock.expect(providerFactory.getStorageProvider(storeId)).andReturn(provider);
+        EasyMock.expect(provider.getSpaceACLs(spaceId)).andReturn(acls);
+
+        Map<String, Object> attributes = new HashMap<>();
+        request.setAttribute(EasyMock.isA(String.class), EasyMock.anyObject());
+        EasyMock.expectLastCall().andAnswer(() -> {
+            Object[] args = EasyMock.getCurrentArguments();
+            attributes.put((String) args[0], args[1]);
+            return null;
+        }).anyTimes();
+        EasyMock.expect(request.getAttribute(EasyMock.isA(String.class)))
+                .andAnswer(() -> attributes.get((String) EasyMock.getCurrentArguments()[0]))
+                .anyTimes();
+
+        EasyMock.replay(provider, providerFactory, request);
+
+        SpaceAccessVoter readVoter = createVoter(providerFactory);
+        SpaceAccessVoter writeVoter = createVoter(providerFactory);
+        for (SpaceAccessVoter voter : new SpaceAccessVoter[] {readVoter, writeVoter}) {
+            assertEquals(spaceId, voter.getSpaceId(request));
+            assertEquals("content-id", voter.getContentId(request));
+            assertEquals(storeId, voter.getStoreId(request));
+            assertSame(acls, voter.getSpaceACLs(request));
+        }
+
+        EasyMock.verify(provider, providerFactory, request);
+    }
+
     @Test
     public void testExtractSpaceIdFromPathInof() {
         String spaceId = "space-id";
@@ -8,8 +8,10 @@
 package org.duracloud.security.vote;
 
 import static org.duracloud.storage.provider.StorageProvider.PROPERTIES_SPACE_ACL;
+import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.getCurrentArguments;
 import static org.easymock.EasyMock.isA;
 import static org.easymock.EasyMock.replay;
@@ -87,6 +89,7 @@ public class SpaceReadAccessVoterTest {
         userDetailsService = createUserDetailsServiceMock();
         resource = createMock("FilterInvocation", FilterInvocation.class);
         request = createMock("HttpServletRequest", HttpServletRequest.class);
+        expectRequestAttributes();
 
         this.userPathOverrides = new LinkedList<String>();
         voter =
@@ -95,6 +98,22 @@ public class SpaceReadAccessVoterTest {
                                      this.userPathOverrides);
     }
 
+    /*
+     * The voters hold the parsed request as a request attribute
+     */
+    private void expectRequestAttributes() {
+        Map<String, Object> attributes = new HashMap<>();
+        request.setAttribute(isA(String.class), anyObject());
+        expectLastCall().andAnswer(() -> {
+            Object[] args = getCurrentArguments();
+            attributes.put((String) args[0], args[1]);
+            return null;
+        }).anyTimes();
+        expect(request.getAttribute(isA(String.class)))
+            .andAnswer(() -> attributes.get((String) getCurrentArguments()[0]))
+            .anyTimes();
+    }
+
     @After
     public void tearDown() {
         verify(providerFactory,
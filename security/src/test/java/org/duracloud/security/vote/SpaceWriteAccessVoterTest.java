@@ -85,12 +85,29 @@ public class SpaceWriteAccessVoterTest {
                                        FilterInvocation.class);
         request = EasyMock.createMock("HttpServletRequest",
                                       HttpServletRequest.class);
+        expectRequestAttributes();
         voter =
             new SpaceWriteAccessVoter(providerFactory,
                                       userDetailsService);
 
     }
 
+    /*
+     * The voters hold the parsed request as a request attribute
+     */
+    private void expectRequestAttributes() {
+        Map<String, Object> attributes = new HashMap<>();
+        request.setAttribute(EasyMock.isA(String.class), EasyMock.anyObject());
+        EasyMock.expectLastCall().andAnswer(() -> {
+            Object[] args = EasyMock.getCurrentArguments();
+            attributes.put((String) args[0], args[1]);
+            return null;
+        }).anyTimes();
+        EasyMock.expect(request.getAttribute(EasyMock.isA(String.class)))
+                .andAnswer(() -> attributes.get((String) EasyMock.getCurrentArguments()[0]))
+                .anyTimes();
+    }
+
     protected void expectGetSpaceAcls() {
         EasyMock.expect(provider.getSpaceACLs(EasyMock.isA(String.class))).andReturn(acls);
     }
@@ -371,7 +388,6 @@ public class SpaceWriteAccessVoterTest {
         LOGIN login = LOGIN.USER_READ;
         createUserDetailsServiceMock(login);
         expectGetSpaceAcls();
-        addGetQueryStringInvocation(1);
         verifyVote(registeredUser(login, "none"), securedSpace, ACCESS_DENIED);
     }
 
@@ -387,7 +403,6 @@ public class SpaceWriteAccessVoterTest {
         LOGIN login = LOGIN.USER_READ;
         createUserDetailsServiceMock(login);
         expectGetSpaceAcls();
-        addGetQueryStringInvocation(1);
         verifyVote(registeredUser(login, "none"), securedSpace, ACCESS_DENIED);
     }
 
@@ -396,7 +411,6 @@ public class SpaceWriteAccessVoterTest {
         boolean securedSpace = true;
         LOGIN login = LOGIN.USER_READ;
         createUserDetailsServiceMock(login);
-        addGetQueryStringInvocation(1);
         expectGetSpaceAcls();
         verifyVote(registeredUser(login, "no"), securedSpace, ACCESS_DENIED);
     }
@@ -579,7 +593,7 @@ public class SpaceWriteAccessVoterTest {
                                                   int pathInfoCalls) {
         String path = spaceId + contentId;
 
-        addGetQueryStringInvocation(2);
+        addGetQueryStringInvocation(1);
         EasyMock.expect(request.getPathInfo()).andReturn(path).atLeastOnce();
         EasyMock.expect(request.getMethod()).andReturn(method.name()).atLeastOnce();
         EasyMock.expect(resource.getHttpRequest()).andReturn(request);
@@ -17,6 +17,7 @@ import java.util.Collections;
 import javax.servlet.http.HttpServletRequest;
 
 import org.duracloud.security.impl.DuracloudUserDetails;
+import org.duracloud.security.impl.IpLimitsMatcher;
 import org.easymock.EasyMock;
 import org.junit.Test;
 import org.springframework.security.access.ConfigAttribute;
@@ -84,7 +85,8 @@ public class UserIpLimitsAccessVoterTest {
 
         EasyMock.expect(auth.getName()).andReturn("auth-name");
         EasyMock.expect(auth.getPrincipal()).andReturn(userDetails);
-        EasyMock.expect(userDetails.getIpLimits()).andReturn(ipLimits);
+        EasyMock.expect(userDetails.getIpLimitsMatcher())
+               .andReturn(new IpLimitsMatcher(ipLimits));
         EasyMock.expect(resource.getHttpRequest()).andReturn(httpRequest);
         EasyMock.expect(httpRequest.getRemoteAddr()).andReturn(userIp).anyTimes();
 
@@ -119,7 +119,9 @@ public class FileStitcherImpl implements FileStitcher {
         throws InvalidManifestException {
         // sort chunks by their index.
         Map<Integer, String> sortedChunkIds = new TreeMap<Integer, String>();
+        Map<String, String> chunkChecksums = new HashMap<>();
         for (ChunksManifestBean.ManifestEntry entry : manifest.getEntries()) {
+            chunkChecksums.put(entry.getChunkId(), entry.getChunkMD5());
             int parsedIndex = manifest.parseIndex(entry.getChunkId());
 
             if (entry.getIndex() == parsedIndex) {
@@ -153,7 +155,12 @@ public class FileStitcherImpl implements FileStitcher {
                 }
             };
 
-        return new MultiContentInputStream(dataSource, chunks, contentListener);
+        return new MultiContentInputStream(dataSource,
+                                           chunks,
+                                           chunkChecksums,
+                                           contentListener,
+                                           MultiContentInputStream.DEFAULT_PREFETCH_COUNT,
+                                           MultiContentInputStream.DEFAULT_MAX_BUFFERED_BYTES);
     }
 
     private Map<String, String> getContentProperties(ChunksManifest manifest) {
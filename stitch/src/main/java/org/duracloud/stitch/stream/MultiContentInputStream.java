@@ -7,38 +7,93 @@
  */
 package org.duracloud.stitch.stream;
 
+import static org.duracloud.common.util.ChecksumUtil.Algorithm.MD5;
+
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Iterator;
+import java.io.InterruptedIOException;
+import java.security.DigestInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 import org.apache.commons.io.IOUtils;
 import org.duracloud.common.model.ContentItem;
+import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.domain.Content;
 import org.duracloud.stitch.datasource.DataSource;
 
 /**
  * This class exposes a single InputStream composed of the sequence of content
- * streams read on-demand from the provided list of ContentItems.
+ * streams read from the provided list of ContentItems.
+ *
+ * The content items following the one currently being read are retrieved
+ * from the DataSource ahead of time on background threads. The bytes read
+ * ahead are held in memory, up to a fixed budget shared by all items, after
+ * which the background reads wait for the consumer to catch up. When
+ * checksums are provided for the content items, each item is verified as it
+ * is read, and an IOException is thrown at the end of any item which does
+ * not match its checksum.
  *
  * @author Andrew Woods
  * Date: 9/8/11
  */
 public class MultiContentInputStream extends InputStream {
 
+    public static final int DEFAULT_PREFETCH_COUNT = 2;
+    public static final int DEFAULT_MAX_BUFFERED_BYTES = 32 * 1024 * 1024;
+
+    private static final int BLOCK_SIZE = 1024 * 1024;
+
+    // Background reads give up if the consumer makes no progress for this long,
+    // which avoids leaving threads behind for streams which are never closed
+    private static final long MAX_CONSUMER_WAIT_MS = TimeUnit.MINUTES.toMillis(30);
+
+    private static final Pattern MD5_PATTERN = Pattern.compile("[0-9a-fA-F]{32}");
+
+    private static final AtomicInteger streamCount = new AtomicInteger(0);
+
     private DataSource dataSource;
-    private Iterator<ContentItem> contents;
-    private InputStream currentStream;
     private MultiContentInputStreamListener listener;
-    private ContentItem currentItem;
+    private Map<String, String> checksums;
+
+    private List<ContentItem> contentItems;
+    private int nextToFetch = 0;
+    private int prefetchCount;
+    private int blocksPerItem;
+
+    private ThreadPoolExecutor executor;
+    private Queue<ItemReader> readers = new LinkedList<>();
+    private Queue<byte[]> freeBlocks = new ConcurrentLinkedQueue<>();
+
+    private ItemReader currentReader;
+    private Block currentBlock;
+    private int currentBlockPos;
+    private IOException failure;
+    private volatile boolean closed = false;
 
     public MultiContentInputStream(DataSource dataSource,
                                    List<ContentItem> contentItems,
                                    MultiContentInputStreamListener listener) {
-        this.dataSource = dataSource;
-        this.contents = contentItems.iterator();
-        this.currentStream = null;
-        this.listener = listener;
+        this(dataSource,
+             contentItems,
+             null,
+             listener,
+             DEFAULT_PREFETCH_COUNT,
+             DEFAULT_MAX_BUFFERED_BYTES);
     }
 
     public MultiContentInputStream(DataSource dataSource,
@@ -46,51 +101,315 @@ public class MultiContentInputStream extends InputStream {
         this(dataSource, contentItems, null);
     }
 
+    /**
+     * @param dataSource       from which content items are retrieved
+     * @param contentItems     ordered content items which compose the stream
+     * @param checksums        map of content ID to expected MD5 checksum, items
+     *                         without a valid MD5 in the map are not verified.
+     *                         May be null.
+     * @param listener         notified as each content item is fully read,
+     *                         may be null
+     * @param prefetchCount    number of content items beyond the current
+     *                         item which are read ahead
+     * @param maxBufferedBytes total memory used to hold read-ahead bytes
+     */
+    public MultiContentInputStream(DataSource dataSource,
+                                   List<ContentItem> contentItems,
+                                   Map<String, String> checksums,
+                                   MultiContentInputStreamListener listener,
+                                   int prefetchCount,
+                                   int maxBufferedBytes) {
+        this.dataSource = dataSource;
+        this.contentItems = new ArrayList<>(contentItems);
+        this.checksums = null == checksums ? Collections.emptyMap() : checksums;
+        this.listener = listener;
+        this.prefetchCount = Math.max(0, prefetchCount);
+
+        int concurrentItems = this.prefetchCount + 1;
+        this.blocksPerItem =
+            Math.max(2, maxBufferedBytes / BLOCK_SIZE / concurrentItems);
+
+        String threadPrefix =
+            "multi-content-read-" + streamCount.incrementAndGet() + "-";
+        AtomicInteger threadCount = new AtomicInteger(0);
+        ThreadFactory threadFactory = r -> {
+            Thread thread = new Thread(r, threadPrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(concurrentItems,
+                                               concurrentItems,
+                                               10,
+                                               TimeUnit.SECONDS,
+                                               new LinkedBlockingQueue<>(),
+                                               threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
     @Override
     public int read() throws IOException {
-        // initialize current stream
-        if (null == currentStream) {
-            if (contents.hasNext()) {
-                currentStream = nextStream();
+        if (!fillBlock()) {
+            return -1;
+        }
+        return currentBlock.data[currentBlockPos++] & 0xff;
+    }
 
-            } else {
-                return -1;
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        } else if (len == 0) {
+            return 0;
+        }
+
+        int total = 0;
+        while (total < len && fillBlock()) {
+            int count = Math.min(len - total, currentBlock.length - currentBlockPos);
+            System.arraycopy(currentBlock.data, currentBlockPos, b, off + total, count);
+            currentBlockPos += count;
+            total += count;
+
+            // Hand back what is available rather than waiting on the next block
+            if (currentBlockPos == currentBlock.length && !nextBlockReady()) {
+                break;
             }
         }
+        return total == 0 ? -1 : total;
+    }
 
-        int bite = currentStream.read();
-        if (-1 == bite) {
-            if (contents.hasNext()) {
-                currentStream = nextStream();
-                bite = currentStream.read();
+    @Override
+    public int available() throws IOException {
+        if (null == currentBlock) {
+            return 0;
+        }
+        return currentBlock.length - currentBlockPos;
+    }
+
+    /**
+     * Ensures there is an unread byte in the current block.
+     *
+     * @return false if the end of the last content item has been reached
+     */
+    private boolean fillBlock() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        } else if (null != failure) {
+            throw failure;
+        }
+
+        while (null == currentBlock || currentBlockPos >= currentBlock.length) {
+            if (null != currentBlock) {
+                releaseBlock(currentBlock);
+                currentBlock = null;
+            }
+
+            if (null == currentReader) {
+                scheduleReads();
+                currentReader = readers.poll();
+                if (null == currentReader) {
+                    executor.shutdown();
+                    return false;
+                }
+            }
+
+            Block block = currentReader.take();
+            if (block.isEnd()) {
+                if (null != block.error) {
+                    failure = block.error;
+                    executor.shutdownNow();
+                    throw failure;
+                }
+                notifyContentIdRead(currentReader.item);
+                currentReader = null;
             } else {
-                notifyContentIdRead();
+                currentBlock = block;
+                currentBlockPos = 0;
             }
         }
+        return true;
+    }
 
-        return bite;
+    private boolean nextBlockReady() {
+        return null != currentReader && null != currentReader.blocks.peek();
     }
 
-    private InputStream nextStream() {
-        if (this.currentStream != null) {
-            IOUtils.closeQuietly(this.currentStream);
-            notifyContentIdRead();
+    /*
+     * Starts background reads of the next content items, up to the current
+     * item plus the prefetch count.
+     */
+    private void scheduleReads() {
+        while (readers.size() < prefetchCount + 1 &&
+               nextToFetch < contentItems.size()) {
+            ItemReader reader = new ItemReader(contentItems.get(nextToFetch++));
+            readers.add(reader);
+            executor.execute(reader);
         }
-        currentItem = contents.next();
-        return getStream(currentItem);
     }
 
-    protected void notifyContentIdRead() {
-        if (this.listener != null && this.currentItem != null) {
-            this.listener.contentIdRead(this.currentItem.getContentId());
-            this.currentItem = null;
+    protected void notifyContentIdRead(ContentItem item) {
+        if (this.listener != null) {
+            this.listener.contentIdRead(item.getContentId());
         }
     }
 
-    private InputStream getStream(ContentItem contentItem) {
-        Content content = dataSource.getContent(contentItem.getSpaceId(),
-                                                contentItem.getContentId());
-        return content.getStream();
+    private byte[] borrowBlock() {
+        byte[] data = freeBlocks.poll();
+        return null == data ? new byte[BLOCK_SIZE] : data;
+    }
+
+    private void releaseBlock(Block block) {
+        if (null != block.data) {
+            freeBlocks.offer(block.data);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        executor.shutdownNow();
+    }
+
+    /**
+     * Reads a single content item into a bounded queue of blocks.
+     */
+    private class ItemReader implements Runnable {
+
+        private final ContentItem item;
+        private final BlockingQueue<Block> blocks;
+        // Limits the data blocks queued, so a slot is left for the end marker
+        private final Semaphore dataSlots;
+
+        ItemReader(ContentItem item) {
+            this.item = item;
+            this.blocks = new ArrayBlockingQueue<>(blocksPerItem + 1);
+            this.dataSlots = new Semaphore(blocksPerItem);
+        }
+
+        @Override
+        public void run() {
+            Block end;
+            try {
+                end = readItem();
+            } catch (IOException e) {
+                end = Block.end(e);
+            } catch (RuntimeException e) {
+                end = Block.end(new IOException(
+                    "Unable to read " + item.getContentId() + ": " + e.getMessage(), e));
+            }
+
+            if (null == end) {
+                end = Block.end(new IOException(
+                    "Stopped reading " + item.getContentId() +
+                    " as the stream was closed or not read"));
+            }
+
+            // The slot held back from data blocks means this does not wait
+            try {
+                blocks.put(end);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /*
+         * @return the end block, or null if reading was abandoned
+         */
+        private Block readItem() throws IOException {
+            Content content = dataSource.getContent(item.getSpaceId(),
+                                                    item.getContentId());
+            try (InputStream stream = content.getStream()) {
+                DigestInputStream digestStream = ChecksumUtil.wrapStream(stream, MD5);
+                while (true) {
+                    byte[] data = borrowBlock();
+                    int length = IOUtils.read(digestStream, data);
+                    if (length > 0 && !put(new Block(data, length))) {
+                        return null;
+                    }
+                    if (length < data.length) {
+                        if (length <= 0) {
+                            freeBlocks.offer(data);
+                        }
+                        break;
+                    }
+                }
+
+                String expected = checksums.get(item.getContentId());
+                if (null != expected && MD5_PATTERN.matcher(expected).matches()) {
+                    String actual = ChecksumUtil.getChecksum(digestStream);
+                    if (!expected.equalsIgnoreCase(actual)) {
+                        return Block.end(new IOException(
+                            "Checksum mismatch for " + item.getContentId() +
+                            ", expected: " + expected + ", actual: " + actual));
+                    }
+                }
+            }
+            return Block.end(null);
+        }
+
+        /*
+         * @return false if the block could not be added because the stream
+         *         has been closed or abandoned
+         */
+        private boolean put(Block block) throws InterruptedIOException {
+            long waitStart = System.currentTimeMillis();
+            try {
+                while (!dataSlots.tryAcquire(1, TimeUnit.SECONDS)) {
+                    if (closed ||
+                        System.currentTimeMillis() - waitStart > MAX_CONSUMER_WAIT_MS) {
+                        return false;
+                    }
+                }
+                blocks.put(block);
+                return !closed;
+            } catch (InterruptedException e) {
+                if (closed) {
+                    return false;
+                }
+                throw new InterruptedIOException(
+                    "Interrupted reading " + item.getContentId());
+            }
+        }
+
+        Block take() throws IOException {
+            try {
+                Block block = blocks.take();
+                if (!block.isEnd()) {
+                    dataSlots.release();
+                }
+                return block;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(
+                    "Interrupted waiting for " + item.getContentId());
+            }
+        }
+    }
+
+    /**
+     * A portion of a content item, or the marker for the end of an item.
+     */
+    private static class Block {
+        private final byte[] data;
+        private final int length;
+        private final IOException error;
+
+        Block(byte[] data, int length) {
+            this(data, length, null);
+        }
+
+        private Block(byte[] data, int length, IOException error) {
+            this.data = data;
+            this.length = length;
+            this.error = error;
+        }
+
+        static Block end(IOException error) {
+            return new Block(null, -1, error);
+        }
+
+        boolean isEnd() {
+            return null == data;
+        }
     }
 
 }
@@ -9,13 +9,19 @@ package org.duracloud.stitch.stream;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import org.apache.commons.io.IOUtils;
 import org.duracloud.common.model.ContentItem;
+import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.domain.Content;
 import org.duracloud.stitch.datasource.DataSource;
 import org.easymock.EasyMock;
@@ -90,6 +96,99 @@ public class MultiContentInputStreamTest {
         out.close();
     }
 
+    @Test
+    public void testReadBlocksWithPrefetch() throws Exception {
+        String text = createReadMocks();
+        replayMocks();
+
+        multiStream = new MultiContentInputStream(dataSource, contentItems, null,
+                                                  null, 1, 0);
+        byte[] buffer = new byte[3];
+        StringBuilder read = new StringBuilder();
+        int count;
+        while ((count = multiStream.read(buffer, 0, buffer.length)) != -1) {
+            read.append(new String(buffer, 0, count));
+        }
+        Assert.assertEquals(text, read.toString());
+        multiStream.close();
+    }
+
+    @Test
+    public void testReadVerifyChecksums() throws Exception {
+        String text = createReadMocks();
+        replayMocks();
+
+        Map<String, String> checksums = new HashMap<>();
+        ChecksumUtil checksumUtil = new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
+        for (int i = 0; i < contentItems.size(); i++) {
+            checksums.put(contentItems.get(i).getContentId(),
+                          checksumUtil.generateChecksum("text-" + i));
+        }
+
+        OutputStream out = new ByteArrayOutputStream();
+        multiStream = new MultiContentInputStream(dataSource, contentItems, checksums,
+                                                  null, 2, 1024);
+        IOUtils.copy(multiStream, out);
+        Assert.assertEquals(text, out.toString());
+        out.close();
+    }
+
+    @Test
+    public void testReadChecksumMismatch() throws Exception {
+        createReadMocks();
+        replayMocks();
+
+        Map<String, String> checksums = new HashMap<>();
+        ChecksumUtil checksumUtil = new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
+        checksums.put(contentItems.get(4).getContentId(),
+                      checksumUtil.generateChecksum("not-the-content"));
+
+        multiStream = new MultiContentInputStream(dataSource, contentItems, checksums,
+                                                  null, 2, 1024);
+        try {
+            IOUtils.copy(multiStream, new ByteArrayOutputStream());
+            Assert.fail("Exception expected");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().contains(
+                contentItems.get(4).getContentId()));
+        }
+        multiStream.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testReadLargeItemsSlowly() throws Exception {
+        // Items of several blocks each, read more slowly than they are fetched
+        int itemSize = 3 * 1024 * 1024 + 100;
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Random random = new Random(0);
+        for (int i = 0; i < 3; i++) {
+            byte[] data = new byte[itemSize];
+            random.nextBytes(data);
+            expected.write(data);
+
+            String spaceId = "spaceId-" + i;
+            String contentId = "contentId-" + i;
+            contentItems.add(new ContentItem(spaceId, contentId));
+            Content content = new Content();
+            content.setStream(new ByteArrayInputStream(data));
+            EasyMock.expect(dataSource.getContent(spaceId, contentId)).andReturn(
+                content);
+        }
+        replayMocks();
+
+        multiStream = new MultiContentInputStream(dataSource, contentItems, null,
+                                                  null, 2, 0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256 * 1024];
+        int count;
+        while ((count = multiStream.read(buffer, 0, buffer.length)) != -1) {
+            out.write(buffer, 0, count);
+            Thread.sleep(20);
+        }
+        multiStream.close();
+        Assert.assertTrue(Arrays.equals(expected.toByteArray(), out.toByteArray()));
+    }
+
     private String createReadMocks() {
         StringBuilder text = new StringBuilder();
         for (int i = 0; i < 5; ++i) {
@@ -25,6 +25,7 @@ public interface StorageAccount {
         CF_KEY_ID,
         CF_KEY_PATH,
         AWS_REGION,
+        ITEM_COUNT_REFRESH_MINUTES,
         // Swift
         SWIFT_S3_ENDPOINT,
         SWIFT_S3_SIGNER_TYPE,
@@ -259,6 +259,40 @@ public interface StorageProvider {
     public void deleteContent(String spaceId,
                               String contentId);
 
+    /**
+     * Removes a set of content items from a space. Items which do not exist
+     * are passed over. An attempt is made to remove every item, even if some
+     * of them cannot be removed. Providers which are able to remove many
+     * items with a single request may do so.
+     *
+     * @param spaceId    - ID of the space
+     * @param contentIds - IDs of the content in the space
+     * @throws NotFoundException if space with ID spaceId does not exist
+     * @throws StorageException  if any of the content items could not be
+     *                           removed
+     */
+    public default void deleteContents(String spaceId,
+                                       List<String> contentIds) {
+        StorageException error = null;
+        boolean spaceFound = false;
+        for (String contentId : contentIds) {
+            try {
+                deleteContent(spaceId, contentId);
+            } catch (NotFoundException e) {
+                // The item does not exist, unless it is the space which does not
+                if (!spaceFound) {
+                    getSpaceProperties(spaceId);
+                    spaceFound = true;
+                }
+            } catch (StorageException e) {
+                error = e;
+            }
+        }
+        if (null != error) {
+            throw error;
+        }
+    }
+
     /**
      * Sets the properties associated with content. This effectively
      * removes all of the current content properties and adds a new
@@ -7,11 +7,21 @@
  */
 package org.duracloud.storage.provider;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.duracloud.common.model.AclType;
 import org.duracloud.storage.error.NotFoundException;
@@ -32,8 +42,41 @@ public abstract class StorageProviderBase implements StorageProvider {
     protected static final String ACL_GROUP_WRITE = "acl-group-write";
     protected static final String ACL_DELIM = ":";
 
+    /*
+     * Space properties which record the progress of a space delete. A space
+     * is flagged for deletion until it has been removed, the count of items
+     * removed so far is updated as the space is emptied, and an error is
+     * recorded if the space could not be emptied.
+     */
+    public static final String PROPERTIES_SPACE_DELETE = "is-delete";
+    public static final String PROPERTIES_SPACE_DELETE_COUNT = "delete-count";
+    public static final String PROPERTIES_SPACE_DELETE_ERROR = "delete-error";
+
+    protected static final int DELETE_BATCH_SIZE = 1000;
+    protected static final int DELETE_BATCHES_IN_FLIGHT = 4;
+    protected static final long DELETE_PROGRESS_INTERVAL = 10000;
+
+    private static final AtomicInteger spaceDeleteThreadCount = new AtomicInteger();
+    private static final ExecutorService spaceDeleteExecutor =
+        Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "space-delete-" +
+                                                 spaceDeleteThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    private static final AtomicInteger contentDeleteThreadCount = new AtomicInteger();
+    private static final ExecutorService contentDeleteExecutor =
+        Executors.newFixedThreadPool(8, runnable -> {
+            Thread thread = new Thread(runnable, "content-delete-" +
+                                                 contentDeleteThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
     protected final Logger log = LoggerFactory.getLogger(StorageProviderBase.class);
     private StorageProvider wrappedStorageProvider;
+    private final Set<String> activeSpaceDeletes = ConcurrentHashMap.newKeySet();
 
     protected abstract boolean spaceExists(String spaceId);
 
@@ -285,17 +328,16 @@ public abstract class StorageProviderBase implements StorageProvider {
 
     /**
      * {@inheritDoc}
+     *
+     * The space is flagged for deletion and then emptied and removed in the
+     * background. Its space properties report the progress of the delete.
      */
     public void deleteSpace(String spaceId) {
         log.debug("deleteSpace(" + spaceId + ")");
         throwIfSpaceNotExist(spaceId);
 
-        Map<String, String> allProps = getAllSpaceProperties(spaceId);
-        allProps.put("is-delete", "true");
-        doSetSpaceProperties(spaceId, allProps);
-
-        SpaceDeleteWorker deleteThread = getSpaceDeleteWorker(spaceId);
-        new Thread(deleteThread).start();
+        flagSpaceDelete(spaceId);
+        startSpaceDelete(spaceId);
     }
 
     /**
@@ -307,19 +349,78 @@ public abstract class StorageProviderBase implements StorageProvider {
         log.debug("deleteSpaceSync(" + spaceId + ")");
         throwIfSpaceNotExist(spaceId);
 
-        Map<String, String> allProps = getAllSpaceProperties(spaceId);
-        allProps.put("is-delete", "true");
-        doSetSpaceProperties(spaceId, allProps);
+        flagSpaceDelete(spaceId);
 
         SpaceDeleteWorker deleteWorker = getSpaceDeleteWorker(spaceId);
         deleteWorker.run();
     }
 
+    /**
+     * Restarts the delete of any spaces which are flagged for deletion but
+     * which are not being deleted, such as spaces which were being emptied
+     * when the application was stopped. Spaces for which a delete error has
+     * been recorded are left as they are. The spaces are checked in the
+     * background.
+     */
+    public void resumeSpaceDeletes() {
+        spaceDeleteExecutor.execute(() -> {
+            Iterator<String> spaces;
+            try {
+                spaces = getSpaces();
+            } catch (Exception e) {
+                log.warn("Unable to resume space deletes: " + e.getMessage());
+                return;
+            }
+
+            while (spaces.hasNext()) {
+                String spaceId = spaces.next();
+                try {
+                    Map<String, String> allProps = getAllSpaceProperties(spaceId);
+                    if ("true".equals(allProps.get(PROPERTIES_SPACE_DELETE)) &&
+                        !allProps.containsKey(PROPERTIES_SPACE_DELETE_ERROR)) {
+                        log.info("Resuming delete of space " + spaceId);
+                        startSpaceDelete(spaceId);
+                    }
+                } catch (Exception e) {
+                    log.warn("Unable to resume delete of space " + spaceId +
+                             ": " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    private void flagSpaceDelete(String spaceId) {
+        Map<String, String> allProps = getAllSpaceProperties(spaceId);
+        allProps.put(PROPERTIES_SPACE_DELETE, "true");
+        allProps.remove(PROPERTIES_SPACE_DELETE_ERROR);
+        doSetSpaceProperties(spaceId, allProps);
+    }
+
+    /*
+     * Queues the delete of a space, unless it is already being deleted.
+     * Space deletes share a bounded pool of workers.
+     */
+    private void startSpaceDelete(String spaceId) {
+        if (!activeSpaceDeletes.add(spaceId)) {
+            log.debug("Space " + spaceId + " is already being deleted");
+            return;
+        }
+        try {
+            spaceDeleteExecutor.execute(getSpaceDeleteWorker(spaceId));
+        } catch (RejectedExecutionException e) {
+            activeSpaceDeletes.remove(spaceId);
+            throw new StorageException("Unable to start delete of space " +
+                                       spaceId + ": " + e.getMessage(), e);
+        }
+    }
+
     protected class SpaceDeleteWorker implements Runnable {
         protected final Logger log =
             LoggerFactory.getLogger(SpaceDeleteWorker.class);
 
         private String spaceId;
+        private final AtomicLong deletedCount = new AtomicLong();
+        private Long priorDeletedCount = null;
 
         public SpaceDeleteWorker(String spaceId) {
             this.spaceId = spaceId;
@@ -328,6 +429,15 @@ public abstract class StorageProviderBase implements StorageProvider {
         @Override
         public void run() {
             log.debug("SpaceDeleteWorker started!");
+            try {
+                deleteSpace();
+            } finally {
+                activeSpaceDeletes.remove(spaceId);
+            }
+            log.debug("SpaceDeleteWorker ended!");
+        }
+
+        private void deleteSpace() {
             Iterator<String> contents = getSpaceContents(spaceId, null);
             int count = 0;
 
@@ -343,18 +453,7 @@ public abstract class StorageProviderBase implements StorageProvider {
                     sp = wrappedStorageProvider;
                 }
 
-                while (contents.hasNext()) {
-                    String contentId = contents.next();
-                    log.debug("deleteContent(" + spaceId + ", " +
-                              contentId + ") - count=" + count);
-
-                    try {
-                        sp.deleteContent(spaceId, contentId);
-                    } catch (Exception e) {
-                        log.error("Error deleting content " + contentId +
-                                  " in space " + spaceId, e);
-                    }
-                }
+                deleteContents(sp, contents, count);
                 contents = getSpaceContents(spaceId, null);
             }
 
@@ -363,13 +462,97 @@ public abstract class StorageProviderBase implements StorageProvider {
                           ") exceeded retries");
 
                 Map<String, String> allProps = getAllSpaceProperties(spaceId);
-                allProps.put("delete-error", "Unable to delete all contents");
+                allProps.put(PROPERTIES_SPACE_DELETE_ERROR,
+                             "Unable to delete all contents");
                 doSetSpaceProperties(spaceId, allProps);
             } else {
                 log.debug("removeSpace(" + spaceId + ")");
                 removeSpace(spaceId);
             }
-            log.debug("SpaceDeleteWorker ended!");
+        }
+
+        /*
+         * Deletes the listed content items in batches, with a bounded number
+         * of batches being deleted at once.
+         */
+        private void deleteContents(StorageProvider sp,
+                                    Iterator<String> contents,
+                                    int count) {
+            Semaphore batchesInFlight = new Semaphore(DELETE_BATCHES_IN_FLIGHT);
+            List<Future<?>> batches = new ArrayList<>();
+            while (contents.hasNext()) {
+                List<String> batch = new ArrayList<>();
+                while (contents.hasNext() && batch.size() < DELETE_BATCH_SIZE) {
+                    batch.add(contents.next());
+                }
+
+                try {
+                    batchesInFlight.acquire();
+                } catch (InterruptedException e) {
+                    log.warn("Delete of space " + spaceId + " interrupted");
+                    break;
+                }
+                batches.add(contentDeleteExecutor.submit(() -> {
+                    try {
+                        log.debug("deleteContents(" + spaceId + ", " +
+                                  batch.size() + " items) - count=" + count);
+                        sp.deleteContents(spaceId, batch);
+                        itemsDeleted(batch.size());
+                    } catch (Exception e) {
+                        log.error("Error deleting content items " + batch.get(0) +
+                                  " to " + batch.get(batch.size() - 1) +
+                                  " in space " + spaceId, e);
+                    } finally {
+                        batchesInFlight.release();
+                    }
+                }));
+            }
+
+            for (Future<?> batch : batches) {
+                try {
+                    batch.get();
+                } catch (Exception e) {
+                    log.warn("Error waiting for delete of content in space " +
+                             spaceId + ": " + e.getMessage());
+                }
+            }
+        }
+
+        private void itemsDeleted(int items) {
+            long deleted = deletedCount.addAndGet(items);
+            if (deleted / DELETE_PROGRESS_INTERVAL >
+                (deleted - items) / DELETE_PROGRESS_INTERVAL) {
+                recordProgress();
+            }
+        }
+
+        /*
+         * Adds the number of items deleted to the count recorded in the
+         * space properties, which includes items deleted by earlier attempts
+         * to delete the space.
+         */
+        private synchronized void recordProgress() {
+            try {
+                Map<String, String> allProps = getAllSpaceProperties(spaceId);
+                if (null == priorDeletedCount) {
+                    priorDeletedCount = 0L;
+                    String recorded = allProps.get(PROPERTIES_SPACE_DELETE_COUNT);
+                    if (null != recorded) {
+                        try {
+                            priorDeletedCount = Long.valueOf(recorded);
+                        } catch (NumberFormatException e) {
+                            log.warn("Invalid delete count for space " +
+                                     spaceId + ": " + recorded);
+                        }
+                    }
+                }
+                long total = priorDeletedCount + deletedCount.get();
+                allProps.put(PROPERTIES_SPACE_DELETE_COUNT, String.valueOf(total));
+                doSetSpaceProperties(spaceId, allProps);
+            } catch (Exception e) {
+                log.warn("Unable to record delete progress of space " +
+                         spaceId + ": " + e.getMessage());
+            }
         }
     }
 
@@ -37,4 +37,11 @@ public interface StorageProviderFactory {
 
     public TaskQueue getAuditQueue();
 
+    /**
+     * Releases resources held by this factory. Audit tasks which have not yet
+     * been placed on the audit queue are flushed. Does nothing by default.
+     */
+    public default void shutdown() {
+    }
+
 }
@@ -19,7 +19,7 @@ import java.util.Map;
 import org.duracloud.common.model.AclType;
 import org.duracloud.storage.domain.RetrievedContent;
 import org.duracloud.storage.domain.StorageProviderType;
-import org.duracloud.storage.error.NotFoundException;
+import org.duracloud.storage.error.StorageException;
 import org.easymock.Capture;
 import org.easymock.CaptureType;
 import org.easymock.EasyMock;
@@ -384,7 +384,7 @@ public class StorageProviderBaseTest {
                 .andReturn(contents.iterator())
                 .once();
 
-        wrappedProvider.deleteContent(spaceId, contentId);
+        wrappedProvider.deleteContents(spaceId, contents);
         EasyMock.expectLastCall().once();
 
         EasyMock.expect(providerMock.getSpaceContents(EasyMock.eq(spaceId),
@@ -449,7 +449,7 @@ public class StorageProviderBaseTest {
                     .andReturn(contents.iterator());
 
             providerMock.deleteContent(spaceId, contentId);
-            EasyMock.expectLastCall().andThrow(new NotFoundException(""));
+            EasyMock.expectLastCall().andThrow(new StorageException(""));
         }
 
         EasyMock.expect(providerMock.getAllSpaceProperties(spaceId)).andReturn(
@@ -466,6 +466,64 @@ public class StorageProviderBaseTest {
         worker.run();
     }
 
+    @Test
+    public void testBatchDeleteWorker() {
+        int itemCount = (int) StorageProviderBase.DELETE_PROGRESS_INTERVAL + 1;
+        List<String> contents = new ArrayList<>();
+        for (int i = 0; i < itemCount; i++) {
+            contents.add("content-" + i);
+        }
+        StorageProvider wrappedProvider = EasyMock.createMock(StorageProvider.class);
+        providerBase.setWrappedStorageProvider(wrappedProvider);
+
+        EasyMock.expect(providerMock.getSpaceContents(spaceId, null))
+                .andReturn(contents.iterator());
+        EasyMock.expect(providerMock.getSpaceContents(spaceId, null))
+                .andReturn(new ArrayList<String>().iterator());
+
+        // Items are deleted in full batches, with one partial batch
+        Capture<List<String>> batchCapture = Capture.newInstance(CaptureType.ALL);
+        wrappedProvider.deleteContents(EasyMock.eq(spaceId),
+                                       EasyMock.capture(batchCapture));
+        EasyMock.expectLastCall().times(
+            (itemCount / StorageProviderBase.DELETE_BATCH_SIZE) + 1);
+
+        // Progress is recorded, adding to the count of an earlier attempt
+        Map<String, String> props = new HashMap<>();
+        props.put(StorageProviderBase.PROPERTIES_SPACE_DELETE, "true");
+        props.put(StorageProviderBase.PROPERTIES_SPACE_DELETE_COUNT, "500");
+        EasyMock.expect(providerMock.getAllSpaceProperties(spaceId)).andReturn(props);
+        Capture<Map<String, String>> propsCapture = Capture.newInstance();
+        providerMock.doSetSpaceProperties(EasyMock.eq(spaceId),
+                                          EasyMock.capture(propsCapture));
+        EasyMock.expectLastCall().once();
+
+        providerMock.removeSpace(spaceId);
+        EasyMock.expectLastCall().once();
+        EasyMock.replay(wrappedProvider);
+        replayMocks();
+
+        StorageProviderBase.SpaceDeleteWorker worker =
+            providerBase.getSpaceDeleteWorker(spaceId);
+        worker.run();
+
+        EasyMock.verify(wrappedProvider);
+
+        List<String> deleted = new ArrayList<>();
+        for (List<String> batch : batchCapture.getValues()) {
+            Assert.assertTrue(batch.size() <= StorageProviderBase.DELETE_BATCH_SIZE);
+            deleted.addAll(batch);
+        }
+        Assert.assertEquals(itemCount, deleted.size());
+        Assert.assertTrue(deleted.containsAll(contents));
+
+        // Batches complete concurrently, so the last may be included
+        long recorded = Long.valueOf(propsCapture.getValue().get(
+            StorageProviderBase.PROPERTIES_SPACE_DELETE_COUNT));
+        Assert.assertTrue(recorded >= 500 + StorageProviderBase.DELETE_PROGRESS_INTERVAL);
+        Assert.assertTrue(recorded <= 500 + itemCount);
+    }
+
     /**
      * This is an implementation of the abstract StorageProviderBase class,
      * which is the class actually under test.
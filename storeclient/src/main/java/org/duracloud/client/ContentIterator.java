@@ -10,6 +10,12 @@ package org.duracloud.client;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.duracloud.common.retry.Retrier;
 import org.duracloud.error.ContentStoreException;
@@ -23,11 +29,26 @@ import org.slf4j.LoggerFactory;
  * call next() to iterate through the entire content listing, regardless
  * of its length.
  *
+ * When created in prefetch mode, each chunk of the content list is requested
+ * in the background as soon as the previous chunk is received, so that the
+ * next chunk is available (or on its way) while the current chunk is being
+ * consumed.
+ *
  * @author: Bill Branan
  * Date: Dec 23, 2009
  */
 public class ContentIterator implements Iterator<String> {
 
+    private static final AtomicInteger prefetchThreadCount = new AtomicInteger(0);
+    private static final ThreadFactory prefetchThreadFactory = r -> {
+        Thread thread = new Thread(r, "content-iterator-prefetch-" +
+                                      prefetchThreadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    };
+    private static final ExecutorService prefetchExecutor =
+        Executors.newCachedThreadPool(prefetchThreadFactory);
+
     private ContentStore store;
     private String spaceId;
     private String prefix;
@@ -36,6 +57,8 @@ public class ContentIterator implements Iterator<String> {
     private List<String> contentList;
     private long maxResults;
     private int maxRetries;
+    private boolean prefetch;
+    private Future<List<String>> nextContentList;
 
     private final Logger log =
         LoggerFactory.getLogger(ContentIterator.class);
@@ -50,13 +73,27 @@ public class ContentIterator implements Iterator<String> {
                            String spaceId,
                            String prefix,
                            long maxResults) throws ContentStoreException {
+        this(store, spaceId, prefix, maxResults, false);
+    }
+
+    /**
+     * @param prefetch true to request each chunk of the content list in the
+     *                 background before it is needed
+     */
+    public ContentIterator(ContentStore store,
+                           String spaceId,
+                           String prefix,
+                           long maxResults,
+                           boolean prefetch) throws ContentStoreException {
         index = 0;
         this.store = store;
         this.spaceId = spaceId;
         this.prefix = prefix;
         this.maxResults = maxResults;
         this.maxRetries = 7;
+        this.prefetch = prefetch;
         contentList = retryBuildContentList(null);
+        prefetchNextList();
     }
 
     public void setMaxRetries(int maxRetries) {
@@ -93,13 +130,38 @@ public class ContentIterator implements Iterator<String> {
     }
 
     private void updateList() {
-        String lastItem = contentList.get(contentList.size() - 1);
         try {
-            contentList = retryBuildContentList(lastItem);
+            if (null != nextContentList) {
+                contentList = nextContentList.get();
+                nextContentList = null;
+            } else {
+                String lastItem = contentList.get(contentList.size() - 1);
+                contentList = retryBuildContentList(lastItem);
+            }
         } catch (ContentStoreException e) {
             throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
         }
         index = 0;
+        prefetchNextList();
+    }
+
+    /*
+     * In prefetch mode, starts retrieving the chunk which follows the
+     * current chunk, if the current chunk is full. A chunk which is not full
+     * is usually the last, so the following chunk is requested only if it is
+     * needed, as it would be without prefetching.
+     */
+    private void prefetchNextList() {
+        if (prefetch && contentList.size() == maxResults) {
+            String lastItem = contentList.get(contentList.size() - 1);
+            nextContentList =
+                prefetchExecutor.submit(() -> retryBuildContentList(lastItem));
+        }
     }
 
     private List<String> retryBuildContentList(String lastItem)
@@ -155,6 +155,27 @@ public interface ContentStore {
     public Iterator<String> getSpaceContents(String spaceId, String prefix)
         throws ContentStoreException;
 
+    /**
+     * Retrieves the complete list of content items within a space, as
+     * getSpaceContents(spaceId, prefix). When prefetch is true, each page of
+     * the list is retrieved in the background while the previous page is
+     * being read, which is best suited to callers that read the entire list.
+     * By default the list is not prefetched.
+     *
+     * @param spaceId  the identifier of the DuraCloud Space
+     * @param prefix   only retrieve content ids with this prefix (null for all content ids)
+     * @param prefetch true to retrieve the next page of the list in the background
+     * @return Iterator for content IDs
+     * @throws NotFoundException     if the space does not exist
+     * @throws ContentStoreException if an error occurs
+     */
+    public default Iterator<String> getSpaceContents(String spaceId,
+                                                     String prefix,
+                                                     boolean prefetch)
+        throws ContentStoreException {
+        return getSpaceContents(spaceId, prefix);
+    }
+
     /**
      * Provides a space, including the id and properties of the space as well as
      * a limited list of the content items within a space. This call allows for
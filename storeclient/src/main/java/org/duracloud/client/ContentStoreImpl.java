@@ -23,6 +23,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.apache.http.Header;
@@ -80,6 +84,8 @@ public class ContentStoreImpl implements ContentStore {
 
     private static final String HEADER_PREFIX = Constants.HEADER_PREFIX;
 
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXMLInputFactory();
+
     private int maxRetries = 3;
 
     private final Logger log =
@@ -322,12 +328,27 @@ public class ContentStoreImpl implements ContentStore {
     public Iterator<String> getSpaceContents(final String spaceId,
                                              final String prefix)
         throws ContentStoreException {
+        return getSpaceContents(spaceId, prefix, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<String> getSpaceContents(final String spaceId,
+                                             final String prefix,
+                                             final boolean prefetch)
+        throws ContentStoreException {
         final ContentStore store = this;
         return execute(new Retriable() {
             @Override
             public Iterator<String> retry() throws ContentStoreException {
                 // The actual method being executed
-                return new ContentIterator(store, spaceId, prefix);
+                return new ContentIterator(store,
+                                           spaceId,
+                                           prefix,
+                                           StorageProvider.DEFAULT_MAX_RESULTS,
+                                           prefetch);
             }
         });
     }
@@ -363,19 +384,11 @@ public class ContentStoreImpl implements ContentStore {
             Space space = new Space();
             space.setProperties(extractPropertiesFromHeaders(response));
 
-            String responseText = response.getResponseBody();
-            if (responseText != null) {
-                InputStream is =
-                    new ByteArrayInputStream(responseText.getBytes("UTF-8"));
-                SAXBuilder builder = new SAXBuilder();
-                Document doc = builder.build(is);
-                Element spaceElem = doc.getRootElement();
-
-                space.setId(spaceElem.getAttributeValue("id"));
-                Iterator<?> spaceContents = spaceElem.getChildren().iterator();
-                while (spaceContents.hasNext()) {
-                    Element contentElem = (Element) spaceContents.next();
-                    space.addContentId(contentElem.getText());
+            InputStream responseStream = response.getResponseStream();
+            if (responseStream != null) {
+                try (InputStream is = responseStream) {
+                    space.setContentIds(createContentIdList(maxResults));
+                    parseSpaceListing(is, space);
                 }
             } else {
                 throw new ContentStoreException("Response body is empty");
@@ -391,6 +404,51 @@ public class ContentStoreImpl implements ContentStore {
         }
     }
 
+    private static XMLInputFactory createXMLInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    private List<String> createContentIdList(long maxResults) {
+        long expectedSize = StorageProvider.DEFAULT_MAX_RESULTS;
+        if (maxResults > 0 && maxResults < expectedSize) {
+            expectedSize = maxResults;
+        }
+        return new ArrayList<>((int) expectedSize);
+    }
+
+    /*
+     * Reads the space ID and the content IDs from a space listing as the
+     * listing is streamed, rather than building a document of the listing
+     */
+    private void parseSpaceListing(InputStream listing, Space space)
+        throws XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(listing);
+        try {
+            int depth = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    if (depth == 1) {
+                        space.setId(reader.getAttributeValue(null, "id"));
+                    } else if (depth == 2) {
+                        // Reads through to the end of the content element
+                        space.addContentId(reader.getElementText());
+                        depth--;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
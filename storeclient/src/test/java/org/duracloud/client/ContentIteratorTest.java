@@ -25,11 +25,32 @@ public class ContentIteratorTest {
 
     @Test
     public void testIterator() throws Exception {
+        doTestIterator(false);
+    }
+
+    @Test
+    public void testPrefetchIterator() throws Exception {
+        doTestIterator(true);
+    }
+
+    @Test
+    public void testPrefetchStopsAtPartialChunk() throws Exception {
+        MockStore testStore = new MockStore(5);
+        ContentIterator iterator =
+            new ContentIterator(testStore, "spaceId", "prefix", 10, true);
+        Assert.assertEquals("test0", iterator.next());
+
+        // The first chunk is not full, so the next chunk is not prefetched
+        Thread.sleep(100);
+        Assert.assertEquals(1, testStore.requestCount);
+    }
+
+    private void doTestIterator(boolean prefetch) throws Exception {
         for (int i = 0; i < 30; i++) {
             ContentStore testStore = new MockStore(i);
             long maxResults = 10;
             ContentIterator iterator =
-                new ContentIterator(testStore, "spaceId", "prefix", maxResults);
+                new ContentIterator(testStore, "spaceId", "prefix", maxResults, prefetch);
 
             int count = 0;
             while (iterator.hasNext()) {
@@ -44,6 +65,7 @@ public class ContentIteratorTest {
     private class MockStore extends ContentStoreImpl {
 
         private List<String> contentItems;
+        private volatile int requestCount = 0;
 
         public MockStore(long numItems) {
             super(null, null, null, false, null);
@@ -62,6 +84,7 @@ public class ContentIteratorTest {
             if (System.currentTimeMillis() % 9 == 0) {
                 throw new ContentStoreException("Expected randomized error");
             }
+            requestCount++;
 
             List<String> items = new ArrayList<>();
 
@@ -158,7 +158,8 @@ public class ContentStoreImplTest {
         String fullURL = baseURL + "/" + spaceId +
                          "?maxResults=" + StorageProvider.DEFAULT_MAX_RESULTS + "&storeID=" + storeId;
         EasyMock.expect(response.getStatusCode()).andReturn(200);
-        EasyMock.expect(response.getResponseBody()).andReturn(xml);
+        EasyMock.expect(response.getResponseStream())
+                .andReturn(new ByteArrayInputStream(xml.getBytes("UTF-8")));
         EasyMock.expect(restHelper.get(fullURL)).andReturn(response);
         EasyMock.expect(response.getResponseHeaders()).andReturn(new Header[0]);
 
@@ -172,11 +173,17 @@ public class ContentStoreImplTest {
 
     @Test
     public void testGetSpace() throws Exception {
-        String xml = "<space id=\"space1\"><item>Image 1</item><item>Image 2</item></space>";
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                     "<space id=\"space1\">\n" +
+                     "  <item>Image 1</item>\n" +
+                     "  <item>dir/Image &amp; 2 \u00e9</item>\n" +
+                     "  <item><![CDATA[Image <3>]]></item>\n" +
+                     "</space>";
         String fullURL = baseURL + "/" + spaceId +
                          "?maxResults=10&storeID=" + storeId;
         EasyMock.expect(response.getStatusCode()).andReturn(200);
-        EasyMock.expect(response.getResponseBody()).andReturn(xml);
+        EasyMock.expect(response.getResponseStream())
+                .andReturn(new ByteArrayInputStream(xml.getBytes("UTF-8")));
         EasyMock.expect(response.getResponseHeaders()).andReturn(new Header[0]);
 
         EasyMock.expect(restHelper.get(fullURL)).andReturn(response);
@@ -185,8 +192,12 @@ public class ContentStoreImplTest {
 
         Space space = contentStore.getSpace(spaceId, null, 10, null);
         Assert.assertNotNull(space);
+        Assert.assertEquals("space1", space.getId());
         List<String> spaceContents = space.getContentIds();
-        Assert.assertEquals(2, spaceContents.size());
+        Assert.assertEquals(3, spaceContents.size());
+        Assert.assertEquals("Image 1", spaceContents.get(0));
+        Assert.assertEquals("dir/Image & 2 \u00e9", spaceContents.get(1));
+        Assert.assertEquals("Image <3>", spaceContents.get(2));
     }
 
     @Test
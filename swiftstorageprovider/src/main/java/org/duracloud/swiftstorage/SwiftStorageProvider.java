@@ -170,8 +170,7 @@ public class SwiftStorageProvider extends S3StorageProvider {
         spaceProperties = replaceInMapValues(spaceProperties, "+", "@");
 
         // Add space count
-        spaceProperties.put(PROPERTIES_SPACE_COUNT,
-                            getSpaceCount(spaceId, MAX_ITEM_COUNT));
+        spaceProperties.put(PROPERTIES_SPACE_COUNT, getItemCount(spaceId));
         return spaceProperties;
     }
 
@@ -250,6 +249,9 @@ public class SwiftStorageProvider extends S3StorageProvider {
         Map<String, String> userProperties = objMetadata.getUserMetadata();
 
         for (String metaName : userProperties.keySet()) {
+            if (MULTIPART_CHECKSUM_KEY.equals(metaName)) {
+                continue;
+            }
             String metaValue = userProperties.get(metaName);
             if (metaName.trim().equalsIgnoreCase("tags") ||
                 metaName.trim().equalsIgnoreCase("tags" + HEADER_KEY_SUFFIX) ||
@@ -308,12 +310,11 @@ public class SwiftStorageProvider extends S3StorageProvider {
         }
 
         // Set CHECKSUM
-        String checksum = objMetadata.getETag();
+        String checksum = getContentChecksum(objMetadata.getETag(), userProperties);
         if (checksum != null) {
-            String eTagValue = getETagValue(checksum);
-            contentProperties.put(PROPERTIES_CONTENT_CHECKSUM, eTagValue);
-            contentProperties.put(PROPERTIES_CONTENT_MD5, eTagValue);
-            contentProperties.put(Headers.ETAG, eTagValue);
+            contentProperties.put(PROPERTIES_CONTENT_CHECKSUM, checksum);
+            contentProperties.put(PROPERTIES_CONTENT_MD5, checksum);
+            contentProperties.put(Headers.ETAG, checksum);
         }
 
         // Set MODIFIED
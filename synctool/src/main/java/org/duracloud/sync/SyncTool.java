@@ -16,6 +16,7 @@ import java.util.Properties;
 import org.duracloud.client.ContentStore;
 import org.duracloud.client.util.StoreClientUtil;
 import org.duracloud.common.util.ApplicationConfig;
+import org.duracloud.common.util.ChecksumCache;
 import org.duracloud.sync.backup.SyncBackupManager;
 import org.duracloud.sync.config.SyncToolConfig;
 import org.duracloud.sync.config.SyncToolConfigParser;
@@ -68,6 +69,7 @@ public class SyncTool {
     private DeleteChecker deleteChecker;
     private String version;
     private FileExclusionManager fileExclusionManager;
+    private ChecksumCache checksumCache;
 
     public SyncTool() {
         Properties props =
@@ -190,9 +192,30 @@ public class SyncTool {
                                       syncEndpoint,
                                       syncConfig.getNumThreads(),
                                       syncConfig.getPollFrequency());
+        syncManager.setChecksumCache(openChecksumCache());
         syncManager.beginSync();
     }
 
+    /*
+     * Opens the cache of local file checksums held in the work dir, so that
+     * files which have not changed since a previous run are not read again
+     * to determine whether they need to be synced.
+     */
+    private ChecksumCache openChecksumCache() {
+        File cacheFile = new File(syncConfig.getWorkDir(), "checksum-cache");
+        double verifyRate = syncConfig.getChecksumVerifyPercent() / 100.0;
+        try {
+            checksumCache = new ChecksumCache(cacheFile,
+                                              ChecksumCache.DEFAULT_MAX_ENTRIES,
+                                              verifyRate);
+        } catch (IOException e) {
+            logger.warn("Unable to open checksum cache {}, the checksums of " +
+                        "all files will be computed: {}",
+                        cacheFile.getAbsolutePath(), e.getMessage());
+        }
+        return checksumCache;
+    }
+
     private void startDirWalker() {
         dirWalker = DirWalker.start(syncConfig.getContentDirs(), fileExclusionManager);
     }
@@ -213,7 +236,8 @@ public class SyncTool {
     private void startDirMonitor() {
         dirMonitor = new DirectoryUpdateMonitor(syncConfig.getContentDirs(),
                                                 syncConfig.getPollFrequency(),
-                                                syncConfig.syncDeletes());
+                                                syncConfig.syncDeletes(),
+                                                syncConfig.isWatchEvents());
         dirMonitor.startMonitor();
     }
 
@@ -293,6 +317,9 @@ public class SyncTool {
         syncManager.endSync();
         dirMonitor.stopMonitor();
         ChangedList.getInstance().shutdown();
+        if (null != checksumCache) {
+            checksumCache.close();
+        }
 
         long inWork = StatusManager.getInstance().getInWork();
         if (inWork > 0) {
@@ -317,7 +344,8 @@ public class SyncTool {
         syncBackupManager =
             new SyncBackupManager(backupDir,
                                   syncConfig.getBackupFrequency(),
-                                  syncConfig.getContentDirs());
+                                  syncConfig.getContentDirs(),
+                                  true);
 
         boolean hasABackupFile = this.syncBackupManager.hasBackups();
 
@@ -330,6 +358,9 @@ public class SyncTool {
                 startRestartDirWalker(lastBackup);
                 System.out.print("...");
             }
+        } else {
+            // Start over with an empty changed list journal
+            syncBackupManager.clearBackups();
         }
 
         if (dirWalker == null) {
@@ -18,6 +18,10 @@ import org.slf4j.LoggerFactory;
 /**
  * Manages the backing up of the changed list on a consistent schedule.
  *
+ * When journaling is enabled, the changed list records its changes in a
+ * journal file as they occur, so rather than writing out backup files the
+ * journal is periodically synced to disk.
+ *
  * @author: Bill Branan
  * Date: Mar 19, 2010
  */
@@ -27,6 +31,7 @@ public class ChangedListBackupManager implements Runnable {
         LoggerFactory.getLogger(ChangedListBackupManager.class);
 
     public static final int SAVED_BACKUPS = 3;
+    public static final String JOURNAL_FILE_NAME = "changeList.journal";
     protected static final int DEFAULT_SLEEP_TIME = 5000; // 5 seconds
     private File backupDir;
     private long backupFrequency;
@@ -35,10 +40,26 @@ public class ChangedListBackupManager implements Runnable {
     private long changedListVersion;
     private List<File> contentDirs;
     private boolean backingUp = false;
+    private File journalFile;
 
     public ChangedListBackupManager(ChangedList changedList,
                                     File backupDir,
                                     long backupFrequency, List<File> contentDirs) {
+        this(changedList, backupDir, backupFrequency, contentDirs, false);
+    }
+
+    /**
+     * @param journal true if the changed list should be journaled rather
+     *                than periodically written to backup files
+     */
+    public ChangedListBackupManager(ChangedList changedList,
+                                    File backupDir,
+                                    long backupFrequency,
+                                    List<File> contentDirs,
+                                    boolean journal) {
+        if (journal) {
+            this.journalFile = new File(backupDir, JOURNAL_FILE_NAME);
+        }
         this.backupDir = new File(backupDir, "changeList");
         if (!this.backupDir.exists()) {
             this.backupDir.mkdir();
@@ -56,9 +77,18 @@ public class ChangedListBackupManager implements Runnable {
      * the backup file is loaded and the time the backup file was written is
      * returned.
      *
+     * When journaling, the changed list is restored from the journal, which
+     * it continues to use from then on.
+     *
      * @return the write time of the backup file, or -1 if no backup is available
      */
     public long loadBackup() {
+        if (isJournaling()) {
+            long backupTime = hasBackups() ? journalFile.lastModified() : -1;
+            changedList.openJournal(journalFile, contentDirs, true);
+            return backupTime;
+        }
+
         long backupTime = -1;
         File[] backupDirFiles = getSortedBackupDirFiles();
         if (backupDirFiles.length > 0) {
@@ -83,7 +113,12 @@ public class ChangedListBackupManager implements Runnable {
      */
     public void run() {
         while (continueBackup) {
-            if (changedListVersion < changedList.getVersion()) {
+            if (isJournaling()) {
+                if (changedList.isJournaled() &&
+                    changedListVersion != changedList.getVersion()) {
+                    changedListVersion = changedList.sync();
+                }
+            } else if (changedListVersion < changedList.getVersion()) {
                 cleanupBackupDir(SAVED_BACKUPS);
                 String filename = String.valueOf(System.currentTimeMillis());
                 File persistFile = new File(backupDir, filename);
@@ -132,6 +167,10 @@ public class ChangedListBackupManager implements Runnable {
         }
     }
 
+    /**
+     * Removes all backups. When journaling, the changed list is switched to
+     * a new, empty journal.
+     */
     public void clear() {
         while (backingUp) {
             sleep(100);
@@ -139,6 +178,9 @@ public class ChangedListBackupManager implements Runnable {
 
         synchronized (this) {
             cleanupBackupDir(0);
+            if (isJournaling()) {
+                changedList.openJournal(journalFile, contentDirs, false);
+            }
         }
 
     }
@@ -152,6 +194,13 @@ public class ChangedListBackupManager implements Runnable {
     }
 
     public boolean hasBackups() {
+        if (isJournaling()) {
+            return journalFile.length() > 0;
+        }
         return getSortedBackupDirFiles().length > 0;
     }
+
+    private boolean isJournaling() {
+        return null != journalFile;
+    }
 }
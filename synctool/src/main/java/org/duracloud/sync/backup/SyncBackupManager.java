@@ -32,11 +32,23 @@ public class SyncBackupManager {
     private ExecutorService execPool;
 
     public SyncBackupManager(File backupDir, long frequency, List<File> contentDirs) {
+        this(backupDir, frequency, contentDirs, false);
+    }
+
+    /**
+     * @param journal true if the changed list should be kept in an on-disk
+     *                journal rather than being backed up periodically
+     */
+    public SyncBackupManager(File backupDir,
+                             long frequency,
+                             List<File> contentDirs,
+                             boolean journal) {
         logger.info("Starting Sync Backup Manager");
         backupManager = new ChangedListBackupManager(ChangedList.getInstance(),
                                                      backupDir,
                                                      frequency,
-                                                     contentDirs);
+                                                     contentDirs,
+                                                     journal);
 
         // Create thread pool for backupManager
         execPool = Executors.newFixedThreadPool(1);
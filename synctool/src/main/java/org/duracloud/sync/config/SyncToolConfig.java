@@ -44,6 +44,8 @@ public class SyncToolConfig implements Serializable {
     private String updateSuffix = DEFAULT_UPDATE_SUFFIX;
     private String prefix;
     private boolean jumpStart = false;
+    private boolean watchEvents = false;
+    private int checksumVerifyPercent = 0;
 
     public String getPrintableConfig() {
         StringBuilder config = new StringBuilder();
@@ -78,6 +80,10 @@ public class SyncToolConfig implements Serializable {
         config.append("SyncTool Poll Frequency: ");
         config.append(getPollFrequency());
         config.append("\n");
+        config.append("SyncTool Watching File System Events: ");
+        config.append(isWatchEvents()).append("\n");
+        config.append("SyncTool Checksum Cache Verify Percent: ");
+        config.append(getChecksumVerifyPercent()).append("\n");
         config.append("SyncTool Threads: ");
         config.append(getNumThreads()).append("\n");
         config.append("SyncTool Max File Size: ");
@@ -283,6 +289,22 @@ public class SyncToolConfig implements Serializable {
         this.jumpStart = jumpStart;
     }
 
+    public boolean isWatchEvents() {
+        return watchEvents;
+    }
+
+    public void setWatchEvents(boolean watchEvents) {
+        this.watchEvents = watchEvents;
+    }
+
+    public int getChecksumVerifyPercent() {
+        return checksumVerifyPercent;
+    }
+
+    public void setChecksumVerifyPercent(int checksumVerifyPercent) {
+        this.checksumVerifyPercent = checksumVerifyPercent;
+    }
+
     public long getBackupFrequency() {
         return backupFrequency;
     }
@@ -206,6 +206,28 @@ public class SyncToolConfigParser {
         exitOnCompletion.setRequired(false);
         cmdOptions.addOption(exitOnCompletion);
 
+        Option watchEvents =
+            new Option("v", "watch-events", false,
+                       "indicates that the sync tool should find changes in " +
+                       "the content directories by watching for file system " +
+                       "events rather than by polling, falling back to " +
+                       "polling if events are not available. This reduces " +
+                       "the cost of monitoring large directories. " +
+                       "(optional, not set by default)");
+        watchEvents.setRequired(false);
+        cmdOptions.addOption(watchEvents);
+
+        Option checksumVerify =
+            new Option("k", "checksum-verify-percent", true,
+                       "the checksums of local files are kept in a cache in " +
+                       "the work directory, so that files which have not " +
+                       "changed since a previous run need not be read again. " +
+                       "This is the percentage of files found in the cache " +
+                       "which are checksummed anyway to verify the cache " +
+                       "(optional, default 0)");
+        checksumVerify.setRequired(false);
+        cmdOptions.addOption(checksumVerify);
+
         Option excludeOption =
             new Option("e", "exclude", true,
                        "file which provides a list of files and/or " +
@@ -462,6 +484,27 @@ public class SyncToolConfigParser {
             config.setExitOnCompletion(false);
         }
 
+        if (cmd.hasOption("v")) {
+            config.setWatchEvents(true);
+        } else {
+            config.setWatchEvents(false);
+        }
+
+        if (cmd.hasOption("k")) {
+            int percent;
+            try {
+                percent = Integer.valueOf(cmd.getOptionValue("k"));
+            } catch (NumberFormatException e) {
+                percent = -1;
+            }
+            if (percent < 0 || percent > 100) {
+                throw new ParseException("The value for checksum verify " +
+                                         "percent (-k) must be a number " +
+                                         "between 0 and 100.");
+            }
+            config.setChecksumVerifyPercent(percent);
+        }
+
         if (cmd.hasOption("e")) {
             File excludeFile = new File(cmd.getOptionValue("e"));
             if (!excludeFile.exists()) {
@@ -43,6 +43,9 @@ public class DuraStoreChunkSyncEndpoint extends DuraStoreSyncEndpoint {
 
     private FileStitcher stitcher;
 
+    // Number of chunks of a single file which are transferred in parallel
+    private static final int CHUNK_UPLOAD_THREADS = 2;
+
     private boolean jumpStart;
     private FileChunkerOptions chunkerOptions;
 
@@ -203,6 +206,7 @@ public class DuraStoreChunkSyncEndpoint extends DuraStoreSyncEndpoint {
 
         DuracloudContentWriter contentWriter =
             new DuracloudContentWriter(store, getUsername(), true, this.jumpStart);
+        contentWriter.setChunkUploadThreads(CHUNK_UPLOAD_THREADS);
         FileChunker chunker = new FileChunker(contentWriter, chunkerOptions);
         final String spaceId = getSpaceId();
         chunker.addContent(spaceId,
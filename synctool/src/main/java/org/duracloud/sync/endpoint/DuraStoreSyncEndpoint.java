@@ -350,7 +350,7 @@ public class DuraStoreSyncEndpoint implements SyncEndpoint {
     public Iterator<String> getFilesList() {
         Iterator<String> spaceContents;
         try {
-            spaceContents = contentStore.getSpaceContents(spaceId);
+            spaceContents = contentStore.getSpaceContents(spaceId, null, true);
         } catch (ContentStoreException e) {
             throw new RuntimeException("Unable to get list of files from " +
                                        "DuraStore due to: " + e.getMessage());
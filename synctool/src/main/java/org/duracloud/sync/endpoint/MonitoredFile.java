@@ -11,7 +11,9 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.NoSuchFileException;
 
+import org.duracloud.common.util.ChecksumCache;
 import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.common.util.MimetypeUtil;
 
@@ -25,12 +27,23 @@ public class MonitoredFile {
     private MonitoredInputStream stream;
     private String checksum;
     private String mimetype;
+    private ChecksumCache checksumCache;
 
     public MonitoredFile(File file) {
+        this(file, null);
+    }
+
+    /**
+     * @param file          the file
+     * @param checksumCache cache consulted before the checksum of the file is
+     *                      computed, or null to always compute the checksum
+     */
+    public MonitoredFile(File file, ChecksumCache checksumCache) {
         this.file = file;
         this.stream = null;
         this.checksum = null;
         this.mimetype = null;
+        this.checksumCache = checksumCache;
     }
 
     public File getFile() {
@@ -89,10 +102,13 @@ public class MonitoredFile {
      */
     private String computeChecksum(File file) {
         try {
+            if (null != checksumCache) {
+                return checksumCache.getChecksum(file);
+            }
             ChecksumUtil cksumUtil =
                 new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
             return cksumUtil.generateChecksum(file);
-        } catch (FileNotFoundException e) {
+        } catch (FileNotFoundException | NoSuchFileException e) {
             throw new RuntimeException("File not found: " +
                                        file.getAbsolutePath(), e);
         } catch (IOException e) {
@@ -23,6 +23,11 @@ public class ChangedFile implements Serializable {
         syncAttempts = 0;
     }
 
+    ChangedFile(File changedFile, int syncAttempts) {
+        this.changedFile = changedFile;
+        this.syncAttempts = syncAttempts;
+    }
+
     public File getFile() {
         return changedFile;
     }
@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Predicate;
 
 import org.apache.commons.lang3.event.EventListenerSupport;
 import org.slf4j.Logger;
@@ -38,6 +39,7 @@ public class ChangedList implements Serializable {
     private static final Logger log = LoggerFactory.getLogger(ChangedList.class);
     private LinkedHashMap<String, ChangedFile> fileList;
     private LinkedHashMap<String, ChangedFile> reservedFiles;
+    private transient ChangedListJournal journal;
     private ExecutorService executorService;
     private long listVersion;
     private boolean shutdown = false;
@@ -97,6 +99,9 @@ public class ChangedList implements Serializable {
      * @return the size of the list
      */
     public int getListSize() {
+        if (null != journal) {
+            return journal.size();
+        }
         return fileList.size();
     }
 
@@ -106,6 +111,9 @@ public class ChangedList implements Serializable {
      * @return the size of the list
      */
     public int getListSizeIncludingReservedFiles() {
+        if (null != journal) {
+            return journal.size() + journal.reservedSize();
+        }
         return fileList.size() + reservedFiles.size();
     }
 
@@ -114,7 +122,11 @@ public class ChangedList implements Serializable {
         if (fileExclusionManager.isExcluded(file)) {
             return false;
         }
-        fileList.put(file.getAbsolutePath(), changedFile);
+        if (null != journal) {
+            journal.add(changedFile);
+        } else {
+            fileList.put(file.getAbsolutePath(), changedFile);
+        }
         incrementVersion();
         fireChangedEvent();
         return true;
@@ -147,6 +159,9 @@ public class ChangedList implements Serializable {
     public synchronized void clear() {
         fileList.clear();
         reservedFiles.clear();
+        if (null != journal) {
+            journal.clear();
+        }
         fireChangedEvent();
     }
 
@@ -157,13 +172,24 @@ public class ChangedList implements Serializable {
      * @return a file which has changed on the file system
      */
     public synchronized ChangedFile reserve() {
-        if (fileList.isEmpty() || shutdown) {
+        if (shutdown) {
             return null;
         }
 
-        String key = fileList.keySet().iterator().next();
-        ChangedFile changedFile = fileList.remove(key);
-        reservedFiles.put(key, changedFile);
+        ChangedFile changedFile;
+        if (null != journal) {
+            changedFile = journal.reserve();
+            if (null == changedFile) {
+                return null;
+            }
+        } else {
+            if (fileList.isEmpty()) {
+                return null;
+            }
+            String key = fileList.keySet().iterator().next();
+            changedFile = fileList.remove(key);
+            reservedFiles.put(key, changedFile);
+        }
         incrementVersion();
         fireChangedEventAsync();
         return changedFile;
@@ -181,6 +207,59 @@ public class ChangedList implements Serializable {
         return listVersion;
     }
 
+    /**
+     * Switches the ChangedList to hold its contents in an on-disk journal
+     * rather than in memory. Changes are written to the journal as they are
+     * made, so there is no need to persist the list.
+     *
+     * @param journalFile the journal file
+     * @param contentDirs content directories currently configured, files
+     *                    restored from the journal which are not in one of
+     *                    these directories are dropped
+     * @param restore     true to restore the list from an existing journal,
+     *                    false to discard any existing journal contents
+     */
+    public synchronized void openJournal(File journalFile,
+                                         List<File> contentDirs,
+                                         boolean restore) {
+        if (getListSizeIncludingReservedFiles() > 0) {
+            throw new IllegalStateException(
+                "A journal can only be opened while the changed list is empty");
+        }
+
+        if (null != journal) {
+            journal.close();
+            journal = null;
+        }
+
+        Predicate<File> watched = file -> isWatched(file, contentDirs);
+        try {
+            journal = new ChangedListJournal(journalFile, restore, watched);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to open File Changed List journal:" +
+                                       e.getMessage(), e);
+        }
+        incrementVersion();
+        fireChangedEvent();
+    }
+
+    public boolean isJournaled() {
+        return null != journal;
+    }
+
+    /**
+     * Forces the changes made to a journaled ChangedList to disk.
+     *
+     * @return the version ID of the ChangedList which was synced
+     */
+    public synchronized long sync() {
+        if (null == journal) {
+            throw new IllegalStateException("The changed list is not journaled");
+        }
+        journal.sync();
+        return listVersion;
+    }
+
     /**
      * Writes out the current state of the ChangeList to the given file.
      *
@@ -188,6 +267,11 @@ public class ChangedList implements Serializable {
      * @return the version ID of the ChangedList which was persisted
      */
     public long persist(File persistFile) {
+        if (null != journal) {
+            throw new IllegalStateException(
+                "A journaled changed list is synced rather than persisted");
+        }
+
         try {
             FileOutputStream fileStream = new FileOutputStream(persistFile);
             ObjectOutputStream oStream = new ObjectOutputStream((fileStream));
@@ -225,27 +309,12 @@ public class ChangedList implements Serializable {
                     (LinkedHashMap<String, ChangedFile>) oStream.readObject();
 
                 //remove files in change list that are not in the content dir list.
-                if (contentDirs != null && !contentDirs.isEmpty()) {
-
-                    Iterator<Entry<String, ChangedFile>> entries =
-                        fileListFromDisk.entrySet().iterator();
-                    while (entries.hasNext()) {
-                        Entry<String, ChangedFile> entry = entries.next();
-                        ChangedFile file = entry.getValue();
-                        boolean watched = false;
-                        for (File contentDir : contentDirs) {
-                            if (file.getFile()
-                                    .getAbsolutePath()
-                                    .startsWith(contentDir.getAbsolutePath()) &&
-                                !this.fileExclusionManager.isExcluded(file.getFile())) {
-                                watched = true;
-                                break;
-                            }
-                        }
-
-                        if (!watched) {
-                            entries.remove();
-                        }
+                Iterator<Entry<String, ChangedFile>> entries =
+                    fileListFromDisk.entrySet().iterator();
+                while (entries.hasNext()) {
+                    Entry<String, ChangedFile> entry = entries.next();
+                    if (!isWatched(entry.getValue().getFile(), contentDirs)) {
+                        entries.remove();
                     }
                 }
 
@@ -258,7 +327,29 @@ public class ChangedList implements Serializable {
         }
     }
 
+    /*
+     * Determines if a file is in one of the content dirs and not excluded.
+     * All files are considered watched when no content dirs are provided.
+     */
+    private boolean isWatched(File file, List<File> contentDirs) {
+        if (contentDirs == null || contentDirs.isEmpty()) {
+            return true;
+        }
+
+        for (File contentDir : contentDirs) {
+            if (file.getAbsolutePath().startsWith(contentDir.getAbsolutePath()) &&
+                !this.fileExclusionManager.isExcluded(file)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public synchronized List<File> peek(int maxFiles) {
+        if (null != journal) {
+            return journal.peek(maxFiles);
+        }
+
         List<File> files = new LinkedList<File>();
         Iterator<Entry<String, ChangedFile>> it = this.fileList.entrySet().iterator();
         int count = 0;
@@ -280,7 +371,11 @@ public class ChangedList implements Serializable {
      * @param changedFile
      */
     synchronized void remove(ChangedFile changedFile) {
-        this.reservedFiles.remove(getKey(changedFile));
+        if (null != journal) {
+            journal.removeReserved(getKey(changedFile));
+        } else {
+            this.reservedFiles.remove(getKey(changedFile));
+        }
     }
 
     /**
@@ -290,6 +385,14 @@ public class ChangedList implements Serializable {
      * @param changedFile
      */
     synchronized void unreserve(ChangedFile changedFile) {
+        if (null != journal) {
+            ChangedFile removedFile = journal.removeReserved(getKey(changedFile));
+            if (removedFile != null && !journal.isPending(getKey(removedFile))) {
+                addChangedFile(removedFile);
+            }
+            return;
+        }
+
         ChangedFile removedFile = this.reservedFiles.remove(getKey(changedFile));
         if (removedFile != null && !this.fileList.containsKey(getKey(removedFile))) {
             addChangedFile(removedFile);
@@ -303,6 +406,12 @@ public class ChangedList implements Serializable {
     public void shutdown() {
         executorService.shutdown();
         shutdown = true;
+        synchronized (this) {
+            if (null != journal) {
+                journal.close();
+                journal = null;
+            }
+        }
         ChangedList.instance = null;
     }
 
@@ -0,0 +1,269 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.sync.mgmt;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * An on-disk hash index of the pending files in a ChangedListJournal, which
+ * allows duplicates to be found without holding every path in memory.
+ *
+ * The index is an open addressing table in a file. Each slot holds the hash
+ * of a path, the offset in the journal of the record which added the path,
+ * and the sequence of that record. As paths are not stored in the index, the
+ * path of any slot with a matching hash is read back from the journal. The
+ * index is derived from the journal, so it is never synced to disk and is
+ * rebuilt whenever the journal is replayed or compacted.
+ *
+ * This class is not thread safe, callers are expected to synchronize access.
+ */
+class ChangedListIndex {
+
+    /**
+     * Reads the path held by the journal record at the given offset.
+     */
+    interface KeyReader {
+        String readKey(long offset) throws IOException;
+    }
+
+    protected static final int MIN_CAPACITY = 1024;
+
+    // Hash, journal offset and sequence
+    private static final int SLOT_SIZE = 24;
+    private static final int COPY_BUFFER_SLOTS = 4096;
+
+    private static final long EMPTY = 0;
+    private static final long REMOVED = -1;
+
+    private final File indexFile;
+    private final KeyReader keyReader;
+
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private long capacity;
+    private long liveCount;
+    private long usedCount;
+
+    private final ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE);
+
+    // Values of the last slot read
+    private long slotHash;
+    private long slotOffset;
+    private long slotSequence;
+
+    ChangedListIndex(File indexFile, KeyReader keyReader) throws IOException {
+        this.indexFile = indexFile;
+        this.keyReader = keyReader;
+        clear();
+    }
+
+    /**
+     * @return the sequence of the journal record of the given path, or -1
+     * if the path is not in the index
+     */
+    long getSequence(String key) throws IOException {
+        long index = find(key, hash(key));
+        if (index < 0) {
+            return -1;
+        }
+        readSlot(index);
+        return slotSequence;
+    }
+
+    /**
+     * Adds a path to the index, or updates the record of a path which is
+     * already in the index.
+     */
+    void put(String key, long offset, long sequence) throws IOException {
+        long hash = hash(key);
+        long index = find(key, hash);
+        if (index >= 0) {
+            writeSlot(index, hash, offset, sequence);
+            return;
+        }
+
+        if ((usedCount + 1) * 2 > capacity) {
+            resize(Math.max(MIN_CAPACITY, Long.highestOneBit(liveCount * 4 + 1)));
+            index = find(key, hash);
+        }
+
+        index = -index - 1;
+        readSlot(index);
+        if (slotHash == EMPTY) {
+            usedCount++;
+        }
+        writeSlot(index, hash, offset, sequence);
+        liveCount++;
+    }
+
+    void remove(String key) throws IOException {
+        long hash = hash(key);
+        long index = find(key, hash);
+        if (index >= 0) {
+            writeSlot(index, hash, REMOVED, REMOVED);
+            liveCount--;
+        }
+    }
+
+    long size() {
+        return liveCount;
+    }
+
+    /**
+     * Removes all paths from the index.
+     */
+    void clear() throws IOException {
+        close();
+        file = new RandomAccessFile(indexFile, "rw");
+        file.setLength(0);
+        file.setLength(MIN_CAPACITY * (long) SLOT_SIZE);
+        channel = file.getChannel();
+        capacity = MIN_CAPACITY;
+        liveCount = 0;
+        usedCount = 0;
+    }
+
+    /**
+     * Closes and deletes the index.
+     */
+    void close() throws IOException {
+        if (null != file) {
+            file.close();
+            file = null;
+            channel = null;
+            Files.deleteIfExists(indexFile.toPath());
+        }
+    }
+
+    /*
+     * @return the slot holding the given path, or if the path is not in the
+     * index (-slot - 1), where slot is the one in which it would be added
+     */
+    private long find(String key, long hash) throws IOException {
+        long mask = capacity - 1;
+        long index = hash & mask;
+        long firstRemoved = -1;
+        while (true) {
+            readSlot(index);
+            if (slotHash == EMPTY) {
+                return -(firstRemoved >= 0 ? firstRemoved : index) - 1;
+            } else if (slotOffset == REMOVED) {
+                if (firstRemoved < 0) {
+                    firstRemoved = index;
+                }
+            } else if (slotHash == hash && key.equals(keyReader.readKey(slotOffset))) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /*
+     * Moves the live slots to a new table of the given capacity, which drops
+     * the slots of removed paths.
+     */
+    private void resize(long newCapacity) throws IOException {
+        File resizeFile = new File(indexFile.getPath() + ".resize");
+        long newMask = newCapacity - 1;
+        try (RandomAccessFile newFile = new RandomAccessFile(resizeFile, "rw")) {
+            newFile.setLength(0);
+            newFile.setLength(newCapacity * SLOT_SIZE);
+            FileChannel newChannel = newFile.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SLOTS * SLOT_SIZE);
+            ByteBuffer newSlot = ByteBuffer.allocate(SLOT_SIZE);
+
+            for (long start = 0; start < capacity; start += COPY_BUFFER_SLOTS) {
+                buffer.clear();
+                buffer.limit((int) Math.min(COPY_BUFFER_SLOTS, capacity - start) * SLOT_SIZE);
+                readFully(channel, buffer, start * SLOT_SIZE);
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    long hash = buffer.getLong();
+                    long offset = buffer.getLong();
+                    long sequence = buffer.getLong();
+                    if (hash == EMPTY || offset == REMOVED) {
+                        continue;
+                    }
+
+                    // Paths in the index are distinct, so only a free slot is needed
+                    long index = hash & newMask;
+                    while (true) {
+                        newSlot.clear();
+                        readFully(newChannel, newSlot, index * SLOT_SIZE);
+                        if (newSlot.getLong(0) == EMPTY) {
+                            break;
+                        }
+                        index = (index + 1) & newMask;
+                    }
+                    newSlot.clear();
+                    newSlot.putLong(hash).putLong(offset).putLong(sequence).flip();
+                    newChannel.write(newSlot, index * SLOT_SIZE);
+                }
+            }
+        }
+
+        file.close();
+        Files.move(resizeFile.toPath(),
+                   indexFile.toPath(),
+                   StandardCopyOption.REPLACE_EXISTING);
+        file = new RandomAccessFile(indexFile, "rw");
+        channel = file.getChannel();
+        capacity = newCapacity;
+        usedCount = liveCount;
+    }
+
+    private void readSlot(long index) throws IOException {
+        slot.clear();
+        readFully(channel, slot, index * SLOT_SIZE);
+        slotHash = slot.getLong(0);
+        slotOffset = slot.getLong(8);
+        slotSequence = slot.getLong(16);
+    }
+
+    private void writeSlot(long index, long hash, long offset, long sequence)
+        throws IOException {
+        slot.clear();
+        slot.putLong(hash).putLong(offset).putLong(sequence).flip();
+        while (slot.hasRemaining()) {
+            channel.write(slot, index * SLOT_SIZE + slot.position());
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+        throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of changed list index");
+            }
+        }
+    }
+
+    /*
+     * 64-bit FNV-1a hash of the path, mixed so that its low bits are well
+     * distributed. Zero marks an empty slot, so it is never returned.
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash == EMPTY ? 1 : hash;
+    }
+
+}
@@ -0,0 +1,613 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.sync.mgmt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only, on-disk journal which holds the contents of the ChangedList.
+ *
+ * Each file added to the list is appended to the journal, and each reserved
+ * file which is removed from the list is marked as such with a further
+ * append, so the journal itself is the queue of pending files. Only the
+ * files at the head of the queue, and those reserved, are held in memory;
+ * the rest are read back from the journal as the head is consumed. Pending
+ * files are looked up in a ChangedListIndex kept beside the journal, which
+ * is used to avoid duplicates. Reserved files are not journaled until they
+ * are removed, so a restart will pick them up again.
+ *
+ * Every record carries a checksum, so an incomplete record left at the end of
+ * the journal by a crash is discarded when the journal is replayed. Once the
+ * journal is largely made up of records for files which are no longer in the
+ * list it is compacted by rewriting the remaining records to a new file which
+ * then replaces the journal.
+ *
+ * This class is not thread safe, callers are expected to synchronize access.
+ */
+class ChangedListJournal {
+
+    private static final Logger log =
+        LoggerFactory.getLogger(ChangedListJournal.class);
+
+    protected static final int DEFAULT_HEAD_SIZE = 1000;
+    protected static final int DEFAULT_COMPACT_THRESHOLD = 100000;
+
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+
+    // Record length and checksum
+    private static final int RECORD_OVERHEAD = 8;
+    private static final int MAX_RECORD_LENGTH = 128 * 1024;
+
+    private final File journalFile;
+    private final int headSize;
+    private final int compactThreshold;
+
+    // Path -> journal record of each pending file
+    private final ChangedListIndex pending;
+    private final Deque<Entry> head = new ArrayDeque<>();
+    private final Map<String, Entry> reserved = new HashMap<>();
+
+    private FileOutputStream fileStream;
+    private DataOutputStream out;
+    private FileChannel reader;
+    private long writeOffset = 0;
+    private long readOffset = 0;
+    private long recordCount = 0;
+    private long nextSequence = 0;
+
+    /**
+     * @param journalFile the journal
+     * @param restore     true to replay the existing contents of the journal,
+     *                    false to start with an empty journal
+     * @param filter      when restoring, files which do not match the filter
+     *                    are dropped from the list
+     */
+    ChangedListJournal(File journalFile,
+                       boolean restore,
+                       Predicate<File> filter) throws IOException {
+        this(journalFile, restore, filter, DEFAULT_HEAD_SIZE,
+             DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    ChangedListJournal(File journalFile,
+                       boolean restore,
+                       Predicate<File> filter,
+                       int headSize,
+                       int compactThreshold) throws IOException {
+        this.journalFile = journalFile;
+        this.headSize = headSize;
+        this.compactThreshold = compactThreshold;
+        this.pending = new ChangedListIndex(new File(journalFile.getPath() + ".index"),
+                                            this::readKey);
+
+        if (restore && journalFile.exists()) {
+            log.info("Restoring changed list from journal: {}",
+                     journalFile.getAbsolutePath());
+            replay();
+            compact(filter);
+        } else {
+            openWriter(false);
+        }
+    }
+
+    /*
+     * Rebuilds the set of pending files from the journal
+     */
+    private void replay() throws IOException {
+        long validLength = 0;
+        try (DataInputStream in = openReader(0)) {
+            Record record;
+            while (null != (record = readRecord(in))) {
+                long offset = validLength;
+                validLength += record.size;
+                nextSequence = Math.max(nextSequence, record.sequence + 1);
+                if (record.type == ADD) {
+                    pending.put(record.key, offset, record.sequence);
+                } else if (isPending(record)) {
+                    pending.remove(record.key);
+                }
+            }
+        }
+
+        if (validLength < journalFile.length()) {
+            log.warn("Discarding incomplete records at the end of changed " +
+                     "list journal {}", journalFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Adds a file to the end of the list, unless it is already in the list
+     * waiting to be reserved, in which case it keeps its current place.
+     */
+    void add(ChangedFile changedFile) {
+        String key = getKey(changedFile);
+        if (isPending(key)) {
+            return;
+        }
+
+        long sequence = nextSequence++;
+        long offset = writeOffset;
+        append(Record.add(sequence, key, changedFile.getSyncAttempts()));
+        try {
+            pending.put(key, offset, sequence);
+        } catch (IOException e) {
+            throw indexFailure(e);
+        }
+
+        // If everything up to this record is already in memory there is no
+        // need to read it back from the journal later
+        if (readOffset == offset && head.size() < headSize) {
+            head.add(new Entry(key, sequence, changedFile));
+            readOffset = writeOffset;
+        }
+    }
+
+    /**
+     * @return the file at the head of the list, now reserved, or null if
+     * the list is empty
+     */
+    ChangedFile reserve() {
+        if (head.isEmpty()) {
+            fill(headSize);
+        }
+
+        Entry entry = head.poll();
+        if (null == entry) {
+            return null;
+        }
+        try {
+            pending.remove(entry.key);
+        } catch (IOException e) {
+            throw indexFailure(e);
+        }
+        reserved.put(entry.key, entry);
+        return entry.changedFile;
+    }
+
+    /**
+     * Removes the reservation for the file with the given path.
+     *
+     * @return the reserved file, or null if no such file was reserved
+     */
+    ChangedFile removeReserved(String key) {
+        Entry entry = reserved.remove(key);
+        if (null == entry) {
+            return null;
+        }
+        append(Record.remove(entry.sequence, key));
+        return entry.changedFile;
+    }
+
+    boolean isPending(String key) {
+        try {
+            return pending.getSequence(key) >= 0;
+        } catch (IOException e) {
+            throw indexFailure(e);
+        }
+    }
+
+    int size() {
+        return (int) pending.size();
+    }
+
+    int reservedSize() {
+        return reserved.size();
+    }
+
+    List<File> peek(int maxFiles) {
+        if (head.size() < maxFiles) {
+            fill(maxFiles);
+        }
+
+        List<File> files = new LinkedList<>();
+        for (Entry entry : head) {
+            if (files.size() >= maxFiles) {
+                break;
+            }
+            files.add(entry.changedFile.getFile());
+        }
+        return files;
+    }
+
+    /**
+     * Removes all files from the list and truncates the journal.
+     */
+    void clear() {
+        head.clear();
+        reserved.clear();
+        try {
+            pending.clear();
+            closeWriter();
+            openWriter(false);
+            fileStream.getChannel().force(false);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to clear changed list journal " +
+                                       journalFile.getAbsolutePath() + ": " +
+                                       e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Forces the journal to disk, compacting it first if the majority of its
+     * records are no longer needed.
+     */
+    void sync() {
+        try {
+            long liveCount = pending.size() + reserved.size();
+            if (recordCount > compactThreshold && recordCount > 2 * liveCount) {
+                compact(null);
+            } else {
+                out.flush();
+                fileStream.getChannel().force(false);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to sync changed list journal " +
+                                       journalFile.getAbsolutePath() + ": " +
+                                       e.getMessage(), e);
+        }
+    }
+
+    void close() {
+        if (null == out) {
+            return;
+        }
+
+        try {
+            out.flush();
+            fileStream.getChannel().force(false);
+        } catch (IOException e) {
+            log.warn("Unable to sync changed list journal {} on close: {}",
+                     journalFile.getAbsolutePath(), e.getMessage());
+        } finally {
+            IOUtils.closeQuietly(out);
+            out = null;
+            IOUtils.closeQuietly(reader);
+            reader = null;
+            try {
+                pending.close();
+            } catch (IOException e) {
+                log.warn("Unable to close changed list index: {}", e.getMessage());
+            }
+        }
+    }
+
+    /*
+     * Reads journal records into the head of the list, starting from the
+     * first record which has not yet been read, until the head holds the
+     * given number of files or the end of the journal is reached.
+     */
+    private void fill(int count) {
+        if (readOffset >= writeOffset) {
+            return;
+        }
+
+        try {
+            out.flush();
+            try (DataInputStream in = openReader(readOffset)) {
+                Record record;
+                while (head.size() < count && readOffset < writeOffset &&
+                       null != (record = readRecord(in))) {
+                    readOffset += record.size;
+                    if (record.type == ADD && isPending(record)) {
+                        ChangedFile changedFile =
+                            new ChangedFile(new File(record.key), record.attempts);
+                        head.add(new Entry(record.key, record.sequence, changedFile));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read changed list journal " +
+                                       journalFile.getAbsolutePath() + ": " +
+                                       e.getMessage(), e);
+        }
+    }
+
+    /*
+     * Replaces the journal with one holding only the records of files which
+     * are still in the list, and rebuilds the index of pending files to
+     * match. Pending files which do not match the filter, if there is one,
+     * are dropped from the list.
+     */
+    private void compact(Predicate<File> filter) throws IOException {
+        if (null != out) {
+            out.flush();
+        }
+
+        File compactFile = new File(journalFile.getPath() + ".compact");
+        long newLength = 0;
+        long newReadOffset = 0;
+        boolean readOffsetFound = false;
+        long count = 0;
+
+        try (FileOutputStream compactStream = new FileOutputStream(compactFile)) {
+            DataOutputStream compactOut =
+                new DataOutputStream(new BufferedOutputStream(compactStream));
+            if (journalFile.exists()) {
+                try (DataInputStream in = openReader(0)) {
+                    long offset = 0;
+                    Record record;
+                    while (null != (record = readRecord(in))) {
+                        if (!readOffsetFound && offset >= readOffset) {
+                            newReadOffset = newLength;
+                            readOffsetFound = true;
+                        }
+                        offset += record.size;
+
+                        if (record.type == ADD && isLive(record) &&
+                            (null == filter || isReserved(record) ||
+                             filter.test(new File(record.key)))) {
+                            newLength += writeRecord(compactOut, record);
+                            count++;
+                        }
+                    }
+                }
+            }
+            compactOut.flush();
+            compactStream.getChannel().force(false);
+        }
+
+        closeWriter();
+        Files.move(compactFile.toPath(),
+                   journalFile.toPath(),
+                   StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+        openWriter(true);
+        IOUtils.closeQuietly(reader);
+        reader = null;
+
+        writeOffset = newLength;
+        readOffset = readOffsetFound ? newReadOffset : newLength;
+        recordCount = count;
+        rebuildIndex();
+        log.debug("Compacted changed list journal {} to {} records",
+                  journalFile.getAbsolutePath(), count);
+    }
+
+    /*
+     * Rebuilds the index of pending files from the compacted journal, in
+     * which every record is either pending or reserved.
+     */
+    private void rebuildIndex() throws IOException {
+        pending.clear();
+        try (DataInputStream in = openReader(0)) {
+            long offset = 0;
+            Record record;
+            while (offset < writeOffset && null != (record = readRecord(in))) {
+                if (!isReserved(record)) {
+                    pending.put(record.key, offset, record.sequence);
+                }
+                offset += record.size;
+            }
+        }
+    }
+
+    private boolean isPending(Record record) {
+        try {
+            return pending.getSequence(record.key) == record.sequence;
+        } catch (IOException e) {
+            throw indexFailure(e);
+        }
+    }
+
+    private boolean isReserved(Record record) {
+        Entry entry = reserved.get(record.key);
+        return null != entry && entry.sequence == record.sequence;
+    }
+
+    private boolean isLive(Record record) {
+        return isPending(record) || isReserved(record);
+    }
+
+    /*
+     * Reads the path of the journal record at the given offset, which is
+     * used to confirm matches found in the index.
+     */
+    private String readKey(long offset) throws IOException {
+        if (null != out) {
+            out.flush();
+        }
+        if (null == reader) {
+            reader = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(4);
+        readFully(header, offset);
+        ByteBuffer data = ByteBuffer.allocate(header.getInt(0));
+        readFully(data, offset + 4);
+
+        DataInputStream payload =
+            new DataInputStream(new ByteArrayInputStream(data.array()));
+        payload.readByte();
+        payload.readLong();
+        return payload.readUTF();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (reader.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of changed list journal " +
+                                       journalFile.getAbsolutePath());
+            }
+        }
+    }
+
+    private RuntimeException indexFailure(IOException e) {
+        return new RuntimeException("Unable to use the index of changed list journal " +
+                                    journalFile.getAbsolutePath() + ": " +
+                                    e.getMessage(), e);
+    }
+
+    private void append(Record record) {
+        try {
+            writeOffset += writeRecord(out, record);
+            out.flush();
+            recordCount++;
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write to changed list journal " +
+                                       journalFile.getAbsolutePath() + ": " +
+                                       e.getMessage(), e);
+        }
+    }
+
+    private void openWriter(boolean append) throws IOException {
+        fileStream = new FileOutputStream(journalFile, append);
+        out = new DataOutputStream(new BufferedOutputStream(fileStream));
+        if (!append) {
+            writeOffset = 0;
+            readOffset = 0;
+            recordCount = 0;
+        }
+    }
+
+    private void closeWriter() throws IOException {
+        if (null != out) {
+            out.close();
+            out = null;
+        }
+    }
+
+    private DataInputStream openReader(long offset) throws IOException {
+        FileInputStream in = new FileInputStream(journalFile);
+        try {
+            in.getChannel().position(offset);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new DataInputStream(new BufferedInputStream(in));
+    }
+
+    /*
+     * @return the number of bytes written
+     */
+    private static int writeRecord(DataOutputStream out, Record record)
+        throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeByte(record.type);
+        payload.writeLong(record.sequence);
+        payload.writeUTF(record.key);
+        payload.writeInt(record.attempts);
+        payload.flush();
+
+        byte[] data = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        out.writeInt(data.length);
+        out.write(data);
+        out.writeInt((int) crc.getValue());
+        return data.length + RECORD_OVERHEAD;
+    }
+
+    /*
+     * @return the next record, or null if the end of the journal has been
+     * reached or the next record is incomplete or corrupt
+     */
+    private static Record readRecord(DataInputStream in) throws IOException {
+        byte[] data;
+        int checksum;
+        try {
+            int length = in.readInt();
+            if (length <= 0 || length > MAX_RECORD_LENGTH) {
+                return null;
+            }
+            data = new byte[length];
+            in.readFully(data);
+            checksum = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+
+        DataInputStream payload =
+            new DataInputStream(new ByteArrayInputStream(data));
+        Record record = new Record();
+        record.type = payload.readByte();
+        record.sequence = payload.readLong();
+        record.key = payload.readUTF();
+        record.attempts = payload.readInt();
+        record.size = data.length + RECORD_OVERHEAD;
+        return record;
+    }
+
+    private String getKey(ChangedFile changedFile) {
+        return changedFile.getFile().getAbsolutePath();
+    }
+
+    private static class Entry {
+        private final String key;
+        private final long sequence;
+        private final ChangedFile changedFile;
+
+        Entry(String key, long sequence, ChangedFile changedFile) {
+            this.key = key;
+            this.sequence = sequence;
+            this.changedFile = changedFile;
+        }
+    }
+
+    private static class Record {
+        private byte type;
+        private long sequence;
+        private String key;
+        private int attempts;
+        private int size;
+
+        static Record add(long sequence, String key, int attempts) {
+            Record record = new Record();
+            record.type = ADD;
+            record.sequence = sequence;
+            record.key = key;
+            record.attempts = attempts;
+            return record;
+        }
+
+        static Record remove(long sequence, String key) {
+            Record record = new Record();
+            record.type = REMOVE;
+            record.sequence = sequence;
+            record.key = key;
+            return record;
+        }
+    }
+
+}
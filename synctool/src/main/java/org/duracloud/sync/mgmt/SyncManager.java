@@ -17,6 +17,7 @@ import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import org.duracloud.common.util.ChecksumCache;
 import org.duracloud.sync.endpoint.MonitoredFile;
 import org.duracloud.sync.endpoint.SyncEndpoint;
 import org.slf4j.Logger;
@@ -39,6 +40,7 @@ public class SyncManager implements ChangeHandler {
     private ExecutorService watcherPool;
     private ThreadPoolExecutor workerPool;
     private ArrayList<SyncWorker> workerList;
+    private ChecksumCache checksumCache;
 
     /**
      * Creates a SyncManager which, when started, will watch for updates to
@@ -72,6 +74,16 @@ public class SyncManager implements ChangeHandler {
         workerList = new ArrayList<SyncWorker>();
     }
 
+    /**
+     * Sets the cache consulted before the checksum of a local file is
+     * computed.
+     *
+     * @param checksumCache cache of local file checksums
+     */
+    public void setChecksumCache(ChecksumCache checksumCache) {
+        this.checksumCache = checksumCache;
+    }
+
     /**
      * Allows the SyncManager to begin watching for updates to the ChangedList
      */
@@ -105,7 +117,8 @@ public class SyncManager implements ChangeHandler {
      */
     public synchronized boolean handleChangedFile(ChangedFile changedFile) {
         File watchDir = getWatchDir(changedFile.getFile());
-        SyncWorker worker = new SyncWorker(changedFile, watchDir, endpoint);
+        SyncWorker worker =
+            new SyncWorker(changedFile, watchDir, endpoint, checksumCache);
 
         try {
             addToWorkerList(worker);
@@ -10,6 +10,7 @@ package org.duracloud.sync.mgmt;
 import java.io.File;
 import java.util.Date;
 
+import org.duracloud.common.util.ChecksumCache;
 import org.duracloud.sync.endpoint.MonitoredFile;
 import org.duracloud.sync.endpoint.SyncEndpoint;
 import org.duracloud.sync.endpoint.SyncResultType;
@@ -45,12 +46,29 @@ public class SyncWorker implements Runnable {
      * @param endpoint the endpoint to which the file should be synced
      */
     public SyncWorker(ChangedFile file, File watchDir, SyncEndpoint endpoint) {
+        this(file, watchDir, endpoint, null);
+    }
+
+    /**
+     * Creates a SyncWorker to handle syncing a file
+     *
+     * @param file          the file to sync
+     * @param watchDir      dir under watch where file exists or null if file
+     *                      does not reside in a watched directory
+     * @param endpoint      the endpoint to which the file should be synced
+     * @param checksumCache cache of local file checksums, or null if there
+     *                      is none
+     */
+    public SyncWorker(ChangedFile file,
+                      File watchDir,
+                      SyncEndpoint endpoint,
+                      ChecksumCache checksumCache) {
         this.syncFile = file;
         this.watchDir = watchDir;
         this.syncEndpoint = endpoint;
         this.statusManager = StatusManager.getInstance();
         this.complete = false;
-        this.monitoredFile = new MonitoredFile(syncFile.getFile());
+        this.monitoredFile = new MonitoredFile(syncFile.getFile(), checksumCache);
     }
 
     public void run() {
@@ -9,6 +9,7 @@ package org.duracloud.sync.monitor;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.io.IOException;
 import java.util.List;
 
 import org.apache.commons.io.monitor.FileAlterationMonitor;
@@ -20,6 +21,11 @@ import org.slf4j.LoggerFactory;
 /**
  * Monitors of local file system directories for changes.
  *
+ * Changes are found either by polling the directories, or by watching for
+ * file system events. When watching is requested but is not possible (for
+ * instance, because the OS limit on the number of watched directories has
+ * been reached) the monitor falls back to polling.
+ *
  * @author: Bill Branan
  * Date: Mar 12, 2010
  */
@@ -27,7 +33,12 @@ public class DirectoryUpdateMonitor {
 
     private final Logger logger = LoggerFactory.getLogger(SyncManager.class);
 
+    // Longest time a change to a file is held back while waiting for
+    // further changes to the same file when watching for events
+    protected static final long MAX_QUIET_PERIOD = 1000;
+
     private FileAlterationMonitor monitor;
+    private DirectoryWatcher watcher;
 
     /**
      * Creates a directory update monitor which, when started, will notify
@@ -39,6 +50,37 @@ public class DirectoryUpdateMonitor {
     public DirectoryUpdateMonitor(List<File> directories,
                                   long pollFrequency,
                                   boolean syncDeletes) {
+        this(directories, pollFrequency, syncDeletes, false);
+    }
+
+    /**
+     * Creates a directory update monitor which, when started, will notify
+     * on changes within the given directories.
+     *
+     * @param directories   to monitor
+     * @param pollFrequency how often the monitor should look for changes
+     * @param syncDeletes   true if deleted files should be reported
+     * @param watchEvents   true if file system events should be used to find
+     *                      changes rather than polling
+     */
+    public DirectoryUpdateMonitor(List<File> directories,
+                                  long pollFrequency,
+                                  boolean syncDeletes,
+                                  boolean watchEvents) {
+        if (watchEvents) {
+            try {
+                watcher = new DirectoryWatcher(directories,
+                                               new DirectoryListener(syncDeletes),
+                                               Math.min(pollFrequency,
+                                                        MAX_QUIET_PERIOD));
+                return;
+            } catch (IOException | UnsupportedOperationException e) {
+                logger.warn("Unable to watch for file system events, " +
+                            "falling back to polling for changes: " +
+                            e.getMessage());
+            }
+        }
+
         monitor = new FileAlterationMonitor(pollFrequency);
 
         for (File watchDir : directories) {
@@ -73,6 +115,10 @@ public class DirectoryUpdateMonitor {
     public void startMonitor() {
         logger.info("Starting Directory Update Monitor");
         try {
+            if (null != watcher) {
+                watcher.start();
+                return;
+            }
             monitor.start();
         } catch (IllegalStateException e) {
             logger.info("File alteration monitor is already started: " + e.getMessage());
@@ -87,6 +133,10 @@ public class DirectoryUpdateMonitor {
     public void stopMonitor() {
         logger.info("Stopping Directory Update Monitor");
         try {
+            if (null != watcher) {
+                watcher.stop();
+                return;
+            }
             monitor.stop();
         } catch (IllegalStateException e) {
             logger.info("File alteration monitor is already stopped: " + e.getMessage());
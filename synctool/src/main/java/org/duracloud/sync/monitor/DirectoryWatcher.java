@@ -0,0 +1,340 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.sync.monitor;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.monitor.FileAlterationListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches local file system directories for changes using the file system
+ * events provided by a WatchService, rather than by polling.
+ *
+ * Each watched directory is registered along with all of its subdirectories,
+ * and new subdirectories are registered as they are created. Changes to a
+ * file are reported once no further events have been received for that file
+ * over the quiet period, so a file which is being written is reported once.
+ * If events are lost because too many occurred at once, the affected
+ * directory tree is rescanned and all of its files are reported as changed.
+ *
+ * The names of the files in each watched directory are tracked, so that when
+ * a directory is removed (or moved away) without events for its files, each
+ * of those files can still be reported as deleted.
+ */
+public class DirectoryWatcher implements Runnable {
+
+    private final Logger logger = LoggerFactory.getLogger(DirectoryWatcher.class);
+
+    private WatchService watchService;
+    private FileAlterationListener listener;
+    private long quietPeriod;
+
+    // Watched directory -> files to be watched in that directory (null for all)
+    private Map<Path, Path> watchedDirs = new HashMap<>();
+    private Map<WatchKey, Path> keys = new HashMap<>();
+    // Watched directory -> names of the known files in that directory
+    private Map<Path, Set<Path>> files = new HashMap<>();
+    // Changed path -> time at which the change should be reported
+    private Map<Path, Long> pendingChanges = new LinkedHashMap<>();
+
+    private Thread thread;
+    private volatile boolean running = false;
+
+    /**
+     * Creates a directory watcher and registers the given directories.
+     *
+     * @param directories to watch, which may also be individual files
+     * @param listener    notified of changed files
+     * @param quietPeriod time (in ms) without further events after which a
+     *                    change to a file is reported
+     * @throws IOException if the directories cannot be watched, for instance
+     *                     if the OS limit on watched directories is reached
+     */
+    public DirectoryWatcher(List<File> directories,
+                            FileAlterationListener listener,
+                            long quietPeriod) throws IOException {
+        this.listener = listener;
+        this.quietPeriod = quietPeriod;
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        try {
+            for (File watchDir : directories) {
+                if (!watchDir.exists()) {
+                    throw new RuntimeException("Path " + watchDir.getAbsolutePath() +
+                                               " does not exist");
+                }
+
+                Path watchPath = watchDir.toPath().toAbsolutePath();
+                if (watchDir.isDirectory()) {
+                    registerTree(watchPath, false);
+                } else {
+                    register(watchPath.getParent(), watchPath);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            watchService.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts watching for changes on a background thread.
+     */
+    public void start() {
+        if (running) {
+            throw new IllegalStateException("Directory watcher is already running");
+        }
+        running = true;
+        thread = new Thread(this, "directory-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching for changes, no further changes will be reported.
+     */
+    public void stop() {
+        if (!running) {
+            throw new IllegalStateException("Directory watcher is not running");
+        }
+        running = false;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.warn("Error closing watch service: " + e.getMessage());
+        }
+        try {
+            thread.join(quietPeriod + 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                WatchKey key = watchService.poll(getWaitTime(),
+                                                 TimeUnit.MILLISECONDS);
+                if (null != key) {
+                    processEvents(key);
+                }
+                reportChanges();
+            }
+        } catch (ClosedWatchServiceException e) {
+            logger.debug("Watch service closed");
+        } catch (InterruptedException e) {
+            logger.warn("Directory watcher interrupted");
+        }
+    }
+
+    /*
+     * Waits until the next pending change is due, or for the quiet period
+     * if there are no pending changes
+     */
+    private long getWaitTime() {
+        if (pendingChanges.isEmpty()) {
+            return quietPeriod;
+        }
+        long nextDue = pendingChanges.values().iterator().next();
+        return Math.max(1, nextDue - System.currentTimeMillis());
+    }
+
+    private void processEvents(WatchKey key) {
+        Path dir = keys.get(key);
+        if (null == dir) {
+            key.cancel();
+            return;
+        }
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                logger.info("Change events lost for {}, rescanning", dir);
+                rescan(dir);
+                continue;
+            }
+
+            Path path = dir.resolve((Path) event.context());
+            if (!isWatched(dir, path)) {
+                continue;
+            }
+
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                // Files may be added to a new directory before it is registered
+                rescan(path);
+            } else {
+                addPendingChange(path);
+            }
+        }
+
+        key.reset();
+    }
+
+    private boolean isWatched(Path dir, Path path) {
+        Path watchedFile = watchedDirs.get(dir);
+        return null == watchedFile || watchedFile.equals(path);
+    }
+
+    /*
+     * Registers (or re-registers) a directory tree and reports all of the
+     * files it contains as changed
+     */
+    private void rescan(Path dir) {
+        Path watchedFile = watchedDirs.get(dir);
+        if (null != watchedFile) {
+            addPendingChange(watchedFile);
+            return;
+        }
+
+        try {
+            registerTree(dir, true);
+        } catch (IOException e) {
+            logger.error("Unable to watch directory " + dir + ": " +
+                         e.getMessage(), e);
+        }
+    }
+
+    private void registerTree(Path root, boolean reportFiles) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir,
+                                                     BasicFileAttributes attrs)
+                throws IOException {
+                register(dir, null);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (!attrs.isDirectory()) {
+                    trackFile(file);
+                    if (reportFiles) {
+                        addPendingChange(file);
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                logger.warn("Unable to read {}: {}", file, e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void register(Path dir, Path watchedFile) throws IOException {
+        WatchKey key =
+            dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        keys.put(key, dir);
+        watchedDirs.put(dir, watchedFile);
+        if (null != watchedFile && Files.exists(watchedFile)) {
+            trackFile(watchedFile);
+        }
+    }
+
+    private void trackFile(Path file) {
+        files.computeIfAbsent(file.getParent(), dir -> new HashSet<>())
+             .add(file.getFileName());
+    }
+
+    private void untrackFile(Path file) {
+        Set<Path> names = files.get(file.getParent());
+        if (null != names) {
+            names.remove(file.getFileName());
+        }
+    }
+
+    private void addPendingChange(Path path) {
+        // Re-inserting moves the change to the end, keeping the map in due order
+        pendingChanges.remove(path);
+        pendingChanges.put(path, System.currentTimeMillis() + quietPeriod);
+    }
+
+    /*
+     * Reports the pending changes which have had no further events over the
+     * quiet period
+     */
+    private void reportChanges() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Path, Long>> changes =
+            pendingChanges.entrySet().iterator();
+        while (changes.hasNext()) {
+            Map.Entry<Path, Long> change = changes.next();
+            if (change.getValue() > now) {
+                break;
+            }
+            changes.remove();
+            reportChange(change.getKey());
+        }
+    }
+
+    private void reportChange(Path path) {
+        if (Files.isDirectory(path)) {
+            return;
+        }
+
+        if (Files.exists(path)) {
+            trackFile(path);
+            listener.onFileChange(path.toFile());
+        } else if (watchedDirs.containsKey(path)) {
+            removeTree(path);
+        } else {
+            untrackFile(path);
+            listener.onFileDelete(path.toFile());
+        }
+    }
+
+    /*
+     * A watched directory was removed. No events may have been received for
+     * its files (if it was moved, for instance), so the files known to be in
+     * it and its children are reported as deleted before they are no longer
+     * tracked.
+     */
+    private void removeTree(Path root) {
+        Iterator<Map.Entry<Path, Set<Path>>> dirs = files.entrySet().iterator();
+        while (dirs.hasNext()) {
+            Map.Entry<Path, Set<Path>> dir = dirs.next();
+            if (dir.getKey().startsWith(root)) {
+                for (Path name : dir.getValue()) {
+                    listener.onFileDelete(dir.getKey().resolve(name).toFile());
+                }
+                dirs.remove();
+            }
+        }
+        watchedDirs.keySet().removeIf(dir -> dir.startsWith(root));
+        keys.values().removeIf(dir -> dir.startsWith(root));
+    }
+
+}
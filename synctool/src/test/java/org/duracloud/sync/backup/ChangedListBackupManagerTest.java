@@ -8,6 +8,7 @@
 package org.duracloud.sync.backup;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertNotNull;
 import static junit.framework.Assert.assertNull;
 import static junit.framework.Assert.assertTrue;
@@ -18,6 +19,7 @@ import java.util.LinkedList;
 import org.apache.commons.io.FileUtils;
 import org.duracloud.sync.SyncTestBase;
 import org.duracloud.sync.mgmt.ChangedFile;
+import org.duracloud.sync.mgmt.ChangedList;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -70,4 +72,39 @@ public class ChangedListBackupManagerTest extends SyncTestBase {
         assertEquals(testFileName, changedFile.getFile().getName());
         assertNull(changedList.reserve());
     }
+
+    @Test
+    public void testChangedListBackupManagerJournal() throws Exception {
+        ChangedListBackupManager bkMan =
+            new ChangedListBackupManager(changedList, tempDir, 100,
+                                         new LinkedList<File>(), true);
+        assertFalse(bkMan.hasBackups());
+        bkMan.clear();
+        assertTrue(changedList.isJournaled());
+
+        try {
+            File file = new File(tempDir, "testfile" + System.currentTimeMillis());
+            changedList.addChangedFile(file);
+            assertTrue(bkMan.hasBackups());
+
+            ChangedFile changedFile = changedList.reserve();
+            assertNotNull(changedFile);
+            changedList.shutdown();
+            changedList = ChangedList.getInstance();
+
+            // The reserved file is restored since it was never removed
+            bkMan = new ChangedListBackupManager(changedList, tempDir, 100,
+                                                 new LinkedList<File>(), true);
+            assertTrue(bkMan.loadBackup() > 0);
+            changedFile = changedList.reserve();
+            assertNotNull(changedFile);
+            assertEquals(file.getAbsolutePath(),
+                         changedFile.getFile().getAbsolutePath());
+            changedFile.remove();
+            assertNull(changedList.reserve());
+        } finally {
+            changedList.shutdown();
+            changedList = ChangedList.getInstance();
+        }
+    }
 }
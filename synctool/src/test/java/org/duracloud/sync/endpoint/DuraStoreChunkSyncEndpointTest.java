@@ -104,9 +104,11 @@ public class DuraStoreChunkSyncEndpointTest {
     private void createGetFilesListMocks(List<String> contents)
         throws ContentStoreException {
 
+        Iterator<String> contentsIterator = contents.iterator();
         EasyMock.expect(contentStore.getSpaceContents(spaceId))
-                .andReturn(contents.iterator())
-                .times(2);
+                .andReturn(contentsIterator);
+        EasyMock.expect(contentStore.getSpaceContents(spaceId, null, true))
+                .andReturn(contentsIterator);
 
     }
 
@@ -0,0 +1,104 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.sync.mgmt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChangedListIndexTest {
+
+    private File tempDir;
+    private File indexFile;
+    private ChangedListIndex index;
+
+    // Stands in for the journal, the offset of each path is its position
+    private List<String> keys = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        tempDir = new File("target", "changed-list-index");
+        FileUtils.deleteDirectory(tempDir);
+        tempDir.mkdirs();
+        indexFile = new File(tempDir, "changeList.journal.index");
+        index = new ChangedListIndex(indexFile, offset -> keys.get((int) offset));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        index.close();
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void testPutGetRemove() throws Exception {
+        put("/a/file-1", 10);
+        put("/a/file-2", 11);
+        assertEquals(10, index.getSequence("/a/file-1"));
+        assertEquals(11, index.getSequence("/a/file-2"));
+        assertEquals(-1, index.getSequence("/a/file-3"));
+        assertEquals(2, index.size());
+
+        // Updating a path does not add to the index
+        put("/a/file-1", 12);
+        assertEquals(12, index.getSequence("/a/file-1"));
+        assertEquals(2, index.size());
+
+        index.remove("/a/file-1");
+        assertEquals(-1, index.getSequence("/a/file-1"));
+        assertEquals(11, index.getSequence("/a/file-2"));
+        assertEquals(1, index.size());
+
+        index.clear();
+        assertEquals(-1, index.getSequence("/a/file-2"));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testGrow() throws Exception {
+        int count = ChangedListIndex.MIN_CAPACITY * 5;
+        for (int i = 0; i < count; i++) {
+            put("/dir/file-" + i, i);
+        }
+        // Removed slots are dropped as the index grows
+        for (int i = 0; i < count; i += 2) {
+            index.remove("/dir/file-" + i);
+        }
+        for (int i = count; i < count * 2; i++) {
+            put("/dir/file-" + i, i);
+        }
+
+        assertEquals(count + count / 2, index.size());
+        for (int i = 0; i < count * 2; i++) {
+            long expected = i < count && i % 2 == 0 ? -1 : i;
+            assertEquals(expected, index.getSequence("/dir/file-" + i));
+        }
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        put("/a/file-1", 1);
+        index.close();
+        assertFalse(indexFile.exists());
+        index = new ChangedListIndex(indexFile, offset -> keys.get((int) offset));
+    }
+
+    private void put(String key, long sequence) throws Exception {
+        keys.add(key);
+        index.put(key, keys.size() - 1, sequence);
+    }
+
+}
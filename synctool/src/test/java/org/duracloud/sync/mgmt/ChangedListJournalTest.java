@@ -0,0 +1,181 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.sync.mgmt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChangedListJournalTest {
+
+    private File tempDir;
+    private File journalFile;
+    private ChangedListJournal journal;
+
+    @Before
+    public void setUp() throws Exception {
+        tempDir = new File("target", "changed-list-journal");
+        FileUtils.deleteDirectory(tempDir);
+        tempDir.mkdirs();
+        journalFile = new File(tempDir, "changeList.journal");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (null != journal) {
+            journal.close();
+        }
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void testReserveInOrder() throws Exception {
+        journal = new ChangedListJournal(journalFile, false, file -> true, 3, 100);
+        for (int i = 0; i < 10; i++) {
+            journal.add(changedFile(i));
+        }
+        // Duplicates keep their place in the list
+        journal.add(changedFile(2));
+        assertEquals(10, journal.size());
+
+        List<File> peeked = journal.peek(5);
+        assertEquals(5, peeked.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(file(i), peeked.get(i));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            ChangedFile reserved = journal.reserve();
+            assertEquals(file(i), reserved.getFile());
+            assertEquals(10 - i - 1, journal.size());
+            assertEquals(i + 1, journal.reservedSize());
+        }
+        assertNull(journal.reserve());
+    }
+
+    @Test
+    public void testRestore() throws Exception {
+        journal = new ChangedListJournal(journalFile, false, file -> true, 3, 100);
+        for (int i = 0; i < 10; i++) {
+            journal.add(changedFile(i));
+        }
+
+        // Removed files are not restored, reserved files are
+        ChangedFile removed = journal.reserve();
+        removed.incrementSyncAttempts();
+        assertEquals(removed, journal.removeReserved(key(0)));
+        ChangedFile reserved = journal.reserve();
+        reserved.incrementSyncAttempts();
+        journal.add(reserved);
+        journal.close();
+
+        Predicate<File> filter = file -> !file.getName().endsWith("-9");
+        journal = new ChangedListJournal(journalFile, true, filter, 3, 100);
+        assertEquals(8, journal.size());
+        for (int i = 2; i < 9; i++) {
+            assertEquals(file(i), journal.reserve().getFile());
+        }
+        ChangedFile readded = journal.reserve();
+        assertEquals(file(1), readded.getFile());
+        assertEquals(1, readded.getSyncAttempts());
+        assertNull(journal.reserve());
+    }
+
+    @Test
+    public void testRestoreIncompleteRecord() throws Exception {
+        journal = new ChangedListJournal(journalFile, false, file -> true);
+        journal.add(changedFile(0));
+        journal.add(changedFile(1));
+        journal.close();
+
+        // Simulate a crash part way through writing the last record
+        try (RandomAccessFile raf = new RandomAccessFile(journalFile, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        journal = new ChangedListJournal(journalFile, true, file -> true);
+        assertEquals(1, journal.size());
+        journal.add(changedFile(2));
+        journal.close();
+
+        journal = new ChangedListJournal(journalFile, true, file -> true);
+        assertEquals(2, journal.size());
+        assertEquals(file(0), journal.reserve().getFile());
+        assertEquals(file(2), journal.reserve().getFile());
+    }
+
+    @Test
+    public void testCompact() throws Exception {
+        journal = new ChangedListJournal(journalFile, false, file -> true, 5, 20);
+        for (int i = 0; i < 50; i++) {
+            journal.add(changedFile(i));
+        }
+        for (int i = 0; i < 40; i++) {
+            ChangedFile reserved = journal.reserve();
+            journal.removeReserved(reserved.getFile().getAbsolutePath());
+        }
+        ChangedFile reserved = journal.reserve();
+
+        long length = journalFile.length();
+        journal.sync();
+        assertTrue(journalFile.length() < length / 5);
+
+        // Compacting keeps the place of the reader in the journal
+        for (int i = 41; i < 50; i++) {
+            assertEquals(file(i), journal.reserve().getFile());
+        }
+        assertNull(journal.reserve());
+        journal.add(changedFile(50));
+        journal.close();
+
+        journal = new ChangedListJournal(journalFile, true, file -> true);
+        assertEquals(11, journal.size());
+        assertEquals(reserved.getFile(), journal.reserve().getFile());
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        journal = new ChangedListJournal(journalFile, false, file -> true);
+        for (int i = 0; i < 5; i++) {
+            journal.add(changedFile(i));
+        }
+        journal.reserve();
+        journal.clear();
+        assertEquals(0, journal.size());
+        assertEquals(0, journal.reservedSize());
+        assertEquals(0, journalFile.length());
+
+        journal.add(changedFile(5));
+        journal.close();
+        journal = new ChangedListJournal(journalFile, true, file -> true);
+        assertEquals(1, journal.size());
+    }
+
+    private ChangedFile changedFile(int index) {
+        return new ChangedFile(file(index));
+    }
+
+    private File file(int index) {
+        return new File(tempDir, "file-" + index).getAbsoluteFile();
+    }
+
+    private String key(int index) {
+        return file(index).getAbsolutePath();
+    }
+
+}
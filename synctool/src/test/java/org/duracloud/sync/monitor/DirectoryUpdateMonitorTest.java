@@ -10,11 +10,14 @@ package org.duracloud.sync.monitor;
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
 import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.io.FileUtils;
 import org.duracloud.sync.SyncTestBase;
@@ -117,6 +120,111 @@ public class DirectoryUpdateMonitorTest extends SyncTestBase {
         monitor.stopMonitor();
     }
 
+    @Test
+    public void testDirectoryUpdateMonitorWatchEvents() throws Exception {
+        List<File> dirs = new ArrayList<File>();
+        dirs.add(tempDir);
+
+        DirectoryUpdateMonitor monitor =
+            new DirectoryUpdateMonitor(dirs, 100, true, true);
+        monitor.startMonitor();
+
+        // Create file
+        File tempFile = File.createTempFile("temp", "file", tempDir);
+        checkFileInChangedList(tempFile);
+
+        // Update file
+        FileWriter writer = new FileWriter(tempFile);
+        writer.write("test");
+        writer.close();
+        checkFileInChangedList(tempFile);
+
+        // Create directory and file, then update the file within the new dir
+        File subDir = new File(tempDir, "sub-dir");
+        subDir.mkdir();
+        File subDirFile = new File(subDir, "sub-file");
+        FileUtils.writeStringToFile(subDirFile, "test", "UTF-8");
+        checkFileInChangedList(subDirFile);
+
+        FileUtils.writeStringToFile(subDirFile, "test-update", "UTF-8");
+        checkFileInChangedList(subDirFile);
+
+        // Delete file
+        tempFile.delete();
+        checkFileInChangedList(tempFile);
+
+        monitor.stopMonitor();
+
+        // No changes reported once stopped
+        FileUtils.writeStringToFile(subDirFile, "test-stopped", "UTF-8");
+        checkFileNotInChangedList(subDirFile);
+    }
+
+    @Test
+    public void testDirectoryUpdateMonitorWatchEventsWithASingleFile()
+        throws Exception {
+        List<File> dirs = new ArrayList<File>();
+        File tempFile = File.createTempFile("temp", "file", tempDir);
+        File otherFile = File.createTempFile("other", "file", tempDir);
+        dirs.add(tempFile);
+
+        DirectoryUpdateMonitor monitor =
+            new DirectoryUpdateMonitor(dirs, 100, false, true);
+        monitor.startMonitor();
+
+        // Changes to other files in the directory are not reported
+        FileUtils.writeStringToFile(otherFile, "test", "UTF-8");
+        checkFileNotInChangedList(otherFile);
+
+        // Rapid updates to a file are reported once
+        for (int i = 0; i < 10; i++) {
+            FileUtils.writeStringToFile(tempFile, "test" + i, "UTF-8");
+        }
+        checkFileInChangedList(tempFile);
+
+        // Delete file
+        tempFile.delete();
+        checkFileNotInChangedList(tempFile);
+
+        monitor.stopMonitor();
+    }
+
+    @Test
+    public void testDirectoryUpdateMonitorWatchEventsDirectoryMoved()
+        throws Exception {
+        File subDir = new File(tempDir, "sub-dir");
+        File subDirFile = new File(subDir, "sub-file");
+        File nestedFile = new File(new File(subDir, "nested-dir"), "nested-file");
+        FileUtils.writeStringToFile(subDirFile, "test", "UTF-8");
+        FileUtils.writeStringToFile(nestedFile, "test", "UTF-8");
+
+        List<File> dirs = new ArrayList<File>();
+        dirs.add(tempDir);
+
+        DirectoryUpdateMonitor monitor =
+            new DirectoryUpdateMonitor(dirs, 100, true, true);
+        monitor.startMonitor();
+
+        // No events are received for the files of a directory moved away
+        File movedDir = createTempDir("monitor-moved-dir");
+        try {
+            FileUtils.moveDirectoryToDirectory(subDir, movedDir, false);
+            Thread.sleep(1000);
+
+            Set<String> deleted = new HashSet<>();
+            ChangedFile changedFile;
+            while (null != (changedFile = changedList.reserve())) {
+                deleted.add(changedFile.getFile().getAbsolutePath());
+            }
+            assertEquals(2, deleted.size());
+            assertTrue(deleted.contains(subDirFile.getAbsolutePath()));
+            assertTrue(deleted.contains(nestedFile.getAbsolutePath()));
+        } finally {
+            monitor.stopMonitor();
+            FileUtils.deleteDirectory(movedDir);
+        }
+    }
+
     private void checkFileInChangedList(File file) throws Exception {
         Thread.sleep(1000);
         ChangedFile changedFile = changedList.reserve();
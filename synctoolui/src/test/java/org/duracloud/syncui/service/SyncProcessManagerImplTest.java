@@ -7,9 +7,11 @@
  */
 package org.duracloud.syncui.service;
 
+import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.isNull;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -144,6 +146,16 @@ public class SyncProcessManagerImplTest extends AbstractTest {
                 }
             }).anyTimes();
 
+        expect(this.contentStore.getSpaceContents(isA(String.class),
+                                                  isNull(),
+                                                  eq(true)))
+            .andAnswer(new IAnswer<Iterator<String>>() {
+                @Override
+                public Iterator<String> answer() throws Throwable {
+                    return Arrays.asList(new String[] {}).iterator();
+                }
+            }).anyTimes();
+
         expect(this.syncConfigurationManager.isSyncDeletes())
             .andReturn(true).times(times);
 